@@ -16,6 +16,10 @@ import java.io.IOException;
  * i.e. don't collect data before they forward it. In other words, each processing step
  * has one input and one output value.
  * <p/>
+ * <p>Subclasses that implement {@link Cloneable} can be copied via {@link #clone()}, e.g.
+ * by a {@link PipelineTemplate}. If they hold per-signal state (like re-used output buffers),
+ * they must override {@link #clone()} to reset it.
+ * <p/>
  *
  * @param <I> type of the input values
  * @param <O> type of the output values
@@ -104,6 +108,23 @@ public abstract class AbstractSignalProcessor<I, O> implements SignalPullProcess
         return source;
     }
 
+    /**
+     * Creates a copy of this processor, that is neither connected to any child processors
+     * nor to a source and has no output yet. Only works for subclasses that implement {@link Cloneable}.
+     *
+     * @return unconnected copy of this processor
+     * @throws CloneNotSupportedException if the subclass does not implement {@link Cloneable}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object clone() throws CloneNotSupportedException {
+        final AbstractSignalProcessor<I, O> clone = (AbstractSignalProcessor<I, O>)super.clone();
+        clone.lastOut = null;
+        clone.signalProcessorSupport = new SignalProcessorSupport<O>();
+        clone.source = null;
+        return clone;
+    }
+
     /**
      * Calls {@link com.tagtraum.jipes.SignalSource#reset()}, if a source is set.
      */
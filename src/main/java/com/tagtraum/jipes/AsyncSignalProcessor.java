@@ -0,0 +1,360 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes;
+
+import com.tagtraum.jipes.audio.RealAudioBuffer;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Inserts a thread boundary into a pipeline.
+ * </p>
+ * <p>
+ * All buffers passed to {@link #process(Object)} are copied into a ring of pooled buffers and
+ * then handed to a dedicated consumer thread, which pushes them to the connected child processors.
+ * This way, everything upstream (e.g. decoding in an {@link com.tagtraum.jipes.audio.AudioSignalSource})
+ * and everything downstream (e.g. spectral processing) runs on two different cores.
+ * If the ring is full, {@link #process(Object)} blocks until the consumer catches up.
+ * {@link #flush()} is forwarded to the children only after all pending buffers have been processed
+ * and returns only after the children have been flushed. Exceptions thrown by children stop the consumer
+ * thread and are re-thrown by all following calls to {@link #process(Object)}, until {@link #flush()}
+ * or {@link #reset()} is called.
+ * </p>
+ * <p>
+ * {@link #reset()} waits until all pending buffers have been processed and stops the consumer thread
+ * without flushing the children. {@link SignalPump} calls it at discontinuities and when a pump has
+ * been cancelled or has failed, so that no consumer thread is left behind.
+ * </p>
+ * <p>
+ * Usage example:
+ * </p>
+ * <xmp>
+ * new SignalPipeline<AudioBuffer, MelSpectrum>(
+ *     new Mono(),
+ *     new SlidingWindow(),
+ *     new AsyncSignalProcessor<AudioBuffer>(),
+ *     new FFT(),
+ *     new Mel()
+ * );
+ * </xmp>
+ * <p>
+ * Arrays and {@link RealAudioBuffer}s are copied into recycled buffers, all other objects must be
+ * {@link Cloneable} (see {@link Copies#copy(Object)}), unless {@link #copy(Object, Object)}
+ * is overridden. Note that children must not hold on to their input, as it will be re-used
+ * (which is true for all buffers produced by {@link SignalSource}s anyway).
+ * </p>
+ *
+ * @param <T> type of the buffers passed through this processor
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see SignalPump#setParallel(boolean)
+ */
+public class AsyncSignalProcessor<T> implements SignalProcessor<T, T>, StatefulSignalProcessor, Cloneable {
+
+    public static final int DEFAULT_RING_SIZE = 16;
+    private static final Object FLUSH = new Object();
+    private static final Object STOP = new Object();
+    private static final AtomicInteger CONSUMER_COUNT = new AtomicInteger();
+
+    private SignalProcessorSupport<T> signalProcessorSupport = new SignalProcessorSupport<T>();
+    private Object id;
+    private int ringSize;
+    private BlockingQueue<Object> ring;
+    private BlockingQueue<T> pool;
+    private Thread consumer;
+    private volatile Throwable failure;
+    private volatile T lastOut;
+
+    /**
+     * Creates an async processor.
+     *
+     * @param ringSize number of buffers that can be pending at any time
+     * @param id id
+     * @throws IllegalArgumentException if the ring size is less than 1
+     */
+    public AsyncSignalProcessor(final int ringSize, final Object id) throws IllegalArgumentException {
+        if (ringSize < 1) throw new IllegalArgumentException("Ring size must be greater than 0: " + ringSize);
+        this.ringSize = ringSize;
+        this.id = id;
+        initRing();
+    }
+
+    /**
+     * Creates an async processor.
+     *
+     * @param ringSize number of buffers that can be pending at any time
+     * @throws IllegalArgumentException if the ring size is less than 1
+     */
+    public AsyncSignalProcessor(final int ringSize) throws IllegalArgumentException {
+        this(ringSize, null);
+    }
+
+    /**
+     * Creates an async processor with a ring size of {@link #DEFAULT_RING_SIZE}.
+     */
+    public AsyncSignalProcessor() {
+        this(DEFAULT_RING_SIZE);
+    }
+
+    private void initRing() {
+        // one slot for the flush or stop marker
+        this.ring = new ArrayBlockingQueue<Object>(ringSize + 1);
+        // two slots more, because the consumer may hold on to one buffer and the last output, while the ring is full
+        this.pool = new ArrayBlockingQueue<T>(ringSize + 2);
+    }
+
+    /**
+     * Number of buffers that can be pending at any time.
+     *
+     * @return ring size
+     */
+    public int getRingSize() {
+        return ringSize;
+    }
+
+    public void setId(final Object id) {
+        this.id = id;
+    }
+
+    public Object getId() {
+        if (id == null) return toString();
+        return id;
+    }
+
+    public void process(final T buffer) throws IOException {
+        checkFailure();
+        if (consumer == null) startConsumer();
+        try {
+            ring.put(copy(buffer, pool.poll()));
+        } catch (InterruptedException e) {
+            throw interrupted(e);
+        }
+    }
+
+    /**
+     * Waits until all pending buffers have been processed, flushes all children
+     * and stops the consumer thread. A new one is started with the next call to {@link #process(Object)}.
+     *
+     * @throws IOException if a child failed to process or flush a buffer
+     */
+    public void flush() throws IOException {
+        if (consumer != null) {
+            if (failure == null) {
+                try {
+                    ring.put(FLUSH);
+                } catch (InterruptedException e) {
+                    throw interrupted(e);
+                }
+            }
+            stopConsumer();
+        } else if (failure == null) {
+            signalProcessorSupport.flush();
+        }
+        final Throwable t = failure;
+        failure = null;
+        rethrow(t);
+    }
+
+    /**
+     * Waits until all pending buffers have been processed and stops the consumer thread,
+     * <em>without</em> flushing the children. A failure that has not been re-thrown yet is discarded.
+     * A new consumer thread is started with the next call to {@link #process(Object)}.
+     */
+    public void reset() {
+        if (consumer != null && failure == null) {
+            putUninterruptibly(STOP);
+        }
+        stopConsumer();
+        failure = null;
+    }
+
+    /**
+     * Copies the given buffer, so that it can be handed to another thread.
+     * If possible, the copy is made into a recycled buffer that has been processed before.
+     *
+     * @param buffer buffer to copy
+     * @param recycled buffer that can be re-used or <code>null</code>, if none is available
+     * @return copy
+     */
+    @SuppressWarnings("unchecked")
+    protected T copy(final T buffer, final T recycled) {
+        if (recycled != null) {
+            if (buffer instanceof float[] && recycled instanceof float[] && ((float[]) buffer).length == ((float[]) recycled).length) {
+                final float[] data = (float[]) buffer;
+                System.arraycopy(data, 0, recycled, 0, data.length);
+                return recycled;
+            }
+            if (buffer instanceof double[] && recycled instanceof double[] && ((double[]) buffer).length == ((double[]) recycled).length) {
+                final double[] data = (double[]) buffer;
+                System.arraycopy(data, 0, recycled, 0, data.length);
+                return recycled;
+            }
+            if (buffer != null && buffer.getClass() == RealAudioBuffer.class && recycled.getClass() == RealAudioBuffer.class) {
+                final RealAudioBuffer in = (RealAudioBuffer) buffer;
+                final RealAudioBuffer out = (RealAudioBuffer) recycled;
+                final float[] data = in.getData();
+                final float[] outData = out.getData().length == data.length ? out.getData() : new float[data.length];
+                System.arraycopy(data, 0, outData, 0, data.length);
+                out.reuse(in.getFrameNumber(), outData, in.getAudioFormat());
+                return recycled;
+            }
+        }
+        return Copies.copy(buffer);
+    }
+
+    private void startConsumer() {
+        failure = null;
+        consumer = new Thread(new Consumer(ring, pool), "AsyncSignalProcessor-Consumer-" + CONSUMER_COUNT.incrementAndGet());
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    /**
+     * Re-throws a failure of the consumer thread, but keeps it until {@link #flush()} or {@link #reset()}.
+     * The consumer thread has already stopped itself in this case.
+     */
+    private void checkFailure() throws IOException {
+        final Throwable t = failure;
+        if (t == null) return;
+        stopConsumer();
+        rethrow(t);
+    }
+
+    private static void rethrow(final Throwable t) throws IOException {
+        if (t == null) return;
+        if (t instanceof IOException) throw (IOException) t;
+        if (t instanceof RuntimeException) throw (RuntimeException) t;
+        if (t instanceof Error) throw (Error) t;
+        throw new IOException(t);
+    }
+
+    /**
+     * Waits for the consumer thread to end, which it does after taking a flush or stop marker
+     * or after a failure. Interrupts are deferred until the thread has actually ended, so that
+     * it is never left running concurrently with a new one.
+     */
+    private void stopConsumer() {
+        if (consumer == null) return;
+        boolean interrupted = false;
+        while (true) {
+            try {
+                consumer.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        consumer = null;
+        // buffers put after a failure are never taken
+        ring.clear();
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    private void putUninterruptibly(final Object marker) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                ring.put(marker);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    private static InterruptedIOException interrupted(final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        final InterruptedIOException interruptedIOException = new InterruptedIOException(e.toString());
+        interruptedIOException.initCause(e);
+        return interruptedIOException;
+    }
+
+    /**
+     * Last buffer that was pushed to the children.
+     *
+     * @return last buffer
+     */
+    public T getOutput() throws IOException {
+        return lastOut;
+    }
+
+    public <O2> SignalProcessor<T, O2> connectTo(final SignalProcessor<T, O2> signalProcessor) {
+        return signalProcessorSupport.connectTo(signalProcessor);
+    }
+
+    public <O2> SignalProcessor<T, O2> disconnectFrom(final SignalProcessor<T, O2> signalProcessor) {
+        return signalProcessorSupport.disconnectFrom(signalProcessor);
+    }
+
+    public SignalProcessor<T, ?>[] getConnectedProcessors() {
+        return signalProcessorSupport.getConnectedProcessors();
+    }
+
+    /**
+     * Creates a copy that is not connected to any child processors and has its own ring and consumer thread.
+     *
+     * @return copy
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object clone() throws CloneNotSupportedException {
+        final AsyncSignalProcessor<T> clone = (AsyncSignalProcessor<T>)super.clone();
+        clone.signalProcessorSupport = new SignalProcessorSupport<T>();
+        clone.consumer = null;
+        clone.failure = null;
+        clone.lastOut = null;
+        clone.initRing();
+        return clone;
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncSignalProcessor{" +
+                "ringSize=" + ringSize +
+                '}';
+    }
+
+    /**
+     * Takes buffers from the ring, pushes them to the children and returns the previous
+     * output buffer to the pool, until it takes a flush or stop marker.
+     * After a failure, the ring is cleared, so that the producer does not block, and the consumer ends.
+     */
+    private class Consumer implements Runnable {
+
+        private final BlockingQueue<Object> ring;
+        private final BlockingQueue<T> pool;
+
+        private Consumer(final BlockingQueue<Object> ring, final BlockingQueue<T> pool) {
+            this.ring = ring;
+            this.pool = pool;
+        }
+
+        @SuppressWarnings("unchecked")
+        public void run() {
+            try {
+                Object buffer;
+                while ((buffer = ring.take()) != FLUSH) {
+                    if (buffer == STOP) return;
+                    // the current output must not be recycled, as it is still returned by getOutput()
+                    final T previousOut = lastOut;
+                    lastOut = (T) buffer;
+                    if (previousOut != null && previousOut != buffer) pool.offer(previousOut);
+                    signalProcessorSupport.process((T) buffer);
+                }
+                signalProcessorSupport.flush();
+            } catch (Throwable t) {
+                failure = t;
+                ring.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Runs {@link SignalPump}s for many items (e.g. audio files) concurrently.
+ * </p>
+ * <p>
+ * For each item, a {@link SignalSource} is obtained from a {@link SourceFactory} and
+ * a new processor graph from a {@link SignalProcessorFactory}. Items are pulled lazily from the
+ * provided {@link Iterable} by a fixed number of worker threads, so at most
+ * {@link #getThreads()} pumps (and their buffers) exist at any given time. Results are
+ * handed to a {@link ResultHandler} as soon as they are available and are not retained.
+ * </p>
+ * <p>
+ * Usage example:
+ * </p>
+ * <xmp>
+ * final BatchSignalPump<File, AudioBuffer> batch = new BatchSignalPump<File, AudioBuffer>(
+ *     new BatchSignalPump.SourceFactory<File, AudioBuffer>() {
+ *         public SignalSource<AudioBuffer> create(final File file) throws Exception {
+ *             return new AudioSignalSource(file);
+ *         }
+ *     },
+ *     new SignalProcessorFactory<AudioBuffer>() {
+ *         public SignalProcessor<AudioBuffer, ?> create() {
+ *             return new SignalPipeline<AudioBuffer, AudioBuffer>(new Mono(), new SlidingWindow(), ...);
+ *         }
+ *     });
+ * batch.pump(files, handler);
+ * </xmp>
+ *
+ * @param <T> type of the items to process, e.g. {@link java.io.File}
+ * @param <I> type of the input values from the created {@link SignalSource}s
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see SignalPump
+ */
+public class BatchSignalPump<T, I> {
+
+    private static final Logger LOG = Logger.getLogger(BatchSignalPump.class.getName());
+    private static final AtomicInteger WORKER_COUNT = new AtomicInteger();
+
+    private final SourceFactory<T, I> sourceFactory;
+    private final SignalProcessorFactory<I> processorFactory;
+    private final int threads;
+    private final Set<Submission<T, I>> activeSubmissions = new HashSet<Submission<T, I>>();
+    private final Set<T> cancelledItems = new HashSet<T>();
+    private final AtomicInteger processedItems = new AtomicInteger();
+    private volatile boolean cancelled;
+    private volatile long startTime;
+    private volatile long endTime;
+
+    /**
+     * Creates a batch pump.
+     *
+     * @param sourceFactory factory for item specific signal sources
+     * @param processorFactory factory for processor graphs
+     * @param threads number of items to process concurrently
+     * @throws IllegalArgumentException if threads is less than 1
+     */
+    public BatchSignalPump(final SourceFactory<T, I> sourceFactory, final SignalProcessorFactory<I> processorFactory,
+                           final int threads) throws IllegalArgumentException {
+        if (threads < 1) throw new IllegalArgumentException("Number of threads must be greater than 0: " + threads);
+        this.sourceFactory = sourceFactory;
+        this.processorFactory = processorFactory;
+        this.threads = threads;
+    }
+
+    /**
+     * Creates a batch pump that uses as many threads as there are available processors.
+     *
+     * @param sourceFactory factory for item specific signal sources
+     * @param processorFactory factory for processor graphs
+     */
+    public BatchSignalPump(final SourceFactory<T, I> sourceFactory, final SignalProcessorFactory<I> processorFactory) {
+        this(sourceFactory, processorFactory, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Number of items that are processed concurrently.
+     *
+     * @return number of threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Processes all given items and blocks until all of them are either done, failed or cancelled.
+     * Note that the result handler is called from multiple threads.
+     *
+     * @param items items to process
+     * @param resultHandler handler for results, must be thread-safe
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     * @throws RuntimeException if the result handler throws one, it is not reported as failure of the item
+     */
+    public void pump(final Iterable<T> items, final ResultHandler<T> resultHandler) throws InterruptedException {
+        cancelled = false;
+        processedItems.set(0);
+        startTime = System.nanoTime();
+        endTime = 0;
+        final Iterator<T> iterator = items.iterator();
+        final ExecutorService executorService = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "BatchSignalPump-Worker-" + WORKER_COUNT.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            final List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int i=0; i<threads; i++) {
+                futures.add(executorService.submit(new Runnable() {
+                    public void run() {
+                        T item;
+                        while ((item = next(iterator)) != null) {
+                            pump(item, resultHandler);
+                        }
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                    if (cause instanceof Error) throw (Error) cause;
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } finally {
+            executorService.shutdownNow();
+            synchronized (this) {
+                // cancels of items that were not part of this batch or were already done
+                cancelledItems.clear();
+            }
+            endTime = System.nanoTime();
+        }
+    }
+
+    private T next(final Iterator<T> iterator) {
+        synchronized (iterator) {
+            if (cancelled || !iterator.hasNext()) return null;
+            return iterator.next();
+        }
+    }
+
+    private void pump(final T item, final ResultHandler<T> resultHandler) {
+        SignalSource<I> source = null;
+        Map<Object, Object> result = null;
+        // one submission per occurrence of the item, so that duplicates are tracked separately
+        final Submission<T, I> submission = new Submission<T, I>(item);
+        try {
+            final boolean skip;
+            synchronized (this) {
+                skip = cancelledItems.remove(item) || cancelled;
+                if (skip) submission.cancelled = true;
+                else activeSubmissions.add(submission);
+            }
+            if (!skip) {
+                source = sourceFactory.create(item);
+                submission.signalPump.setSignalSource(source);
+                submission.signalPump.add(processorFactory.create());
+                result = submission.signalPump.pump();
+            }
+        } catch (Exception e) {
+            synchronized (this) {
+                activeSubmissions.remove(submission);
+            }
+            processedItems.incrementAndGet();
+            close(item, source);
+            resultHandler.handleFailure(item, e);
+            return;
+        }
+        synchronized (this) {
+            activeSubmissions.remove(submission);
+            // the pump may have been cancelled before it actually started
+            if (submission.cancelled || cancelled) result = null;
+        }
+        processedItems.incrementAndGet();
+        close(item, source);
+        // called outside of the try block, so that an exception thrown by the handler
+        // is not reported as failure of an item that has already succeeded
+        resultHandler.handle(item, result);
+    }
+
+    private void close(final T item, final SignalSource<I> source) {
+        if (source instanceof Closeable) {
+            try {
+                ((Closeable) source).close();
+            } catch (Exception e) {
+                LOG.log(Level.WARNING, "Failed to close source for " + item + ": " + e, e);
+            }
+        }
+    }
+
+    /**
+     * Cancels processing of a single item. If the item is currently being processed,
+     * its pump is cancelled via {@link SignalPump#cancel()}. If it has not been started yet,
+     * it will be skipped, even if the next call to {@link #pump(Iterable, ResultHandler)} has not started yet.
+     * Either way, its result is reported as <code>null</code>. Items that have already been
+     * processed by the current call to {@link #pump(Iterable, ResultHandler)} are not affected.
+     * If an item occurs more than once, all its running pumps are cancelled, but only its next
+     * occurrence is skipped. May be called from any thread.
+     *
+     * @param item item to cancel
+     */
+    public synchronized void cancel(final T item) {
+        boolean running = false;
+        for (final Submission<T, I> submission : activeSubmissions) {
+            if (submission.item.equals(item)) {
+                submission.cancelled = true;
+                submission.signalPump.cancel();
+                running = true;
+            }
+        }
+        if (!running) cancelledItems.add(item);
+    }
+
+    /**
+     * Cancels all currently running pumps and does not start any new ones.
+     * May be called from any thread.
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+        for (final Submission<T, I> submission : activeSubmissions) {
+            submission.signalPump.cancel();
+        }
+    }
+
+    /**
+     * Indicates whether the whole batch has been cancelled.
+     *
+     * @return true or false
+     * @see #cancel()
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Number of items that have been processed (including failed and cancelled items) since
+     * the last call to {@link #pump(Iterable, ResultHandler)} started.
+     *
+     * @return number of items
+     */
+    public int getProcessedItems() {
+        return processedItems.get();
+    }
+
+    /**
+     * Throughput of the current or last call to {@link #pump(Iterable, ResultHandler)}.
+     *
+     * @return items per second or 0, if nothing has been processed yet
+     */
+    public double getItemsPerSecond() {
+        if (startTime == 0) return 0;
+        final long end = endTime == 0 ? System.nanoTime() : endTime;
+        final long nanos = end - startTime;
+        if (nanos <= 0) return 0;
+        return processedItems.get() * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchSignalPump{" +
+                "threads=" + threads +
+                ", sourceFactory=" + sourceFactory +
+                ", processorFactory=" + processorFactory +
+                '}';
+    }
+
+    /**
+     * A single occurrence of an item and the pump processing it.
+     * Compared by identity. Access to {@link #cancelled} is guarded by the enclosing batch pump.
+     */
+    private static class Submission<T, I> {
+        private final T item;
+        private final SignalPump<I> signalPump = new SignalPump<I>();
+        private boolean cancelled;
+
+        private Submission(final T item) {
+            this.item = item;
+        }
+    }
+
+    /**
+     * Creates a {@link SignalSource} for a given item.
+     *
+     * @param <T> item type
+     * @param <I> type of the values provided by the source
+     */
+    public interface SourceFactory<T, I> {
+
+        /**
+         * Creates a source for the given item. Sources that implement {@link Closeable} are closed
+         * after they have been pumped.
+         *
+         * @param item item, e.g. a file
+         * @return signal source
+         * @throws Exception if the source cannot be created
+         */
+        SignalSource<I> create(T item) throws Exception;
+    }
+
+    /**
+     * Receives results of a {@link BatchSignalPump}.
+     * Implementations must be thread-safe.
+     *
+     * @param <T> item type
+     */
+    public interface ResultHandler<T> {
+
+        /**
+         * Called when an item has been processed.
+         *
+         * @param item item
+         * @param result id/output map as returned by {@link SignalPump#pump()} or <code>null</code>,
+         * if processing of the item was cancelled
+         */
+        void handle(T item, Map<Object, Object> result);
+
+        /**
+         * Called when processing of an item failed.
+         *
+         * @param item item
+         * @param e exception
+         */
+        void handleFailure(T item, Exception e);
+    }
+}
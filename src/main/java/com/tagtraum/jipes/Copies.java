@@ -0,0 +1,81 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Helper for creating copies of the objects a pipeline consists of.
+ * <p/>
+ * Buffers need to be copied whenever they have to outlive the {@link SignalProcessor#process(Object)} call
+ * they were handed to, e.g. when they are passed on to another thread.
+ * Processors and functions are copied, when an independent instance of a pipeline is needed
+ * (see {@link PipelineTemplate}).
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public final class Copies {
+
+    private Copies() {
+    }
+
+    /**
+     * Creates a copy of the given object. Primitive arrays and object arrays are cloned,
+     * all other objects must be {@link Cloneable} and offer a public <code>clone()</code> method
+     * (like all {@link com.tagtraum.jipes.audio.AudioBuffer}s do).
+     *
+     * @param object buffer, processor or function
+     * @param <T> object type
+     * @return copy or <code>null</code>, if the object was <code>null</code>
+     * @throws IllegalArgumentException if the object cannot be copied
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T copy(final T object) throws IllegalArgumentException {
+        if (object == null) return null;
+        if (object instanceof float[]) return (T)((float[]) object).clone();
+        if (object instanceof double[]) return (T)((double[]) object).clone();
+        if (object instanceof int[]) return (T)((int[]) object).clone();
+        if (object instanceof long[]) return (T)((long[]) object).clone();
+        if (object instanceof short[]) return (T)((short[]) object).clone();
+        if (object instanceof byte[]) return (T)((byte[]) object).clone();
+        if (object instanceof Object[]) return (T)((Object[]) object).clone();
+        if (object instanceof Cloneable) {
+            try {
+                final Method clone = object.getClass().getMethod("clone");
+                // e.g. private nested function implementations
+                if (!Modifier.isPublic(clone.getDeclaringClass().getModifiers())) clone.setAccessible(true);
+                return (T)clone.invoke(object);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalArgumentException("Object does not offer a public clone() method: " + object.getClass(), e);
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Failed to copy object: " + object.getClass(), e);
+            } catch (InvocationTargetException e) {
+                throw new IllegalArgumentException("Failed to copy object: " + object.getClass(), e.getCause());
+            }
+        }
+        throw new IllegalArgumentException("Object is not cloneable: " + object.getClass());
+    }
+
+    /**
+     * Creates a copy of the given object, if it is {@link Cloneable}. Otherwise the object itself
+     * is returned. This is meant for functions used by processors: Stateless functions
+     * can safely be shared, stateful ones (or ones that re-use output buffers) are expected
+     * to be {@link Cloneable}.
+     *
+     * @param object object
+     * @param <T> object type
+     * @return copy or the object itself
+     * @throws IllegalArgumentException if the object is cloneable, but cannot be copied
+     * @see #copy(Object)
+     */
+    public static <T> T copyIfCloneable(final T object) throws IllegalArgumentException {
+        if (object instanceof Cloneable) return copy(object);
+        return object;
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes;
+
+/**
+ * {@link SignalSource} that delivers a signal that is not necessarily continuous, e.g. a sequence
+ * of excerpts from a longer recording.
+ * <p/>
+ * A {@link SignalPump} checks {@link #isDiscontinuity()} after each read and, if necessary,
+ * resets all {@link StatefulSignalProcessor}s, before it processes the buffer.
+ *
+ * @param <I> type of the delivered values
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see StatefulSignalProcessor
+ * @see com.tagtraum.jipes.audio.ExcerptSignalSource
+ */
+public interface DiscontinuousSignalSource<I> extends SignalSource<I> {
+
+    /**
+     * Indicates whether the buffer returned by the last call to {@link #read()} does not
+     * continue the buffer returned before it.
+     *
+     * @return true, if there is a discontinuity right before the last buffer
+     */
+    boolean isDiscontinuity();
+
+}
@@ -0,0 +1,31 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes;
+
+/**
+ * Implemented by {@link SignalProcessor}s that compute the output for a frame solely from that
+ * very frame, i.e. without depending on any previously processed frames. Examples are
+ * {@link com.tagtraum.jipes.audio.FFT}, {@link com.tagtraum.jipes.audio.DCT} or
+ * {@link com.tagtraum.jipes.audio.Mel}.
+ * <p/>
+ * Chains of such processors may process consecutive frames concurrently using a
+ * {@link FrameParallelSignalProcessor}.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see FrameParallelSignalProcessor
+ */
+public interface FrameIndependent {
+
+    /**
+     * Indicates whether this processor in its current configuration is frame independent.
+     * E.g. a {@link com.tagtraum.jipes.universal.Mapping} is only frame independent, if its
+     * map function is not a {@link com.tagtraum.jipes.math.StatefulMapFunction}.
+     *
+     * @return true, if each output depends only on the corresponding input frame
+     */
+    boolean isFrameIndependent();
+}
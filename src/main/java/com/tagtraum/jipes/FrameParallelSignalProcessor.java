@@ -0,0 +1,284 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Processes consecutive frames concurrently using a chain of {@link FrameIndependent} processors
+ * and re-emits the results to its children in the original order.
+ * </p>
+ * <p>
+ * The wrapped chain (a single processor or an unconnected {@link SignalPipeline}) is copied
+ * once per degree of parallelism using a {@link PipelineTemplate}. Each incoming frame is copied
+ * and handed to an {@link ExecutorService}, where one of the chain copies processes it.
+ * Results are collected in submission order, so children see exactly the same sequence of
+ * buffers as if the chain had been placed directly into the pipeline.
+ * {@link #flush()} waits for all pending frames and then flushes the children.
+ * </p>
+ * <p>
+ * Usage example (MFCC):
+ * </p>
+ * <xmp>
+ * final SlidingWindow slidingWindow = new SlidingWindow(1024, 512);
+ * slidingWindow.connectTo(new FrameParallelSignalProcessor<AudioBuffer, LinearFrequencySpectrum>(
+ *     new SignalPipeline<AudioBuffer, LinearFrequencySpectrum>(
+ *         new FFT(),
+ *         new Mel(),
+ *         new DCT()
+ *     )));
+ * </xmp>
+ * <p>
+ * Unless an executor is specified, all instances share a pool of daemon threads that is
+ * sized to the number of available processors.
+ * </p>
+ *
+ * @param <I> type of the input values
+ * @param <O> type of the output values
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see FrameIndependent
+ * @see AsyncSignalProcessor
+ */
+public class FrameParallelSignalProcessor<I, O> implements SignalProcessor<I, O>, Cloneable {
+
+    private static final int PROCESSORS = Runtime.getRuntime().availableProcessors();
+    private static ExecutorService sharedExecutorService;
+
+    private final PipelineTemplate<I> template;
+    private final ExecutorService executorService;
+    private final int parallelism;
+    private SignalProcessorSupport<O> signalProcessorSupport = new SignalProcessorSupport<O>();
+    private LinkedList<Future<O>> pending = new LinkedList<Future<O>>();
+    private BlockingQueue<SignalProcessor<I, O>> instances;
+    private Object id;
+    private O lastOut;
+
+    /**
+     * Creates a frame parallel processor.
+     *
+     * @param processor chain of frame independent processors, must not be connected to any children
+     * @param executorService executor that runs the chain copies
+     * @param parallelism max number of frames to process concurrently
+     * @throws IllegalArgumentException if the chain is not frame independent, cannot be copied or
+     * if parallelism is less than 1
+     */
+    public FrameParallelSignalProcessor(final SignalProcessor<I, O> processor, final ExecutorService executorService,
+                                        final int parallelism) throws IllegalArgumentException {
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be greater than 0: " + parallelism);
+        if (executorService == null) throw new IllegalArgumentException("ExecutorService must not be null");
+        verifyFrameIndependence(processor);
+        this.template = new PipelineTemplate<I>(processor);
+        this.executorService = executorService;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Creates a frame parallel processor that uses a shared pool of daemon threads.
+     *
+     * @param processor chain of frame independent processors, must not be connected to any children
+     * @param parallelism max number of frames to process concurrently
+     * @throws IllegalArgumentException if the chain is not frame independent, cannot be copied or
+     * if parallelism is less than 1
+     */
+    public FrameParallelSignalProcessor(final SignalProcessor<I, O> processor, final int parallelism) throws IllegalArgumentException {
+        this(processor, getSharedExecutorService(), parallelism);
+    }
+
+    /**
+     * Creates a frame parallel processor that uses a shared pool of daemon threads and
+     * processes as many frames concurrently as there are processors.
+     *
+     * @param processor chain of frame independent processors, must not be connected to any children
+     * @throws IllegalArgumentException if the chain is not frame independent or cannot be copied
+     */
+    public FrameParallelSignalProcessor(final SignalProcessor<I, O> processor) throws IllegalArgumentException {
+        this(processor, PROCESSORS);
+    }
+
+    private static synchronized ExecutorService getSharedExecutorService() {
+        if (sharedExecutorService == null) {
+            final AtomicInteger count = new AtomicInteger();
+            sharedExecutorService = Executors.newFixedThreadPool(PROCESSORS, new ThreadFactory() {
+                public Thread newThread(final Runnable r) {
+                    final Thread thread = new Thread(r, "FrameParallelSignalProcessor-Worker-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sharedExecutorService;
+    }
+
+    /**
+     * Verifies that the given processor is the head of a straight, unconnected chain of
+     * {@link FrameIndependent} processors.
+     *
+     * @param processor head
+     * @throws IllegalArgumentException if the chain is not frame independent
+     */
+    private static void verifyFrameIndependence(final SignalProcessor<?, ?> processor) throws IllegalArgumentException {
+        if (processor == null) throw new IllegalArgumentException("Processor must not be null");
+        if (processor instanceof SignalPipeline) {
+            final SignalPipeline<?, ?> pipeline = (SignalPipeline<?, ?>) processor;
+            if (pipeline.getConnectedProcessors().length != 0) {
+                throw new IllegalArgumentException("Pipeline must not be connected to any children: " + pipeline);
+            }
+            verifyFrameIndependence(pipeline.getFirstProcessor());
+            return;
+        }
+        if (!(processor instanceof FrameIndependent) || !((FrameIndependent) processor).isFrameIndependent()) {
+            throw new IllegalArgumentException("Processor is not frame independent: " + processor);
+        }
+        final SignalProcessor<?, ?>[] children = processor.getConnectedProcessors();
+        if (children.length > 1) throw new IllegalArgumentException("Chain must not contain forks: " + processor);
+        if (children.length == 1) verifyFrameIndependence(children[0]);
+    }
+
+    /**
+     * Max number of frames processed concurrently.
+     *
+     * @return parallelism
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setId(final Object id) {
+        this.id = id;
+    }
+
+    public Object getId() {
+        if (id == null) return toString();
+        return id;
+    }
+
+    public void process(final I buffer) throws IOException {
+        if (instances == null) createInstances();
+        // never submit more frames than there are instances, so that tasks don't block pool threads
+        if (pending.size() >= parallelism) emit(pending.removeFirst());
+        final I frame = Copies.copy(buffer);
+        pending.add(executorService.submit(new Callable<O>() {
+            public O call() throws Exception {
+                final SignalProcessor<I, O> instance = instances.take();
+                try {
+                    instance.process(frame);
+                    // the instance may re-use its output buffer for the next frame
+                    return Copies.copy(instance.getOutput());
+                } finally {
+                    instances.put(instance);
+                }
+            }
+        }));
+    }
+
+    /**
+     * Waits until all pending frames have been processed, pushes the results to the children and
+     * flushes them.
+     *
+     * @throws IOException if a frame could not be processed
+     */
+    public void flush() throws IOException {
+        while (!pending.isEmpty()) {
+            emit(pending.removeFirst());
+        }
+        signalProcessorSupport.flush();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void createInstances() {
+        final List<SignalProcessor<I, O>> list = new ArrayList<SignalProcessor<I, O>>();
+        for (int i=0; i<parallelism; i++) {
+            list.add((SignalProcessor<I, O>) template.create());
+        }
+        instances = new ArrayBlockingQueue<SignalProcessor<I, O>>(parallelism, false, list);
+    }
+
+    private void emit(final Future<O> future) throws IOException {
+        final O out;
+        try {
+            out = future.get();
+        } catch (InterruptedException e) {
+            cancelPending();
+            Thread.currentThread().interrupt();
+            final InterruptedIOException interruptedIOException = new InterruptedIOException(e.toString());
+            interruptedIOException.initCause(e);
+            throw interruptedIOException;
+        } catch (ExecutionException e) {
+            cancelPending();
+            final Throwable t = e.getCause();
+            if (t instanceof IOException) throw (IOException) t;
+            if (t instanceof RuntimeException) throw (RuntimeException) t;
+            if (t instanceof Error) throw (Error) t;
+            throw new IOException(t);
+        }
+        // frames may be dropped by the chain
+        if (out != null) {
+            lastOut = out;
+            signalProcessorSupport.process(out);
+        }
+    }
+
+    private void cancelPending() {
+        for (final Future<O> future : pending) {
+            future.cancel(false);
+        }
+        pending.clear();
+    }
+
+    /**
+     * Last result that was pushed to the children.
+     *
+     * @return last result
+     */
+    public O getOutput() throws IOException {
+        return lastOut;
+    }
+
+    public <O2> SignalProcessor<O, O2> connectTo(final SignalProcessor<O, O2> signalProcessor) {
+        return signalProcessorSupport.connectTo(signalProcessor);
+    }
+
+    public <O2> SignalProcessor<O, O2> disconnectFrom(final SignalProcessor<O, O2> signalProcessor) {
+        return signalProcessorSupport.disconnectFrom(signalProcessor);
+    }
+
+    public SignalProcessor<O, ?>[] getConnectedProcessors() {
+        return signalProcessorSupport.getConnectedProcessors();
+    }
+
+    /**
+     * Creates a copy that is not connected to any child processors and has its own chain copies.
+     * The executor is shared.
+     *
+     * @return copy
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object clone() throws CloneNotSupportedException {
+        final FrameParallelSignalProcessor<I, O> clone = (FrameParallelSignalProcessor<I, O>)super.clone();
+        clone.signalProcessorSupport = new SignalProcessorSupport<O>();
+        clone.pending = new LinkedList<Future<O>>();
+        clone.instances = null;
+        clone.lastOut = null;
+        return clone;
+    }
+
+    @Override
+    public String toString() {
+        return "FrameParallelSignalProcessor{" +
+                "processor=" + template.getPrototype() +
+                ", parallelism=" + parallelism +
+                '}';
+    }
+}
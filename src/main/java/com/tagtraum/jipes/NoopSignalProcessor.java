@@ -16,7 +16,7 @@ import java.io.IOException;
  * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
  * @see SignalSplit
  */
-public final class NoopSignalProcessor<T> extends AbstractSignalProcessor<T, T> {
+public final class NoopSignalProcessor<T> extends AbstractSignalProcessor<T, T> implements Cloneable {
 
     public NoopSignalProcessor() {
     }
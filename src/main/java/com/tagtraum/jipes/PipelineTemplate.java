@@ -0,0 +1,147 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * <p>Captures a processor graph once and stamps out independent copies of it.
+ * </p>
+ * <p>
+ * The graph is built as usual, i.e. with {@link SignalPipeline}s, {@link NoopSignalProcessor}s,
+ * {@link SignalSplit}s and {@link SignalProcessor#connectTo(SignalProcessor)}, and then passed
+ * to the template as prototype. Each call to {@link #create()} returns a copy of the prototype with
+ * the same structure, but without any shared per-signal state. Expensive immutable data like
+ * filter banks, constant-Q kernels, window coefficients or FFT implementations is
+ * <em>not</em> copied, but shared among all copies. This makes creating a copy much
+ * cheaper than building the graph again.
+ * </p>
+ * <p>
+ * All processors in the graph (with the exception of {@link SignalPipeline}s, which are rebuilt)
+ * must implement {@link Cloneable} and offer a public <code>clone()</code> method that
+ * returns an unconnected copy (see {@link AbstractSignalProcessor#clone()}).
+ * The prototype itself should not be used for processing.
+ * </p>
+ * <p>
+ * Usage example:
+ * </p>
+ * <xmp>
+ * final SignalPipeline<AudioBuffer, MelSpectrum> pipeline = new SignalPipeline<AudioBuffer, MelSpectrum>(
+ *     new Mono(), new SlidingWindow(), new Mapping<AudioBuffer>(AudioBufferFunctions.createMapFunction(new WindowFunction.Hamming(2048))),
+ *     new FFT(), new Mel()
+ * );
+ * final PipelineTemplate<AudioBuffer> template = new PipelineTemplate<AudioBuffer>(pipeline);
+ * final BatchSignalPump<File, AudioBuffer> batch = new BatchSignalPump<File, AudioBuffer>(sourceFactory, template);
+ * </xmp>
+ *
+ * @param <I> type of the input values of the graph
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see BatchSignalPump
+ * @see Copies
+ */
+public class PipelineTemplate<I> implements SignalProcessorFactory<I> {
+
+    private final SignalProcessor<I, ?> prototype;
+
+    /**
+     * Creates a template for the given graph.
+     *
+     * @param prototype root of the graph to copy
+     * @throws IllegalArgumentException if the graph contains processors that cannot be copied
+     */
+    public PipelineTemplate(final SignalProcessor<I, ?> prototype) throws IllegalArgumentException {
+        if (prototype == null) throw new IllegalArgumentException("Prototype must not be null");
+        verifyCopyable(prototype);
+        this.prototype = prototype;
+    }
+
+    /**
+     * Root of the graph that is copied.
+     *
+     * @return prototype
+     */
+    public SignalProcessor<I, ?> getPrototype() {
+        return prototype;
+    }
+
+    /**
+     * Creates a new copy of the prototype graph. This method may be called concurrently.
+     *
+     * @return new processor graph
+     * @throws IllegalArgumentException if a processor cannot be copied
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public SignalProcessor<I, ?> create() throws IllegalArgumentException {
+        return (SignalProcessor<I, ?>) copy(prototype, new IdentityHashMap<SignalProcessor, SignalProcessor>());
+    }
+
+    /**
+     * Copies the given processor and, recursively, all its children. The identity map makes sure
+     * that processors with multiple parents (e.g. a {@link com.tagtraum.jipes.universal.Join})
+     * are only copied once.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static SignalProcessor copy(final SignalProcessor processor, final Map<SignalProcessor, SignalProcessor> copies) {
+        final SignalProcessor existingCopy = copies.get(processor);
+        if (existingCopy != null) return existingCopy;
+        if (processor instanceof SignalPipeline) {
+            final SignalPipeline pipeline = (SignalPipeline) processor;
+            // copying the first processor copies everything downstream, including the last one
+            final SignalProcessor first = copy(pipeline.getFirstProcessor(), copies);
+            final SignalPipeline copy = new SignalPipeline(first, copies.get(pipeline.getLastProcessor()), false);
+            copies.put(processor, copy);
+            return copy;
+        }
+        final SignalProcessor copy = Copies.copy(processor);
+        copies.put(processor, copy);
+        if (processor instanceof SignalSplit) {
+            final SignalSplit split = (SignalSplit) processor;
+            for (int channel=0; channel<split.getChannelCount(); channel++) {
+                for (final SignalProcessor child : split.getConnectedProcessors(channel)) {
+                    ((SignalSplit) copy).connectTo(channel, copy(child, copies));
+                }
+            }
+        } else {
+            for (final SignalProcessor child : processor.getConnectedProcessors()) {
+                copy.connectTo(copy(child, copies));
+            }
+        }
+        return copy;
+    }
+
+    private static void verifyCopyable(final SignalProcessor<?, ?> processor) throws IllegalArgumentException {
+        if (processor instanceof SignalPipeline) {
+            verifyCopyable(((SignalPipeline<?, ?>) processor).getFirstProcessor());
+            return;
+        }
+        if (!(processor instanceof Cloneable)) {
+            throw new IllegalArgumentException("Processor " + processor + " (" + processor.getClass().getName()
+                    + ") does not implement Cloneable and therefore cannot be part of a template.");
+        }
+        if (processor instanceof SignalSplit) {
+            final SignalSplit<?, ?> split = (SignalSplit<?, ?>) processor;
+            for (int channel=0; channel<split.getChannelCount(); channel++) {
+                for (final SignalProcessor<?, ?> child : split.getConnectedProcessors(channel)) {
+                    verifyCopyable(child);
+                }
+            }
+        } else {
+            for (final SignalProcessor<?, ?> child : processor.getConnectedProcessors()) {
+                verifyCopyable(child);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PipelineTemplate{" +
+                "prototype=" + prototype +
+                '}';
+    }
+}
@@ -88,6 +88,15 @@ public class SignalPipeline<I, O> implements SignalProcessor<I, O> {
         return first;
     }
 
+    /**
+     * Last processor of this pipeline.
+     *
+     * @return last processor
+     */
+    public SignalProcessor<?, O> getLastProcessor() {
+        return last;
+    }
+
     /**
      * Returns the first processor with the given id.
      *
@@ -0,0 +1,30 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes;
+
+/**
+ * Creates new, independent instances of a {@link SignalProcessor} graph.
+ * Because processors are usually stateful, a graph may only be used by one {@link SignalPump}
+ * at a time. Whenever multiple signals are processed concurrently, each of them needs its own graph
+ * and this factory is used to obtain it.
+ *
+ * @param <I> type of the input values of the created processors
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see BatchSignalPump
+ * @see PipelineTemplate
+ */
+public interface SignalProcessorFactory<I> {
+
+    /**
+     * Creates a new, ready to use processor graph. Multiple independent pipelines may be
+     * returned as children of a {@link NoopSignalProcessor}.
+     *
+     * @return new processor graph, that does not share any mutable state with previously created graphs
+     */
+    SignalProcessor<I, ?> create();
+}
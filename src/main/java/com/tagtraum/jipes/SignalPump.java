@@ -7,7 +7,10 @@
 package com.tagtraum.jipes;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * <p>Pumps a signal from a {@link SignalSource} through a graph of {@link com.tagtraum.jipes.SignalProcessor}s,
@@ -23,6 +26,18 @@ import java.util.*;
  * <li>Collect the results in the form of an id/output map.</li>
  * </ol> 
  * </p>
+ * <p>
+ * By default all root processors are fed sequentially on the calling thread. If you have multiple
+ * independent pipelines, you may turn on {@link #setParallel(boolean) parallel} mode, which runs each
+ * root pipeline on its own worker thread. Workers are fed with copies of the buffers delivered by the
+ * {@link SignalSource} via bounded queues (see {@link #setQueueSize(int)}). Flushing and collecting
+ * the output still happens on the calling thread and in the same order as in sequential mode.
+ * </p>
+ * <p>
+ * If the source is a {@link DiscontinuousSignalSource}, all {@link StatefulSignalProcessor}s are reset
+ * whenever the source reports a discontinuity, e.g. at the beginning of each excerpt delivered by a
+ * {@link com.tagtraum.jipes.audio.ExcerptSignalSource}.
+ * </p>
  *
  * @param <I> type of the input values from the associated {@link SignalSource}
  *
@@ -30,9 +45,17 @@ import java.util.*;
  */
 public class SignalPump<I> {
 
+    private static final int DEFAULT_QUEUE_SIZE = 16;
+    private static final Object END_OF_SIGNAL = new Object();
+    private static final Object DISCONTINUITY = new Object();
+    private static final AtomicInteger WORKER_COUNT = new AtomicInteger();
+
     private SignalSource<I> signalSource;
     private Map<SignalProcessor<I, ?>, SignalProcessor<I, ?>> rootProcessors = new LinkedHashMap<SignalProcessor<I, ?>,SignalProcessor<I, ?>>();
     private boolean cancelled;
+    private boolean parallel;
+    private int queueSize = DEFAULT_QUEUE_SIZE;
+    private volatile boolean rootFailed;
 
     public SignalPump(final SignalSource<I> signalSource) {
         setSignalSource(signalSource);
@@ -61,6 +84,59 @@ public class SignalPump<I> {
         this.signalSource = signalSource;
     }
 
+    /**
+     * Indicates whether root pipelines are processed in parallel.
+     *
+     * @return true, if each root pipeline is run on its own worker thread
+     * @see #setParallel(boolean)
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Turns parallel processing of root pipelines on or off. When on, each root processor
+     * (see {@link #getEffectiveProcessorGraphs()}) is run on its own worker thread and
+     * fed with copies of the buffers delivered by the signal source. Therefore these buffers
+     * must either be arrays or {@link Cloneable} objects with a public <code>clone()</code>
+     * method, like {@link com.tagtraum.jipes.audio.AudioBuffer}s.
+     * <p/>
+     * Note that pipelines that share a common root (after optimization) are still processed
+     * by the same thread. If there is only one root, this setting has no effect.
+     * Roots that share a downstream processor (e.g. a {@link com.tagtraum.jipes.universal.Join}
+     * or any other processor connected to more than one root) would call it concurrently.
+     * Therefore such graphs are always processed sequentially, regardless of this setting.
+     *
+     * @param parallel true or false
+     */
+    public void setParallel(final boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Capacity of the queue each worker is fed from in parallel mode.
+     *
+     * @return number of buffers
+     * @see #setParallel(boolean)
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * Sets the capacity of the queue each worker is fed from in parallel mode.
+     * A full queue blocks reading from the signal source until the slowest worker has caught up,
+     * which bounds the memory used for buffer copies.
+     *
+     * @param queueSize number of buffers, must be greater than 0
+     * @throws IllegalArgumentException if the queue size is less than 1
+     * @see #setParallel(boolean)
+     */
+    public void setQueueSize(final int queueSize) throws IllegalArgumentException {
+        if (queueSize < 1) throw new IllegalArgumentException("Queue size must be greater than 0: " + queueSize);
+        this.queueSize = queueSize;
+    }
+
     /**
      * Lets you add a {@link com.tagtraum.jipes.SignalProcessor}-pipeline (that is a processor and its kids)
      * to this pump. To be of any use, most processors will have one or more children to execute multiple
@@ -128,9 +204,13 @@ public class SignalPump<I> {
      * Note that every output/result id in all pipelines must be unique, if you actually want to be certain
      * that it is from the <em>one</em> processor you are interested in. Standard ids are <em>not</em> unique
      * (see {@link com.tagtraum.jipes.AbstractSignalProcessor#getId()}).
+     * <p>
+     * If the pump is cancelled or fails, processors are not flushed. Instead all
+     * {@link StatefulSignalProcessor}s are reset.
      *
      * @return a map of ids (see {@link com.tagtraum.jipes.SignalProcessor#getId()}}) and
      * their associated output (see {@link com.tagtraum.jipes.SignalProcessor#getOutput()})
+     * or <code>null</code>, if the pump has been cancelled
      * @throws IOException if any IO problems occur
      * @throws IllegalStateException if the {@link SignalSource} is not set
      * @see com.tagtraum.jipes.AbstractSignalProcessor
@@ -140,11 +220,22 @@ public class SignalPump<I> {
         setCancelled(false);
         if (signalSource == null) throw new IllegalStateException("SignalSource must be set.");
         signalSource.reset();
-        process();
-        if (isCancelled()) {
-            return null;
+        boolean completed = false;
+        try {
+            process();
+            if (isCancelled()) {
+                return null;
+            }
+            flush();
+            completed = true;
+        } finally {
+            if (!completed) {
+                // processors won't be flushed, so make sure they release their state (e.g. threads)
+                for (final SignalProcessor<?, ?> processor : rootProcessors.values()) {
+                    resetState(processor);
+                }
+            }
         }
-        flush();
         return getOutput();
     }
 
@@ -164,6 +255,7 @@ public class SignalPump<I> {
      *
      * @throws IOException if something goes wrong
      */
+    @SuppressWarnings("unchecked")
     private void process() throws IOException {
         if (rootProcessors.isEmpty()) {
             return;
@@ -171,7 +263,16 @@ public class SignalPump<I> {
         I buffer;
         // create array for speed, to avoid having to create an iterator for each data chunk
         final SignalProcessor[] roots = rootProcessors.values().toArray(new SignalProcessor[rootProcessors.size()]);
+        if (parallel && roots.length > 1 && !sharesProcessors(roots)) {
+            processInParallel(roots);
+            return;
+        }
         while ((buffer = signalSource.read()) != null) {
+            if (isDiscontinuity()) {
+                for (final SignalProcessor<I, ?> rootProcessor : roots) {
+                    resetState(rootProcessor);
+                }
+            }
             for (final SignalProcessor<I, ?> rootProcessor : roots) {
                 rootProcessor.process(buffer);
             }
@@ -179,6 +280,122 @@ public class SignalPump<I> {
         }
     }
 
+    /**
+     * Indicates whether any processor is reachable from more than one of the given roots.
+     *
+     * @param roots root processors
+     * @return true, if at least two roots share a descendant
+     */
+    private static boolean sharesProcessors(final SignalProcessor<?, ?>[] roots) {
+        final Set<SignalProcessor<?, ?>> seen = Collections.newSetFromMap(new IdentityHashMap<SignalProcessor<?, ?>, Boolean>());
+        for (final SignalProcessor<?, ?> root : roots) {
+            final Set<SignalProcessor<?, ?>> descendants = Collections.newSetFromMap(new IdentityHashMap<SignalProcessor<?, ?>, Boolean>());
+            collectDescendants(root, descendants);
+            for (final SignalProcessor<?, ?> descendant : descendants) {
+                if (!seen.add(descendant)) return true;
+            }
+        }
+        return false;
+    }
+
+    private static void collectDescendants(final SignalProcessor<?, ?> processor, final Set<SignalProcessor<?, ?>> descendants) {
+        if (!descendants.add(processor)) return;
+        for (final SignalProcessor<?, ?>[] channelChildren : getChildren(processor)) {
+            for (final SignalProcessor<?, ?> child : channelChildren) {
+                collectDescendants(child, descendants);
+            }
+        }
+    }
+
+    /**
+     * Processes the buffers delivered by the signal source by handing copies of them to
+     * one worker per root processor.
+     *
+     * @param roots root processors
+     * @throws IOException if something goes wrong
+     */
+    private void processInParallel(final SignalProcessor<I, ?>[] roots) throws IOException {
+        final ExecutorService executorService = Executors.newFixedThreadPool(roots.length, new ThreadFactory() {
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "SignalPump-Worker-" + WORKER_COUNT.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        rootFailed = false;
+        try {
+            final List<BlockingQueue<Object>> queues = new ArrayList<BlockingQueue<Object>>();
+            final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (final SignalProcessor<I, ?> root : roots) {
+                final BlockingQueue<Object> queue = new ArrayBlockingQueue<Object>(queueSize);
+                queues.add(queue);
+                futures.add(executorService.submit(new RootWorker(root, queue)));
+            }
+            try {
+                I buffer;
+                // stop reading as soon as a root has failed, just like in sequential mode
+                while (!rootFailed && (buffer = signalSource.read()) != null) {
+                    // one copy suffices, as processors must not modify their input
+                    final I copy = Copies.copy(buffer);
+                    final boolean discontinuity = isDiscontinuity();
+                    for (int i=0, max=queues.size(); i<max; i++) {
+                        if (discontinuity) queues.get(i).put(DISCONTINUITY);
+                        queues.get(i).put(copy);
+                    }
+                    if (isCancelled()) break;
+                }
+            } finally {
+                for (final BlockingQueue<Object> queue : queues) {
+                    queue.put(END_OF_SIGNAL);
+                }
+            }
+            for (final Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof IOException) throw (IOException) cause;
+                    if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                    if (cause instanceof Error) throw (Error) cause;
+                    throw new IOException(cause);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            final InterruptedIOException interruptedIOException = new InterruptedIOException("Interrupted while pumping.");
+            interruptedIOException.initCause(e);
+            throw interruptedIOException;
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Indicates whether the source reported a discontinuity right before the buffer it just delivered.
+     *
+     * @return true, if stateful processors need to be reset
+     */
+    private boolean isDiscontinuity() {
+        return signalSource instanceof DiscontinuousSignalSource
+                && ((DiscontinuousSignalSource<I>) signalSource).isDiscontinuity();
+    }
+
+    /**
+     * Resets all {@link StatefulSignalProcessor}s in the given graph.
+     *
+     * @param processor root of the graph
+     */
+    private static void resetState(final SignalProcessor<?, ?> processor) {
+        if (processor instanceof StatefulSignalProcessor) {
+            ((StatefulSignalProcessor) processor).reset();
+        }
+        for (final SignalProcessor<?, ?>[] channelChildren : getChildren(processor)) {
+            for (final SignalProcessor<?, ?> child : channelChildren) {
+                resetState(child);
+            }
+        }
+    }
+
     /**
      * Cancels {@link #pump()}. May be called from another thread.
      */
@@ -344,6 +561,42 @@ public class SignalPump<I> {
                 : processor;
     }
 
+    /**
+     * Feeds one root processor with buffers from a queue, until {@link #END_OF_SIGNAL} is encountered.
+     * After a failure or cancellation, the queue is still drained to never block the reading thread.
+     */
+    private class RootWorker implements Callable<Void> {
+
+        private final SignalProcessor<I, ?> root;
+        private final BlockingQueue<Object> queue;
+
+        public RootWorker(final SignalProcessor<I, ?> root, final BlockingQueue<Object> queue) {
+            this.root = root;
+            this.queue = queue;
+        }
+
+        @SuppressWarnings("unchecked")
+        public Void call() throws Exception {
+            Throwable failure = null;
+            Object buffer;
+            while ((buffer = queue.take()) != END_OF_SIGNAL) {
+                if (failure == null && !isCancelled()) {
+                    try {
+                        if (buffer == DISCONTINUITY) resetState(root);
+                        else root.process((I) buffer);
+                    } catch (Throwable t) {
+                        failure = t;
+                        // keep taking buffers, so that the producer does not block
+                        rootFailed = true;
+                    }
+                }
+            }
+            if (failure instanceof Error) throw (Error) failure;
+            if (failure != null) throw (Exception) failure;
+            return null;
+        }
+    }
+
     private static class SignalProcessorPath {
 
         private List<SignalProcessor<?,?>> path = new ArrayList<SignalProcessor<?,?>>();
@@ -0,0 +1,30 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes;
+
+/**
+ * Implemented by {@link SignalProcessor}s whose output depends on previously processed frames,
+ * like {@link com.tagtraum.jipes.audio.SlidingWindow} or a {@link com.tagtraum.jipes.universal.Mapping}
+ * with a {@link com.tagtraum.jipes.math.StatefulMapFunction} (e.g. a filter).
+ * <p/>
+ * When a {@link SignalPump} encounters a discontinuity in its source (see {@link DiscontinuousSignalSource}),
+ * it resets all such processors, so that frames from before the discontinuity don't leak into
+ * frames after it. They are also reset, when a pump is cancelled or fails, since they won't be flushed then.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see DiscontinuousSignalSource
+ * @see FrameIndependent
+ */
+public interface StatefulSignalProcessor {
+
+    /**
+     * Resets the processor's per-signal state. Pending, incomplete output is discarded
+     * and connected processors are not affected.
+     */
+    void reset();
+
+}
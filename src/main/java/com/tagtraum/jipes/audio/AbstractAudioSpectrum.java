@@ -199,6 +199,29 @@ public abstract class AbstractAudioSpectrum implements AudioSpectrum, Cloneable
         return magnitudes;
     }
 
+    /**
+     * Computes powers and magnitudes of the first <code>length</code> bins in one pass and
+     * writes them into the given (re-used) arrays, which are then returned
+     * by {@link #getPowers()} and {@link #getMagnitudes()}.
+     * The values are identical to the ones computed lazily.
+     *
+     * @param length number of bins
+     * @param powers array of length <code>length</code> for the powers
+     * @param magnitudes array of length <code>length</code> for the magnitudes
+     */
+    protected synchronized void computePowersAndMagnitudes(final int length, final float[] powers, final float[] magnitudes) {
+        for (int i=0; i<length; i++) {
+            final float r = realData[i];
+            final float j = imaginaryData == null ? 0 : imaginaryData[i];
+            final float power = (float)power(r, j);
+            powers[i] = power;
+            if (j == 0) magnitudes[i] = Math.abs(r);
+            else magnitudes[i] = (float)magnitude(power);
+        }
+        this.powers = powers;
+        this.magnitudes = magnitudes;
+    }
+
     /**
      * Powers (sum of the squares of the real and imaginary part) of the spectrum.
      *
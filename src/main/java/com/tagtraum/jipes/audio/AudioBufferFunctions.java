@@ -6,6 +6,7 @@
  */
 package com.tagtraum.jipes.audio;
 
+import com.tagtraum.jipes.Copies;
 import com.tagtraum.jipes.math.AggregateFunction;
 import com.tagtraum.jipes.math.DistanceFunction;
 import com.tagtraum.jipes.math.MapFunction;
@@ -32,12 +33,16 @@ public final class AudioBufferFunctions {
     /**
      * Creates an {@link AudioBuffer} map function that maps both the real and the imaginary part
      * of the buffer using the provided <code>float[]</code> map function.
+     * If the given function is a {@link StatefulMapFunction}, so is the resulting function.
      *
      * @param function <code>float[]</code> map function
      * @param <T> actual type of the resulting map function
      * @return map function typed to process audio buffers
+     * @see #createStatefulMapFunction(com.tagtraum.jipes.math.StatefulMapFunction)
      */
+    @SuppressWarnings("unchecked")
     public static <T extends AudioBuffer> MapFunction<T> createMapFunction(final MapFunction<float[]> function) {
+        if (function instanceof StatefulMapFunction) return createStatefulMapFunction((StatefulMapFunction<float[]>) function);
         return new AudioBufferMapFunction<T>(function);
     }
 
@@ -119,9 +124,9 @@ public final class AudioBufferFunctions {
         return new AudioBufferAggregateFunction<T>(function);
     }
 
-    private static class AudioBufferMagnitudeMapFunction<T extends AudioBuffer> implements MapFunction<T> {
+    private static class AudioBufferMagnitudeMapFunction<T extends AudioBuffer> implements MapFunction<T>, Cloneable {
 
-        private final MapFunction<float[]> function;
+        private MapFunction<float[]> function;
         private RealAudioBuffer realAudioBuffer;
 
         public AudioBufferMagnitudeMapFunction(final MapFunction<float[]> function) {
@@ -148,6 +153,15 @@ public final class AudioBufferFunctions {
             return (T)out;
         }
 
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object clone() throws CloneNotSupportedException {
+            final AudioBufferMagnitudeMapFunction<T> clone = (AudioBufferMagnitudeMapFunction<T>)super.clone();
+            clone.function = Copies.copyIfCloneable(function);
+            clone.realAudioBuffer = null;
+            return clone;
+        }
+
         @Override
         public boolean equals(final Object o) {
             if (this == o) return true;
@@ -171,9 +185,9 @@ public final class AudioBufferFunctions {
         }
     }
 
-    private static class AudioBufferPowerMapFunction<T extends AudioBuffer> implements MapFunction<T> {
+    private static class AudioBufferPowerMapFunction<T extends AudioBuffer> implements MapFunction<T>, Cloneable {
 
-        private final MapFunction<float[]> function;
+        private MapFunction<float[]> function;
         private RealAudioBuffer realAudioBuffer;
 
         public AudioBufferPowerMapFunction(final MapFunction<float[]> function) {
@@ -203,6 +217,15 @@ public final class AudioBufferFunctions {
             return (T)out;
         }
 
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object clone() throws CloneNotSupportedException {
+            final AudioBufferPowerMapFunction<T> clone = (AudioBufferPowerMapFunction<T>)super.clone();
+            clone.function = Copies.copyIfCloneable(function);
+            clone.realAudioBuffer = null;
+            return clone;
+        }
+
         @Override
         public boolean equals(final Object o) {
             if (this == o) return true;
@@ -226,9 +249,9 @@ public final class AudioBufferFunctions {
         }
     }
 
-    private static class AudioBufferMapFunction<T extends AudioBuffer> implements MapFunction<T> {
+    private static class AudioBufferMapFunction<T extends AudioBuffer> implements MapFunction<T>, Cloneable {
 
-        private final MapFunction<float[]> function;
+        private MapFunction<float[]> function;
         private RealAudioBuffer realAudioBuffer;
 
         public AudioBufferMapFunction(final MapFunction<float[]> function) {
@@ -254,6 +277,15 @@ public final class AudioBufferFunctions {
             return (T)out;
         }
 
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object clone() throws CloneNotSupportedException {
+            final AudioBufferMapFunction<T> clone = (AudioBufferMapFunction<T>)super.clone();
+            clone.function = Copies.copyIfCloneable(function);
+            clone.realAudioBuffer = null;
+            return clone;
+        }
+
         @Override
         public boolean equals(final Object o) {
             if (this == o) return true;
@@ -277,8 +309,8 @@ public final class AudioBufferFunctions {
         }
     }
 
-    private static class AudioBufferStatefulMapFunction<T extends AudioBuffer> implements StatefulMapFunction<T> {
-        private final StatefulMapFunction<float[]> function;
+    private static class AudioBufferStatefulMapFunction<T extends AudioBuffer> implements StatefulMapFunction<T>, Cloneable {
+        private StatefulMapFunction<float[]> function;
         private RealAudioBuffer realAudioBuffer;
 
         public AudioBufferStatefulMapFunction(final StatefulMapFunction<float[]> function) {
@@ -307,12 +339,21 @@ public final class AudioBufferFunctions {
             realAudioBuffer = null;
         }
 
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object clone() throws CloneNotSupportedException {
+            final AudioBufferStatefulMapFunction<T> clone = (AudioBufferStatefulMapFunction<T>)super.clone();
+            clone.function = Copies.copyIfCloneable(function);
+            clone.realAudioBuffer = null;
+            return clone;
+        }
+
         @Override
         public boolean equals(final Object o) {
             if (this == o) return true;
             if (o == null || getClass() != o.getClass()) return false;
 
-            AudioBufferMapFunction that = (AudioBufferMapFunction) o;
+            AudioBufferStatefulMapFunction that = (AudioBufferStatefulMapFunction) o;
 
             if (function != null ? !function.equals(that.function) : that.function != null) return false;
 
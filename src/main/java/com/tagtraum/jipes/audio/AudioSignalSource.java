@@ -24,10 +24,18 @@ import java.io.IOException;
  * The provided stream/file is converted to <code>float[]</code> based {@link RealAudioBuffer}s.
  * This also implies a normalization to values between -1 and 1 (signed) or 0 and 1 (unsigned).
  * Normalization can be turned off via {@link #setNormalize(boolean)}.
+ * Floating point samples (encoding <code>PCM_FLOAT</code>) are never scaled.
  * </p>
  * <p>
  * If the signal contains multiple channels, these channel signals are still in their original
- * (potentially interleaved) layout.
+ * (potentially interleaved) layout, unless {@link #setPlanar(boolean) planar} mode is turned on.
+ * In planar mode, multi-channel signals are decoded straight into one array per channel and delivered
+ * as {@link PlanarAudioBuffer}s, which an {@link InterleavedChannelSplit} passes on without
+ * de-interleaving them again.
+ * </p>
+ * <p>
+ * Seeking (see {@link #seek(long)}) forward skips the undecoded stream. Seeking backwards is only
+ * possible, if the source was created from a {@link File}, which is then re-opened.
  * </p>
  * <p>
  * As of Java 6, mp3 is unfortunately not supported out of the box by Java. You might need
@@ -42,7 +50,7 @@ import java.io.IOException;
  * @see <a href="http://www.tagtraum.com/casampledsp/">CASampledSP</a>
  * @see <a href="http://www.tagtraum.com/mfsampledsp/">MFSampledSP</a>
  */
-public class AudioSignalSource implements SignalSource<AudioBuffer>, Closeable {
+public class AudioSignalSource implements SeekableSignalSource<AudioBuffer>, Closeable {
 
     /**
      * A constant holding the minimum value a <code>signed24bit</code> can
@@ -58,10 +66,16 @@ public class AudioSignalSource implements SignalSource<AudioBuffer>, Closeable {
 
     private static final int BITS_PER_BYTE = 8;
     private static final int FLOAT_SAMPLE_SIZE_IN_BITS = 32;
+    private static final String PCM_FLOAT = "PCM_FLOAT";
     private AudioInputStream in;
+    private final AudioFormat audioFormat;
+    private File file;
     private final byte[] buf;
     private RealAudioBuffer realAudioBuffer;
     private float[] block;
+    private PlanarAudioBuffer planarAudioBuffer;
+    private float[][] planes;
+    private boolean planar;
     private long readBytes;
     private boolean closed;
     private boolean normalize = true;
@@ -75,6 +89,7 @@ public class AudioSignalSource implements SignalSource<AudioBuffer>, Closeable {
      */
     public AudioSignalSource(final AudioInputStream in, final int bufferSize) throws IllegalArgumentException {
         this.in = in;
+        this.audioFormat = in.getFormat();
         this.buf = new byte[bufferSize];
         if (in.getFormat().getSampleSizeInBits() <= 0) {
             throw new IllegalArgumentException("AudioFormat is not specific enough. SampleSizeInBits must be greater than 0, but is " + in.getFormat().getSampleSizeInBits());
@@ -109,6 +124,7 @@ public class AudioSignalSource implements SignalSource<AudioBuffer>, Closeable {
      */
     public AudioSignalSource(final File file) throws UnsupportedAudioFileException, IOException, IllegalArgumentException  {
         this(openStream(file));
+        this.file = file;
     }
 
     /**
@@ -153,12 +169,114 @@ public class AudioSignalSource implements SignalSource<AudioBuffer>, Closeable {
         this.normalize = normalize;
     }
 
+    /**
+     * Indicates whether multi-channel signals are delivered as {@link PlanarAudioBuffer}s.
+     *
+     * @return true, if this source decodes into one array per channel
+     */
+    public boolean isPlanar() {
+        return planar;
+    }
+
+    /**
+     * Turns planar mode on or off. In planar mode multi-channel signals are decoded into one array
+     * per channel and delivered as {@link PlanarAudioBuffer}s. Mono signals are not affected.
+     *
+     * @param planar true or false
+     * @see InterleavedChannelSplit
+     */
+    public void setPlanar(final boolean planar) {
+        this.planar = planar;
+    }
+
     private int getCurrentFrameNumber() {
         return (int) (readBytes / in.getFormat().getFrameSize());
     }
 
+    /**
+     * Format of the buffers delivered by this source.
+     *
+     * @return audio format
+     */
+    public AudioFormat getProcessedAudioFormat() {
+        return toProcessedAudioFormat(audioFormat);
+    }
+
+    public long getFramePosition() {
+        return readBytes / audioFormat.getFrameSize();
+    }
+
+    /**
+     * Length of the underlying stream in sample frames.
+     *
+     * @return frame length or {@link AudioSystem#NOT_SPECIFIED}, if unknown
+     * @see AudioInputStream#getFrameLength()
+     */
+    public long getFrameLength() {
+        if (in == null) return AudioSystem.NOT_SPECIFIED;
+        return in.getFrameLength();
+    }
+
+    /**
+     * Skips the given number of sample frames without converting them.
+     * Frame numbers of subsequently read buffers take the skipped frames into account.
+     *
+     * @param frames number of frames to skip
+     * @return number of frames actually skipped
+     * @throws IOException if skipping fails
+     */
+    public long skip(final long frames) throws IOException {
+        if (closed || frames <= 0) return 0;
+        final int frameSize = in.getFormat().getFrameSize();
+        long remaining = frames * frameSize;
+        long skipped = 0;
+        while (remaining > 0) {
+            final long n = in.skip(remaining);
+            if (n <= 0) break;
+            skipped += n;
+            remaining -= n;
+        }
+        this.readBytes += skipped;
+        return skipped / frameSize;
+    }
+
+    /**
+     * Positions this source at the given frame. Seeking forward skips the undecoded stream.
+     * Seeking backwards or seeking after this source has been closed re-opens the file
+     * this source was created with.
+     *
+     * @param frame frame number
+     * @throws IOException if seeking backwards and this source was not created from a file, or if
+     * the file cannot be re-opened
+     * @throws IllegalArgumentException if frame is negative
+     */
+    public void seek(final long frame) throws IOException, IllegalArgumentException {
+        if (frame < 0) throw new IllegalArgumentException("Frame must not be negative: " + frame);
+        final long position = getFramePosition();
+        if (frame < position || closed) {
+            if (file != null) {
+                reopen();
+            } else if (frame < position) {
+                throw new IOException("Cannot seek backwards in stream from frame " + position + " to " + frame);
+            }
+        }
+        skip(frame - getFramePosition());
+    }
+
+    private void reopen() throws IOException {
+        close();
+        try {
+            this.in = openStream(file);
+        } catch (UnsupportedAudioFileException e) {
+            throw new IOException(e);
+        }
+        this.closed = false;
+        this.readBytes = 0;
+    }
+
     /**
      * Since this source is stream-based it cannot be properly reset.
+     * Use {@link #seek(long)} instead.
      */
     public void reset() {
         readBytes = 0;
@@ -175,7 +293,8 @@ public class AudioSignalSource implements SignalSource<AudioBuffer>, Closeable {
     }
 
     /**
-     * Convert the multibyte-multichannel buffer to a singlefloat-multichannel buffer.
+     * Convert the multibyte-multichannel buffer to a singlefloat-multichannel buffer or,
+     * in planar mode, to one float buffer per channel.
      *
      * @param byteBuf     multibyte-multichannel byte array
      * @param length      number of bytes to read from {@code byteBuf}
@@ -185,54 +304,32 @@ public class AudioSignalSource implements SignalSource<AudioBuffer>, Closeable {
      */
     private AudioBuffer toFloatBuffer(final byte[] byteBuf, final int length, final AudioFormat audioFormat) throws IOException {
         final int bytesPerChannel = audioFormat.getSampleSizeInBits() / BITS_PER_BYTE;
-        final boolean signed = AudioFormat.Encoding.PCM_SIGNED.equals(audioFormat.getEncoding());
-        final float normalizationFactor = normalize ? normalizationFactor(bytesPerChannel, signed) : 1f;
         final int samplesToRead = length / bytesPerChannel;
+        final int channels = audioFormat.getChannels();
 
-        if (block == null || block.length != samplesToRead) {
-            block = new float[samplesToRead];
+        if (planar && channels > 1) {
+            final int frameSize = audioFormat.getFrameSize();
+            final int framesToRead = length / frameSize;
+            if (planes == null || planes.length != channels || planes[0].length != framesToRead) {
+                planes = new float[channels][framesToRead];
+            }
+            // decode each channel straight from the interleaved bytes
+            for (int channel=0; channel<channels; channel++) {
+                decode(byteBuf, channel * bytesPerChannel, frameSize, framesToRead, audioFormat, planes[channel]);
+            }
+            if (planarAudioBuffer == null) {
+                planarAudioBuffer = new PlanarAudioBuffer(getCurrentFrameNumber(), planes, toProcessedAudioFormat(audioFormat));
+            } else {
+                planarAudioBuffer.reuse(getCurrentFrameNumber(), planes, planarAudioBuffer.getAudioFormat());
+            }
+            this.readBytes += length;
+            return planarAudioBuffer;
         }
 
-        // fast lane for the most common case: signed, 16 bit per channel
-        if (signed && bytesPerChannel == 2) {
-            if (audioFormat.isBigEndian()) bytesToSignedShortsBigEndian(byteBuf, samplesToRead, normalizationFactor, this.block);
-            else bytesToSignedShortsLittleEndian(byteBuf, samplesToRead, normalizationFactor, this.block);
-        } else {
-            // convert to samples
-            final int[] samples = audioFormat.isBigEndian()
-                ? bytesToIntsBigEndian(byteBuf, samplesToRead, bytesPerChannel)
-                : bytesToIntsLittleEndian(byteBuf, samplesToRead, bytesPerChannel);
-
-            // cast and normalize
-            for (int sampleNumber = 0; sampleNumber < samplesToRead; sampleNumber++) {
-                final int sample = samples[sampleNumber];
-                if (signed) {
-                    switch (bytesPerChannel) {
-                        case 1:
-                            final byte byteSample = (byte) sample;
-                            block[sampleNumber] = byteSample / normalizationFactor;
-                            break;
-//                        we handle 2 bytes extra for speed
-//                        case 2:
-//                            final short shortSample = (short) sample;
-//                            block[sampleNumber] = shortSample / normalizationFactor;
-//                            break;
-                        case 3:
-                            final int threeByteSample = sample > MAX_VALUE_24BIT ? sample + MIN_VALUE_24BIT + MIN_VALUE_24BIT : sample;
-                            block[sampleNumber] = threeByteSample / normalizationFactor;
-                            break;
-                        case 4:
-                            block[sampleNumber] = sample / normalizationFactor;
-                            break;
-                        default:
-                            throw new IOException(bytesPerChannel + " bytes per channel not supported.");
-                            //block[sampleNumber] = sample / (float) (2 << (bytesPerChannel*8-2));
-                    }
-                } else {
-                    block[sampleNumber] = sample / normalizationFactor;
-                }
-            }
+        if (block == null || block.length != samplesToRead) {
+            block = new float[samplesToRead];
         }
+        decode(byteBuf, 0, bytesPerChannel, samplesToRead, audioFormat, this.block);
         if (realAudioBuffer == null) {
             realAudioBuffer = new RealAudioBuffer(getCurrentFrameNumber(), block, toProcessedAudioFormat(audioFormat));
         } else {
@@ -242,47 +339,190 @@ public class AudioSignalSource implements SignalSource<AudioBuffer>, Closeable {
         return realAudioBuffer;
     }
 
-    private static int[] bytesToIntsLittleEndian(final byte[] buf, final int samplesToRead, final int bytesPerSample) {
-        final int[] samples = new int[samplesToRead];
+    /**
+     * Decodes samples that start at the given offset and are <code>stride</code> bytes apart.
+     *
+     * @param byteBuf     multibyte-multichannel byte array
+     * @param offset      offset of the first sample
+     * @param stride      distance between two samples in bytes
+     * @param samplesToRead number of samples to decode
+     * @param audioFormat audioFormat
+     * @param out         output array
+     * @throws java.io.IOException if the format is not supported
+     */
+    private void decode(final byte[] byteBuf, final int offset, final int stride, final int samplesToRead,
+                        final AudioFormat audioFormat, final float[] out) throws IOException {
+        final int bytesPerChannel = audioFormat.getSampleSizeInBits() / BITS_PER_BYTE;
+        // one dedicated, allocation-free loop per sample format
+        final boolean bigEndian = audioFormat.isBigEndian();
+        if (isFloat(audioFormat)) {
+            switch (bytesPerChannel) {
+                case 4:
+                    if (bigEndian) bytesToFloatsBigEndian(byteBuf, offset, stride, samplesToRead, out);
+                    else bytesToFloatsLittleEndian(byteBuf, offset, stride, samplesToRead, out);
+                    break;
+                case 8:
+                    if (bigEndian) bytesToDoublesBigEndian(byteBuf, offset, stride, samplesToRead, out);
+                    else bytesToDoublesLittleEndian(byteBuf, offset, stride, samplesToRead, out);
+                    break;
+                default:
+                    throw new IOException(bytesPerChannel + " bytes per floating point channel not supported.");
+            }
+        } else {
+            final boolean signed = AudioFormat.Encoding.PCM_SIGNED.equals(audioFormat.getEncoding());
+            // multiplying with the reciprocal is much cheaper than dividing each sample
+            final float scale = normalize ? 1f / normalizationFactor(bytesPerChannel, signed) : 1f;
+            if (!signed) {
+                if (bytesPerChannel == 1) bytesToUnsignedBytes(byteBuf, offset, stride, samplesToRead, scale, out);
+                else if (bigEndian) bytesToUnsignedBigEndian(byteBuf, offset, stride, samplesToRead, bytesPerChannel, scale, out);
+                else bytesToUnsignedLittleEndian(byteBuf, offset, stride, samplesToRead, bytesPerChannel, scale, out);
+            } else {
+                switch (bytesPerChannel) {
+                    case 1:
+                        bytesToSignedBytes(byteBuf, offset, stride, samplesToRead, scale, out);
+                        break;
+                    case 2:
+                        if (bigEndian) bytesToSignedShortsBigEndian(byteBuf, offset, stride, samplesToRead, scale, out);
+                        else bytesToSignedShortsLittleEndian(byteBuf, offset, stride, samplesToRead, scale, out);
+                        break;
+                    case 3:
+                        if (bigEndian) bytesToSigned24BitBigEndian(byteBuf, offset, stride, samplesToRead, scale, out);
+                        else bytesToSigned24BitLittleEndian(byteBuf, offset, stride, samplesToRead, scale, out);
+                        break;
+                    case 4:
+                        if (bigEndian) bytesToSignedIntsBigEndian(byteBuf, offset, stride, samplesToRead, scale, out);
+                        else bytesToSignedIntsLittleEndian(byteBuf, offset, stride, samplesToRead, scale, out);
+                        break;
+                    default:
+                        throw new IOException(bytesPerChannel + " bytes per channel not supported.");
+                }
+            }
+        }
+    }
+
+    /**
+     * Java 6 does not know <code>AudioFormat.Encoding.PCM_FLOAT</code>, therefore we compare by name.
+     *
+     * @param audioFormat audio format
+     * @return true, if the format's encoding is <code>PCM_FLOAT</code>
+     */
+    private static boolean isFloat(final AudioFormat audioFormat) {
+        return PCM_FLOAT.equals(audioFormat.getEncoding().toString());
+    }
+
+    private static void bytesToSignedBytes(final byte[] inputBuf, final int offset, final int stride, final int samplesToRead, final float scale, final float[] outputBuf) {
         for (int sampleNumber = 0; sampleNumber < samplesToRead; sampleNumber++) {
-            final int sampleOffset = sampleNumber * bytesPerSample;
-            int sample = 0;
+            outputBuf[sampleNumber] = inputBuf[offset + sampleNumber * stride] * scale;
+        }
+    }
+
+    private static void bytesToUnsignedBytes(final byte[] inputBuf, final int offset, final int stride, final int samplesToRead, final float scale, final float[] outputBuf) {
+        for (int sampleNumber = 0; sampleNumber < samplesToRead; sampleNumber++) {
+            outputBuf[sampleNumber] = (inputBuf[offset + sampleNumber * stride] & 0xff) * scale;
+        }
+    }
+
+    private static void bytesToUnsignedLittleEndian(final byte[] inputBuf, final int offset, final int stride, final int samplesToRead, final int bytesPerSample, final float scale, final float[] outputBuf) {
+        for (int sampleNumber = 0; sampleNumber < samplesToRead; sampleNumber++) {
+            final int sampleOffset = offset + sampleNumber * stride;
+            long sample = 0;
             for (int byteIndex = 0; byteIndex < bytesPerSample; byteIndex++) {
-                final int aByte = buf[sampleOffset + byteIndex] & 0xff;
-                sample += aByte << 8 * (byteIndex);
+                sample |= (long) (inputBuf[sampleOffset + byteIndex] & 0xff) << 8 * byteIndex;
             }
-            samples[sampleNumber] = sample;
+            outputBuf[sampleNumber] = sample * scale;
         }
-        return samples;
     }
 
-    private static int[] bytesToIntsBigEndian(final byte[] buf, final int samplesToRead, final int bytesPerSample) {
-        final int[] samples = new int[samplesToRead];
+    private static void bytesToUnsignedBigEndian(final byte[] inputBuf, final int offset, final int stride, final int samplesToRead, final int bytesPerSample, final float scale, final float[] outputBuf) {
         for (int sampleNumber = 0; sampleNumber < samplesToRead; sampleNumber++) {
-            final int sampleOffset = sampleNumber * bytesPerSample;
-            int sample = 0;
+            final int sampleOffset = offset + sampleNumber * stride;
+            long sample = 0;
             for (int byteIndex = 0; byteIndex < bytesPerSample; byteIndex++) {
-                final int aByte = buf[sampleOffset + byteIndex] & 0xff;
-                sample += aByte << (8 * (bytesPerSample - byteIndex - 1));
+                sample = sample << 8 | (inputBuf[sampleOffset + byteIndex] & 0xff);
             }
-            samples[sampleNumber] = sample;
+            outputBuf[sampleNumber] = sample * scale;
         }
-        return samples;
     }
 
-    private static void bytesToSignedShortsLittleEndian(final byte[] inputBuf, final int samplesToRead, final float normalizationFactor, final float[] outputBuf) {
+    private static void bytesToSigned24BitLittleEndian(final byte[] inputBuf, final int offset, final int stride, final int samplesToRead, final float scale, final float[] outputBuf) {
+        for (int sampleNumber = 0; sampleNumber < samplesToRead; sampleNumber++) {
+            final int sampleOffset = offset + sampleNumber * stride;
+            // the most significant byte is not masked to get the sign right
+            final int sample = (inputBuf[sampleOffset] & 0xff) + ((inputBuf[sampleOffset+1] & 0xff) << 8) + (inputBuf[sampleOffset+2] << 16);
+            outputBuf[sampleNumber] = sample * scale;
+        }
+    }
+
+    private static void bytesToSigned24BitBigEndian(final byte[] inputBuf, final int offset, final int stride, final int samplesToRead, final float scale, final float[] outputBuf) {
+        for (int sampleNumber = 0; sampleNumber < samplesToRead; sampleNumber++) {
+            final int sampleOffset = offset + sampleNumber * stride;
+            // the most significant byte is not masked to get the sign right
+            final int sample = (inputBuf[sampleOffset] << 16) + ((inputBuf[sampleOffset+1] & 0xff) << 8) + (inputBuf[sampleOffset+2] & 0xff);
+            outputBuf[sampleNumber] = sample * scale;
+        }
+    }
+
+    private static void bytesToSignedIntsLittleEndian(final byte[] inputBuf, final int offset, final int stride, final int samplesToRead, final float scale, final float[] outputBuf) {
+        for (int sampleNumber = 0; sampleNumber < samplesToRead; sampleNumber++) {
+            outputBuf[sampleNumber] = intLittleEndian(inputBuf, offset + sampleNumber * stride) * scale;
+        }
+    }
+
+    private static void bytesToSignedIntsBigEndian(final byte[] inputBuf, final int offset, final int stride, final int samplesToRead, final float scale, final float[] outputBuf) {
+        for (int sampleNumber = 0; sampleNumber < samplesToRead; sampleNumber++) {
+            outputBuf[sampleNumber] = intBigEndian(inputBuf, offset + sampleNumber * stride) * scale;
+        }
+    }
+
+    private static void bytesToFloatsLittleEndian(final byte[] inputBuf, final int offset, final int stride, final int samplesToRead, final float[] outputBuf) {
+        for (int sampleNumber = 0; sampleNumber < samplesToRead; sampleNumber++) {
+            outputBuf[sampleNumber] = Float.intBitsToFloat(intLittleEndian(inputBuf, offset + sampleNumber * stride));
+        }
+    }
+
+    private static void bytesToFloatsBigEndian(final byte[] inputBuf, final int offset, final int stride, final int samplesToRead, final float[] outputBuf) {
+        for (int sampleNumber = 0; sampleNumber < samplesToRead; sampleNumber++) {
+            outputBuf[sampleNumber] = Float.intBitsToFloat(intBigEndian(inputBuf, offset + sampleNumber * stride));
+        }
+    }
+
+    private static void bytesToDoublesLittleEndian(final byte[] inputBuf, final int offset, final int stride, final int samplesToRead, final float[] outputBuf) {
+        for (int sampleNumber = 0; sampleNumber < samplesToRead; sampleNumber++) {
+            final int sampleOffset = offset + sampleNumber * stride;
+            final long bits = (intLittleEndian(inputBuf, sampleOffset) & 0xffffffffL) | ((long) intLittleEndian(inputBuf, sampleOffset + 4) << 32);
+            outputBuf[sampleNumber] = (float) Double.longBitsToDouble(bits);
+        }
+    }
+
+    private static void bytesToDoublesBigEndian(final byte[] inputBuf, final int offset, final int stride, final int samplesToRead, final float[] outputBuf) {
+        for (int sampleNumber = 0; sampleNumber < samplesToRead; sampleNumber++) {
+            final int sampleOffset = offset + sampleNumber * stride;
+            final long bits = ((long) intBigEndian(inputBuf, sampleOffset) << 32) | (intBigEndian(inputBuf, sampleOffset + 4) & 0xffffffffL);
+            outputBuf[sampleNumber] = (float) Double.longBitsToDouble(bits);
+        }
+    }
+
+    private static int intLittleEndian(final byte[] buf, final int offset) {
+        return (buf[offset] & 0xff) | ((buf[offset+1] & 0xff) << 8) | ((buf[offset+2] & 0xff) << 16) | (buf[offset+3] << 24);
+    }
+
+    private static int intBigEndian(final byte[] buf, final int offset) {
+        return (buf[offset] << 24) | ((buf[offset+1] & 0xff) << 16) | ((buf[offset+2] & 0xff) << 8) | (buf[offset+3] & 0xff);
+    }
+
+    private static void bytesToSignedShortsLittleEndian(final byte[] inputBuf, final int offset, final int stride, final int samplesToRead, final float scale, final float[] outputBuf) {
         for (int sampleNumber = 0; sampleNumber < samplesToRead; sampleNumber++) {
-            final int sampleOffset = sampleNumber * 2;
+            final int sampleOffset = offset + sampleNumber * stride;
             final short sample = (short) ((inputBuf[sampleOffset] & 0xff) + ((inputBuf[sampleOffset+1] & 0xff) << 8));
-            outputBuf[sampleNumber] = sample / normalizationFactor;
+            outputBuf[sampleNumber] = sample * scale;
         }
     }
 
-    private static void bytesToSignedShortsBigEndian(final byte[] inputBuf, final int samplesToRead, final float normalizationFactor, final float[] outputBuf) {
+    private static void bytesToSignedShortsBigEndian(final byte[] inputBuf, final int offset, final int stride, final int samplesToRead, final float scale, final float[] outputBuf) {
         for (int sampleNumber = 0; sampleNumber < samplesToRead; sampleNumber++) {
-            final int sampleOffset = sampleNumber * 2;
+            final int sampleOffset = offset + sampleNumber * stride;
             final short sample = (short) (((inputBuf[sampleOffset] & 0xff) << 8) + (inputBuf[sampleOffset+1] & 0xff));
-            outputBuf[sampleNumber] = sample / normalizationFactor;
+            outputBuf[sampleNumber] = sample * scale;
         }
     }
 
@@ -322,7 +562,7 @@ public class AudioSignalSource implements SignalSource<AudioBuffer>, Closeable {
 
     private AudioFormat toProcessedAudioFormat(final AudioFormat sourceAudioFormat) {
         return new AudioFormat(sourceAudioFormat.getSampleRate(), FLOAT_SAMPLE_SIZE_IN_BITS, sourceAudioFormat.getChannels(),
-                AudioFormat.Encoding.PCM_SIGNED.equals(sourceAudioFormat.getEncoding()),
+                AudioFormat.Encoding.PCM_SIGNED.equals(sourceAudioFormat.getEncoding()) || isFloat(sourceAudioFormat),
                 sourceAudioFormat.isBigEndian());
     }
 
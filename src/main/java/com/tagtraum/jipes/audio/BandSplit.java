@@ -21,7 +21,7 @@ import java.io.IOException;
  *
  * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
  */
-public class BandSplit<T extends AudioSpectrum> implements SignalSplit<T, AudioBuffer> {
+public class BandSplit<T extends AudioSpectrum> implements SignalSplit<T, AudioBuffer>, Cloneable {
 
     private SignalProcessorSupport<AudioBuffer> signalProcessorSupport = new SignalProcessorSupport<AudioBuffer>();
 
@@ -135,6 +135,24 @@ public class BandSplit<T extends AudioSpectrum> implements SignalSplit<T, AudioB
         return signalProcessorSupport.getConnectedProcessors();
     }
 
+    /**
+     * Creates a copy that is not connected to any child processors and has no per-signal state.
+     *
+     * @return copy
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object clone() throws CloneNotSupportedException {
+        final BandSplit<T> clone = (BandSplit<T>)super.clone();
+        clone.signalProcessorSupport = new SignalProcessorSupport<AudioBuffer>();
+        clone.audioFormat = null;
+        clone.bands = null;
+        clone.frame = 0;
+        clone.firstFrameNumber = 0;
+        clone.flushed = false;
+        return clone;
+    }
+
     @Override
     public String toString() {
         return "BandSplit{" +
@@ -19,7 +19,7 @@ import javax.sound.sampled.AudioFormat;
  * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
  * @see Mono
  */
-public class Channel extends AbstractSignalProcessor<AudioBuffer, AudioBuffer> {
+public class Channel extends AbstractSignalProcessor<AudioBuffer, AudioBuffer> implements Cloneable {
 
     private float[] block;
     private RealAudioBuffer realAudioBuffer;
@@ -62,6 +62,18 @@ public class Channel extends AbstractSignalProcessor<AudioBuffer, AudioBuffer> {
         return realAudioBuffer;
     }
 
+    /**
+     * {@inheritDoc}
+     * The copy allocates its own re-used channel buffer.
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        final Channel clone = (Channel)super.clone();
+        clone.block = null;
+        clone.realAudioBuffer = null;
+        return clone;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) return true;
@@ -7,6 +7,8 @@
 package com.tagtraum.jipes.audio;
 
 import com.tagtraum.jipes.AbstractSignalProcessor;
+import com.tagtraum.jipes.FrameIndependent;
+import com.tagtraum.jipes.math.AllocationFreeTransform;
 import com.tagtraum.jipes.math.ConstantQTransformFactory;
 import com.tagtraum.jipes.math.Transform;
 
@@ -16,12 +18,17 @@ import java.io.IOException;
  * Processes input using a transform created by {@link com.tagtraum.jipes.math.ConstantQTransformFactory}.
  * Since constant Q transforms are often initialized with arguments from the {@link javax.sound.sampled.AudioFormat}
  * the transform is created at runtime with the first input {@link AudioBuffer} using a {@link ConstantQTransformFactory}.
+ * <p/>
+ * The returned {@link LogFrequencySpectrum} object and its data arrays are re-used,
+ * if the transform is an {@link AllocationFreeTransform}. If you need to hold on
+ * to it for longer than the current method call, you must either {@link Object#clone()} it or
+ * create a copy using the copy constructor {@link LogFrequencySpectrum#LogFrequencySpectrum(LogFrequencySpectrum)}.
  *
  * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
  * @see ConstantQTransformFactory
  * @see Transform
  */
-public class ConstantQTransform extends AbstractSignalProcessor<AudioBuffer, LogFrequencySpectrum> {
+public class ConstantQTransform extends AbstractSignalProcessor<AudioBuffer, LogFrequencySpectrum> implements Cloneable, FrameIndependent {
 
     private Transform constantQTransform;
     private int binsPerOctave;
@@ -30,6 +37,9 @@ public class ConstantQTransform extends AbstractSignalProcessor<AudioBuffer, Log
     private float Q;
     private float[] frequencies;
     private float threshold;
+    private LogFrequencySpectrum logFrequencySpectrum;
+    private float[] realData;
+    private float[] imaginaryData;
 
     /**
      * @param minFrequency min frequency
@@ -52,6 +62,14 @@ public class ConstantQTransform extends AbstractSignalProcessor<AudioBuffer, Log
     public void reset() {
         constantQTransform = null;
         frequencies = null;
+        logFrequencySpectrum = null;
+        realData = null;
+        imaginaryData = null;
+    }
+
+    @Override
+    public boolean isFrameIndependent() {
+        return true;
     }
 
     protected LogFrequencySpectrum processNext(final AudioBuffer buffer) throws IOException {
@@ -61,18 +79,51 @@ public class ConstantQTransform extends AbstractSignalProcessor<AudioBuffer, Log
         if (constantQTransform == null) {
             constantQTransform = ConstantQTransformFactory.getInstance().create(minFrequency, maxFrequency, binsPerOctave, buffer.getAudioFormat().getSampleRate(), threshold);
         }
-        final float[][] transform = constantQTransform.transform(buffer.getRealData());
+        final float[] normalizedFrequencies;
+        if (constantQTransform instanceof AllocationFreeTransform) {
+            final AllocationFreeTransform allocationFreeTransform = (AllocationFreeTransform) constantQTransform;
+            normalizedFrequencies = allocationFreeTransform.getFrequencies();
+            if (realData == null) {
+                realData = new float[normalizedFrequencies.length];
+                imaginaryData = new float[normalizedFrequencies.length];
+            }
+            allocationFreeTransform.transform(buffer.getRealData(), realData, imaginaryData);
+        } else {
+            final float[][] transform = constantQTransform.transform(buffer.getRealData());
+            normalizedFrequencies = transform[2];
+            realData = transform[0];
+            imaginaryData = transform[1];
+        }
         if (frequencies == null) {
-            frequencies = transform[2];
+            // the frequencies of an AllocationFreeTransform are shared and must not be modified
+            frequencies = new float[normalizedFrequencies.length];
             for (int i=0; i<frequencies.length; i++) {
-                frequencies[i] *= buffer.getAudioFormat().getSampleRate();
+                frequencies[i] = normalizedFrequencies[i] * buffer.getAudioFormat().getSampleRate();
             }
         }
-        return new LogFrequencySpectrum(buffer.getFrameNumber(),
-                transform[0], transform[1],
-                buffer.getAudioFormat(),
-                Q,
-                frequencies);
+        if (logFrequencySpectrum == null) {
+            logFrequencySpectrum = new LogFrequencySpectrum(buffer.getFrameNumber(),
+                    realData, imaginaryData,
+                    buffer.getAudioFormat(),
+                    Q,
+                    frequencies);
+        } else {
+            logFrequencySpectrum.reuse(buffer.getFrameNumber(), realData, imaginaryData, buffer.getAudioFormat());
+        }
+        return logFrequencySpectrum;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The copy allocates its own spectrum buffers, the (stateless) constant-Q kernel is shared.
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        final ConstantQTransform clone = (ConstantQTransform)super.clone();
+        clone.logFrequencySpectrum = null;
+        clone.realData = null;
+        clone.imaginaryData = null;
+        return clone;
     }
 
     @Override
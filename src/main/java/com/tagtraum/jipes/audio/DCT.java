@@ -7,6 +7,8 @@
 package com.tagtraum.jipes.audio;
 
 import com.tagtraum.jipes.AbstractSignalProcessor;
+import com.tagtraum.jipes.FrameIndependent;
+import com.tagtraum.jipes.math.AllocationFreeTransform;
 import com.tagtraum.jipes.math.DCTFactory;
 import com.tagtraum.jipes.math.Transform;
 
@@ -19,7 +21,8 @@ import java.io.IOException;
  * Should the number of samples fed into this processor not be a power of two, the sample array will
  * be zero padded at the end before applying the DCT.
  * <p/>
- * The returned {@link AudioSpectrum} object is re-used. If you need to hold on
+ * The returned {@link AudioSpectrum} object and its data array are re-used,
+ * if the transform is an {@link com.tagtraum.jipes.math.AllocationFreeTransform}. If you need to hold on
  * to it for longer than the current method call, you must either {@link Object#clone()} it or
  * create a copy using a copy constructor like {@link LinearFrequencySpectrum#LinearFrequencySpectrum(LinearFrequencySpectrum)}.
  *
@@ -27,11 +30,12 @@ import java.io.IOException;
  * @see com.tagtraum.jipes.math.DCTFactory
  * @see FFT
  */
-public class DCT extends AbstractSignalProcessor<AudioBuffer, LinearFrequencySpectrum> {
+public class DCT extends AbstractSignalProcessor<AudioBuffer, LinearFrequencySpectrum> implements Cloneable, FrameIndependent {
 
     private Transform dct;
     private int length;
     private LinearFrequencySpectrum linearFrequencySpectrum;
+    private float[] realData;
 
     /**
      * @param length minimum size of the array to transform - shorter buffers will be zero padded
@@ -44,6 +48,11 @@ public class DCT extends AbstractSignalProcessor<AudioBuffer, LinearFrequencySpe
         this(0);
     }
 
+    @Override
+    public boolean isFrameIndependent() {
+        return true;
+    }
+
     @Override
     protected LinearFrequencySpectrum processNext(final AudioBuffer buffer) throws IOException {
         if (buffer.getAudioFormat() != null && buffer.getAudioFormat().getChannels() != 1) {
@@ -54,16 +63,36 @@ public class DCT extends AbstractSignalProcessor<AudioBuffer, LinearFrequencySpe
             this.dct = DCTFactory.getInstance().create(floats.length);
             if (length == 0) length = floats.length;
         }
-        final float[][] dctResult = dct.transform(floats);
-        assert dctResult[0].length == floats.length : "DCT result has different length (" + dctResult[0].length + ") than input (" + floats.length + ").";
+        if (dct instanceof AllocationFreeTransform) {
+            if (realData == null || realData.length != floats.length) {
+                realData = new float[floats.length];
+            }
+            ((AllocationFreeTransform) dct).transform(floats, realData, null);
+        } else {
+            final float[][] dctResult = dct.transform(floats);
+            assert dctResult[0].length == floats.length : "DCT result has different length (" + dctResult[0].length + ") than input (" + floats.length + ").";
+            realData = dctResult[0];
+        }
         if (linearFrequencySpectrum == null) {
-            linearFrequencySpectrum = new LinearFrequencySpectrum(buffer.getFrameNumber(), dctResult[0], null, buffer.getAudioFormat());
+            linearFrequencySpectrum = new LinearFrequencySpectrum(buffer.getFrameNumber(), realData, null, buffer.getAudioFormat());
         } else {
-            linearFrequencySpectrum.reuse(buffer.getFrameNumber(), dctResult[0], null, buffer.getAudioFormat());
+            linearFrequencySpectrum.reuse(buffer.getFrameNumber(), realData, null, buffer.getAudioFormat());
         }
         return linearFrequencySpectrum;
     }
 
+    /**
+     * {@inheritDoc}
+     * The copy allocates its own spectrum buffer, the (stateless) DCT is shared.
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        final DCT clone = (DCT)super.clone();
+        clone.linearFrequencySpectrum = null;
+        clone.realData = null;
+        return clone;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) return true;
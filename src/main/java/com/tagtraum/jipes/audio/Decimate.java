@@ -7,6 +7,8 @@
 package com.tagtraum.jipes.audio;
 
 import com.tagtraum.jipes.AbstractSignalProcessor;
+import com.tagtraum.jipes.Copies;
+import com.tagtraum.jipes.StatefulSignalProcessor;
 import com.tagtraum.jipes.math.MultirateFilters;
 
 import javax.sound.sampled.AudioFormat;
@@ -19,7 +21,7 @@ import java.io.IOException;
  * @see MultirateFilters.Decimator
  * @see Interpolate
  */
-public class Decimate extends AbstractSignalProcessor<AudioBuffer, AudioBuffer> {
+public class Decimate extends AbstractSignalProcessor<AudioBuffer, AudioBuffer> implements Cloneable, StatefulSignalProcessor {
 
     private RealAudioBuffer realAudioBuffer;
     private MultirateFilters.Decimator decimator;
@@ -128,6 +130,27 @@ public class Decimate extends AbstractSignalProcessor<AudioBuffer, AudioBuffer>
         return realAudioBuffer;
     }
 
+    /**
+     * Resets the decimation filter's state.
+     */
+    @Override
+    public void reset() {
+        super.reset();
+        if (decimator != null) decimator.reset();
+    }
+
+    /**
+     * {@inheritDoc}
+     * The copy uses its own copy of the decimation filter.
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        final Decimate clone = (Decimate)super.clone();
+        clone.realAudioBuffer = null;
+        clone.decimator = Copies.copy(decimator);
+        return clone;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) return true;
@@ -0,0 +1,347 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.audio;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Persistent cache for decoded audio, meant for repeated analysis runs over the same (compressed) files.
+ * </p>
+ * <p>
+ * The first time a file is {@link #open(File) opened}, it is fully decoded with an {@link AudioSignalSource}
+ * and the resulting float samples are written to a 32 bit floating point WAV file in the cache directory.
+ * This and all subsequent calls return a {@link MappedAudioSignalSource} for the cached file, i.e.
+ * the samples are read memory-mapped and never decoded again. The delivered samples are identical to the
+ * ones delivered by {@link AudioSignalSource#AudioSignalSource(File)}.
+ * </p>
+ * <p>
+ * Cached files are identified by the canonical path, the modification date and the size of the original
+ * file as well as by the target format (if any). Changing the original file therefore leads to a new
+ * entry. Once the cache directory grows beyond its max size, the least recently used entries are deleted.
+ * </p>
+ * <p>
+ * Usage example:
+ * </p>
+ * <xmp>
+ * final DecodedAudioCache cache = new DecodedAudioCache(new File("cache"), 10L * 1024 * 1024 * 1024);
+ * final SignalPump<AudioBuffer> pump = new SignalPump<AudioBuffer>(cache.open(mp3File));
+ * </xmp>
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see MappedAudioSignalSource
+ * @see AudioSignalSource
+ */
+public class DecodedAudioCache {
+
+    private static final Logger LOG = Logger.getLogger(DecodedAudioCache.class.getName());
+    /**
+     * Is part of the key, so that changes to the cache file format invalidate old entries.
+     */
+    private static final int VERSION = 1;
+    private static final String SUFFIX = ".wav";
+    private static final int WAVE_FORMAT_IEEE_FLOAT = 3;
+    private static final int HEADER_SIZE = 46;
+    /**
+     * Buffer size for sources of cached files. With 32 bit samples, buffers hold as many samples
+     * as the buffers delivered by an {@link AudioSignalSource} for 16 bit audio.
+     */
+    private static final int BUFFER_SIZE = 32 * 1024;
+
+    private final File directory;
+    private final long maxSize;
+    private final AudioFormat targetFormat;
+
+    /**
+     * Creates a cache.
+     *
+     * @param directory cache directory, is created if necessary
+     * @param maxSize max size of the cache directory in bytes
+     * @param targetFormat format the original files are converted to via {@link AudioSystem} before
+     * they are cached, <code>null</code> to keep the original format
+     * @throws IllegalArgumentException if the max size is not positive
+     */
+    public DecodedAudioCache(final File directory, final long maxSize, final AudioFormat targetFormat) throws IllegalArgumentException {
+        if (maxSize <= 0) throw new IllegalArgumentException("Max size must be greater than 0: " + maxSize);
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.targetFormat = targetFormat;
+    }
+
+    /**
+     * Creates a cache for audio in its original format.
+     *
+     * @param directory cache directory, is created if necessary
+     * @param maxSize max size of the cache directory in bytes
+     * @throws IllegalArgumentException if the max size is not positive
+     */
+    public DecodedAudioCache(final File directory, final long maxSize) throws IllegalArgumentException {
+        this(directory, maxSize, null);
+    }
+
+    /**
+     * Cache directory.
+     *
+     * @return directory
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Max size of the cache directory in bytes.
+     *
+     * @return max size
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Target format.
+     *
+     * @return target format or <code>null</code>, if the original format is kept
+     */
+    public AudioFormat getTargetFormat() {
+        return targetFormat;
+    }
+
+    /**
+     * Opens the given audio file. If it has not been cached yet, it is decoded and cached first.
+     *
+     * @param file audio file
+     * @return seekable source for the decoded audio
+     * @throws UnsupportedAudioFileException if the file is not supported by {@link AudioSystem}
+     * @throws IOException if the file cannot be decoded or the cache cannot be written
+     */
+    public SeekableSignalSource<AudioBuffer> open(final File file) throws UnsupportedAudioFileException, IOException {
+        final File cacheFile = getCacheFile(file);
+        if (cacheFile.exists()) {
+            try {
+                final MappedAudioSignalSource source = new MappedAudioSignalSource(cacheFile, BUFFER_SIZE);
+                // remember use for LRU eviction
+                cacheFile.setLastModified(System.currentTimeMillis());
+                return source;
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Failed to open cached file " + cacheFile + ", decoding " + file + " again: " + e, e);
+                cacheFile.delete();
+            }
+        }
+        if (!decode(file, cacheFile)) {
+            // cannot be cached
+            return createDecoder(file);
+        }
+        evict(cacheFile);
+        return new MappedAudioSignalSource(cacheFile, BUFFER_SIZE);
+    }
+
+    /**
+     * File the decoded samples of the given file are cached in. It may not exist (yet).
+     *
+     * @param file audio file
+     * @return cache file
+     * @throws IOException if the canonical path of the file cannot be determined
+     */
+    public File getCacheFile(final File file) throws IOException {
+        final String key = file.getCanonicalPath()
+                + '\n' + file.lastModified()
+                + '\n' + file.length()
+                + '\n' + (targetFormat == null ? "original" : targetFormat.toString())
+                + '\n' + VERSION;
+        return new File(directory, toHex(sha1(key.getBytes("UTF-8"))) + SUFFIX);
+    }
+
+    /**
+     * Deletes all cached files.
+     */
+    public synchronized void clear() {
+        for (final File cacheFile : listCacheFiles()) {
+            cacheFile.delete();
+        }
+    }
+
+    /**
+     * Decodes the given file into the given cache file. The samples are first written
+     * to a temporary file, which is then renamed, so that concurrent users never see incomplete files.
+     *
+     * @param file audio file
+     * @param cacheFile cache file
+     * @return false, if the file cannot be cached, because its sample rate cannot be stored in a WAV file
+     */
+    private boolean decode(final File file, final File cacheFile) throws UnsupportedAudioFileException, IOException {
+        if (!directory.exists() && !directory.mkdirs() && !directory.exists()) {
+            throw new IOException("Failed to create cache directory " + directory);
+        }
+        final AudioSignalSource source = createDecoder(file);
+        final AudioFormat audioFormat = source.getProcessedAudioFormat();
+        if (audioFormat.getSampleRate() != (int) audioFormat.getSampleRate()) {
+            source.close();
+            return false;
+        }
+        final File tempFile = File.createTempFile("decoding", ".tmp", directory);
+        try {
+            final RandomAccessFile out = new RandomAccessFile(tempFile, "rw");
+            try {
+                final FileChannel channel = out.getChannel();
+                channel.position(HEADER_SIZE);
+                ByteBuffer bytes = null;
+                long dataLength = 0;
+                AudioBuffer buffer;
+                while ((buffer = source.read()) != null) {
+                    final float[] data = buffer.getData();
+                    if (bytes == null || bytes.capacity() < data.length * 4) {
+                        bytes = ByteBuffer.allocate(data.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+                    }
+                    bytes.clear();
+                    bytes.asFloatBuffer().put(data);
+                    bytes.limit(data.length * 4);
+                    while (bytes.hasRemaining()) {
+                        channel.write(bytes);
+                    }
+                    dataLength += data.length * 4;
+                }
+                final ByteBuffer header = createHeader(audioFormat, dataLength);
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+            } finally {
+                out.close();
+                source.close();
+            }
+            if (!tempFile.renameTo(cacheFile) && !cacheFile.exists()) {
+                throw new IOException("Failed to rename " + tempFile + " to " + cacheFile);
+            }
+        } finally {
+            // no-op, if the file has been renamed
+            tempFile.delete();
+        }
+        return true;
+    }
+
+    private AudioSignalSource createDecoder(final File file) throws UnsupportedAudioFileException, IOException {
+        if (targetFormat == null) return new AudioSignalSource(file);
+        final AudioInputStream in = AudioSystem.getAudioInputStream(file);
+        try {
+            return new AudioSignalSource(AudioSystem.getAudioInputStream(targetFormat, in));
+        } catch (IllegalArgumentException e) {
+            in.close();
+            throw new UnsupportedAudioFileException("Cannot convert " + file + " to " + targetFormat + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Creates a WAV header for 32 bit floating point samples.
+     * Data longer than 4GB is marked with an unknown length.
+     *
+     * @param audioFormat audio format
+     * @param dataLength length of the sample data in bytes
+     * @return header
+     */
+    private static ByteBuffer createHeader(final AudioFormat audioFormat, final long dataLength) {
+        final int channels = audioFormat.getChannels();
+        final int sampleRate = (int) audioFormat.getSampleRate();
+        final long riffLength = HEADER_SIZE - 8 + dataLength;
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.put("RIFF".getBytes());
+        header.putInt(riffLength > 0xFFFFFFFFL ? 0xFFFFFFFF : (int) riffLength);
+        header.put("WAVE".getBytes());
+        header.put("fmt ".getBytes());
+        header.putInt(18);
+        header.putShort((short) WAVE_FORMAT_IEEE_FLOAT);
+        header.putShort((short) channels);
+        header.putInt(sampleRate);
+        header.putInt(sampleRate * channels * 4);
+        header.putShort((short) (channels * 4));
+        header.putShort((short) 32);
+        // no extension
+        header.putShort((short) 0);
+        header.put("data".getBytes());
+        header.putInt(dataLength > 0xFFFFFFFFL ? 0xFFFFFFFF : (int) dataLength);
+        header.flip();
+        return header;
+    }
+
+    /**
+     * Deletes the least recently used files until the cache fits into its max size.
+     *
+     * @param keep file that must not be deleted
+     */
+    private synchronized void evict(final File keep) {
+        final File[] cacheFiles = listCacheFiles();
+        long size = 0;
+        for (final File cacheFile : cacheFiles) {
+            size += cacheFile.length();
+        }
+        if (size <= maxSize) return;
+        Arrays.sort(cacheFiles, new Comparator<File>() {
+            public int compare(final File f1, final File f2) {
+                final long m1 = f1.lastModified();
+                final long m2 = f2.lastModified();
+                return m1 < m2 ? -1 : (m1 == m2 ? 0 : 1);
+            }
+        });
+        for (int i=0; i<cacheFiles.length && size > maxSize; i++) {
+            final File cacheFile = cacheFiles[i];
+            if (cacheFile.equals(keep)) continue;
+            final long length = cacheFile.length();
+            if (cacheFile.delete()) {
+                size -= length;
+            }
+        }
+    }
+
+    private File[] listCacheFiles() {
+        final File[] files = directory.listFiles(new FileFilter() {
+            public boolean accept(final File file) {
+                return file.isFile() && file.getName().endsWith(SUFFIX);
+            }
+        });
+        return files == null ? new File[0] : files;
+    }
+
+    private static byte[] sha1(final byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-1").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform supports SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(final byte[] bytes) {
+        final StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (final byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "DecodedAudioCache{" +
+                "directory=" + directory +
+                ", maxSize=" + maxSize +
+                ", targetFormat=" + targetFormat +
+                '}';
+    }
+}
@@ -21,7 +21,7 @@ import javax.sound.sampled.AudioFormat;
  * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
  * @see Decimate
  */
-public class Downsample extends AbstractSignalProcessor<AudioBuffer, AudioBuffer> {
+public class Downsample extends AbstractSignalProcessor<AudioBuffer, AudioBuffer> implements Cloneable {
 
     private int nthFrameToKeep = 2;
     private float[] output;
@@ -96,6 +96,18 @@ public class Downsample extends AbstractSignalProcessor<AudioBuffer, AudioBuffer
         return realAudioBuffer;
     }
 
+    /**
+     * {@inheritDoc}
+     * The copy allocates its own downsampled output buffer.
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        final Downsample clone = (Downsample)super.clone();
+        clone.output = null;
+        clone.realAudioBuffer = null;
+        return clone;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) return true;
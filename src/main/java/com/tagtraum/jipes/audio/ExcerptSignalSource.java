@@ -0,0 +1,208 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.audio;
+
+import com.tagtraum.jipes.DiscontinuousSignalSource;
+import com.tagtraum.jipes.SignalSource;
+
+import javax.sound.sampled.AudioSystem;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Delivers a number of evenly spaced excerpts of a {@link SeekableSignalSource}, e.g.
+ * 6 excerpts of 10s each, for fast, approximate analysis of long recordings.
+ * </p>
+ * <p>
+ * The recording is divided into as many slots of equal length as there are excerpts and
+ * each excerpt is taken from the middle of its slot. Everything between excerpts is
+ * {@link SeekableSignalSource#seek(long) skipped}, not decoded. Buffers carry their
+ * original frame numbers. Like {@link TimeRangeSignalSource}, an excerpt ends with the
+ * first buffer that starts after the excerpt's end, i.e. the last buffer of an excerpt may
+ * extend beyond it.
+ * </p>
+ * <p>
+ * Because this is a {@link DiscontinuousSignalSource}, a {@link com.tagtraum.jipes.SignalPump}
+ * resets all {@link com.tagtraum.jipes.StatefulSignalProcessor}s like {@link SlidingWindow}s or
+ * filters at the beginning of each excerpt. Processors that aggregate over the whole signal
+ * simply see the concatenated excerpts.
+ * </p>
+ * <p>
+ * If the recording is shorter than all excerpts combined or its length is unknown, it is
+ * delivered in full.
+ * </p>
+ * <p>
+ * Usage example:
+ * </p>
+ * <xmp>
+ * final SignalPump<AudioBuffer> pump = new SignalPump<AudioBuffer>(
+ *     new ExcerptSignalSource<AudioBuffer>(new MappedAudioSignalSource(file), 6, 10, TimeUnit.SECONDS));
+ * </xmp>
+ *
+ * @param <T> subtype of {@link AudioBuffer}
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see TimeRangeSignalSource
+ * @see com.tagtraum.jipes.StatefulSignalProcessor
+ */
+public class ExcerptSignalSource<T extends AudioBuffer> implements DiscontinuousSignalSource<T>, Closeable {
+
+    private final SeekableSignalSource<T> signalSource;
+    private final int excerpts;
+    private final long excerptLength;
+    private final TimeUnit timeUnit;
+    private long[] starts;
+    private long excerptFrames;
+    private int excerpt;
+    private boolean discontinuity;
+
+    /**
+     * Creates an excerpt source.
+     *
+     * @param signalSource signal source to read from
+     * @param excerpts number of excerpts
+     * @param excerptLength length of each excerpt
+     * @param timeUnit time unit of the excerpt length
+     * @throws IllegalArgumentException if the number of excerpts or the excerpt length is less than 1
+     */
+    public ExcerptSignalSource(final SeekableSignalSource<T> signalSource, final int excerpts,
+                               final long excerptLength, final TimeUnit timeUnit) throws IllegalArgumentException {
+        if (excerpts < 1) throw new IllegalArgumentException("Number of excerpts must be greater than 0: " + excerpts);
+        if (excerptLength < 1) throw new IllegalArgumentException("Excerpt length must be greater than 0: " + excerptLength);
+        this.signalSource = signalSource;
+        this.excerpts = excerpts;
+        this.excerptLength = excerptLength;
+        this.timeUnit = timeUnit;
+    }
+
+    /**
+     * Number of excerpts.
+     *
+     * @return excerpts
+     */
+    public int getExcerpts() {
+        return excerpts;
+    }
+
+    /**
+     * Length of each excerpt.
+     *
+     * @param timeUnit desired unit
+     * @return length
+     */
+    public long getExcerptLength(final TimeUnit timeUnit) {
+        return timeUnit.convert(excerptLength, this.timeUnit);
+    }
+
+    /**
+     * Wrapped signal source.
+     *
+     * @return signal source
+     */
+    public SeekableSignalSource<T> getSignalSource() {
+        return signalSource;
+    }
+
+    /**
+     * Computes the first frame of each excerpt. If the excerpts don't fit,
+     * a single excerpt covering the whole recording is used.
+     */
+    private void computeStarts() {
+        final long frameLength = signalSource.getFrameLength();
+        final double sampleRate = signalSource.getProcessedAudioFormat().getSampleRate();
+        excerptFrames = (long) (TimeUnit.NANOSECONDS.convert(excerptLength, timeUnit) * sampleRate / (1000l * 1000l * 1000l));
+        if (frameLength == AudioSystem.NOT_SPECIFIED || frameLength <= excerptFrames * excerpts) {
+            starts = new long[] {0};
+            excerptFrames = Long.MAX_VALUE;
+            return;
+        }
+        starts = new long[excerpts];
+        for (int i=0; i<excerpts; i++) {
+            // center of the i-th slot minus half an excerpt
+            starts[i] = (2 * i + 1) * frameLength / (2 * excerpts) - excerptFrames / 2;
+        }
+    }
+
+    /**
+     * Index of the excerpt the last buffer belongs to, or the number of excerpts,
+     * if all excerpts have been read.
+     *
+     * @return excerpt index
+     */
+    public int getExcerpt() {
+        return excerpt;
+    }
+
+    public boolean isDiscontinuity() {
+        return discontinuity;
+    }
+
+    public T read() throws IOException {
+        discontinuity = false;
+        if (starts == null) {
+            computeStarts();
+            excerpt = 0;
+            signalSource.seek(starts[0]);
+        }
+        if (excerpt >= starts.length) return null;
+        T buffer = signalSource.read();
+        if (buffer != null && buffer.getFrameNumber() >= getEnd(excerpt)) {
+            excerpt++;
+            if (excerpt >= starts.length) return null;
+            // unless the buffer already belongs to the next excerpt, skip to it
+            if (starts[excerpt] > buffer.getFrameNumber()) {
+                signalSource.seek(starts[excerpt]);
+                discontinuity = true;
+                buffer = signalSource.read();
+            }
+        }
+        if (buffer == null) excerpt = starts.length;
+        return buffer;
+    }
+
+    /**
+     * First frame after the given excerpt.
+     *
+     * @param excerpt excerpt index
+     * @return end frame
+     */
+    private long getEnd(final int excerpt) {
+        if (excerptFrames == Long.MAX_VALUE) return Long.MAX_VALUE;
+        return starts[excerpt] + excerptFrames;
+    }
+
+    /**
+     * Lets the next {@link #read()} start with the first excerpt again.
+     */
+    public void reset() {
+        starts = null;
+        excerpt = 0;
+        discontinuity = false;
+    }
+
+    /**
+     * Closes the underlying {@link SignalSource}, if it implements {@link Closeable}.
+     *
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        if (signalSource instanceof Closeable) {
+            ((Closeable) signalSource).close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ExcerptSignalSource{" +
+                "excerpts=" + excerpts +
+                ", excerptLength=" + excerptLength +
+                " " + timeUnit.toString().toLowerCase() +
+                ", signalSource=" + signalSource +
+                '}';
+    }
+}
@@ -7,11 +7,14 @@
 package com.tagtraum.jipes.audio;
 
 import com.tagtraum.jipes.AbstractSignalProcessor;
+import com.tagtraum.jipes.FrameIndependent;
+import com.tagtraum.jipes.math.AllocationFreeTransform;
 import com.tagtraum.jipes.math.FFTFactory;
 import com.tagtraum.jipes.math.Floats;
 import com.tagtraum.jipes.math.Transform;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * Transforms samples obtained with {@link com.tagtraum.jipes.audio.AudioBuffer#getData()}
@@ -19,8 +22,12 @@ import java.io.IOException;
  * the real part, the imaginary part and methods for accessing all kinds of other goodies.<br>
  * Should the number of samples fed into this processor not be a power of two, the sample array will
  * be zero padded at the end before applying the FFT.
+ * Since the default {@link FFTFactory} supports arbitrary lengths, padding to a power of two can be
+ * turned off with {@link #setZeroPadToPowerOfTwo(boolean)}. Then the samples are only zero padded to
+ * the minimum length, if they are shorter.
  * <p/>
- * The returned {@link com.tagtraum.jipes.audio.AudioSpectrum} object is re-used. If you need to hold on
+ * The returned {@link com.tagtraum.jipes.audio.AudioSpectrum} object and its data arrays are re-used,
+ * if the transform is an {@link AllocationFreeTransform}. If you need to hold on
  * to it for longer than the current method call, you must either {@link Object#clone()} it or
  * create a copy using a copy constructor like {@link com.tagtraum.jipes.audio.LinearFrequencySpectrum#LinearFrequencySpectrum(com.tagtraum.jipes.audio.LinearFrequencySpectrum)}.
  *
@@ -29,12 +36,15 @@ import java.io.IOException;
  * @see DCT
  * @see IFFT
  */
-public class FFT extends AbstractSignalProcessor<AudioBuffer, LinearFrequencySpectrum> {
+public class FFT extends AbstractSignalProcessor<AudioBuffer, LinearFrequencySpectrum> implements Cloneable, FrameIndependent {
 
     private Transform fft;
     private int length;
     private float requiredResolutionInHz;
+    private boolean zeroPadToPowerOfTwo = true;
     private LinearFrequencySpectrum linearFrequencySpectrum;
+    private float[] realData;
+    private float[] imaginaryData;
 
     /**
      * @param length minimum size of the array to transform - shorter buffers will be zero padded
@@ -83,6 +93,31 @@ public class FFT extends AbstractSignalProcessor<AudioBuffer, LinearFrequencySpe
         return requiredResolutionInHz;
     }
 
+    /**
+     * Indicates whether input is zero padded to a power of two before it is transformed.
+     *
+     * @return true, if input is padded to a power of two (default)
+     */
+    public boolean isZeroPadToPowerOfTwo() {
+        return zeroPadToPowerOfTwo;
+    }
+
+    /**
+     * Lets you turn off zero padding to a power of two, e.g. to transform 1764 samples (40ms at 44.1kHz)
+     * without padding them to 2048 samples. This requires an {@link FFTFactory} that supports
+     * arbitrary lengths, like the default factory.
+     *
+     * @param zeroPadToPowerOfTwo true, if input should be padded to a power of two
+     */
+    public void setZeroPadToPowerOfTwo(final boolean zeroPadToPowerOfTwo) {
+        this.zeroPadToPowerOfTwo = zeroPadToPowerOfTwo;
+    }
+
+    @Override
+    public boolean isFrameIndependent() {
+        return true;
+    }
+
     @Override
     protected LinearFrequencySpectrum processNext(final AudioBuffer buffer) throws IOException {
         if (buffer.getAudioFormat() != null && buffer.getAudioFormat().getChannels() != 1) {
@@ -92,27 +127,57 @@ public class FFT extends AbstractSignalProcessor<AudioBuffer, LinearFrequencySpe
             length = (int)Math.ceil(buffer.getAudioFormat().getSampleRate()/requiredResolutionInHz);
         }
 
-        final float[] floats = Floats.zeroPadAtEnd(length, buffer.getData());
+        final float[] floats = zeroPad(buffer.getData());
         if (fft == null) {
             this.fft = FFTFactory.getInstance().create(floats.length);
             if (length == 0) length = floats.length;
         }
-        final float[][] realFftResult = fft.transform(floats);
-        assert realFftResult[0].length == floats.length;
+        if (fft instanceof AllocationFreeTransform) {
+            if (realData == null || realData.length != floats.length) {
+                realData = new float[floats.length];
+                imaginaryData = new float[floats.length];
+            }
+            ((AllocationFreeTransform) fft).transform(floats, realData, imaginaryData);
+        } else {
+            final float[][] realFftResult = fft.transform(floats);
+            assert realFftResult[0].length == floats.length;
+            realData = realFftResult[0];
+            imaginaryData = realFftResult[1];
+        }
         if (linearFrequencySpectrum == null) {
-            linearFrequencySpectrum = new LinearFrequencySpectrum(buffer.getFrameNumber(), realFftResult[0], realFftResult[1], buffer.getAudioFormat());
+            linearFrequencySpectrum = new LinearFrequencySpectrum(buffer.getFrameNumber(), realData, imaginaryData, buffer.getAudioFormat());
         } else {
-            linearFrequencySpectrum.reuse(buffer.getFrameNumber(), realFftResult[0], realFftResult[1], buffer.getAudioFormat());
+            linearFrequencySpectrum.reuse(buffer.getFrameNumber(), realData, imaginaryData, buffer.getAudioFormat());
         }
         return linearFrequencySpectrum;
     }
 
+    private float[] zeroPad(final float[] data) {
+        if (zeroPadToPowerOfTwo) return Floats.zeroPadAtEnd(length, data);
+        if (data.length >= length) return data;
+        return Arrays.copyOf(data, length);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The copy allocates its own spectrum buffers, the (stateless) FFT is shared.
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        final FFT clone = (FFT)super.clone();
+        clone.linearFrequencySpectrum = null;
+        clone.realData = null;
+        clone.imaginaryData = null;
+        return clone;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
 
         final FFT that = (FFT) o;
+        if (this.zeroPadToPowerOfTwo != that.zeroPadToPowerOfTwo) return false;
         if (this.length > 0 && that.length > 0
                 && this.length == that.length) return true;
 
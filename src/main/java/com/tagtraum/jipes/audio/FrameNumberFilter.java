@@ -21,7 +21,7 @@ import java.io.IOException;
  *
  * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
  */
-public class FrameNumberFilter extends AbstractSignalProcessor<AudioBuffer, AudioBuffer> {
+public class FrameNumberFilter extends AbstractSignalProcessor<AudioBuffer, AudioBuffer> implements Cloneable {
 
     private int minFrameNumber = 0;
     private int maxFrameNumber = Integer.MAX_VALUE;
@@ -7,11 +7,14 @@
 package com.tagtraum.jipes.audio;
 
 import com.tagtraum.jipes.AbstractSignalProcessor;
+import com.tagtraum.jipes.FrameIndependent;
+import com.tagtraum.jipes.math.AllocationFreeTransform;
 import com.tagtraum.jipes.math.FFTFactory;
 import com.tagtraum.jipes.math.Floats;
 import com.tagtraum.jipes.math.Transform;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * <p>
@@ -20,9 +23,13 @@ import java.io.IOException;
  * the real part, the imaginary part and methods for accessing all kinds of other goodies.<br>
  * Should the number of samples fed into this processor not be a power of two, the sample array will
  * be zero padded at the end before applying the inverse FFT.
+ * Since the default {@link FFTFactory} supports arbitrary lengths, padding to a power of two can be
+ * turned off with {@link #setZeroPadToPowerOfTwo(boolean)}. Then the samples are only zero padded to
+ * the minimum length, if they are shorter.
  * <p/>
  * <p>
- * The returned {@link AudioBuffer} object is re-used. If you need to hold on
+ * The returned {@link AudioBuffer} object and its data arrays are re-used,
+ * if the transform is an {@link AllocationFreeTransform}. If you need to hold on
  * to it for longer than the current method call, you must either {@link Object#clone()} it or
  * create a copy using a copy constructor.
  * </p>
@@ -32,12 +39,15 @@ import java.io.IOException;
  * @see DCT
  * @see FFT
  */
-public class IFFT extends AbstractSignalProcessor<LinearFrequencySpectrum, AudioBuffer> {
+public class IFFT extends AbstractSignalProcessor<LinearFrequencySpectrum, AudioBuffer> implements Cloneable, FrameIndependent {
 
     private Transform fft;
     private int length;
     private float requiredResolutionInHz;
+    private boolean zeroPadToPowerOfTwo = true;
     private ComplexAudioBuffer audioBuffer;
+    private float[] realData;
+    private float[] imaginaryData;
 
     /**
      * @param length minimum size of the array to transform - shorter buffers will be zero padded
@@ -86,6 +96,31 @@ public class IFFT extends AbstractSignalProcessor<LinearFrequencySpectrum, Audio
         return requiredResolutionInHz;
     }
 
+    /**
+     * Indicates whether input is zero padded to a power of two before it is transformed.
+     *
+     * @return true, if input is padded to a power of two (default)
+     */
+    public boolean isZeroPadToPowerOfTwo() {
+        return zeroPadToPowerOfTwo;
+    }
+
+    /**
+     * Lets you turn off zero padding to a power of two, e.g. to transform 1764 samples (40ms at 44.1kHz)
+     * without padding them to 2048 samples. This requires an {@link FFTFactory} that supports
+     * arbitrary lengths, like the default factory.
+     *
+     * @param zeroPadToPowerOfTwo true, if input should be padded to a power of two
+     */
+    public void setZeroPadToPowerOfTwo(final boolean zeroPadToPowerOfTwo) {
+        this.zeroPadToPowerOfTwo = zeroPadToPowerOfTwo;
+    }
+
+    @Override
+    public boolean isFrameIndependent() {
+        return true;
+    }
+
     @Override
     protected AudioBuffer processNext(final LinearFrequencySpectrum buffer) throws IOException {
         if (buffer.getAudioFormat() != null && buffer.getAudioFormat().getChannels() != 1) {
@@ -95,27 +130,57 @@ public class IFFT extends AbstractSignalProcessor<LinearFrequencySpectrum, Audio
             length = (int)Math.ceil(buffer.getAudioFormat().getSampleRate()/requiredResolutionInHz);
         }
 
-        final float[] realFloats = Floats.zeroPadAtEnd(length, buffer.getRealData());
-        final float[] imaginaryFloats = Floats.zeroPadAtEnd(length, buffer.getImaginaryData());
+        final float[] realFloats = zeroPad(buffer.getRealData());
+        final float[] imaginaryFloats = zeroPad(buffer.getImaginaryData());
         if (fft == null) {
             this.fft = FFTFactory.getInstance().create(realFloats.length);
             if (length == 0) length = realFloats.length;
         }
-        final float[][] inverseFftResult = fft.inverseTransform(realFloats, imaginaryFloats);
+        if (fft instanceof AllocationFreeTransform) {
+            if (realData == null || realData.length != realFloats.length) {
+                realData = new float[realFloats.length];
+                imaginaryData = new float[realFloats.length];
+            }
+            ((AllocationFreeTransform) fft).inverseTransform(realFloats, imaginaryFloats, realData, imaginaryData);
+        } else {
+            final float[][] inverseFftResult = fft.inverseTransform(realFloats, imaginaryFloats);
+            realData = inverseFftResult[0];
+            imaginaryData = inverseFftResult[1];
+        }
         if (audioBuffer == null) {
-            audioBuffer = new ComplexAudioBuffer(buffer.getFrameNumber(), inverseFftResult[0], inverseFftResult[1], buffer.getAudioFormat());
+            audioBuffer = new ComplexAudioBuffer(buffer.getFrameNumber(), realData, imaginaryData, buffer.getAudioFormat());
         } else {
-            audioBuffer.reuse(buffer.getFrameNumber(), inverseFftResult[0], inverseFftResult[1], buffer.getAudioFormat());
+            audioBuffer.reuse(buffer.getFrameNumber(), realData, imaginaryData, buffer.getAudioFormat());
         }
         return audioBuffer;
     }
 
+    private float[] zeroPad(final float[] data) {
+        if (zeroPadToPowerOfTwo) return Floats.zeroPadAtEnd(length, data);
+        if (data.length >= length) return data;
+        return Arrays.copyOf(data, length);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The copy allocates its own audio buffer, the (stateless) inverse FFT is shared.
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        final IFFT clone = (IFFT)super.clone();
+        clone.audioBuffer = null;
+        clone.realData = null;
+        clone.imaginaryData = null;
+        return clone;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
 
         final IFFT that = (IFFT) o;
+        if (this.zeroPadToPowerOfTwo != that.zeroPadToPowerOfTwo) return false;
         if (this.length > 0 && that.length > 0
                 && this.length == that.length) return true;
 
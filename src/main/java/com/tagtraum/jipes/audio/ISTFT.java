@@ -0,0 +1,331 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.audio;
+
+import com.tagtraum.jipes.AbstractSignalProcessor;
+import com.tagtraum.jipes.StatefulSignalProcessor;
+import com.tagtraum.jipes.math.AllocationFreeTransform;
+import com.tagtraum.jipes.math.FFTFactory;
+import com.tagtraum.jipes.math.Transform;
+import com.tagtraum.jipes.math.WindowFunction;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * <p>Inverse short-time Fourier transform, i.e. the counterpart of {@link STFT}.
+ * Does the work of {@link IFFT} followed by a synthesis window and {@link OLA}, but without
+ * allocating buffers for each frame: Each spectrum is inverse transformed into a re-used array,
+ * multiplied with the synthesis window and added to a ring buffer that is as long as one window.
+ * At the same time, the products of analysis and synthesis window are added to a second ring buffer.
+ * For each frame, one block of hop size samples is emitted, with each sample divided by the sum
+ * of window products at its position (weighted overlap-add). This way, a signal is reconstructed exactly,
+ * if the spectra are not modified, regardless of window and hop size, as long as the windows overlap
+ * sufficiently.
+ * </p>
+ * <p>
+ * Spectra may be zero padded, i.e. longer than the window. Only the first
+ * <code>sliceLengthInFrames</code> samples of each inverse transform are used.
+ * On {@link #flush()}, the tail of the last window is emitted in hop size blocks, the last one
+ * zero padded.
+ * </p>
+ * <p>
+ * The emitted buffer and its array are re-used. If you need to hold on to it for longer than
+ * the current method call, you must {@link Object#clone()} it.
+ * </p>
+ * Usage example:
+ * <xmp>STFT stft = new STFT(2048, 512);
+ * stft.connectTo(new Mapping<LinearFrequencySpectrum>(someModification))
+ *     .connectTo(new ISTFT(2048, 512));</xmp>
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see STFT
+ * @see IFFT
+ * @see OLA
+ */
+public class ISTFT extends AbstractSignalProcessor<LinearFrequencySpectrum, AudioBuffer> implements Cloneable, StatefulSignalProcessor {
+
+    /**
+     * Window sums below this value are treated as zero, i.e. the corresponding samples are set to zero.
+     */
+    private static final float MIN_WINDOW_SUM = 1e-10f;
+
+    private final int sliceLengthInFrames;
+    private final int hopSizeInFrames;
+    private final WindowFunction analysisWindowFunction;
+    private final WindowFunction synthesisWindowFunction;
+    private final float[] synthesisWindow;
+    private final float[] windowProduct;
+    private Transform fft;
+    /**
+     * Holds the weighted sum of the current window, starting at {@link #ringStart}.
+     */
+    private float[] ring;
+    /**
+     * Holds the sum of window products of the current window, starting at {@link #ringStart}.
+     */
+    private float[] windowSumRing;
+    private int ringStart;
+    private int ringFrames;
+    private float[] realData;
+    private float[] imaginaryData;
+    private float[] block;
+    private RealAudioBuffer blockBuffer;
+    private AudioFormat audioFormat;
+    private int emittedFrames;
+    private int frameNumberOffset = -1;
+
+    /**
+     * Creates an inverse short-time Fourier transform.
+     *
+     * @param sliceLengthInFrames frames per window
+     * @param hopSizeInFrames number of frames consecutive windows are apart
+     * @param analysisWindowFunction window function used for the forward transform
+     * @param synthesisWindowFunction window function applied to the inverse transform
+     * @throws IllegalArgumentException if a window function does not have the same length as the window or
+     * the hop size is not between 1 and the window length
+     */
+    public ISTFT(final int sliceLengthInFrames, final int hopSizeInFrames,
+                 final WindowFunction analysisWindowFunction, final WindowFunction synthesisWindowFunction) {
+        if (sliceLengthInFrames <= 0) throw new IllegalArgumentException("Slice length must be positive: " + sliceLengthInFrames);
+        if (hopSizeInFrames <= 0 || hopSizeInFrames > sliceLengthInFrames) {
+            throw new IllegalArgumentException("Hop size must be positive and not greater than the slice length "
+                    + sliceLengthInFrames + ": " + hopSizeInFrames);
+        }
+        if (analysisWindowFunction.getLength() != sliceLengthInFrames || synthesisWindowFunction.getLength() != sliceLengthInFrames) {
+            throw new IllegalArgumentException("Window function lengths " + analysisWindowFunction.getLength()
+                    + " and " + synthesisWindowFunction.getLength() + " must equal the slice length " + sliceLengthInFrames);
+        }
+        this.sliceLengthInFrames = sliceLengthInFrames;
+        this.hopSizeInFrames = hopSizeInFrames;
+        this.analysisWindowFunction = analysisWindowFunction;
+        this.synthesisWindowFunction = synthesisWindowFunction;
+        this.synthesisWindow = synthesisWindowFunction.getCoefficients();
+        this.windowProduct = analysisWindowFunction.getCoefficients();
+        for (int i=0; i<sliceLengthInFrames; i++) {
+            windowProduct[i] *= synthesisWindow[i];
+        }
+    }
+
+    /**
+     * Creates an inverse short-time Fourier transform with {@link WindowFunction.Hann} windows
+     * for analysis and synthesis.
+     *
+     * @param sliceLengthInFrames frames per window
+     * @param hopSizeInFrames number of frames consecutive windows are apart
+     */
+    public ISTFT(final int sliceLengthInFrames, final int hopSizeInFrames) {
+        this(sliceLengthInFrames, hopSizeInFrames, new WindowFunction.Hann(sliceLengthInFrames), new WindowFunction.Hann(sliceLengthInFrames));
+    }
+
+    /**
+     * Creates an inverse short-time Fourier transform with a window length of 2048 frames, 1024 hop size
+     * and {@link WindowFunction.Hann} windows.
+     */
+    public ISTFT() {
+        this(2048, 1024);
+    }
+
+    public int getSliceLengthInFrames() {
+        return sliceLengthInFrames;
+    }
+
+    public int getHopSizeInFrames() {
+        return hopSizeInFrames;
+    }
+
+    public WindowFunction getAnalysisWindowFunction() {
+        return analysisWindowFunction;
+    }
+
+    public WindowFunction getSynthesisWindowFunction() {
+        return synthesisWindowFunction;
+    }
+
+    public void reset() {
+        super.reset();
+        if (ring != null) {
+            Arrays.fill(ring, 0f);
+            Arrays.fill(windowSumRing, 0f);
+        }
+        ringStart = 0;
+        ringFrames = 0;
+        audioFormat = null;
+        emittedFrames = 0;
+        frameNumberOffset = -1;
+    }
+
+    @Override
+    protected AudioBuffer processNext(final LinearFrequencySpectrum spectrum) throws IOException {
+        throw new RuntimeException("This method in not implemented");
+    }
+
+    @Override
+    public void process(final LinearFrequencySpectrum spectrum) throws IOException {
+        add(spectrum);
+        lastOut = nextBlock();
+        signalProcessorSupport.process(lastOut);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        while (ringFrames > 0) {
+            lastOut = nextBlock();
+            signalProcessorSupport.process(lastOut);
+        }
+        super.flush();
+    }
+
+    /**
+     * Once no new spectra can be obtained, the tail of the last window is returned
+     * in blocks of hop size. Only then {@link #read()} returns <code>null</code>.
+     *
+     * @return next block of hop size samples
+     * @throws IOException if something goes wrong
+     */
+    @Override
+    public AudioBuffer read() throws IOException {
+        final LinearFrequencySpectrum spectrum = getConnectedSource().read();
+        if (spectrum != null) {
+            add(spectrum);
+        } else if (ringFrames == 0) {
+            return null;
+        }
+        lastOut = nextBlock();
+        return lastOut;
+    }
+
+    /**
+     * Inverse transforms the spectrum and adds the windowed result to the ring buffer.
+     *
+     * @param spectrum spectrum
+     * @throws IOException if the spectrum is not mono or shorter than a window
+     */
+    private void add(final LinearFrequencySpectrum spectrum) throws IOException {
+        if (spectrum.getAudioFormat() != null && spectrum.getAudioFormat().getChannels() != 1) {
+            throw new IOException("Source must be mono.");
+        }
+        final float[] real = spectrum.getRealData();
+        final float[] imaginary = spectrum.getImaginaryData();
+        if (real.length < sliceLengthInFrames) {
+            throw new IOException("Spectrum length " + real.length + " must not be shorter than the slice length "
+                    + sliceLengthInFrames);
+        }
+        if (frameNumberOffset == -1) frameNumberOffset = spectrum.getFrameNumber();
+        audioFormat = spectrum.getAudioFormat();
+        if (fft == null || realData == null || realData.length != real.length) {
+            fft = FFTFactory.getInstance().create(real.length);
+            realData = new float[real.length];
+            imaginaryData = new float[real.length];
+        }
+        final float[] samples;
+        if (fft instanceof AllocationFreeTransform) {
+            ((AllocationFreeTransform) fft).inverseTransform(real, imaginary, realData, imaginaryData);
+            samples = realData;
+        } else {
+            samples = fft.inverseTransform(real, imaginary)[0];
+        }
+        if (ring == null) {
+            ring = new float[sliceLengthInFrames];
+            windowSumRing = new float[sliceLengthInFrames];
+            block = new float[hopSizeInFrames];
+        }
+        // the window may wrap around the end of the ring
+        final int firstPart = sliceLengthInFrames - ringStart;
+        for (int i=0; i<firstPart; i++) {
+            ring[ringStart + i] += samples[i] * synthesisWindow[i];
+            windowSumRing[ringStart + i] += windowProduct[i];
+        }
+        for (int i=firstPart; i<sliceLengthInFrames; i++) {
+            ring[i - firstPart] += samples[i] * synthesisWindow[i];
+            windowSumRing[i - firstPart] += windowProduct[i];
+        }
+        ringFrames = sliceLengthInFrames;
+    }
+
+    /**
+     * Normalizes the first hop size samples of the ring buffer, copies them into the
+     * re-used output block and then moves the ring by one hop.
+     *
+     * @return block
+     */
+    private AudioBuffer nextBlock() {
+        for (int i=0; i<hopSizeInFrames; i++) {
+            final int position = (ringStart + i) % sliceLengthInFrames;
+            final float windowSum = windowSumRing[position];
+            block[i] = windowSum > MIN_WINDOW_SUM ? ring[position] / windowSum : 0f;
+            ring[position] = 0f;
+            windowSumRing[position] = 0f;
+        }
+        final int frameNumber = frameNumberOffset + emittedFrames;
+        if (blockBuffer == null) {
+            blockBuffer = new RealAudioBuffer(frameNumber, block, audioFormat);
+        } else {
+            blockBuffer.reuse(frameNumber, block, audioFormat);
+        }
+        emittedFrames += hopSizeInFrames;
+        ringStart = (ringStart + hopSizeInFrames) % sliceLengthInFrames;
+        ringFrames = Math.max(0, ringFrames - hopSizeInFrames);
+        return blockBuffer;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The overlap-add ring of the copy is empty, the (stateless) inverse transform is shared.
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        final ISTFT clone = (ISTFT)super.clone();
+        clone.ring = null;
+        clone.windowSumRing = null;
+        clone.ringStart = 0;
+        clone.ringFrames = 0;
+        clone.realData = null;
+        clone.imaginaryData = null;
+        clone.block = null;
+        clone.blockBuffer = null;
+        clone.audioFormat = null;
+        clone.emittedFrames = 0;
+        clone.frameNumberOffset = -1;
+        return clone;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        final ISTFT that = (ISTFT) o;
+
+        if (hopSizeInFrames != that.hopSizeInFrames) return false;
+        if (sliceLengthInFrames != that.sliceLengthInFrames) return false;
+        if (!analysisWindowFunction.equals(that.analysisWindowFunction)) return false;
+        if (!synthesisWindowFunction.equals(that.synthesisWindowFunction)) return false;
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = hopSizeInFrames;
+        result = 31 * result + sliceLengthInFrames;
+        result = 31 * result + analysisWindowFunction.hashCode();
+        result = 31 * result + synthesisWindowFunction.hashCode();
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "ISTFT{" +
+                "window=" + sliceLengthInFrames +
+                ", hop=" + hopSizeInFrames +
+                ", analysisWindowFunction=" + analysisWindowFunction +
+                ", synthesisWindowFunction=" + synthesisWindowFunction +
+                '}';
+    }
+}
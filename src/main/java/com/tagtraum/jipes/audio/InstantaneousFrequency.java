@@ -17,9 +17,9 @@ import java.io.IOException;
  *
  * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
  */
-public class InstantaneousFrequency implements SignalProcessor<LinearFrequencySpectrum, InstantaneousFrequencySpectrum> {
+public class InstantaneousFrequency implements SignalProcessor<LinearFrequencySpectrum, InstantaneousFrequencySpectrum>, Cloneable {
 
-    private final SignalProcessorSupport<InstantaneousFrequencySpectrum> support = new SignalProcessorSupport<InstantaneousFrequencySpectrum>();
+    private SignalProcessorSupport<InstantaneousFrequencySpectrum> support = new SignalProcessorSupport<InstantaneousFrequencySpectrum>();
     private final Object id;
     private LinearFrequencySpectrum lastLinearSpectrum;
     private InstantaneousFrequencySpectrum out;
@@ -71,6 +71,20 @@ public class InstantaneousFrequency implements SignalProcessor<LinearFrequencySp
         return support.getConnectedProcessors();
     }
 
+    /**
+     * Creates a copy that is not connected to any child processors and has no per-signal state.
+     *
+     * @return copy
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        final InstantaneousFrequency clone = (InstantaneousFrequency)super.clone();
+        clone.support = new SignalProcessorSupport<InstantaneousFrequencySpectrum>();
+        clone.lastLinearSpectrum = null;
+        clone.out = null;
+        return clone;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) return true;
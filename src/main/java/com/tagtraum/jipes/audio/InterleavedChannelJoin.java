@@ -28,7 +28,7 @@ public class InterleavedChannelJoin extends Join<AudioBuffer, AudioBuffer> {
         super(channels, new InterleavedChannelAggregateFunction(), id);
     }
 
-    private static class InterleavedChannelAggregateFunction implements AggregateFunction<List<AudioBuffer>, AudioBuffer> {
+    private static class InterleavedChannelAggregateFunction implements AggregateFunction<List<AudioBuffer>, AudioBuffer>, Cloneable {
 
         private AudioFormat audioFormat;
 
@@ -58,6 +58,13 @@ public class InterleavedChannelJoin extends Join<AudioBuffer, AudioBuffer> {
             return new RealAudioBuffer(firstAudioBuffer.getFrameNumber(), real, audioFormat);
         }
 
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            final InterleavedChannelAggregateFunction clone = (InterleavedChannelAggregateFunction)super.clone();
+            clone.audioFormat = null;
+            return clone;
+        }
+
     }
 
     @Override
@@ -18,6 +18,9 @@ import java.io.IOException;
  * separate buffers containing the signal for one channel each.
  * To further process signals for a specific channel, use the method
  * {@link com.tagtraum.jipes.SignalSplit#connectTo(int, com.tagtraum.jipes.SignalProcessor)}.
+ * <p/>
+ * {@link PlanarAudioBuffer}s (see {@link AudioSignalSource#setPlanar(boolean)}) already hold one array
+ * per channel. Their channels are passed on without copying.
  *
  * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
  * @see Mono
@@ -25,16 +28,20 @@ import java.io.IOException;
  * @see BandSplit
  * @see InterleavedChannelJoin
  */
-public class InterleavedChannelSplit implements SignalSplit<AudioBuffer, AudioBuffer> {
+public class InterleavedChannelSplit implements SignalSplit<AudioBuffer, AudioBuffer>, Cloneable {
 
     private SignalProcessorSupport<AudioBuffer> signalProcessorSupport = new SignalProcessorSupport<AudioBuffer>();
 
     private AudioFormat audioFormat;
     private RealAudioBuffer[] channelBuffers;
     private float[][] channels;
-
+    private AudioBuffer[] planarChannelBuffers;
 
     public void process(final AudioBuffer buffer) throws IOException {
+        if (buffer instanceof PlanarAudioBuffer) {
+            processPlanar((PlanarAudioBuffer) buffer);
+            return;
+        }
         if (audioFormat == null) {
             final AudioFormat inputFormat = buffer.getAudioFormat();
             audioFormat = new AudioFormat(
@@ -76,6 +83,17 @@ public class InterleavedChannelSplit implements SignalSplit<AudioBuffer, AudioBu
         this.signalProcessorSupport.process(channelBuffers);
     }
 
+    private void processPlanar(final PlanarAudioBuffer buffer) throws IOException {
+        final int numberOfChannels = buffer.getChannelCount();
+        if (planarChannelBuffers == null || planarChannelBuffers.length != numberOfChannels) {
+            planarChannelBuffers = new AudioBuffer[numberOfChannels];
+        }
+        for (int channel=0; channel<numberOfChannels; channel++) {
+            planarChannelBuffers[channel] = buffer.getChannel(channel);
+        }
+        this.signalProcessorSupport.process(planarChannelBuffers);
+    }
+
     public void flush() throws IOException {
         signalProcessorSupport.flush();
     }
@@ -116,6 +134,22 @@ public class InterleavedChannelSplit implements SignalSplit<AudioBuffer, AudioBu
         return signalProcessorSupport.getConnectedProcessors();
     }
 
+    /**
+     * Creates a copy that is not connected to any child processors and has no per-signal state.
+     *
+     * @return copy
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        final InterleavedChannelSplit clone = (InterleavedChannelSplit)super.clone();
+        clone.signalProcessorSupport = new SignalProcessorSupport<AudioBuffer>();
+        clone.audioFormat = null;
+        clone.channelBuffers = null;
+        clone.channels = null;
+        clone.planarChannelBuffers = null;
+        return clone;
+    }
+
     @Override
     public String toString() {
         return "InterleavedChannelSplit";
@@ -7,6 +7,8 @@
 package com.tagtraum.jipes.audio;
 
 import com.tagtraum.jipes.AbstractSignalProcessor;
+import com.tagtraum.jipes.Copies;
+import com.tagtraum.jipes.StatefulSignalProcessor;
 import com.tagtraum.jipes.math.MultirateFilters;
 
 import javax.sound.sampled.AudioFormat;
@@ -19,7 +21,7 @@ import java.io.IOException;
  * @see MultirateFilters.Interpolator
  * @see Decimate
  */
-public class Interpolate extends AbstractSignalProcessor<AudioBuffer, AudioBuffer> {
+public class Interpolate extends AbstractSignalProcessor<AudioBuffer, AudioBuffer> implements Cloneable, StatefulSignalProcessor {
 
     private RealAudioBuffer realAudioBuffer;
     private MultirateFilters.Interpolator interpolator;
@@ -128,6 +130,27 @@ public class Interpolate extends AbstractSignalProcessor<AudioBuffer, AudioBuffe
         setFactor(intFactor);
     }
 
+    /**
+     * Resets the interpolation filter's state.
+     */
+    @Override
+    public void reset() {
+        super.reset();
+        if (interpolator != null) interpolator.reset();
+    }
+
+    /**
+     * {@inheritDoc}
+     * The copy uses its own copy of the interpolation filter.
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        final Interpolate clone = (Interpolate)super.clone();
+        clone.realAudioBuffer = null;
+        clone.interpolator = Copies.copy(interpolator);
+        return clone;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) return true;
@@ -38,6 +38,14 @@ public class LogFrequencySpectrum extends AbstractAudioSpectrum implements Clone
         this.q = logFrequencySpectrum.q;
     }
 
+    @Override
+    public void reuse(final int frameNumber, final float[] realData, final float[] imaginaryData, final AudioFormat audioFormat) {
+        if (frequencies.length != realData.length) {
+            throw new IllegalArgumentException("Length of frequencies must match length of data: f.length=" + frequencies.length + ", r.length=" + realData.length);
+        }
+        super.reuse(frameNumber, realData, imaginaryData, audioFormat);
+    }
+
     /**
      * <p>Number of fractions each semitone is divided into.</p>
      * <p>E.g. if <code>binsPerSemitone</code is 3, this spectrum contains three bins for each semitone - each
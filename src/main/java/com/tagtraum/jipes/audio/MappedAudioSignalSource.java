@@ -0,0 +1,537 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.audio;
+
+import com.tagtraum.jipes.SignalSource;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * <p>{@link SignalSource} for uncompressed WAV, AIFF/AIFC or raw PCM files that
+ * memory-maps the audio data instead of reading it through an {@link javax.sound.sampled.AudioInputStream}.
+ * </p>
+ * <p>
+ * Samples are decoded straight from the mapped file into a re-used <code>float[]</code>, without
+ * any intermediate <code>byte[]</code> copies. Like {@link AudioSignalSource}, this source delivers
+ * {@link RealAudioBuffer}s with interleaved channels, normalized to values between -1 and 1
+ * (see {@link #setNormalize(boolean)}). Unsigned 8 bit samples are converted to signed values first.
+ * With the default buffer size, the delivered buffers are identical to the ones delivered by
+ * {@link AudioSignalSource#AudioSignalSource(File)}.
+ * </p>
+ * <p>
+ * Supported are 8, 16, 24 and 32 bit integer samples as well as 32 and 64 bit floating point samples.
+ * WAV files may use the <code>WAVE_FORMAT_PCM</code>, <code>WAVE_FORMAT_IEEE_FLOAT</code> or
+ * <code>WAVE_FORMAT_EXTENSIBLE</code> formats, AIFC files may use the compression types
+ * <code>NONE</code>, <code>sowt</code>, <code>fl32</code> and <code>fl64</code>.
+ * Unlike {@link AudioSignalSource}, this source can be {@link #reset()}.
+ * </p>
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see AudioSignalSource
+ */
+public class MappedAudioSignalSource implements SeekableSignalSource<AudioBuffer>, Closeable {
+
+    private static final int FLOAT_SAMPLE_SIZE_IN_BITS = 32;
+    private static final int WAVE_FORMAT_PCM = 1;
+    private static final int WAVE_FORMAT_IEEE_FLOAT = 3;
+    private static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+    /**
+     * Max size of a single mapped region. Longer data is mapped region by region.
+     */
+    private static final int MAX_REGION_SIZE = 1 << 30;
+
+    private final File file;
+    private final int bufferSize;
+    private RandomAccessFile randomAccessFile;
+    private FileChannel channel;
+    private long dataOffset;
+    private long dataLength;
+    private int channels;
+    private float sampleRate;
+    private int bytesPerSample;
+    private boolean signed;
+    private boolean floatingPoint;
+    private boolean bigEndian;
+    private int frameSize;
+    private ByteBuffer region;
+    private long regionStart;
+    private long readBytes;
+    private float[] block;
+    private RealAudioBuffer realAudioBuffer;
+    private AudioFormat processedAudioFormat;
+    private boolean normalize = true;
+    private boolean closed;
+
+    /**
+     * Creates a normalized (see {@link #isNormalize()}) {@link SignalSource} for the given WAV or AIFF file.
+     *
+     * @param file WAV or AIFF file
+     * @param bufferSize buffer size in bytes, rounded down to a multiple of the frame size
+     * @throws IOException if the file cannot be opened or is not a supported WAV or AIFF file
+     */
+    public MappedAudioSignalSource(final File file, final int bufferSize) throws IOException {
+        this.file = file;
+        this.bufferSize = bufferSize;
+        open();
+        try {
+            parseHeader();
+            init();
+        } catch (IOException e) {
+            close();
+            throw e;
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a normalized (see {@link #isNormalize()}) {@link SignalSource} for the given WAV or AIFF file,
+     * using 16kb buffers.
+     *
+     * @param file WAV or AIFF file
+     * @throws IOException if the file cannot be opened or is not a supported WAV or AIFF file
+     */
+    public MappedAudioSignalSource(final File file) throws IOException {
+        this(file, 16 * 1024);
+    }
+
+    /**
+     * Creates a normalized (see {@link #isNormalize()}) {@link SignalSource} for the given raw PCM file.
+     *
+     * @param file raw PCM file
+     * @param audioFormat format of the data, must be a {@link AudioFormat.Encoding#PCM_SIGNED} or
+     * {@link AudioFormat.Encoding#PCM_UNSIGNED} or <code>PCM_FLOAT</code> format
+     * @param dataOffset offset of the first sample in the file in bytes
+     * @param bufferSize buffer size in bytes, rounded down to a multiple of the frame size
+     * @throws IOException if the file cannot be opened
+     * @throws IllegalArgumentException if the audio format is not supported
+     */
+    public MappedAudioSignalSource(final File file, final AudioFormat audioFormat, final long dataOffset,
+                                   final int bufferSize) throws IOException, IllegalArgumentException {
+        this.file = file;
+        this.bufferSize = bufferSize;
+        final String encoding = audioFormat.getEncoding().toString();
+        if (AudioFormat.Encoding.PCM_SIGNED.toString().equals(encoding)) {
+            setSampleFormat(audioFormat.getSampleSizeInBits(), true, false);
+        } else if (AudioFormat.Encoding.PCM_UNSIGNED.toString().equals(encoding)) {
+            setSampleFormat(audioFormat.getSampleSizeInBits(), false, false);
+        } else if ("PCM_FLOAT".equals(encoding)) {
+            setSampleFormat(audioFormat.getSampleSizeInBits(), true, true);
+        } else {
+            throw new IllegalArgumentException("Unsupported encoding: " + encoding);
+        }
+        if (audioFormat.getChannels() <= 0) {
+            throw new IllegalArgumentException("AudioFormat is not specific enough. Channels must be greater than 0, but is " + audioFormat.getChannels());
+        }
+        this.channels = audioFormat.getChannels();
+        this.sampleRate = audioFormat.getSampleRate();
+        this.bigEndian = audioFormat.isBigEndian();
+        this.dataOffset = dataOffset;
+        open();
+        try {
+            this.dataLength = channel.size() - dataOffset;
+            init();
+        } catch (IOException e) {
+            close();
+            throw e;
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a normalized (see {@link #isNormalize()}) {@link SignalSource} for the given raw PCM file,
+     * using 16kb buffers.
+     *
+     * @param file raw PCM file
+     * @param audioFormat format of the data
+     * @throws IOException if the file cannot be opened
+     * @throws IllegalArgumentException if the audio format is not supported
+     */
+    public MappedAudioSignalSource(final File file, final AudioFormat audioFormat) throws IOException, IllegalArgumentException {
+        this(file, audioFormat, 0, 16 * 1024);
+    }
+
+    private void open() throws IOException {
+        this.randomAccessFile = new RandomAccessFile(file, "r");
+        this.channel = randomAccessFile.getChannel();
+    }
+
+    private void init() throws IOException {
+        this.frameSize = bytesPerSample * channels;
+        if (bufferSize < frameSize) {
+            throw new IllegalArgumentException("Buffer size must not be smaller than the frame size " + frameSize + ": " + bufferSize);
+        }
+        // don't count trailing partial frames
+        this.dataLength = Math.min(dataLength, channel.size() - dataOffset) / frameSize * frameSize;
+        // unsigned samples are converted to signed ones
+        this.processedAudioFormat = new AudioFormat(sampleRate, FLOAT_SAMPLE_SIZE_IN_BITS, channels, true, bigEndian);
+    }
+
+    private void setSampleFormat(final int sampleSizeInBits, final boolean signed, final boolean floatingPoint) {
+        if (floatingPoint) {
+            if (sampleSizeInBits != 32 && sampleSizeInBits != 64) {
+                throw new IllegalArgumentException("Unsupported floating point sample size: " + sampleSizeInBits);
+            }
+        } else if (sampleSizeInBits != 8 && sampleSizeInBits != 16 && sampleSizeInBits != 24 && sampleSizeInBits != 32) {
+            throw new IllegalArgumentException("Unsupported sample size: " + sampleSizeInBits);
+        } else if (!signed && sampleSizeInBits != 8) {
+            throw new IllegalArgumentException("Unsigned samples are only supported with 8 bits.");
+        }
+        this.bytesPerSample = sampleSizeInBits / 8;
+        this.signed = signed;
+        this.floatingPoint = floatingPoint;
+    }
+
+    private void parseHeader() throws IOException {
+        final ByteBuffer header = read(0, 12, ByteOrder.BIG_ENDIAN);
+        final String id = fourCC(header, 0);
+        final String type = fourCC(header, 8);
+        if ("RIFF".equals(id) && "WAVE".equals(type)) {
+            parseWave();
+        } else if ("FORM".equals(id) && ("AIFF".equals(type) || "AIFC".equals(type))) {
+            parseAiff("AIFC".equals(type));
+        } else {
+            throw new IOException("Not a WAV or AIFF file: " + file);
+        }
+    }
+
+    private void parseWave() throws IOException {
+        boolean foundFormat = false;
+        long position = 12;
+        final long size = channel.size();
+        while (position + 8 <= size) {
+            final ByteBuffer chunkHeader = read(position, 8, ByteOrder.LITTLE_ENDIAN);
+            final String chunkId = fourCC(chunkHeader, 0);
+            final long chunkSize = chunkHeader.getInt(4) & 0xFFFFFFFFL;
+            if ("fmt ".equals(chunkId)) {
+                final ByteBuffer fmt = read(position + 8, (int) Math.min(chunkSize, 40), ByteOrder.LITTLE_ENDIAN);
+                int formatTag = fmt.getShort(0) & 0xFFFF;
+                this.channels = fmt.getShort(2) & 0xFFFF;
+                this.sampleRate = fmt.getInt(4);
+                final int bitsPerSample = fmt.getShort(14) & 0xFFFF;
+                if (formatTag == WAVE_FORMAT_EXTENSIBLE && fmt.limit() >= 26) {
+                    // first two bytes of the sub format GUID
+                    formatTag = fmt.getShort(24) & 0xFFFF;
+                }
+                if (formatTag == WAVE_FORMAT_PCM) {
+                    // 8 bit WAV is unsigned
+                    setSampleFormat(bitsPerSample, bitsPerSample != 8, false);
+                } else if (formatTag == WAVE_FORMAT_IEEE_FLOAT) {
+                    setSampleFormat(bitsPerSample, true, true);
+                } else {
+                    throw new IOException("Unsupported WAV format tag " + formatTag + ": " + file);
+                }
+                this.bigEndian = false;
+                foundFormat = true;
+            } else if ("data".equals(chunkId)) {
+                if (!foundFormat) throw new IOException("WAV data chunk before fmt chunk: " + file);
+                this.dataOffset = position + 8;
+                // streaming writers may leave the size at 0 or 0xFFFFFFFF
+                this.dataLength = chunkSize == 0 || chunkSize == 0xFFFFFFFFL ? size - dataOffset : chunkSize;
+                return;
+            }
+            position += 8 + chunkSize + (chunkSize & 1);
+        }
+        throw new IOException("No WAV data chunk found: " + file);
+    }
+
+    private void parseAiff(final boolean aifc) throws IOException {
+        boolean foundCommon = false;
+        long position = 12;
+        final long size = channel.size();
+        while (position + 8 <= size) {
+            final ByteBuffer chunkHeader = read(position, 8, ByteOrder.BIG_ENDIAN);
+            final String chunkId = fourCC(chunkHeader, 0);
+            final long chunkSize = chunkHeader.getInt(4) & 0xFFFFFFFFL;
+            if ("COMM".equals(chunkId)) {
+                final ByteBuffer comm = read(position + 8, (int) Math.min(chunkSize, 22), ByteOrder.BIG_ENDIAN);
+                this.channels = comm.getShort(0) & 0xFFFF;
+                final int sampleSize = comm.getShort(6) & 0xFFFF;
+                this.sampleRate = (float) extendedToDouble(comm, 8);
+                final String compression = aifc && comm.limit() >= 22 ? fourCC(comm, 18) : "NONE";
+                if ("NONE".equals(compression) || "twos".equals(compression)) {
+                    setSampleFormat(sampleSize, true, false);
+                    this.bigEndian = true;
+                } else if ("sowt".equals(compression)) {
+                    setSampleFormat(sampleSize, true, false);
+                    this.bigEndian = false;
+                } else if ("fl32".equals(compression) || "FL32".equals(compression)) {
+                    setSampleFormat(32, true, true);
+                    this.bigEndian = true;
+                } else if ("fl64".equals(compression) || "FL64".equals(compression)) {
+                    setSampleFormat(64, true, true);
+                    this.bigEndian = true;
+                } else {
+                    throw new IOException("Unsupported AIFC compression type " + compression + ": " + file);
+                }
+                foundCommon = true;
+            } else if ("SSND".equals(chunkId)) {
+                if (!foundCommon) throw new IOException("AIFF SSND chunk before COMM chunk: " + file);
+                final long offset = read(position + 8, 4, ByteOrder.BIG_ENDIAN).getInt(0) & 0xFFFFFFFFL;
+                this.dataOffset = position + 16 + offset;
+                this.dataLength = chunkSize - 8 - offset;
+                return;
+            }
+            position += 8 + chunkSize + (chunkSize & 1);
+        }
+        throw new IOException("No AIFF SSND chunk found: " + file);
+    }
+
+    private ByteBuffer read(final long position, final int length, final ByteOrder byteOrder) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file: " + file);
+            }
+        }
+        buffer.flip();
+        buffer.order(byteOrder);
+        return buffer;
+    }
+
+    private static String fourCC(final ByteBuffer buffer, final int index) {
+        final char[] chars = new char[4];
+        for (int i=0; i<4; i++) {
+            chars[i] = (char) (buffer.get(index + i) & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Converts an 80 bit IEEE 754 extended precision number (as used by AIFF for the sample rate)
+     * to a double.
+     *
+     * @param buffer buffer
+     * @param index index of the first byte
+     * @return double value
+     */
+    private static double extendedToDouble(final ByteBuffer buffer, final int index) {
+        final int signAndExponent = buffer.getShort(index) & 0xFFFF;
+        final long mantissa = buffer.getLong(index + 2);
+        if (signAndExponent == 0 && mantissa == 0) return 0;
+        final int exponent = (signAndExponent & 0x7FFF) - 16383 - 63;
+        // mantissa is unsigned
+        final double unsignedMantissa = (mantissa >>> 1) * 2.0 + (mantissa & 1);
+        final double value = Math.scalb(unsignedMantissa, exponent);
+        return (signAndExponent & 0x8000) != 0 ? -value : value;
+    }
+
+    /**
+     * Indicates whether all values are normalized to -1 to 1.
+     *
+     * @return true if this source is normalizing all values
+     */
+    public boolean isNormalize() {
+        return normalize;
+    }
+
+    /**
+     * Turns normalization to values between -1 and 1 on or off.
+     * Floating point samples are never scaled.
+     *
+     * @param normalize true or off
+     */
+    public void setNormalize(final boolean normalize) {
+        this.normalize = normalize;
+    }
+
+    /**
+     * File this source reads from.
+     *
+     * @return file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Format of the buffers delivered by this source.
+     *
+     * @return audio format
+     */
+    public AudioFormat getProcessedAudioFormat() {
+        return processedAudioFormat;
+    }
+
+    /**
+     * Length of the audio data in sample frames.
+     *
+     * @return frame length
+     */
+    public long getFrameLength() {
+        return dataLength / frameSize;
+    }
+
+    /**
+     * Skips the given number of sample frames.
+     * Frame numbers of subsequently read buffers take the skipped frames into account.
+     *
+     * @param frames number of frames to skip
+     * @return number of frames actually skipped
+     */
+    public long skip(final long frames) {
+        if (closed || frames <= 0) return 0;
+        final long skippedBytes = Math.min(frames * frameSize, dataLength - readBytes);
+        readBytes += skippedBytes;
+        return skippedBytes / frameSize;
+    }
+
+    public long getFramePosition() {
+        return readBytes / frameSize;
+    }
+
+    /**
+     * Positions this source at the given frame by computing its byte offset.
+     * Nothing is read or decoded.
+     *
+     * @param frame frame number
+     * @throws IllegalArgumentException if frame is negative
+     */
+    public void seek(final long frame) throws IllegalArgumentException {
+        if (frame < 0) throw new IllegalArgumentException("Frame must not be negative: " + frame);
+        readBytes = Math.min(frame * frameSize, dataLength / frameSize * frameSize);
+    }
+
+    /**
+     * Resets this source to the first frame.
+     */
+    public void reset() {
+        readBytes = 0;
+    }
+
+    public AudioBuffer read() throws IOException {
+        if (closed) return null;
+        final long remaining = dataLength - readBytes;
+        if (remaining <= 0) return null;
+        final int length = (int) Math.min(bufferSize / frameSize * frameSize, remaining);
+        final int samplesToRead = length / bytesPerSample;
+        if (block == null || block.length != samplesToRead) {
+            block = new float[samplesToRead];
+        }
+        final ByteBuffer data = map(readBytes, length);
+        decode(data, (int) (readBytes - regionStart), samplesToRead, block);
+        final int frameNumber = (int) (readBytes / frameSize);
+        if (realAudioBuffer == null) {
+            realAudioBuffer = new RealAudioBuffer(frameNumber, block, processedAudioFormat);
+        } else {
+            realAudioBuffer.reuse(frameNumber, block, processedAudioFormat);
+        }
+        readBytes += length;
+        return realAudioBuffer;
+    }
+
+    /**
+     * Makes sure that the given range of the data chunk is mapped.
+     *
+     * @param position position relative to the start of the data
+     * @param length number of bytes
+     * @return mapped region containing the range
+     */
+    private ByteBuffer map(final long position, final int length) throws IOException {
+        if (region == null || position < regionStart || position + length > regionStart + region.limit()) {
+            final long regionLength = Math.min(dataLength - position, MAX_REGION_SIZE / frameSize * frameSize);
+            final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + position, regionLength);
+            mapped.order(bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+            this.region = mapped;
+            this.regionStart = position;
+        }
+        return region;
+    }
+
+    /**
+     * Decodes samples to floats. There is one loop per sample format, so that no
+     * per-sample branching is necessary.
+     */
+    private void decode(final ByteBuffer data, final int offset, final int samples, final float[] out) {
+        if (floatingPoint) {
+            if (bytesPerSample == 4) {
+                for (int i=0; i<samples; i++) {
+                    out[i] = data.getFloat(offset + i * 4);
+                }
+            } else {
+                for (int i=0; i<samples; i++) {
+                    out[i] = (float) data.getDouble(offset + i * 8);
+                }
+            }
+            return;
+        }
+        switch (bytesPerSample) {
+            case 1: {
+                final float factor = normalize ? 1f / (Byte.MAX_VALUE + 1.0f) : 1f;
+                if (signed) {
+                    for (int i=0; i<samples; i++) {
+                        out[i] = data.get(offset + i) * factor;
+                    }
+                } else {
+                    // flip the sign bit to convert offset binary to two's complement
+                    for (int i=0; i<samples; i++) {
+                        out[i] = ((byte) (data.get(offset + i) ^ 0x80)) * factor;
+                    }
+                }
+                break;
+            }
+            case 2: {
+                final float factor = normalize ? 1f / (Short.MAX_VALUE + 1.0f) : 1f;
+                for (int i=0; i<samples; i++) {
+                    out[i] = data.getShort(offset + i * 2) * factor;
+                }
+                break;
+            }
+            case 3: {
+                final float factor = normalize ? 1f / (1 << 23) : 1f;
+                if (bigEndian) {
+                    for (int i=0, j=offset; i<samples; i++, j+=3) {
+                        out[i] = ((data.get(j) << 16) | ((data.get(j + 1) & 0xFF) << 8) | (data.get(j + 2) & 0xFF)) * factor;
+                    }
+                } else {
+                    for (int i=0, j=offset; i<samples; i++, j+=3) {
+                        out[i] = ((data.get(j + 2) << 16) | ((data.get(j + 1) & 0xFF) << 8) | (data.get(j) & 0xFF)) * factor;
+                    }
+                }
+                break;
+            }
+            case 4: {
+                final float factor = normalize ? 1f / (Integer.MAX_VALUE + 1.0f) : 1f;
+                for (int i=0; i<samples; i++) {
+                    out[i] = data.getInt(offset + i * 4) * factor;
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * Closes the underlying file.
+     */
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            region = null;
+            block = null;
+            randomAccessFile.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MappedAudioSignalSource{" +
+                "file=" + file +
+                ", audioFormat=" + processedAudioFormat +
+                '}';
+    }
+}
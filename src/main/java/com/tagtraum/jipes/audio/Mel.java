@@ -7,6 +7,7 @@
 package com.tagtraum.jipes.audio;
 
 import com.tagtraum.jipes.AbstractSignalProcessor;
+import com.tagtraum.jipes.FrameIndependent;
 
 import java.io.IOException;
 import java.util.Arrays;
@@ -21,16 +22,21 @@ import static com.tagtraum.jipes.audio.MelSpectrum.createFilterBank;
  * <br>
  * You may choose between applying the internally created filterbank on the magnitudes or the
  * powers of the linear spectrum.
+ * <br>
+ * The filterbank is created lazily with the first spectrum. Copies created via {@link #clone()}
+ * (e.g. by a {@link com.tagtraum.jipes.PipelineTemplate}) share it, even if the prototype itself
+ * never processes anything, as long as their spectra have the same frequencies.
  *
  * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
  * @see MultiBandSpectrum#createLogarithmicBands(float, float, int)
  * @see MelSpectrum
  */
-public class Mel<T extends LinearFrequencySpectrum> extends AbstractSignalProcessor<T, MelSpectrum> {
+public class Mel<T extends LinearFrequencySpectrum> extends AbstractSignalProcessor<T, MelSpectrum> implements Cloneable, FrameIndependent {
 
     private boolean filterPowers;
     private float[] channelBoundariesInHz;
     private float[][] filterBank;
+    private SharedFilterBank sharedFilterBank = new SharedFilterBank();
 
     /**
      * Creates a processor that converts a {@link LinearFrequencySpectrum} to a {@link MelSpectrum}.
@@ -79,10 +85,15 @@ public class Mel<T extends LinearFrequencySpectrum> extends AbstractSignalProces
         this.filterBank = filterBank;
     }
 
+    @Override
+    public boolean isFrameIndependent() {
+        return true;
+    }
+
     protected MelSpectrum processNext(final T audioSpectrum) throws IOException {
         if (channelBoundariesInHz == null) throw new IllegalStateException("No boundaries set.");
         if (filterBank == null) {
-            filterBank = createFilterBank(audioSpectrum.getFrequencies(), channelBoundariesInHz);
+            filterBank = sharedFilterBank.get(audioSpectrum.getFrequencies(), channelBoundariesInHz);
         }
         if (audioSpectrum.getAudioFormat() != null && audioSpectrum.getAudioFormat().getChannels() != 1) {
             throw new IOException("Source must be mono.");
@@ -122,4 +133,25 @@ public class Mel<T extends LinearFrequencySpectrum> extends AbstractSignalProces
                 "bandBoundaries=" + sb +
                 '}';
     }
+
+    /**
+     * Holds the most recently created filterbank. The holder is shared between an instance and
+     * its (shallow) clones, so that only the first copy to process a spectrum creates the filterbank.
+     */
+    private static class SharedFilterBank {
+        private float[] frequencies;
+        private float[] channelBoundariesInHz;
+        private float[][] filterBank;
+
+        public synchronized float[][] get(final float[] frequencies, final float[] channelBoundariesInHz) {
+            if (filterBank == null
+                    || !Arrays.equals(this.frequencies, frequencies)
+                    || !Arrays.equals(this.channelBoundariesInHz, channelBoundariesInHz)) {
+                this.filterBank = createFilterBank(frequencies, channelBoundariesInHz);
+                this.frequencies = frequencies.clone();
+                this.channelBoundariesInHz = channelBoundariesInHz.clone();
+            }
+            return filterBank;
+        }
+    }
 }
@@ -20,7 +20,7 @@ import javax.sound.sampled.AudioFormat;
  * @see InterleavedChannelSplit
  * @see Channel
  */
-public class Mono extends AbstractSignalProcessor<AudioBuffer, AudioBuffer> {
+public class Mono extends AbstractSignalProcessor<AudioBuffer, AudioBuffer> implements Cloneable {
 
     private float[] block;
     private RealAudioBuffer realAudioBuffer;
@@ -58,6 +58,18 @@ public class Mono extends AbstractSignalProcessor<AudioBuffer, AudioBuffer> {
         return realAudioBuffer;
     }
 
+    /**
+     * {@inheritDoc}
+     * The copy allocates its own re-used mono buffer.
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        final Mono clone = (Mono)super.clone();
+        clone.block = null;
+        clone.realAudioBuffer = null;
+        return clone;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) return true;
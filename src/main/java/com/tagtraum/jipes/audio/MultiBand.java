@@ -7,6 +7,7 @@
 package com.tagtraum.jipes.audio;
 
 import com.tagtraum.jipes.AbstractSignalProcessor;
+import com.tagtraum.jipes.FrameIndependent;
 
 import java.io.IOException;
 import java.util.Arrays;
@@ -20,7 +21,7 @@ import java.util.Arrays;
  * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
  * @see com.tagtraum.jipes.audio.MultiBandSpectrum#createLogarithmicBands(float, float, int)
  */
-public class MultiBand<T extends AudioSpectrum> extends AbstractSignalProcessor<T, MultiBandSpectrum> {
+public class MultiBand<T extends AudioSpectrum> extends AbstractSignalProcessor<T, MultiBandSpectrum> implements Cloneable, FrameIndependent {
 
     private float[] bandBoundaries;
 
@@ -39,6 +40,11 @@ public class MultiBand<T extends AudioSpectrum> extends AbstractSignalProcessor<
         this.bandBoundaries = bandBoundaries;
     }
 
+    @Override
+    public boolean isFrameIndependent() {
+        return true;
+    }
+
     protected MultiBandSpectrum processNext(final T audioSpectrum) throws IOException {
         if (bandBoundaries == null) {
             throw new IllegalStateException("No boundaries set.");
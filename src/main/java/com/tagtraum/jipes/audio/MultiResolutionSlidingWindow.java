@@ -0,0 +1,347 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.audio;
+
+import com.tagtraum.jipes.SignalProcessor;
+import com.tagtraum.jipes.SignalProcessorSupport;
+import com.tagtraum.jipes.SignalSplit;
+import com.tagtraum.jipes.StatefulSignalProcessor;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * <p>Provides overlapping frame blocks at multiple resolutions, i.e. with several combinations
+ * of window length and hop size, from one shared ring buffer.
+ * For each resolution the output is exactly the same as that of a {@link SlidingWindow} with
+ * the same window length and hop size. But instead of keeping one copy of the signal per
+ * {@link SlidingWindow}, incoming samples are copied only once into a ring buffer that is
+ * as long as the longest window.
+ * </p>
+ * <p>
+ * Windows for resolution {@code i} are passed on to the children connected to channel {@code i}
+ * (see {@link #connectTo(int, SignalProcessor)}). Just like {@link SlidingWindow}, multi-channel input
+ * results in {@link PlanarAudioBuffer}s and all buffers are re-used.
+ * </p>
+ * <p>
+ * Usage example:
+ * </p>
+ * <xmp>
+ * final MultiResolutionSlidingWindow windows = new MultiResolutionSlidingWindow(
+ *     new int[] {1024, 4096, 16384},
+ *     new int[] {512, 512, 2048});
+ * windows.connectTo(0, new FFT());
+ * windows.connectTo(1, new FFT());
+ * windows.connectTo(2, new FFT());
+ * </xmp>
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see SlidingWindow
+ */
+public class MultiResolutionSlidingWindow implements SignalSplit<AudioBuffer, AudioBuffer>, Cloneable, StatefulSignalProcessor {
+
+    private SignalProcessorSupport<AudioBuffer> signalProcessorSupport = new SignalProcessorSupport<AudioBuffer>();
+    private final int[] sliceLengthsInFrames;
+    private final int[] hopSizesInFrames;
+    private final int capacity;
+    private AudioFormat audioFormat;
+    /**
+     * One ring per channel, holding the last {@link #capacity} frames.
+     */
+    private float[][] ring;
+    /**
+     * Number of frames written into the ring so far.
+     */
+    private long writtenFrames;
+    /**
+     * First frame of the next window per resolution.
+     */
+    private long[] windowStarts;
+    private float[][][] windows;
+    private AudioBuffer[] windowBuffers;
+    private int frameNumberOffset = -1;
+
+    /**
+     * Creates windows for multiple resolutions.
+     *
+     * @param sliceLengthsInFrames frames per window, one value per resolution
+     * @param hopSizesInFrames hop sizes, one value per resolution
+     * @throws IllegalArgumentException if the arrays are empty or differ in length, if a length or hop size
+     * is not positive or if a hop size is greater than its window length
+     */
+    public MultiResolutionSlidingWindow(final int[] sliceLengthsInFrames, final int[] hopSizesInFrames) throws IllegalArgumentException {
+        if (sliceLengthsInFrames == null || sliceLengthsInFrames.length == 0) throw new IllegalArgumentException("Slice lengths must not be null or empty");
+        if (hopSizesInFrames == null || hopSizesInFrames.length != sliceLengthsInFrames.length)
+            throw new IllegalArgumentException("There must be exactly one hop size per slice length");
+        int capacity = 0;
+        for (int i=0; i<sliceLengthsInFrames.length; i++) {
+            if (sliceLengthsInFrames[i] <= 0) throw new IllegalArgumentException("Slice length must be positive: " + sliceLengthsInFrames[i]);
+            if (hopSizesInFrames[i] <= 0) throw new IllegalArgumentException("Hop size must be positive: " + hopSizesInFrames[i]);
+            if (hopSizesInFrames[i] > sliceLengthsInFrames[i]) throw new IllegalArgumentException("hopSizeInFrames " + hopSizesInFrames[i]
+                    + " must not be greater than sliceLengthInFrames" + sliceLengthsInFrames[i]);
+            capacity = Math.max(capacity, sliceLengthsInFrames[i]);
+        }
+        this.sliceLengthsInFrames = sliceLengthsInFrames.clone();
+        this.hopSizesInFrames = hopSizesInFrames.clone();
+        this.capacity = capacity;
+    }
+
+    /**
+     * Number of resolutions.
+     *
+     * @return number of resolutions
+     */
+    public int getResolutionCount() {
+        return sliceLengthsInFrames.length;
+    }
+
+    /**
+     * Window length for the given resolution.
+     *
+     * @param resolution resolution index
+     * @return frames per window
+     */
+    public int getSliceLengthInFrames(final int resolution) {
+        return sliceLengthsInFrames[resolution];
+    }
+
+    /**
+     * Hop size for the given resolution.
+     *
+     * @param resolution resolution index
+     * @return hop size in frames
+     */
+    public int getHopSizeInFrames(final int resolution) {
+        return hopSizesInFrames[resolution];
+    }
+
+    public void reset() {
+        audioFormat = null;
+        writtenFrames = 0;
+        windowStarts = null;
+        frameNumberOffset = -1;
+    }
+
+    public void process(final AudioBuffer buffer) throws IOException {
+        audioFormat = buffer.getAudioFormat();
+        if (frameNumberOffset == -1) frameNumberOffset = buffer.getFrameNumber();
+        if (windowStarts == null) windowStarts = new long[sliceLengthsInFrames.length];
+        final int frames = getFrames(buffer);
+        int framePosition = 0;
+        while (framePosition < frames) {
+            // never write past the end of a pending window, so that it cannot be overwritten
+            long framesToCopy = frames - framePosition;
+            for (int i=0; i<windowStarts.length; i++) {
+                framesToCopy = Math.min(framesToCopy, windowStarts[i] + sliceLengthsInFrames[i] - writtenFrames);
+            }
+            fill(buffer, framePosition, (int) framesToCopy);
+            framePosition += framesToCopy;
+            for (int i=0; i<windowStarts.length; i++) {
+                if (writtenFrames == windowStarts[i] + sliceLengthsInFrames[i]) {
+                    signalProcessorSupport.process(i, nextWindow(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Emits the remaining, zero padded windows for all resolutions and then flushes the children.
+     *
+     * @throws IOException if something goes wrong
+     */
+    public void flush() throws IOException {
+        if (windowStarts != null) {
+            for (int i=0; i<windowStarts.length; i++) {
+                while (windowStarts[i] < writtenFrames) {
+                    signalProcessorSupport.process(i, nextWindow(i));
+                }
+            }
+        }
+        signalProcessorSupport.flush();
+    }
+
+    private static int getChannels(final AudioBuffer buffer) {
+        if (buffer instanceof PlanarAudioBuffer) return ((PlanarAudioBuffer) buffer).getChannelCount();
+        final AudioFormat format = buffer.getAudioFormat();
+        return format == null || format.getChannels() < 1 ? 1 : format.getChannels();
+    }
+
+    private static int getFrames(final AudioBuffer buffer) {
+        if (buffer instanceof PlanarAudioBuffer) return ((PlanarAudioBuffer) buffer).getChannelData(0).length;
+        return buffer.getNumberOfSamples() / getChannels(buffer);
+    }
+
+    /**
+     * Copies the given number of frames into the ring buffer.
+     *
+     * @param buffer interleaved or planar input
+     * @param offset index of the first frame to copy
+     * @param framesToCopy number of frames to copy
+     */
+    private void fill(final AudioBuffer buffer, final int offset, final int framesToCopy) {
+        final int channels = getChannels(buffer);
+        if (ring == null || ring.length != channels) {
+            ring = new float[channels][capacity];
+            windows = null;
+        }
+        final int writePosition = (int) (writtenFrames % capacity);
+        // the free region may wrap around the end of the ring
+        final int firstPart = Math.min(framesToCopy, capacity - writePosition);
+        if (buffer instanceof PlanarAudioBuffer || channels == 1) {
+            for (int channel=0; channel<channels; channel++) {
+                final float[] data = channels == 1 && !(buffer instanceof PlanarAudioBuffer)
+                        ? buffer.getData()
+                        : ((PlanarAudioBuffer) buffer).getChannelData(channel);
+                System.arraycopy(data, offset, ring[channel], writePosition, firstPart);
+                System.arraycopy(data, offset + firstPart, ring[channel], 0, framesToCopy - firstPart);
+            }
+        } else {
+            final float[] data = buffer.getData();
+            for (int channel=0; channel<channels; channel++) {
+                final float[] channelRing = ring[channel];
+                for (int frame=0; frame<framesToCopy; frame++) {
+                    channelRing[(writePosition + frame) % capacity] = data[(offset + frame) * channels + channel];
+                }
+            }
+        }
+        writtenFrames += framesToCopy;
+    }
+
+    /**
+     * Creates a buffer for the current window of the given resolution (zero padded, if not
+     * enough frames are available) and then moves the window by one hop.
+     *
+     * @param resolution resolution index
+     * @return window
+     */
+    private AudioBuffer nextWindow(final int resolution) {
+        final int sliceLength = sliceLengthsInFrames[resolution];
+        if (windows == null) {
+            windows = new float[sliceLengthsInFrames.length][][];
+            windowBuffers = new AudioBuffer[sliceLengthsInFrames.length];
+        }
+        if (windows[resolution] == null) {
+            windows[resolution] = new float[ring.length][sliceLength];
+        }
+        final float[][] out = windows[resolution];
+        final long start = windowStarts[resolution];
+        final int frames = (int) Math.min(sliceLength, writtenFrames - start);
+        final int readPosition = (int) (start % capacity);
+        final int firstPart = Math.min(frames, capacity - readPosition);
+        for (int channel=0; channel<ring.length; channel++) {
+            System.arraycopy(ring[channel], readPosition, out[channel], 0, firstPart);
+            System.arraycopy(ring[channel], 0, out[channel], firstPart, frames - firstPart);
+            if (frames < sliceLength) {
+                Arrays.fill(out[channel], frames, sliceLength, 0f);
+            }
+        }
+        final int frameNumber = (int) (start + frameNumberOffset);
+        final AudioBuffer buffer;
+        if (out.length == 1) {
+            if (windowBuffers[resolution] instanceof RealAudioBuffer) {
+                final RealAudioBuffer realAudioBuffer = (RealAudioBuffer) windowBuffers[resolution];
+                realAudioBuffer.reuse(frameNumber, out[0], realAudioBuffer.getAudioFormat());
+            } else {
+                windowBuffers[resolution] = new RealAudioBuffer(frameNumber, out[0], audioFormat);
+            }
+        } else {
+            if (windowBuffers[resolution] instanceof PlanarAudioBuffer) {
+                final PlanarAudioBuffer planarAudioBuffer = (PlanarAudioBuffer) windowBuffers[resolution];
+                planarAudioBuffer.reuse(frameNumber, out, planarAudioBuffer.getAudioFormat());
+            } else {
+                windowBuffers[resolution] = new PlanarAudioBuffer(frameNumber, out, audioFormat);
+            }
+        }
+        buffer = windowBuffers[resolution];
+        windowStarts[resolution] += hopSizesInFrames[resolution];
+        return buffer;
+    }
+
+    public AudioBuffer getOutput() throws IOException {
+        return null;
+    }
+
+    public Object getId() {
+        return toString();
+    }
+
+    public <O2> SignalProcessor<AudioBuffer, O2> connectTo(final int channel, final SignalProcessor<AudioBuffer, O2> audioBufferSignalProcessor) {
+        return signalProcessorSupport.connectTo(channel, audioBufferSignalProcessor);
+    }
+
+    public <O2> SignalProcessor<AudioBuffer, O2> disconnectFrom(final int channel, final SignalProcessor<AudioBuffer, O2> audioBufferSignalProcessor) {
+        return signalProcessorSupport.disconnectFrom(channel, audioBufferSignalProcessor);
+    }
+
+    public SignalProcessor<AudioBuffer, ?>[] getConnectedProcessors(final int channel) {
+        return signalProcessorSupport.getConnectedProcessors(channel);
+    }
+
+    public int getChannelCount() {
+        return signalProcessorSupport.getChannelCount();
+    }
+
+    public <O2> SignalProcessor<AudioBuffer, O2> connectTo(final SignalProcessor<AudioBuffer, O2> audioBufferSignalProcessor) {
+        return signalProcessorSupport.connectTo(audioBufferSignalProcessor);
+    }
+
+    public <O2> SignalProcessor<AudioBuffer, O2> disconnectFrom(final SignalProcessor<AudioBuffer, O2> audioBufferSignalProcessor) {
+        return signalProcessorSupport.disconnectFrom(audioBufferSignalProcessor);
+    }
+
+    public SignalProcessor<AudioBuffer, ?>[] getConnectedProcessors() {
+        return signalProcessorSupport.getConnectedProcessors();
+    }
+
+    /**
+     * Creates a copy that is not connected to any child processors and has no per-signal state.
+     *
+     * @return copy
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        final MultiResolutionSlidingWindow clone = (MultiResolutionSlidingWindow)super.clone();
+        clone.signalProcessorSupport = new SignalProcessorSupport<AudioBuffer>();
+        clone.audioFormat = null;
+        clone.ring = null;
+        clone.writtenFrames = 0;
+        clone.windowStarts = null;
+        clone.windows = null;
+        clone.windowBuffers = null;
+        clone.frameNumberOffset = -1;
+        return clone;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        final MultiResolutionSlidingWindow that = (MultiResolutionSlidingWindow) o;
+
+        if (!Arrays.equals(hopSizesInFrames, that.hopSizesInFrames)) return false;
+        if (!Arrays.equals(sliceLengthsInFrames, that.sliceLengthsInFrames)) return false;
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(sliceLengthsInFrames);
+        result = 31 * result + Arrays.hashCode(hopSizesInFrames);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "MultiResolutionSlidingWindow{" +
+                "windows=" + Arrays.toString(sliceLengthsInFrames) +
+                ", hops=" + Arrays.toString(hopSizesInFrames) +
+                '}';
+    }
+}
@@ -7,6 +7,7 @@
 package com.tagtraum.jipes.audio;
 
 import com.tagtraum.jipes.AbstractSignalProcessor;
+import com.tagtraum.jipes.Copies;
 import com.tagtraum.jipes.SignalSource;
 import com.tagtraum.jipes.math.*;
 
@@ -29,7 +30,7 @@ import java.util.*;
  * @see <a href="http://www.fxpal.com/publications/FXPAL-PR-03-186.pdf">Foote, J., and M. Cooper. 2003. Media segmentation using self-similarity decomposition. In M. Yeung, R. Lienhart, and C.-S. Li (Eds.), Proceedings of the SPIE: Storage and Retrieval for Media Databases, Volume 5021, Santa Clara, CA, USA, 167-75. SPIE.</a>
  * @see <a href="http://rotorbrain.com/foote/papers/footeICME00.pdf">J. Foote, "Automatic Audio Segmentation using a Measure of Audio Novelty." In Proceedings of IEEE International Conference on Multimedia and Expo, vol. I, pp. 452-455, 2000.</a>
  */
-public class Novelty<I extends AudioBuffer> extends AbstractSignalProcessor<I, AudioBuffer> {
+public class Novelty<I extends AudioBuffer> extends AbstractSignalProcessor<I, AudioBuffer> implements Cloneable {
 
     /**
      * Converts a distance value into a similarity value by calculating <code>1 - distance</code>.
@@ -198,6 +199,20 @@ public class Novelty<I extends AudioBuffer> extends AbstractSignalProcessor<I, A
         this.frameNumbers = new int[kernel.size()];
     }
 
+    /**
+     * {@inheritDoc}
+     * The copy starts with an empty input history and uses its own copy of the distance function, if it is {@link Cloneable}.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object clone() throws CloneNotSupportedException {
+        final Novelty<I> clone = (Novelty<I>)super.clone();
+        clone.distanceFunction = Copies.copyIfCloneable(distanceFunction);
+        clone.input = new LinkedList<I>();
+        clone.reset();
+        return clone;
+    }
+
     @Override
     public AudioBuffer read() throws IOException {
         final SignalSource<I> source = getConnectedSource();
@@ -17,7 +17,7 @@ import java.io.IOException;
  * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
  * @see SlidingWindow
  */
-public class OLA extends AbstractSignalProcessor<AudioBuffer, AudioBuffer> {
+public class OLA extends AbstractSignalProcessor<AudioBuffer, AudioBuffer> implements Cloneable {
 
     private int hopSizeInFrames = 1024;
     private int sliceLengthInFrames = 2048;
@@ -150,6 +150,19 @@ public class OLA extends AbstractSignalProcessor<AudioBuffer, AudioBuffer> {
         offset += hopSizeInFrames;
     }
 
+    /**
+     * {@inheritDoc}
+     * The copy has not seen any buffers yet.
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        final OLA clone = (OLA)super.clone();
+        clone.lastBuffer = null;
+        clone.currentBuffer = null;
+        clone.offset = 0;
+        return clone;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) return true;
@@ -37,17 +37,17 @@ import java.util.List;
  *
  * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
  */
-public class OnsetStrength implements SignalProcessor<AudioSpectrum, AudioBuffer> {
+public class OnsetStrength implements SignalProcessor<AudioSpectrum, AudioBuffer>, Cloneable {
 
     private final Object id;
     private final int hopSize;
     private final int low;
     private final int high;
     private final float incFactor;
-    private final SignalProcessorSupport<AudioBuffer> signalProcessorSupport = new SignalProcessorSupport<AudioBuffer>();
+    private SignalProcessorSupport<AudioBuffer> signalProcessorSupport = new SignalProcessorSupport<AudioBuffer>();
     private int effectiveHopSize;
     private AudioFormat audioFormat;
-    private final List<Float> onsetValues = new ArrayList<Float>();
+    private List<Float> onsetValues = new ArrayList<Float>();
     private AudioBuffer lastOut;
     private float[] lastPowers;
 
@@ -214,6 +214,23 @@ public class OnsetStrength implements SignalProcessor<AudioSpectrum, AudioBuffer
         return signalProcessorSupport.getConnectedProcessors();
     }
 
+    /**
+     * Creates a copy that is not connected to any child processors and has no per-signal state.
+     *
+     * @return copy
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        final OnsetStrength clone = (OnsetStrength)super.clone();
+        clone.signalProcessorSupport = new SignalProcessorSupport<AudioBuffer>();
+        clone.effectiveHopSize = hopSize;
+        clone.audioFormat = null;
+        clone.onsetValues = new ArrayList<Float>();
+        clone.lastOut = null;
+        clone.lastPowers = null;
+        return clone;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) return true;
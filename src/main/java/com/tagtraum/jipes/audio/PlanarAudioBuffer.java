@@ -0,0 +1,264 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.audio;
+
+import javax.sound.sampled.AudioFormat;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Buffer that holds real, time domain audio data for multiple channels in separate arrays,
+ * one per channel (planar layout), as opposed to a single array with interleaved samples.
+ * </p>
+ * <p>
+ * Planar buffers are delivered by an {@link AudioSignalSource} in {@link AudioSignalSource#setPlanar(boolean) planar}
+ * mode. An {@link InterleavedChannelSplit} passes their channels on without copying them.
+ * For compatibility with processors that expect interleaved data, {@link #getData()} interleaves the
+ * channels on demand, which of course costs an additional pass over all samples.
+ * </p>
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see InterleavedChannelSplit
+ * @see AudioSignalSource#setPlanar(boolean)
+ */
+public class PlanarAudioBuffer implements AudioBuffer, Cloneable {
+
+    private AudioFormat audioFormat;
+    private AudioFormat channelAudioFormat;
+    private float[][] channels;
+    private int frameNumber;
+    private RealAudioBuffer[] channelBuffers;
+    private float[] interleaved;
+
+    /**
+     * Creates a planar buffer.
+     *
+     * @param frameNumber frame number
+     * @param channels one array per channel, all of the same length
+     * @param audioFormat format of the multi-channel signal
+     */
+    public PlanarAudioBuffer(final int frameNumber, final float[][] channels, final AudioFormat audioFormat) {
+        if (channels == null || channels.length == 0) throw new IllegalArgumentException("Channels must not be null or empty");
+        this.frameNumber = frameNumber;
+        this.channels = channels;
+        this.audioFormat = audioFormat;
+    }
+
+    /**
+     * Refills this buffer with new data. This allows some object reuse. <em>Use with care!</em>
+     *
+     * @param frameNumber frameNumber
+     * @param channels one array per channel, all of the same length
+     * @param audioFormat audioFormat
+     */
+    public void reuse(final int frameNumber, final float[][] channels, final AudioFormat audioFormat) {
+        this.frameNumber = frameNumber;
+        this.channels = channels;
+        if (this.audioFormat != audioFormat) {
+            this.audioFormat = audioFormat;
+            this.channelAudioFormat = null;
+        }
+        this.interleaved = null;
+    }
+
+    public long getTimestamp() {
+        return getTimestamp(TimeUnit.MILLISECONDS);
+    }
+
+    public long getTimestamp(final TimeUnit timeUnit) {
+        if (audioFormat == null) return -1;
+        else return timeUnit.convert((long) (frameNumber * 1000l * 1000l * 1000l / (double)audioFormat.getSampleRate()), TimeUnit.NANOSECONDS);
+    }
+
+    public int getFrameNumber() {
+        return frameNumber;
+    }
+
+    public AudioFormat getAudioFormat() {
+        return audioFormat;
+    }
+
+    /**
+     * Number of channels.
+     *
+     * @return channel count
+     */
+    public int getChannelCount() {
+        return channels.length;
+    }
+
+    /**
+     * Samples of a single channel. Must not be modified.
+     *
+     * @param channel channel
+     * @return samples
+     */
+    public float[] getChannelData(final int channel) {
+        return channels[channel];
+    }
+
+    /**
+     * Single channel buffer backed by this buffer's data for the given channel.
+     * The returned buffer is re-used, when this buffer is re-used.
+     *
+     * @param channel channel
+     * @return mono buffer
+     */
+    public RealAudioBuffer getChannel(final int channel) {
+        if (channelBuffers == null || channelBuffers.length != channels.length) {
+            channelBuffers = new RealAudioBuffer[channels.length];
+        }
+        final AudioFormat format = getChannelAudioFormat();
+        if (channelBuffers[channel] == null) {
+            channelBuffers[channel] = new RealAudioBuffer(frameNumber, channels[channel], format);
+        } else {
+            channelBuffers[channel].reuse(frameNumber, channels[channel], format);
+        }
+        return channelBuffers[channel];
+    }
+
+    private AudioFormat getChannelAudioFormat() {
+        if (channelAudioFormat == null && audioFormat != null) {
+            channelAudioFormat = new AudioFormat(
+                    audioFormat.getEncoding(), audioFormat.getSampleRate(),
+                    audioFormat.getSampleSizeInBits(),
+                    1, audioFormat.getFrameSize(), audioFormat.getFrameRate(),
+                    audioFormat.isBigEndian()
+            );
+        }
+        return channelAudioFormat;
+    }
+
+    /**
+     * Interleaved samples of all channels, e.g. {@code LRLRLR}. The interleaved array is computed on demand.
+     *
+     * @return interleaved data
+     */
+    public float[] getData() {
+        if (interleaved == null) {
+            final int channelCount = channels.length;
+            final int frames = channels[0].length;
+            final float[] data = new float[frames * channelCount];
+            for (int channel=0; channel<channelCount; channel++) {
+                final float[] samples = channels[channel];
+                for (int frame=0, i=channel; frame<frames; frame++, i+=channelCount) {
+                    data[i] = samples[frame];
+                }
+            }
+            interleaved = data;
+        }
+        return interleaved;
+    }
+
+    /**
+     * Same as {@link #getData()}.
+     *
+     * @return interleaved data
+     */
+    public float[] getRealData() {
+        return getData();
+    }
+
+    /**
+     * Since this buffer is real-only, this returns a zero initialized array with as many
+     * values as there are samples.
+     *
+     * @return zero initialized array
+     */
+    public float[] getImaginaryData() {
+        return new float[getNumberOfSamples()];
+    }
+
+    /**
+     * Interleaved squares of all samples.
+     *
+     * @return powers
+     */
+    public float[] getPowers() {
+        final float[] data = getData();
+        final float[] array = new float[data.length];
+        for (int i = 0; i < array.length; i++) {
+            final float v = data[i];
+            array[i] = v * v;
+        }
+        return array;
+    }
+
+    /**
+     * Interleaved absolute values of all samples.
+     *
+     * @return magnitudes
+     */
+    public float[] getMagnitudes() {
+        final float[] data = getData();
+        final float[] array = new float[data.length];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = Math.abs(data[i]);
+        }
+        return array;
+    }
+
+    public int getNumberOfSamples() {
+        return channels.length * channels[0].length;
+    }
+
+    /**
+     * Derives an interleaved buffer.
+     *
+     * @param real interleaved real data
+     * @param imaginary ignored
+     * @return interleaved buffer
+     */
+    public RealAudioBuffer derive(final float[] real, final float[] imaginary) {
+        return new RealAudioBuffer(frameNumber, real, audioFormat);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        final PlanarAudioBuffer that = (PlanarAudioBuffer) o;
+
+        if (frameNumber != that.frameNumber) return false;
+        if (audioFormat != null ? !audioFormat.equals(that.audioFormat) : that.audioFormat != null) return false;
+        if (!Arrays.deepEquals(channels, that.channels)) return false;
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = audioFormat != null ? audioFormat.hashCode() : 0;
+        result = 31 * result + Arrays.deepHashCode(channels);
+        result = 31 * result + frameNumber;
+        return result;
+    }
+
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        final PlanarAudioBuffer clone = (PlanarAudioBuffer)super.clone();
+        clone.channels = new float[channels.length][];
+        for (int channel=0; channel<channels.length; channel++) {
+            clone.channels[channel] = channels[channel].clone();
+        }
+        clone.channelBuffers = null;
+        clone.interleaved = null;
+        return clone;
+    }
+
+    @Override
+    public String toString() {
+        return "PlanarAudioBuffer{" +
+                "audioFormat=" + audioFormat +
+                ", timestamp=" + getTimestamp() +
+                ", frameNumber=" + frameNumber +
+                ", channels=" + channels.length +
+                '}';
+    }
+}
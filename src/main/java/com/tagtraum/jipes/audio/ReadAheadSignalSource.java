@@ -0,0 +1,250 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.audio;
+
+import com.tagtraum.jipes.Copies;
+import com.tagtraum.jipes.SignalSource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Wraps another {@link SignalSource} (typically an {@link AudioSignalSource} for a compressed file)
+ * and reads from it ahead of time on a background thread, so that decoding and processing overlap.
+ * </p>
+ * <p>
+ * Buffers read by the background thread are copied into a small pool of {@link RealAudioBuffer}s.
+ * A buffer returned by {@link #read()} is valid until the next call to {@link #read()}, after which
+ * it is recycled (which is how all sources behave anyway).
+ * The background thread is started with the first call to {@link #read()}.
+ * </p>
+ * <p>
+ * {@link #reset()} and {@link #close()} are passed on to the wrapped source. If the background thread
+ * has already been started, it is stopped first and buffers that have been read ahead are discarded.
+ * </p>
+ * <p>
+ * Usage example:
+ * </p>
+ * <xmp>
+ * final SignalPump<AudioBuffer> pump = new SignalPump<AudioBuffer>(
+ *     new ReadAheadSignalSource(new AudioSignalSource(mp3File)));
+ * </xmp>
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see com.tagtraum.jipes.AsyncSignalProcessor
+ */
+public class ReadAheadSignalSource implements SignalSource<AudioBuffer>, Closeable {
+
+    public static final int DEFAULT_BLOCKS = 4;
+    private static final Object END_OF_SIGNAL = new Object();
+    private static final AtomicInteger READER_COUNT = new AtomicInteger();
+
+    private final SignalSource<AudioBuffer> signalSource;
+    private final int blocks;
+    private final BlockingQueue<Object> queue;
+    private final BlockingQueue<AudioBuffer> pool;
+    private Thread reader;
+    private volatile boolean stopped;
+    private volatile Throwable failure;
+    private AudioBuffer current;
+    private boolean ended;
+
+    /**
+     * Creates a read-ahead source.
+     *
+     * @param signalSource source to read from
+     * @param blocks number of buffers to read ahead
+     * @throws IllegalArgumentException if blocks is less than 1
+     */
+    public ReadAheadSignalSource(final SignalSource<AudioBuffer> signalSource, final int blocks) throws IllegalArgumentException {
+        if (blocks < 1) throw new IllegalArgumentException("Number of blocks must be greater than 0: " + blocks);
+        this.signalSource = signalSource;
+        this.blocks = blocks;
+        this.queue = new ArrayBlockingQueue<Object>(blocks);
+        // the reader and the consumer may each hold on to one additional buffer
+        this.pool = new ArrayBlockingQueue<AudioBuffer>(blocks + 2);
+    }
+
+    /**
+     * Creates a read-ahead source that reads {@link #DEFAULT_BLOCKS} buffers ahead.
+     *
+     * @param signalSource source to read from
+     */
+    public ReadAheadSignalSource(final SignalSource<AudioBuffer> signalSource) {
+        this(signalSource, DEFAULT_BLOCKS);
+    }
+
+    /**
+     * Wrapped signal source.
+     *
+     * @return signal source
+     */
+    public SignalSource<AudioBuffer> getSignalSource() {
+        return signalSource;
+    }
+
+    /**
+     * Number of buffers that are read ahead.
+     *
+     * @return number of blocks
+     */
+    public int getBlocks() {
+        return blocks;
+    }
+
+    public AudioBuffer read() throws IOException {
+        if (ended) return null;
+        if (reader == null) startReader();
+        recycleCurrent();
+        final Object buffer;
+        try {
+            buffer = queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            final InterruptedIOException interruptedIOException = new InterruptedIOException(e.toString());
+            interruptedIOException.initCause(e);
+            throw interruptedIOException;
+        }
+        if (buffer == END_OF_SIGNAL) {
+            ended = true;
+            final Throwable t = failure;
+            if (t != null) {
+                failure = null;
+                if (t instanceof IOException) throw (IOException) t;
+                if (t instanceof RuntimeException) throw (RuntimeException) t;
+                if (t instanceof Error) throw (Error) t;
+                throw new IOException(t);
+            }
+            return null;
+        }
+        current = (AudioBuffer) buffer;
+        return current;
+    }
+
+    private void recycleCurrent() {
+        if (current != null) {
+            pool.offer(current);
+            current = null;
+        }
+    }
+
+    private void startReader() {
+        stopped = false;
+        failure = null;
+        reader = new Thread(new Reader(), "ReadAheadSignalSource-Reader-" + READER_COUNT.incrementAndGet());
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Stops the reader thread and discards all buffers that have been read ahead.
+     * Waits for the reader to actually end, even if the calling thread is interrupted,
+     * because the wrapped source must not be used by two threads at the same time.
+     * The interrupt flag is restored afterwards.
+     */
+    private void stopReader() {
+        if (reader == null) return;
+        stopped = true;
+        // wakes up the reader, if it is blocked waiting for room in the queue
+        queue.clear();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                reader.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        queue.clear();
+        reader = null;
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Stops reading ahead, discards all buffers that have been read ahead and
+     * resets the wrapped source.
+     */
+    public void reset() {
+        stopReader();
+        recycleCurrent();
+        ended = false;
+        failure = null;
+        signalSource.reset();
+    }
+
+    /**
+     * Stops reading ahead and closes the wrapped source, if it is {@link Closeable}.
+     *
+     * @throws IOException if closing fails
+     */
+    public void close() throws IOException {
+        stopReader();
+        ended = true;
+        current = null;
+        pool.clear();
+        if (signalSource instanceof Closeable) ((Closeable) signalSource).close();
+    }
+
+    /**
+     * Copies the given buffer into a recycled buffer, if possible.
+     *
+     * @param buffer buffer read from the wrapped source
+     * @param recycled recycled buffer or <code>null</code>
+     * @return copy
+     */
+    private static AudioBuffer copy(final AudioBuffer buffer, final AudioBuffer recycled) {
+        if (buffer.getClass() != RealAudioBuffer.class) return Copies.copy(buffer);
+        final float[] data = buffer.getData();
+        if (recycled instanceof RealAudioBuffer) {
+            final RealAudioBuffer out = (RealAudioBuffer) recycled;
+            final float[] outData = out.getData().length == data.length ? out.getData() : new float[data.length];
+            System.arraycopy(data, 0, outData, 0, data.length);
+            out.reuse(buffer.getFrameNumber(), outData, buffer.getAudioFormat());
+            return out;
+        }
+        return new RealAudioBuffer(buffer.getFrameNumber(), data.clone(), buffer.getAudioFormat());
+    }
+
+    @Override
+    public String toString() {
+        return "ReadAheadSignalSource{" +
+                "signalSource=" + signalSource +
+                ", blocks=" + blocks +
+                '}';
+    }
+
+    /**
+     * Reads from the wrapped source until it is exhausted, fails or the reader is stopped.
+     */
+    private class Reader implements Runnable {
+
+        public void run() {
+            try {
+                AudioBuffer buffer;
+                while (!stopped && (buffer = signalSource.read()) != null) {
+                    // blocks until the consumer has taken a buffer or the reader is stopped
+                    queue.put(copy(buffer, pool.poll()));
+                }
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                if (!stopped) {
+                    try {
+                        queue.put(END_OF_SIGNAL);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+    }
+}
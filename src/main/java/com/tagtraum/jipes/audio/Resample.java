@@ -7,6 +7,8 @@
 package com.tagtraum.jipes.audio;
 
 import com.tagtraum.jipes.AbstractSignalProcessor;
+import com.tagtraum.jipes.Copies;
+import com.tagtraum.jipes.StatefulSignalProcessor;
 import com.tagtraum.jipes.math.MultirateFilters;
 
 import javax.sound.sampled.AudioFormat;
@@ -19,7 +21,7 @@ import java.io.IOException;
  * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
  * @see MultirateFilters.Resampler
  */
-public class Resample extends AbstractSignalProcessor<AudioBuffer, AudioBuffer> {
+public class Resample extends AbstractSignalProcessor<AudioBuffer, AudioBuffer> implements Cloneable, StatefulSignalProcessor {
 
     private RealAudioBuffer realAudioBuffer;
     private MultirateFilters.Resampler resampler;
@@ -72,6 +74,27 @@ public class Resample extends AbstractSignalProcessor<AudioBuffer, AudioBuffer>
         return realAudioBuffer;
     }
 
+    /**
+     * Resets the resampling filter's state.
+     */
+    @Override
+    public void reset() {
+        super.reset();
+        if (resampler != null) resampler.reset();
+    }
+
+    /**
+     * {@inheritDoc}
+     * The copy uses its own copy of the resampling filter.
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        final Resample clone = (Resample)super.clone();
+        clone.realAudioBuffer = null;
+        clone.resampler = Copies.copy(resampler);
+        return clone;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) return true;
@@ -0,0 +1,366 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.audio;
+
+import com.tagtraum.jipes.AbstractSignalProcessor;
+import com.tagtraum.jipes.StatefulSignalProcessor;
+import com.tagtraum.jipes.math.AllocationFreeTransform;
+import com.tagtraum.jipes.math.FFTFactory;
+import com.tagtraum.jipes.math.Floats;
+import com.tagtraum.jipes.math.Transform;
+import com.tagtraum.jipes.math.WindowFunction;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * <p>Short-time Fourier transform of a mono signal. Does the work of
+ * <xmp>new SlidingWindow(sliceLength, hopSize)
+ *     .connectTo(new Mapping<AudioBuffer>(AudioBufferFunctions.createMapFunction(new WindowFunction.Hann(sliceLength))))
+ *     .connectTo(new FFT());</xmp>
+ * with identical output, but without the intermediate buffers: Incoming samples are copied once into a
+ * ring buffer. For each window, the ring buffer is unrolled into the FFT input array and multiplied
+ * with the window function in the same pass. The FFT then writes into re-used arrays and
+ * the powers and magnitudes of the emitted {@link LinearFrequencySpectrum} are computed together
+ * in one more pass, also into re-used arrays.
+ * </p>
+ * <p>
+ * Like {@link FFT}, windows are zero padded to a power of two, unless turned off with
+ * {@link #setZeroPadToPowerOfTwo(boolean)}. Like {@link SlidingWindow}, the last windows are
+ * zero padded until all data disappeared from the window.
+ * </p>
+ * <p>
+ * The emitted spectrum and all its arrays are re-used. If you need to hold on to it for longer than
+ * the current method call, you must {@link Object#clone()} it.
+ * </p>
+ * Usage example:
+ * <xmp>STFT stft = new STFT(2048, 512);
+ * stft.connectTo(new Mel());</xmp>
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see SlidingWindow
+ * @see FFT
+ * @see ISTFT
+ */
+public class STFT extends AbstractSignalProcessor<AudioBuffer, LinearFrequencySpectrum> implements Cloneable, StatefulSignalProcessor {
+
+    private final int sliceLengthInFrames;
+    private final int hopSizeInFrames;
+    private final WindowFunction windowFunction;
+    private final float[] window;
+    private boolean zeroPadToPowerOfTwo = true;
+    private Transform fft;
+    private AudioFormat audioFormat;
+    /**
+     * Holds the samples of the current window, starting at {@link #ringStart}.
+     */
+    private float[] ring;
+    private int ringStart;
+    private int ringFrames;
+    private float[] frame;
+    private float[] realData;
+    private float[] imaginaryData;
+    private float[] powers;
+    private float[] magnitudes;
+    private LinearFrequencySpectrum spectrum;
+    private AudioBuffer lastInput;
+    private int lastInputPosition;
+    private int readFrames;
+    private int frameNumberOffset = -1;
+
+    /**
+     * Creates a short-time Fourier transform.
+     *
+     * @param sliceLengthInFrames frames per window
+     * @param hopSizeInFrames number of frames consecutive windows are apart
+     * @param windowFunction window function, must be <code>sliceLengthInFrames</code> long
+     * @throws IllegalArgumentException if the window function does not have the same length as the window or
+     * the hop size is not between 1 and the window length
+     */
+    public STFT(final int sliceLengthInFrames, final int hopSizeInFrames, final WindowFunction windowFunction) {
+        if (sliceLengthInFrames <= 0) throw new IllegalArgumentException("Slice length must be positive: " + sliceLengthInFrames);
+        if (hopSizeInFrames <= 0 || hopSizeInFrames > sliceLengthInFrames) {
+            throw new IllegalArgumentException("Hop size must be positive and not greater than the slice length "
+                    + sliceLengthInFrames + ": " + hopSizeInFrames);
+        }
+        if (windowFunction.getLength() != sliceLengthInFrames) {
+            throw new IllegalArgumentException("Window function length " + windowFunction.getLength()
+                    + " must equal the slice length " + sliceLengthInFrames);
+        }
+        this.sliceLengthInFrames = sliceLengthInFrames;
+        this.hopSizeInFrames = hopSizeInFrames;
+        this.windowFunction = windowFunction;
+        this.window = windowFunction.getCoefficients();
+    }
+
+    /**
+     * Creates a short-time Fourier transform with a {@link WindowFunction.Hann} window.
+     *
+     * @param sliceLengthInFrames frames per window
+     * @param hopSizeInFrames number of frames consecutive windows are apart
+     */
+    public STFT(final int sliceLengthInFrames, final int hopSizeInFrames) {
+        this(sliceLengthInFrames, hopSizeInFrames, new WindowFunction.Hann(sliceLengthInFrames));
+    }
+
+    /**
+     * Creates a short-time Fourier transform with a window length of 2048 frames, 1024 hop size
+     * and a {@link WindowFunction.Hann} window.
+     */
+    public STFT() {
+        this(2048, 1024);
+    }
+
+    public int getSliceLengthInFrames() {
+        return sliceLengthInFrames;
+    }
+
+    public int getHopSizeInFrames() {
+        return hopSizeInFrames;
+    }
+
+    public WindowFunction getWindowFunction() {
+        return windowFunction;
+    }
+
+    /**
+     * Indicates whether windows are zero padded to a power of two before they are transformed.
+     *
+     * @return true, if windows are padded to a power of two (default)
+     * @see FFT#isZeroPadToPowerOfTwo()
+     */
+    public boolean isZeroPadToPowerOfTwo() {
+        return zeroPadToPowerOfTwo;
+    }
+
+    /**
+     * Lets you turn off zero padding to a power of two. Must be called before the first window is transformed.
+     *
+     * @param zeroPadToPowerOfTwo true, if windows should be padded to a power of two
+     * @see FFT#setZeroPadToPowerOfTwo(boolean)
+     */
+    public void setZeroPadToPowerOfTwo(final boolean zeroPadToPowerOfTwo) {
+        this.zeroPadToPowerOfTwo = zeroPadToPowerOfTwo;
+    }
+
+    private int getCurrentFrameNumber() {
+        return readFrames + frameNumberOffset;
+    }
+
+    public void reset() {
+        super.reset();
+        audioFormat = null;
+        ringStart = 0;
+        ringFrames = 0;
+        lastInput = null;
+        lastInputPosition = 0;
+        readFrames = 0;
+        frameNumberOffset = -1;
+    }
+
+    @Override
+    protected LinearFrequencySpectrum processNext(final AudioBuffer buffer) throws IOException {
+        throw new RuntimeException("This method in not implemented");
+    }
+
+    @Override
+    public void flush() throws IOException {
+        while (ringFrames > 0) {
+            lastOut = nextSpectrum();
+            signalProcessorSupport.process(lastOut);
+        }
+        super.flush();
+    }
+
+    @Override
+    public void process(final AudioBuffer buffer) throws IOException {
+        verifyMono(buffer);
+        audioFormat = buffer.getAudioFormat();
+        if (frameNumberOffset == -1) frameNumberOffset = buffer.getFrameNumber();
+        final float[] data = buffer.getData();
+        int position = 0;
+        while (position < data.length) {
+            position += fill(data, position);
+            if (ringFrames == sliceLengthInFrames) {
+                lastOut = nextSpectrum();
+                signalProcessorSupport.process(lastOut);
+            }
+        }
+    }
+
+    /**
+     * If no new data can be obtained the last few windows are zero padded until
+     * all data disappeared from the window. Only then {@link #read()} returns <code>null</code>.
+     *
+     * @return spectrum of the next window
+     * @throws IOException if something goes wrong
+     */
+    @Override
+    public LinearFrequencySpectrum read() throws IOException {
+        while (ringFrames < sliceLengthInFrames) {
+            if (lastInput == null || lastInputPosition == lastInput.getData().length) {
+                lastInput = getConnectedSource().read();
+                if (lastInput != null) {
+                    verifyMono(lastInput);
+                    if (frameNumberOffset == -1) frameNumberOffset = lastInput.getFrameNumber();
+                    audioFormat = lastInput.getAudioFormat();
+                }
+                lastInputPosition = 0;
+            }
+            if (lastInput == null) break;
+            lastInputPosition += fill(lastInput.getData(), lastInputPosition);
+        }
+        if (ringFrames == 0) return null;
+        lastOut = nextSpectrum();
+        return lastOut;
+    }
+
+    private static void verifyMono(final AudioBuffer buffer) throws IOException {
+        if (buffer.getAudioFormat() != null && buffer.getAudioFormat().getChannels() != 1) {
+            throw new IOException("Source must be mono.");
+        }
+    }
+
+    /**
+     * Copies as many samples as fit into the ring buffer.
+     *
+     * @param data samples
+     * @param offset index of the first sample to copy
+     * @return number of copied samples
+     */
+    private int fill(final float[] data, final int offset) {
+        if (ring == null) {
+            ring = new float[sliceLengthInFrames];
+            ringStart = 0;
+            ringFrames = 0;
+        }
+        final int samplesToCopy = Math.min(data.length - offset, sliceLengthInFrames - ringFrames);
+        final int writePosition = (ringStart + ringFrames) % sliceLengthInFrames;
+        // the free region may wrap around the end of the ring
+        final int firstPart = Math.min(samplesToCopy, sliceLengthInFrames - writePosition);
+        System.arraycopy(data, offset, ring, writePosition, firstPart);
+        System.arraycopy(data, offset + firstPart, ring, 0, samplesToCopy - firstPart);
+        ringFrames += samplesToCopy;
+        return samplesToCopy;
+    }
+
+    /**
+     * Windows and transforms the current window (zero padded, if the ring buffer isn't full)
+     * and then moves the window by one hop.
+     *
+     * @return spectrum
+     */
+    private LinearFrequencySpectrum nextSpectrum() {
+        if (frame == null) {
+            frame = zeroPadToPowerOfTwo
+                    ? Floats.zeroPadAtEnd(new float[sliceLengthInFrames])
+                    : new float[sliceLengthInFrames];
+        }
+        // unroll the ring and apply the window in one pass, the zero padded tail of frame stays untouched
+        final int firstPart = Math.min(ringFrames, sliceLengthInFrames - ringStart);
+        for (int i=0; i<firstPart; i++) {
+            frame[i] = ring[ringStart + i] * window[i];
+        }
+        for (int i=firstPart; i<ringFrames; i++) {
+            frame[i] = ring[i - firstPart] * window[i];
+        }
+        if (ringFrames < sliceLengthInFrames) {
+            Arrays.fill(frame, ringFrames, sliceLengthInFrames, 0f);
+        }
+
+        if (fft == null) {
+            fft = FFTFactory.getInstance().create(frame.length);
+        }
+        if (fft instanceof AllocationFreeTransform) {
+            if (realData == null) {
+                realData = new float[frame.length];
+                imaginaryData = new float[frame.length];
+            }
+            ((AllocationFreeTransform) fft).transform(frame, realData, imaginaryData);
+        } else {
+            final float[][] transformed = fft.transform(frame);
+            realData = transformed[0];
+            imaginaryData = transformed[1];
+        }
+        if (spectrum == null) {
+            spectrum = new LinearFrequencySpectrum(getCurrentFrameNumber(), realData, imaginaryData, audioFormat);
+            powers = new float[frame.length / 2];
+            magnitudes = new float[frame.length / 2];
+        } else {
+            spectrum.reuse(getCurrentFrameNumber(), realData, imaginaryData, audioFormat);
+        }
+        spectrum.computePowersAndMagnitudes(powers.length, powers, magnitudes);
+
+        readFrames += hopSizeInFrames;
+        if (ringFrames > hopSizeInFrames) {
+            ringStart = (ringStart + hopSizeInFrames) % sliceLengthInFrames;
+            ringFrames -= hopSizeInFrames;
+        } else {
+            ringStart = 0;
+            ringFrames = 0;
+        }
+        return spectrum;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The sample ring of the copy is empty, the (stateless) transform is shared.
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        final STFT clone = (STFT)super.clone();
+        clone.audioFormat = null;
+        clone.ring = null;
+        clone.ringStart = 0;
+        clone.ringFrames = 0;
+        clone.frame = null;
+        clone.realData = null;
+        clone.imaginaryData = null;
+        clone.powers = null;
+        clone.magnitudes = null;
+        clone.spectrum = null;
+        clone.lastInput = null;
+        clone.lastInputPosition = 0;
+        clone.readFrames = 0;
+        clone.frameNumberOffset = -1;
+        return clone;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        final STFT that = (STFT) o;
+
+        if (hopSizeInFrames != that.hopSizeInFrames) return false;
+        if (sliceLengthInFrames != that.sliceLengthInFrames) return false;
+        if (zeroPadToPowerOfTwo != that.zeroPadToPowerOfTwo) return false;
+        if (!windowFunction.equals(that.windowFunction)) return false;
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = hopSizeInFrames;
+        result = 31 * result + sliceLengthInFrames;
+        result = 31 * result + (zeroPadToPowerOfTwo ? 1 : 0);
+        result = 31 * result + windowFunction.hashCode();
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "STFT{" +
+                "window=" + sliceLengthInFrames +
+                ", hop=" + hopSizeInFrames +
+                ", windowFunction=" + windowFunction +
+                '}';
+    }
+}
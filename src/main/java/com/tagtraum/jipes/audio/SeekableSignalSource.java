@@ -0,0 +1,61 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.audio;
+
+import com.tagtraum.jipes.SignalSource;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+
+/**
+ * <p>{@link SignalSource} that can be positioned at an arbitrary sample frame.
+ * After a call to {@link #seek(long)}, the next buffer read starts with the given frame and
+ * carries the corresponding frame number, so that timestamps remain correct.
+ * </p>
+ * <p>
+ * Implementations seek as cheaply as their medium allows, e.g. by computing a byte offset
+ * for uncompressed PCM data or by skipping over decoded data otherwise.
+ * </p>
+ *
+ * @param <T> subtype of {@link AudioBuffer}
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see TimeRangeSignalSource
+ */
+public interface SeekableSignalSource<T extends AudioBuffer> extends SignalSource<T> {
+
+    /**
+     * Format of the buffers delivered by this source.
+     *
+     * @return audio format
+     */
+    AudioFormat getProcessedAudioFormat();
+
+    /**
+     * Length of the signal in sample frames.
+     *
+     * @return frame length or {@link javax.sound.sampled.AudioSystem#NOT_SPECIFIED}, if unknown
+     */
+    long getFrameLength();
+
+    /**
+     * Frame number of the first frame of the next buffer that is read.
+     *
+     * @return frame position
+     */
+    long getFramePosition();
+
+    /**
+     * Positions this source at the given sample frame. Seeking beyond the end positions
+     * this source at the end.
+     *
+     * @param frame frame number
+     * @throws IOException if this source cannot be positioned at the given frame
+     * @throws IllegalArgumentException if frame is negative
+     */
+    void seek(long frame) throws IOException, IllegalArgumentException;
+}
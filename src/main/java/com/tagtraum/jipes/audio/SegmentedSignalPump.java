@@ -0,0 +1,321 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.audio;
+
+import com.tagtraum.jipes.AbstractSignalProcessor;
+import com.tagtraum.jipes.Copies;
+import com.tagtraum.jipes.SignalProcessor;
+import com.tagtraum.jipes.SignalProcessorFactory;
+
+import javax.sound.sampled.AudioSystem;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Processes a single long recording by splitting it into multiple segments that are
+ * pumped concurrently, each with its own source and processor graph.
+ * </p>
+ * <p>
+ * Each segment is read with an additional <em>overlap</em> before its start, so that stateful
+ * processors like {@link SlidingWindow}, {@link com.tagtraum.jipes.math.Filters.FIRFilter} or
+ * {@link Resample} are warmed up, when the segment's first frame arrives. The same overlap is read after
+ * the segment's end, so that e.g. windows that start in the segment but end after it are complete.
+ * Outputs are assigned to segments by their timestamp (see {@link AudioBuffer#getTimestamp(TimeUnit)}),
+ * i.e. outputs from the warm-up regions are dropped. The remaining outputs are then pushed
+ * to a sink processor in their original order.
+ * </p>
+ * <p>
+ * To get exactly the same result as with a single sequential {@link com.tagtraum.jipes.SignalPump},
+ * the overlap must be at least as long as the longest window or filter and a multiple of the
+ * hop size of all {@link SlidingWindow}s (segment boundaries are multiples of the overlap,
+ * so that windows start at the same frames as in a sequential run).
+ * Because a segment's outputs are collected before they are pushed to the sink, this
+ * is meant for feature extraction, i.e. pipelines with reasonably small outputs.
+ * </p>
+ * <p>
+ * Usage example:
+ * </p>
+ * <xmp>
+ * final SegmentedSignalPump<MelSpectrum> pump = new SegmentedSignalPump<MelSpectrum>(
+ *     new SegmentedSignalPump.SourceFactory() {
+ *         public AudioSignalSource create() throws Exception {
+ *             return new AudioSignalSource(file);
+ *         }
+ *     },
+ *     new PipelineTemplate<AudioBuffer>(new SignalPipeline<AudioBuffer, MelSpectrum>(
+ *         new Mono(), new SlidingWindow(1024, 512), new FFT(), new Mel()
+ *     )), 4, 1024);
+ * pump.pump(sink);
+ * </xmp>
+ *
+ * @param <O> type of the output values of the created processor graphs
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see com.tagtraum.jipes.SignalPump
+ * @see com.tagtraum.jipes.PipelineTemplate
+ */
+public class SegmentedSignalPump<O extends AudioBuffer> {
+
+    private static final Logger LOG = Logger.getLogger(SegmentedSignalPump.class.getName());
+    private static final AtomicInteger WORKER_COUNT = new AtomicInteger();
+
+    private final SourceFactory sourceFactory;
+    private final SignalProcessorFactory<AudioBuffer> processorFactory;
+    private final int segments;
+    private final int overlap;
+
+    /**
+     * Creates a segmented pump.
+     *
+     * @param sourceFactory factory for sources of the recording
+     * @param processorFactory factory for processor graphs, their output is pushed to the sink
+     * @param segments number of segments to process concurrently
+     * @param overlap number of frames to read before and after each segment
+     * @throws IllegalArgumentException if segments is less than 1 or overlap is negative
+     */
+    public SegmentedSignalPump(final SourceFactory sourceFactory, final SignalProcessorFactory<AudioBuffer> processorFactory,
+                               final int segments, final int overlap) throws IllegalArgumentException {
+        if (segments < 1) throw new IllegalArgumentException("Number of segments must be greater than 0: " + segments);
+        if (overlap < 0) throw new IllegalArgumentException("Overlap must not be negative: " + overlap);
+        this.sourceFactory = sourceFactory;
+        this.processorFactory = processorFactory;
+        this.segments = segments;
+        this.overlap = overlap;
+    }
+
+    /**
+     * Creates a segmented pump that uses as many segments as there are available processors.
+     *
+     * @param sourceFactory factory for sources of the recording
+     * @param processorFactory factory for processor graphs, their output is pushed to the sink
+     * @param overlap number of frames to read before and after each segment
+     * @throws IllegalArgumentException if overlap is negative
+     */
+    public SegmentedSignalPump(final SourceFactory sourceFactory, final SignalProcessorFactory<AudioBuffer> processorFactory,
+                               final int overlap) throws IllegalArgumentException {
+        this(sourceFactory, processorFactory, Runtime.getRuntime().availableProcessors(), overlap);
+    }
+
+    /**
+     * Max number of segments.
+     *
+     * @return number of segments
+     */
+    public int getSegments() {
+        return segments;
+    }
+
+    /**
+     * Number of frames read before and after each segment.
+     *
+     * @return overlap in frames
+     */
+    public int getOverlap() {
+        return overlap;
+    }
+
+    /**
+     * Pumps the recording through one processor graph per segment and pushes the
+     * stitched outputs to the given sink, which is flushed at the end.
+     * If the length of the recording is unknown, it is processed as a single segment.
+     *
+     * @param sink processor that receives all outputs in their original order
+     * @throws IOException if a source cannot be created or a segment fails
+     */
+    public void pump(final SignalProcessor<O, ?> sink) throws IOException {
+        final List<long[]> ranges = computeRanges(getFrameLength());
+        final ExecutorService executorService = Executors.newFixedThreadPool(ranges.size(), new ThreadFactory() {
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "SegmentedSignalPump-Worker-" + WORKER_COUNT.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            final List<Future<List<O>>> futures = new ArrayList<Future<List<O>>>();
+            for (final long[] range : ranges) {
+                futures.add(executorService.submit(new Callable<List<O>>() {
+                    public List<O> call() throws Exception {
+                        return pump(range[0], range[1]);
+                    }
+                }));
+            }
+            for (int i=0; i<futures.size(); i++) {
+                final List<O> outputs = get(futures.get(i));
+                // don't keep already pushed outputs around
+                futures.set(i, null);
+                for (final O output : outputs) {
+                    sink.process(output);
+                }
+            }
+            sink.flush();
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private long getFrameLength() throws IOException {
+        final AudioSignalSource source = createSource();
+        try {
+            return source.getFrameLength();
+        } finally {
+            source.close();
+        }
+    }
+
+    /**
+     * Computes start (inclusive) and end (exclusive) frames of all segments.
+     * Segment boundaries are multiples of the overlap.
+     *
+     * @param frameLength length of the recording
+     * @return list of ranges
+     */
+    private List<long[]> computeRanges(final long frameLength) {
+        final List<long[]> ranges = new ArrayList<long[]>();
+        if (frameLength == AudioSystem.NOT_SPECIFIED || frameLength <= 0 || segments == 1) {
+            ranges.add(new long[]{0, Long.MAX_VALUE});
+            return ranges;
+        }
+        long segmentLength = (frameLength + segments - 1) / segments;
+        if (overlap > 0) segmentLength = (segmentLength + overlap - 1) / overlap * overlap;
+        for (long start = 0; start < frameLength; start += segmentLength) {
+            final long end = start + segmentLength >= frameLength ? Long.MAX_VALUE : start + segmentLength;
+            ranges.add(new long[]{start, end});
+        }
+        return ranges;
+    }
+
+    /**
+     * Pumps a single segment.
+     *
+     * @param start first frame of the segment
+     * @param end first frame after the segment or {@link Long#MAX_VALUE}
+     * @return outputs that belong to the segment
+     */
+    @SuppressWarnings("unchecked")
+    private List<O> pump(final long start, final long end) throws IOException {
+        final AudioSignalSource source = createSource();
+        try {
+            final long readStart = Math.max(0, start - overlap);
+            final long readEnd = end == Long.MAX_VALUE ? Long.MAX_VALUE : end + overlap;
+            source.skip(readStart);
+            final Collector<O> collector = new Collector<O>(start, end);
+            final SignalProcessor<AudioBuffer, O> processor = (SignalProcessor<AudioBuffer, O>) processorFactory.create();
+            processor.connectTo(collector);
+            AudioBuffer buffer;
+            while ((buffer = source.read()) != null && buffer.getFrameNumber() < readEnd) {
+                if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("Segment " + start + "-" + end + " was interrupted.");
+                collector.setSampleRate(buffer.getAudioFormat().getSampleRate());
+                processor.process(buffer);
+            }
+            processor.flush();
+            return collector.getOutputs();
+        } finally {
+            try {
+                source.close();
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Failed to close source: " + e, e);
+            }
+        }
+    }
+
+    private AudioSignalSource createSource() throws IOException {
+        try {
+            return sourceFactory.create();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static <T> T get(final Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            final InterruptedIOException interruptedIOException = new InterruptedIOException(e.toString());
+            interruptedIOException.initCause(e);
+            throw interruptedIOException;
+        } catch (ExecutionException e) {
+            final Throwable t = e.getCause();
+            if (t instanceof IOException) throw (IOException) t;
+            if (t instanceof RuntimeException) throw (RuntimeException) t;
+            if (t instanceof Error) throw (Error) t;
+            throw new IOException(t);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SegmentedSignalPump{" +
+                "segments=" + segments +
+                ", overlap=" + overlap +
+                ", sourceFactory=" + sourceFactory +
+                ", processorFactory=" + processorFactory +
+                '}';
+    }
+
+    /**
+     * Collects copies of all outputs with timestamps between the start and the end of a segment.
+     * Boundaries are converted to timestamps exactly like {@link AudioBuffer#getTimestamp(TimeUnit)} does,
+     * so that each output is assigned to exactly one segment.
+     */
+    private static class Collector<O extends AudioBuffer> extends AbstractSignalProcessor<O, O> {
+
+        private final List<O> outputs = new ArrayList<O>();
+        private final long start;
+        private final long end;
+        private long startNanos = -1;
+        private long endNanos = -1;
+
+        private Collector(final long start, final long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        private void setSampleRate(final float sampleRate) {
+            if (startNanos != -1) return;
+            this.startNanos = (long) (start * 1000l * 1000l * 1000l / (double) sampleRate);
+            this.endNanos = end == Long.MAX_VALUE ? Long.MAX_VALUE : (long) (end * 1000l * 1000l * 1000l / (double) sampleRate);
+        }
+
+        public List<O> getOutputs() {
+            return outputs;
+        }
+
+        @Override
+        protected O processNext(final O input) throws IOException {
+            final long timestamp = input.getTimestamp(TimeUnit.NANOSECONDS);
+            if (timestamp >= startNanos && timestamp < endNanos) {
+                outputs.add(Copies.copy(input));
+            }
+            return input;
+        }
+    }
+
+    /**
+     * Creates a new {@link AudioSignalSource} for the recording.
+     */
+    public interface SourceFactory {
+
+        /**
+         * Creates a new source positioned at the beginning of the recording.
+         * The source is closed after it has been pumped.
+         *
+         * @return signal source
+         * @throws Exception if the source cannot be created
+         */
+        AudioSignalSource create() throws Exception;
+    }
+}
@@ -6,6 +6,7 @@
  */
 package com.tagtraum.jipes.audio;
 
+import com.tagtraum.jipes.Copies;
 import com.tagtraum.jipes.SignalProcessor;
 import com.tagtraum.jipes.SignalProcessorSupport;
 import com.tagtraum.jipes.math.*;
@@ -24,7 +25,7 @@ import static com.tagtraum.jipes.audio.AudioBufferFunctions.createDistanceFuncti
  *
  * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
  */
-public class SelfSimilarity<I extends AudioBuffer> implements SignalProcessor<I, AudioMatrix> {
+public class SelfSimilarity<I extends AudioBuffer> implements SignalProcessor<I, AudioMatrix>, Cloneable {
 
     public static final int FULL_MATRIX = -1;
     private SignalProcessorSupport<AudioMatrix> signalProcessorSupport = new SignalProcessorSupport<AudioMatrix>();
@@ -262,4 +263,27 @@ public class SelfSimilarity<I extends AudioBuffer> implements SignalProcessor<I,
         return signalProcessorSupport.connectTo(signalProcessor);
     }
 
+    /**
+     * Creates a copy that is not connected to any child processors and has no per-signal state.
+     *
+     * @return copy
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object clone() throws CloneNotSupportedException {
+        final SelfSimilarity<I> clone = (SelfSimilarity<I>)super.clone();
+        clone.signalProcessorSupport = new SignalProcessorSupport<AudioMatrix>();
+        clone.distanceFunction = Copies.copyIfCloneable(distanceFunction);
+        clone.spectra = new LinkedList<I>();
+        clone.audioFormat = null;
+        clone.matrix = null;
+        clone.combinedChunksMatrix = null;
+        clone.similarityMatrix = null;
+        clone.firstFrame = -1;
+        clone.secondFrame = -1;
+        clone.chunkOffset = 0;
+        clone.spectraOffset = 0;
+        return clone;
+    }
+
 }
@@ -7,6 +7,7 @@
 package com.tagtraum.jipes.audio;
 
 import com.tagtraum.jipes.AbstractSignalProcessor;
+import com.tagtraum.jipes.StatefulSignalProcessor;
 
 import javax.sound.sampled.AudioFormat;
 import java.io.IOException;
@@ -14,35 +15,55 @@ import java.util.Arrays;
 
 /**
  * Provides overlapping frame blocks (aka slices or windows or frames) of a defined size.
- * This is the counterpart of {@link SlidingWindow}.
+ * This is the counterpart of {@link OLA}.
  * <br/>
  * If no new data can be obtained the last few blocks/windows are zero padded until
  * all data disappeared from the window. Only then {@link #read()} returns <code>null</code>.
  * <br/>
- * Note that the <i>pull</i> API makes heavy object re-use. Do <em>not</em> rely on returned
- * buffers being immutable. If you need to keep a buffer around for longer than the call in which
+ * Incoming samples are copied exactly once into a ring buffer that holds one window.
+ * Each emitted window is then copied once from the ring buffer into a re-used output array.
+ * If windows don't overlap (hop size equals the window length), the ring buffer itself is emitted.
+ * Neither {@link #process(AudioBuffer)} nor {@link #flush()} nor {@link #read()} allocate
+ * any arrays after the first window.
+ * <br/>
+ * Multi-channel input (interleaved or {@link PlanarAudioBuffer}) is de-interleaved into one ring
+ * buffer per channel, all sharing the same bookkeeping. In this case windows are emitted as
+ * {@link PlanarAudioBuffer}s, which an {@link InterleavedChannelSplit} passes on to per-channel
+ * processors without copying. Mono windows are emitted as {@link RealAudioBuffer}s.
+ * <br/>
+ * Note that both the <i>push</i> and the <i>pull</i> API make heavy object re-use. Do <em>not</em> rely on
+ * returned buffers being immutable. If you need to keep a buffer around for longer than the call in which
  * it was given to you, {@link Object#clone()} it.
  * <p/>
+ * Usage example for stereo input:
+ * <xmp>
+ * final SlidingWindow slidingWindow = new SlidingWindow(1024, 512);
+ * final InterleavedChannelSplit channelSplit = new InterleavedChannelSplit();
+ * slidingWindow.connectTo(channelSplit);
+ * channelSplit.connectTo(0, new FFT()); // left
+ * channelSplit.connectTo(1, new FFT()); // right
+ * </xmp>
  *
  * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
  * @see OLA
+ * @see InterleavedChannelSplit
  */
-public class SlidingWindow extends AbstractSignalProcessor<AudioBuffer, AudioBuffer> {
-
-    // TODO: This class looks like hell and needs some refactoring love urgently! (hs)
+public class SlidingWindow extends AbstractSignalProcessor<AudioBuffer, AudioBuffer> implements Cloneable, StatefulSignalProcessor {
 
     private int hopSizeInFrames = 1024;
     private int sliceLengthInFrames = 2048;
-    private float[] lastOutput;
-    private float[] lastInput;
-    private int lastInputPosition;
-    private int lastOutputPosition;
     private AudioFormat audioFormat;
-    private float[] pushOutput;
-    private float[] pushOutput2;
-    private int outputPosition;
-    private float[] pullOutput;
-    private RealAudioBuffer pullRealAudioBuffer;
+    /**
+     * Holds the samples of the current window, one ring per channel, starting at {@link #ringStart}.
+     */
+    private float[][] ring;
+    private int ringStart;
+    private int ringFrames;
+    private float[][] window;
+    private RealAudioBuffer windowBuffer;
+    private PlanarAudioBuffer planarWindowBuffer;
+    private AudioBuffer lastInput;
+    private int lastInputPosition;
     private int readFrames;
     private int frameNumberOffset = -1;
 
@@ -96,14 +117,11 @@ public class SlidingWindow extends AbstractSignalProcessor<AudioBuffer, AudioBuf
 
     public void reset() {
         super.reset();
-        lastOutput = null;
+        audioFormat = null;
+        ringStart = 0;
+        ringFrames = 0;
         lastInput = null;
         lastInputPosition = 0;
-        lastOutputPosition = 0;
-        audioFormat = null;
-        pushOutput = null;
-        outputPosition = 0;
-        pullRealAudioBuffer = null;
         readFrames = 0;
         frameNumberOffset = -1;
     }
@@ -115,80 +133,25 @@ public class SlidingWindow extends AbstractSignalProcessor<AudioBuffer, AudioBuf
 
     @Override
     public void flush() throws IOException {
-        while (outputPosition > 0) {
-            if (pullRealAudioBuffer == null) {
-                pullRealAudioBuffer = new RealAudioBuffer(getCurrentFrameNumber(), pushOutput, audioFormat);
-            } else {
-                pullRealAudioBuffer.reuse(getCurrentFrameNumber(), pushOutput, pullRealAudioBuffer.getAudioFormat());
-            }
-            signalProcessorSupport.process(pullRealAudioBuffer);
-            readFrames += hopSizeInFrames;
-            if (outputPosition > hopSizeInFrames) {
-                final float[] newOutput = new float[pushOutput.length];
-                System.arraycopy(pushOutput, hopSizeInFrames, newOutput, 0, pushOutput.length-hopSizeInFrames);
-                pushOutput = newOutput;
-                outputPosition -= hopSizeInFrames;
-            } else {
-                outputPosition = 0;
-            }
+        while (ringFrames > 0) {
+            signalProcessorSupport.process(nextWindow());
         }
         super.flush();
     }
 
     @Override
     public void process(final AudioBuffer buffer) throws IOException {
-        if (hopSizeInFrames > sliceLengthInFrames) {
-            throw new IllegalArgumentException("hopSizeInFrames " + hopSizeInFrames
-                    + " must not be greater than sliceLengthInFrames" + sliceLengthInFrames);
-        }
-
-        final float[] data = buffer.getData();
+        verifyHopSize();
         audioFormat = buffer.getAudioFormat();
         if (frameNumberOffset == -1) frameNumberOffset = buffer.getFrameNumber();
-        int dataPosition = 0;
-
-        if (pushOutput == null) {
-            pushOutput = new float[sliceLengthInFrames];
-            outputPosition = 0;
-        }
-
-        if (lastOutput != null) {
-            // copy stuff we already have in the old output
-            outputPosition = lastOutput.length-hopSizeInFrames;
-            System.arraycopy(lastOutput, hopSizeInFrames, pushOutput, 0, outputPosition);
-        }
-
-        while (outputPosition < pushOutput.length && dataPosition < data.length) {
-            final int framesToCopy = Math.min(data.length - dataPosition, pushOutput.length - outputPosition);
-            System.arraycopy(data, dataPosition, pushOutput, outputPosition, framesToCopy);
-            dataPosition += framesToCopy;
-            outputPosition += framesToCopy;
-            if (outputPosition == pushOutput.length) {
-                if (pullRealAudioBuffer == null) {
-                    pullRealAudioBuffer = new RealAudioBuffer(getCurrentFrameNumber(), pushOutput, audioFormat);
-                } else {
-                    pullRealAudioBuffer.reuse(getCurrentFrameNumber(), pushOutput, pullRealAudioBuffer.getAudioFormat());
-                }
-                signalProcessorSupport.process(pullRealAudioBuffer);
-                readFrames += hopSizeInFrames;
-
-                // re-use already existing buffer
-                lastOutput = pushOutput;
-                if (pushOutput2 == null) {
-                    pushOutput = new float[sliceLengthInFrames];
-                } else {
-                    pushOutput = pushOutput2;
-                    Arrays.fill(pushOutput, 0);
-                }
-                pushOutput2 = lastOutput;
-
-                //lastOutput = pushOutput;
-                //pushOutput = new float[sliceLengthInFrames];
-                outputPosition = lastOutput.length-hopSizeInFrames;
-                System.arraycopy(lastOutput, hopSizeInFrames, pushOutput, 0, outputPosition);
+        final int frames = getFrames(buffer);
+        int framePosition = 0;
+        while (framePosition < frames) {
+            framePosition += fill(buffer, framePosition, frames);
+            if (ringFrames == sliceLengthInFrames) {
+                signalProcessorSupport.process(nextWindow());
             }
         }
-        lastOutput = null;
     }
 
     /**
@@ -200,70 +163,155 @@ public class SlidingWindow extends AbstractSignalProcessor<AudioBuffer, AudioBuf
      */
     @Override
     public AudioBuffer read() throws IOException {
+        verifyHopSize();
+        while (ringFrames < sliceLengthInFrames) {
+            if (lastInput == null || lastInputPosition == getFrames(lastInput)) {
+                lastInput = getConnectedSource().read();
+                if (lastInput != null) {
+                    if (frameNumberOffset == -1) frameNumberOffset = lastInput.getFrameNumber();
+                    audioFormat = lastInput.getAudioFormat();
+                }
+                lastInputPosition = 0;
+            }
+            if (lastInput == null) break;
+            lastInputPosition += fill(lastInput, lastInputPosition, getFrames(lastInput));
+        }
+        if (ringFrames == 0) return null;
+        return nextWindow();
+    }
+
+    private void verifyHopSize() {
         if (hopSizeInFrames > sliceLengthInFrames) {
             throw new IllegalArgumentException("hopSizeInFrames " + hopSizeInFrames
                     + " must not be greater than sliceLengthInFrames" + sliceLengthInFrames);
         }
-        if (pullOutput == null) {
-            pullOutput = new float[sliceLengthInFrames];
-        }
+    }
 
-        int outputPosition = 0;
-        // do we have some old values? then copy them..
-        if (hopSizeInFrames == sliceLengthInFrames) {
-            // do nothing, no overlap!
-        } else if (lastOutput == null) {
-            lastOutput = new float[sliceLengthInFrames];
-        } else {
-            // copy stuff we already have in the old output output
-            outputPosition = Math.max(lastOutputPosition-hopSizeInFrames, 0);
-            System.arraycopy(lastOutput, hopSizeInFrames, pullOutput, 0, outputPosition);
-        }
+    private static int getChannels(final AudioBuffer buffer) {
+        if (buffer instanceof PlanarAudioBuffer) return ((PlanarAudioBuffer) buffer).getChannelCount();
+        final AudioFormat format = buffer.getAudioFormat();
+        return format == null || format.getChannels() < 1 ? 1 : format.getChannels();
+    }
 
-        while (outputPosition < pullOutput.length) {
-            if (lastInput == null || lastInputPosition == lastInput.length) {
-                final AudioBuffer buffer = getConnectedSource().read();
-                if (frameNumberOffset == -1 && buffer != null) frameNumberOffset = buffer.getFrameNumber();
-                lastInput = buffer == null ? null : buffer.getData();
-                if (buffer != null) {
-                    audioFormat = buffer.getAudioFormat();
-                    if (audioFormat != null && audioFormat.getChannels() != 1) {
-                        throw new IOException("Source must be mono.");
-                    }
+    private static int getFrames(final AudioBuffer buffer) {
+        if (buffer instanceof PlanarAudioBuffer) return ((PlanarAudioBuffer) buffer).getChannelData(0).length;
+        return buffer.getNumberOfSamples() / getChannels(buffer);
+    }
+
+    /**
+     * Copies as many frames as fit into the ring buffer.
+     *
+     * @param buffer interleaved or planar input
+     * @param offset index of the first frame to copy
+     * @param frames number of frames in the buffer
+     * @return number of copied frames
+     */
+    private int fill(final AudioBuffer buffer, final int offset, final int frames) {
+        final int channels = getChannels(buffer);
+        if (ring == null || ring.length != channels || ring[0].length != sliceLengthInFrames) {
+            ring = new float[channels][sliceLengthInFrames];
+            window = null;
+            ringStart = 0;
+            ringFrames = 0;
+        }
+        final int framesToCopy = Math.min(frames - offset, sliceLengthInFrames - ringFrames);
+        final int writePosition = (ringStart + ringFrames) % sliceLengthInFrames;
+        // the free region may wrap around the end of the ring
+        final int firstPart = Math.min(framesToCopy, sliceLengthInFrames - writePosition);
+        if (buffer instanceof PlanarAudioBuffer || channels == 1) {
+            for (int channel=0; channel<channels; channel++) {
+                final float[] data = channels == 1 && !(buffer instanceof PlanarAudioBuffer)
+                        ? buffer.getData()
+                        : ((PlanarAudioBuffer) buffer).getChannelData(channel);
+                System.arraycopy(data, offset, ring[channel], writePosition, firstPart);
+                System.arraycopy(data, offset + firstPart, ring[channel], 0, framesToCopy - firstPart);
+            }
+        } else {
+            final float[] data = buffer.getData();
+            for (int channel=0; channel<channels; channel++) {
+                final float[] channelRing = ring[channel];
+                for (int frame=0; frame<framesToCopy; frame++) {
+                    channelRing[(writePosition + frame) % sliceLengthInFrames] = data[(offset + frame) * channels + channel];
                 }
-                lastInputPosition = 0;
             }
-            if (lastInput == null) break;
-
-            final int framesToCopy = Math.min(lastInput.length - lastInputPosition, pullOutput.length - outputPosition);
-            System.arraycopy(lastInput, lastInputPosition, pullOutput, outputPosition, framesToCopy);
-            lastInputPosition += framesToCopy;
-            outputPosition += framesToCopy;
         }
+        ringFrames += framesToCopy;
+        return framesToCopy;
+    }
 
-        if (outputPosition == 0) {
-            lastOutput = null;
-            return null;
-        //} else if (outputPosition < output.length) {
-        //    lastOutput = null;
-        //    new float[outputPosition];
+    /**
+     * Creates a buffer for the current window (zero padded, if the ring buffer isn't full)
+     * and then moves the window by one hop.
+     *
+     * @return window
+     */
+    private AudioBuffer nextWindow() {
+        final float[][] out;
+        if (hopSizeInFrames == sliceLengthInFrames) {
+            // windows don't overlap, i.e. ringStart is always 0 and the ring can be emitted directly
+            out = ring;
         } else {
-            lastOutput = pullOutput;
+            if (window == null) {
+                window = new float[ring.length][sliceLengthInFrames];
+            }
+            out = window;
+            final int firstPart = Math.min(ringFrames, sliceLengthInFrames - ringStart);
+            for (int channel=0; channel<ring.length; channel++) {
+                System.arraycopy(ring[channel], ringStart, out[channel], 0, firstPart);
+                System.arraycopy(ring[channel], 0, out[channel], firstPart, ringFrames - firstPart);
+            }
         }
-        // since we are re-using the array, zero out stuff we didn't overwrite
-        if (outputPosition < pullOutput.length) {
-            for (int i=outputPosition; i<pullOutput.length; i++) {
-                pullOutput[i] = 0;
+        if (ringFrames < sliceLengthInFrames) {
+            for (final float[] channel : out) {
+                Arrays.fill(channel, ringFrames, sliceLengthInFrames, 0f);
             }
         }
-        lastOutputPosition = outputPosition;
-        if (pullRealAudioBuffer == null) {
-            pullRealAudioBuffer = new RealAudioBuffer(getCurrentFrameNumber(), pullOutput, audioFormat);
+        final AudioBuffer buffer;
+        if (out.length == 1) {
+            if (windowBuffer == null) {
+                windowBuffer = new RealAudioBuffer(getCurrentFrameNumber(), out[0], audioFormat);
+            } else {
+                windowBuffer.reuse(getCurrentFrameNumber(), out[0], windowBuffer.getAudioFormat());
+            }
+            buffer = windowBuffer;
         } else {
-            pullRealAudioBuffer.reuse(getCurrentFrameNumber(), pullOutput, pullRealAudioBuffer.getAudioFormat());
+            if (planarWindowBuffer == null) {
+                planarWindowBuffer = new PlanarAudioBuffer(getCurrentFrameNumber(), out, audioFormat);
+            } else {
+                planarWindowBuffer.reuse(getCurrentFrameNumber(), out, planarWindowBuffer.getAudioFormat());
+            }
+            buffer = planarWindowBuffer;
         }
         readFrames += hopSizeInFrames;
-        return pullRealAudioBuffer;
+        if (ringFrames > hopSizeInFrames) {
+            ringStart = (ringStart + hopSizeInFrames) % sliceLengthInFrames;
+            ringFrames -= hopSizeInFrames;
+        } else {
+            ringStart = 0;
+            ringFrames = 0;
+        }
+        return buffer;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The sample ring of the copy is empty.
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        final SlidingWindow clone = (SlidingWindow)super.clone();
+        clone.audioFormat = null;
+        clone.ring = null;
+        clone.ringStart = 0;
+        clone.ringFrames = 0;
+        clone.window = null;
+        clone.windowBuffer = null;
+        clone.planarWindowBuffer = null;
+        clone.lastInput = null;
+        clone.lastInputPosition = 0;
+        clone.readFrames = 0;
+        clone.frameNumberOffset = -1;
+        return clone;
     }
 
     @Override
@@ -0,0 +1,247 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.audio;
+
+import com.tagtraum.jipes.SignalProcessor;
+import com.tagtraum.jipes.SignalProcessorSupport;
+import com.tagtraum.jipes.math.FFTFactory;
+import com.tagtraum.jipes.math.Floats;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * <p>Offline alternative to {@link FFT} for whole signals (e.g. files).
+ * Collects all frames it receives and transforms them with a single call to
+ * {@link FFTFactory#batchTransform(float[][])} on {@link #flush()}, which spreads the frames
+ * over all available processors. Then one {@link LinearFrequencySpectrum} per frame is pushed to the
+ * connected processors, in the original order and with the same values {@link FFT} would have produced.
+ * </p>
+ * <p>
+ * Because all frames are kept in memory until the end of the signal, this processor is not suitable
+ * for streams of unknown length. Collected frames are not per-excerpt state, i.e. this is not a
+ * {@link com.tagtraum.jipes.StatefulSignalProcessor}: When pumping excerpts, the frames of all
+ * excerpts are transformed and emitted on {@link #flush()}.
+ * Unlike the ones produced by {@link FFT}, the emitted spectra are not re-used.
+ * </p>
+ * Usage example:
+ * <xmp>SlidingWindow slidingWindow = new SlidingWindow(2048, 1024);
+ * slidingWindow.connectTo(new Mapping<AudioBuffer>(AudioBufferFunctions.createMapFunction(WindowFunction.HANN)))
+ *     .connectTo(new Spectrogram())
+ *     .connectTo(new Mel());</xmp>
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see FFT
+ * @see FFTFactory#batchTransform(float[][])
+ */
+public class Spectrogram implements SignalProcessor<AudioBuffer, LinearFrequencySpectrum>, Cloneable {
+
+    private SignalProcessorSupport<LinearFrequencySpectrum> signalProcessorSupport = new SignalProcessorSupport<LinearFrequencySpectrum>();
+    private final int length;
+    private ExecutorService executorService;
+    private boolean zeroPadToPowerOfTwo = true;
+    private int numberOfSamples;
+    private List<float[]> frames = new ArrayList<float[]>();
+    private List<Integer> frameNumbers = new ArrayList<Integer>();
+    private AudioFormat audioFormat;
+    private LinearFrequencySpectrum lastOut;
+    private Object id;
+
+    /**
+     * @param length minimum size of the arrays to transform - shorter buffers will be zero padded
+     */
+    public Spectrogram(final int length) {
+        this.length = length;
+    }
+
+    public Spectrogram() {
+        this(0);
+    }
+
+    /**
+     * FFT length.
+     *
+     * @return values &lt;= 0, if the length is still unknown.
+     */
+    public int getLength() {
+        return numberOfSamples > 0 ? numberOfSamples : length;
+    }
+
+    /**
+     * Executor used to transform the frames concurrently.
+     *
+     * @return executor or <code>null</code>, if the shared executor of the {@link FFTFactory} is used
+     */
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    /**
+     * Lets you specify the executor used to transform the frames concurrently.
+     *
+     * @param executorService executor or <code>null</code> to use the shared executor of the {@link FFTFactory}
+     */
+    public void setExecutorService(final ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    /**
+     * Indicates whether input is zero padded to a power of two before it is transformed.
+     *
+     * @return true, if input is padded to a power of two (default)
+     * @see FFT#isZeroPadToPowerOfTwo()
+     */
+    public boolean isZeroPadToPowerOfTwo() {
+        return zeroPadToPowerOfTwo;
+    }
+
+    /**
+     * Lets you turn off zero padding to a power of two.
+     *
+     * @param zeroPadToPowerOfTwo true, if input should be padded to a power of two
+     * @see FFT#setZeroPadToPowerOfTwo(boolean)
+     */
+    public void setZeroPadToPowerOfTwo(final boolean zeroPadToPowerOfTwo) {
+        this.zeroPadToPowerOfTwo = zeroPadToPowerOfTwo;
+    }
+
+    /**
+     * Number of collected, not yet transformed frames.
+     *
+     * @return number of frames
+     */
+    public int getNumberOfFrames() {
+        return frames.size();
+    }
+
+    public void process(final AudioBuffer buffer) throws IOException {
+        if (buffer.getAudioFormat() != null && buffer.getAudioFormat().getChannels() != 1) {
+            throw new IOException("Source must be mono.");
+        }
+        final float[] data = buffer.getData();
+        if (numberOfSamples == 0) {
+            numberOfSamples = zeroPadToPowerOfTwo
+                    ? Floats.zeroPadAtEnd(length, data).length
+                    : Math.max(length, data.length);
+        }
+        if (data.length > numberOfSamples) {
+            throw new IOException("Frame " + buffer.getFrameNumber() + " is longer (" + data.length
+                    + ") than the previous frames (" + numberOfSamples + ").");
+        }
+        frames.add(Arrays.copyOf(data, numberOfSamples));
+        frameNumbers.add(buffer.getFrameNumber());
+        if (audioFormat == null) audioFormat = buffer.getAudioFormat();
+    }
+
+    /**
+     * Transforms all collected frames, pushes the resulting spectra to the connected processors
+     * and flushes them.
+     *
+     * @throws IOException if something goes wrong
+     */
+    public void flush() throws IOException {
+        if (!frames.isEmpty()) {
+            final float[][] input = frames.toArray(new float[frames.size()][]);
+            final float[][] real;
+            final float[][] imaginary;
+            if (executorService == null) {
+                final float[][][] transformed = FFTFactory.getInstance().batchTransform(input);
+                real = transformed[0];
+                imaginary = transformed[1];
+            } else {
+                real = new float[input.length][numberOfSamples];
+                imaginary = new float[input.length][numberOfSamples];
+                FFTFactory.getInstance().batchTransform(input, real, imaginary, executorService);
+            }
+            final List<Integer> frameNumbers = this.frameNumbers;
+            final AudioFormat audioFormat = this.audioFormat;
+            reset();
+            for (int i=0; i<real.length; i++) {
+                lastOut = new LinearFrequencySpectrum(frameNumbers.get(i), real[i], imaginary[i], audioFormat);
+                signalProcessorSupport.process(lastOut);
+            }
+        }
+        signalProcessorSupport.flush();
+    }
+
+    /**
+     * Discards all collected frames. Note that this is <em>not</em> called automatically
+     * at discontinuities.
+     */
+    public void reset() {
+        frames = new ArrayList<float[]>();
+        frameNumbers = new ArrayList<Integer>();
+        audioFormat = null;
+    }
+
+    public LinearFrequencySpectrum getOutput() throws IOException {
+        return lastOut;
+    }
+
+    public Object getId() {
+        return id == null ? toString() : id;
+    }
+
+    public void setId(final Object id) {
+        this.id = id;
+    }
+
+    public <O2> SignalProcessor<LinearFrequencySpectrum, O2> connectTo(final SignalProcessor<LinearFrequencySpectrum, O2> signalProcessor) {
+        return signalProcessorSupport.connectTo(signalProcessor);
+    }
+
+    public <O2> SignalProcessor<LinearFrequencySpectrum, O2> disconnectFrom(final SignalProcessor<LinearFrequencySpectrum, O2> signalProcessor) {
+        return signalProcessorSupport.disconnectFrom(signalProcessor);
+    }
+
+    public SignalProcessor<LinearFrequencySpectrum, ?>[] getConnectedProcessors() {
+        return signalProcessorSupport.getConnectedProcessors();
+    }
+
+    /**
+     * Creates a copy that is not connected to any child processors and has no per-signal state.
+     * The executor is shared with this instance.
+     *
+     * @return copy
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        final Spectrogram clone = (Spectrogram)super.clone();
+        clone.signalProcessorSupport = new SignalProcessorSupport<LinearFrequencySpectrum>();
+        clone.lastOut = null;
+        clone.reset();
+        return clone;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final Spectrogram that = (Spectrogram) o;
+        if (length != that.length) return false;
+        if (zeroPadToPowerOfTwo != that.zeroPadToPowerOfTwo) return false;
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = length;
+        result = 31 * result + (zeroPadToPowerOfTwo ? 1 : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Spectrogram{" +
+                "length=" + (length > 0 ? length : "equal to first input") +
+                '}';
+    }
+}
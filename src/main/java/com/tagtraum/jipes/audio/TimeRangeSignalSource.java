@@ -0,0 +1,169 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.audio;
+
+import com.tagtraum.jipes.SignalSource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Delivers only the part of a {@link SeekableSignalSource} between a start and an end timestamp.
+ * </p>
+ * <p>
+ * Unlike {@link TimestampLimitedSignalSource}, this source does not read and discard everything before
+ * the start, but {@link SeekableSignalSource#seek(long) seeks} to the first frame with a
+ * timestamp &gt;= start. Buffers therefore carry their original frame numbers and timestamps.
+ * Like {@link TimestampLimitedSignalSource}, buffers are delivered as long as their
+ * {@link AudioBuffer#getTimestamp(TimeUnit) timestamp} is &lt; end, i.e. the last buffer may
+ * extend beyond the end.
+ * </p>
+ * <p>
+ * {@link #reset()} seeks back to the start.
+ * </p>
+ * <p>
+ * Usage example (minute 40 to 45):
+ * </p>
+ * <xmp>
+ * final SignalPump<AudioBuffer> pump = new SignalPump<AudioBuffer>(
+ *     new TimeRangeSignalSource<AudioBuffer>(new MappedAudioSignalSource(file), 40, 45, TimeUnit.MINUTES));
+ * </xmp>
+ *
+ * @param <T> subtype of {@link AudioBuffer}
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see TimestampLimitedSignalSource
+ */
+public class TimeRangeSignalSource<T extends AudioBuffer> implements SignalSource<T>, Closeable {
+
+    private final SeekableSignalSource<T> signalSource;
+    private final long start;
+    private final long end;
+    private final TimeUnit timeUnit;
+    private boolean positioned;
+
+    /**
+     * Creates a time range source.
+     *
+     * @param signalSource signal source to read from
+     * @param start timestamp to start reading at (inclusive)
+     * @param end timestamp to stop reading at (exclusive), {@link Long#MAX_VALUE} to read to the end
+     * @param timeUnit time unit for start and end
+     * @throws IllegalArgumentException if start is negative or end is less than start
+     */
+    public TimeRangeSignalSource(final SeekableSignalSource<T> signalSource, final long start, final long end,
+                                 final TimeUnit timeUnit) throws IllegalArgumentException {
+        if (start < 0) throw new IllegalArgumentException("Start must not be negative: " + start);
+        if (end < start) throw new IllegalArgumentException("End must not be less than start: " + end + " < " + start);
+        this.signalSource = signalSource;
+        this.start = start;
+        this.end = end;
+        this.timeUnit = timeUnit;
+    }
+
+    /**
+     * Creates a time range source.
+     *
+     * @param signalSource signal source to read from
+     * @param startInMS timestamp to start reading at in ms (inclusive)
+     * @param endInMS timestamp to stop reading at in ms (exclusive), {@link Long#MAX_VALUE} to read to the end
+     * @throws IllegalArgumentException if start is negative or end is less than start
+     */
+    public TimeRangeSignalSource(final SeekableSignalSource<T> signalSource, final long startInMS, final long endInMS)
+            throws IllegalArgumentException {
+        this(signalSource, startInMS, endInMS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Timestamp to start reading at.
+     *
+     * @param timeUnit desired unit
+     * @return start
+     */
+    public long getStart(final TimeUnit timeUnit) {
+        return timeUnit.convert(start, this.timeUnit);
+    }
+
+    /**
+     * Timestamp to stop reading at.
+     *
+     * @param timeUnit desired unit
+     * @return end
+     */
+    public long getEnd(final TimeUnit timeUnit) {
+        if (end == Long.MAX_VALUE) return Long.MAX_VALUE;
+        return timeUnit.convert(end, this.timeUnit);
+    }
+
+    /**
+     * Wrapped signal source.
+     *
+     * @return signal source
+     */
+    public SeekableSignalSource<T> getSignalSource() {
+        return signalSource;
+    }
+
+    /**
+     * First frame with a timestamp &gt;= start, computed the same way as
+     * {@link AudioBuffer#getTimestamp(TimeUnit)} computes timestamps from frame numbers.
+     *
+     * @return start frame
+     */
+    private long getStartFrame() {
+        final double sampleRate = signalSource.getProcessedAudioFormat().getSampleRate();
+        final long startNanos = TimeUnit.NANOSECONDS.convert(start, timeUnit);
+        long frame = (long) (startNanos * sampleRate / (1000l * 1000l * 1000l));
+        // correct rounding errors
+        while (frame > 0 && (long) ((frame - 1) * 1000l * 1000l * 1000l / sampleRate) >= startNanos) {
+            frame--;
+        }
+        while ((long) (frame * 1000l * 1000l * 1000l / sampleRate) < startNanos) {
+            frame++;
+        }
+        return frame;
+    }
+
+    public T read() throws IOException {
+        if (!positioned) {
+            signalSource.seek(getStartFrame());
+            positioned = true;
+        }
+        final T buffer = signalSource.read();
+        if (buffer == null || end != Long.MAX_VALUE && buffer.getTimestamp(timeUnit) >= end) return null;
+        return buffer;
+    }
+
+    /**
+     * Lets the next {@link #read()} start at the start timestamp again.
+     */
+    public void reset() {
+        positioned = false;
+    }
+
+    /**
+     * Closes the underlying {@link SignalSource}, if it implements {@link Closeable}.
+     *
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        if (signalSource instanceof Closeable) {
+            ((Closeable) signalSource).close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TimeRangeSignalSource{" +
+                "start=" + start +
+                ", end=" + end +
+                " " + timeUnit.toString().toLowerCase() +
+                ", signalSource=" + signalSource +
+                '}';
+    }
+}
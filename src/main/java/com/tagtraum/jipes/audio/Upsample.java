@@ -18,7 +18,7 @@ import java.util.Arrays;
  *
  * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
  */
-public class Upsample extends AbstractSignalProcessor<AudioBuffer, AudioBuffer> {
+public class Upsample extends AbstractSignalProcessor<AudioBuffer, AudioBuffer> implements Cloneable {
 
     private int factor = 2;
     private float[] output;
@@ -98,6 +98,18 @@ public class Upsample extends AbstractSignalProcessor<AudioBuffer, AudioBuffer>
         return realAudioBuffer;
     }
 
+    /**
+     * {@inheritDoc}
+     * The copy allocates its own upsampled output buffer.
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        final Upsample clone = (Upsample)super.clone();
+        clone.output = null;
+        clone.realAudioBuffer = null;
+        return clone;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) return true;
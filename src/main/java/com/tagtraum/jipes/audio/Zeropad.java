@@ -17,9 +17,9 @@ import java.io.IOException;
  *
  * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
  */
-public class Zeropad<T extends AudioBuffer> implements SignalProcessor<T, T> {
+public class Zeropad<T extends AudioBuffer> implements SignalProcessor<T, T>, Cloneable {
 
-    private final SignalProcessorSupport<T> support = new SignalProcessorSupport<T>();
+    private SignalProcessorSupport<T> support = new SignalProcessorSupport<T>();
     private final Position position;
     private final Object id;
     private final int sizeAfterPadding;
@@ -105,6 +105,20 @@ public class Zeropad<T extends AudioBuffer> implements SignalProcessor<T, T> {
         abstract float[] pad(int size, float[] data);
     }
 
+    /**
+     * Creates a copy that is not connected to any child processors and has no output yet.
+     *
+     * @return copy
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object clone() throws CloneNotSupportedException {
+        final Zeropad<T> clone = (Zeropad<T>)super.clone();
+        clone.support = new SignalProcessorSupport<T>();
+        clone.out = null;
+        return clone;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) return true;
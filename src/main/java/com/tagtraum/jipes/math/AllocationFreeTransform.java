@@ -0,0 +1,77 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.math;
+
+/**
+ * <p>{@link Transform} that writes its results into arrays supplied by the caller, instead of allocating
+ * new arrays for each call. This lets processors that transform one frame after the other re-use
+ * their output arrays.
+ * </p>
+ * <p>
+ * Output arrays must not be the same arrays as the input arrays. Implementations don't allocate
+ * per call once a thread has used them, but they are still immutable and may be shared
+ * between threads.
+ * The normalized frequencies, which {@link Transform#transform(float[])} returns as third array, are available
+ * via {@link #getFrequencies()}.
+ * </p>
+ * Usage example:
+ * <xmp>Transform transform = FFTFactory.getInstance().create(1024);
+ * if (transform instanceof AllocationFreeTransform) {
+ *     float[] real = new float[1024];
+ *     float[] imaginary = new float[1024];
+ *     ((AllocationFreeTransform)transform).transform(samples, real, imaginary);
+ * }</xmp>
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see FFTFactory
+ * @see DCTFactory
+ * @see ConstantQTransformFactory
+ */
+public interface AllocationFreeTransform extends Transform {
+
+    /**
+     * Performs transform on real values.
+     *
+     * @param real input array of real numbers
+     * @param realOut array for the real part of the transform
+     * @param imaginaryOut array for the imaginary part of the transform, may be <code>null</code>, if the
+     * transform does not have an imaginary part (e.g. DCT)
+     * @throws UnsupportedOperationException should the implementation not support this operation
+     */
+    public void transform(float[] real, float[] realOut, float[] imaginaryOut) throws UnsupportedOperationException;
+
+    /**
+     * Performs a complex transform.
+     *
+     * @param real input array of floats
+     * @param imaginary input array of floats
+     * @param realOut array for the real part of the transform
+     * @param imaginaryOut array for the imaginary part of the transform
+     * @throws UnsupportedOperationException should the implementation not support this operation
+     */
+    public void transform(float[] real, float[] imaginary, float[] realOut, float[] imaginaryOut) throws UnsupportedOperationException;
+
+    /**
+     * Performs an inverse transform.
+     *
+     * @param real input array of floats
+     * @param imaginary input array of floats
+     * @param realOut array for the real part of the transform
+     * @param imaginaryOut array for the imaginary part of the transform
+     * @throws UnsupportedOperationException should the implementation not support this operation
+     */
+    public void inverseTransform(float[] real, float[] imaginary, float[] realOut, float[] imaginaryOut) throws UnsupportedOperationException;
+
+    /**
+     * Normalized frequencies of the transform's output, i.e. 1.0 is equal to the sample rate of the input.
+     * The returned array is shared and must not be modified. Its length is the length of the output.
+     *
+     * @return normalized frequencies
+     */
+    public float[] getFrequencies();
+
+}
@@ -8,6 +8,7 @@ package com.tagtraum.jipes.math;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -193,7 +194,7 @@ public abstract class ConstantQTransformFactory {
     /**
      * Kernel for the efficient constant Q transform.
      */
-    private static class JavaConstantQTransform implements Serializable, Transform {
+    private static class JavaConstantQTransform implements Serializable, AllocationFreeTransform {
 
 
         private SparseList<Complex>[] kernel;
@@ -205,6 +206,14 @@ public abstract class ConstantQTransformFactory {
         private int binsPerOctave;
         private float sampleRate;
         private float threshold;
+        /**
+         * FFT of length <code>sparseLength</code>, used for each transform.
+         */
+        private transient Transform fft;
+        /**
+         * Zero padded input and the real and imaginary part of its FFT.
+         */
+        private transient ScratchArrays scratchArrays;
 
         /**
          * "Kernel" for performing constant Q transforms. This kernel is not a purely mathematical
@@ -262,6 +271,17 @@ public abstract class ConstantQTransformFactory {
             }
             this.sparseLength = (int) Math.round(Math.pow(2, nextpow2(maxIndex))) * 2;
             this.frequencies = createFrequencies(minFrequency, maxFrequency, binsPerOctave);
+            initTransient();
+        }
+
+        private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            initTransient();
+        }
+
+        private void initTransient() {
+            this.fft = FFTFactory.getInstance().create(sparseLength);
+            this.scratchArrays = new ScratchArrays(3, sparseLength);
         }
 
         private float[] createFrequencies(final float minFreq, final float maxFreq, final int binsPerOctave) {
@@ -302,45 +322,76 @@ public abstract class ConstantQTransformFactory {
         }
 
         public float[][] transform(final float[] input) {
+            final float[][] result = new float[3][kernel.length];
+            transform(input, result[0], result[1]);
+            result[2] = frequencies.clone();
+            return result;
+        }
+
+        public void transform(final float[] input, final float[] realOut, final float[] imaginaryOut) {
+            final float[][] scratch = scratchArrays.get();
             final float[] values;
             if (input.length == sparseLength) {
                 values = input;
             } else if (input.length > sparseLength) {
-                values = new float[sparseLength];
+                values = scratch[0];
                 System.arraycopy(input, 0, values, 0, values.length);
             } else {
-                values = new float[sparseLength];
+                values = scratch[0];
                 System.arraycopy(input, 0, values, 0, input.length);
+                Arrays.fill(values, input.length, sparseLength, 0f);
+            }
+            final float[] fftReal;
+            final float[] fftImaginary;
+            if (fft instanceof AllocationFreeTransform) {
+                fftReal = scratch[1];
+                fftImaginary = scratch[2];
+                ((AllocationFreeTransform) fft).transform(values, fftReal, fftImaginary);
+            } else {
+                final float[][] transform = fft.transform(values);
+                fftReal = transform[0];
+                fftImaginary = transform[1];
             }
-            //System.out.println("Calling FFT with length " + sparseLength + " and " + values.length + " values.");
-            final float[][] transform = FFTFactory.getInstance().create(sparseLength).transform(values);
-            float[][] result = new float[3][kernel.length];
 
             for (int i = 0; i < kernel.length; i++) {
                 final SparseList<Complex> sparseList = kernel[i];
+                float real = 0;
+                float imaginary = 0;
                 for (int j = 0, max = sparseList.size(); j < max; j++) {
                     final int index = sparseList.getIndex(j);
                     final Complex scaleFactor = sparseList.get(j);
-                    final Complex fftResult = new Complex(transform[0][index], transform[1][index]);
-                    final Complex complexResult = fftResult.times(scaleFactor);
-
-                    result[0][i] += complexResult.getR();
-                    result[1][i] += complexResult.getI();
+                    // (a + bi)(c + di) = (ac - bd) + (bc + ad)i
+                    final float r = fftReal[index];
+                    final float im = fftImaginary[index];
+                    real += r * scaleFactor.getR() - im * scaleFactor.getI();
+                    imaginary += im * scaleFactor.getR() + r * scaleFactor.getI();
                 }
+                realOut[i] = real;
+                imaginaryOut[i] = imaginary;
             }
-            result[2] = frequencies.clone();
-            return result;
         }
 
         public float[][] inverseTransform(final float[] real, final float[] imaginary) throws UnsupportedOperationException {
             throw new UnsupportedOperationException();
         }
 
+        public void inverseTransform(final float[] real, final float[] imaginary, final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+            throw new UnsupportedOperationException();
+        }
+
         public float[][] transform(final float[] real, final float[] imaginary) throws UnsupportedOperationException {
             if (imaginary == null) return transform(real);
             throw new UnsupportedOperationException();
         }
 
+        public void transform(final float[] real, final float[] imaginary, final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+            if (imaginary == null) {
+                transform(real, realOut, imaginaryOut);
+            } else {
+                throw new UnsupportedOperationException();
+            }
+        }
+
         private float[] createHammingCoefficients(final int len) {
             final float[] hamm = new float[len];
             for (int i = 0; i < len; i++) {
@@ -6,8 +6,6 @@
  */
 package com.tagtraum.jipes.math;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -30,6 +28,10 @@ public abstract class DCTFactory {
     public static final String FACTORYCLASS_PROPERTY_NAME = DCTFactory.class.getName();
     private static Logger LOG = Logger.getLogger(DCTFactory.class.getName());
     private static DCTFactory instance;
+    /**
+     * Max number of DCT plans cached by the built-in factory.
+     */
+    static final int PLAN_CACHE_CAPACITY = 16;
 
     protected DCTFactory() {
     }
@@ -69,22 +71,22 @@ public abstract class DCTFactory {
 
     /**
      * Default implementation for a DCT factory.
+     * Created transforms are immutable and kept in a {@link TransformCache}, so that
+     * threads can share them.
      */
     private static class BasicDCTFactory extends DCTFactory {
 
-        private Transform last;
-        private int lastNumberOfSamples;
+        private final TransformCache cache = new TransformCache(PLAN_CACHE_CAPACITY);
 
         @Override
-        public synchronized Transform create(final int numberOfSamples) {
-            if (last != null && lastNumberOfSamples == numberOfSamples) return last;
-            if (DCTFactory.isPowerOfTwo(numberOfSamples)) {
-                last = new FFTBasedDCT(numberOfSamples);
-            } else {
-                last = new MatrixBasedDCT(numberOfSamples);
-            }
-            lastNumberOfSamples = numberOfSamples;
-            return last;
+        public Transform create(final int numberOfSamples) {
+            final Class<?> kind = DCTFactory.isPowerOfTwo(numberOfSamples) ? FFTBasedDCT.class : MatrixBasedDCT.class;
+            final Transform cached = cache.get(kind, numberOfSamples);
+            if (cached != null) return cached;
+            final Transform plan = kind == FFTBasedDCT.class
+                    ? new FFTBasedDCT(numberOfSamples)
+                    : new MatrixBasedDCT(numberOfSamples);
+            return cache.putIfAbsent(kind, numberOfSamples, plan);
         }
     }
 
@@ -92,15 +94,31 @@ public abstract class DCTFactory {
         return (number & (number - 1)) == 0;
     }
 
-    private static class MatrixBasedDCT implements Transform {
+    /**
+     * Normalized frequencies of the DCT-II bins, i.e. <code>k/(2N)</code>.
+     *
+     * @param numberOfSamples number of samples
+     * @return frequencies
+     */
+    private static float[] createFrequencies(final int numberOfSamples) {
+        final float[] frequencies = new float[numberOfSamples];
+        for (int k=0; k<numberOfSamples; k++) {
+            frequencies[k] = k / (2f * numberOfSamples);
+        }
+        return frequencies;
+    }
+
+    private static class MatrixBasedDCT implements AllocationFreeTransform {
 
         private final int numberOfSamples;
         private final float[] matrix;
+        private final float[] frequencies;
 
         public MatrixBasedDCT(final int numberOfSamples) {
             if (numberOfSamples <=0) throw new IllegalArgumentException("N must be greater than 0");
             this.numberOfSamples = numberOfSamples;
             this.matrix = createMatrix(numberOfSamples);
+            this.frequencies = createFrequencies(numberOfSamples);
         }
 
         private float[] createMatrix(final int length) {
@@ -129,27 +147,47 @@ public abstract class DCTFactory {
         @Override
         public float[][] transform(final float[] real) throws UnsupportedOperationException {
             final float[] result = new float[numberOfSamples];
+            transform(real, result, null);
+            return new float[][] {result};
+        }
+
+        @Override
+        public float[][] transform(final float[] real, final float[] imaginary) throws UnsupportedOperationException {
+            return transform(real);
+        }
+
+        @Override
+        public float[][] inverseTransform(final float[] real, final float[] imaginary) throws UnsupportedOperationException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void transform(final float[] real, final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
             for (int k=0; k<numberOfSamples; k++) {
                 float v = 0;
                 for (int n=0; n<numberOfSamples; n++) {
                     final int idx = k + (n*numberOfSamples);
                     v += (matrix[idx] * real[n]);
                 }
-                result[k] = v;
+                realOut[k] = v;
             }
-            return new float[][] {result};
         }
 
         @Override
-        public float[][] transform(final float[] real, final float[] imaginary) throws UnsupportedOperationException {
-            return transform(real);
+        public void transform(final float[] real, final float[] imaginary, final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+            transform(real, realOut, imaginaryOut);
         }
 
         @Override
-        public float[][] inverseTransform(final float[] real, final float[] imaginary) throws UnsupportedOperationException {
+        public void inverseTransform(final float[] real, final float[] imaginary, final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
             throw new UnsupportedOperationException();
         }
 
+        @Override
+        public float[] getFrequencies() {
+            return frequencies;
+        }
+
         @Override
         public boolean equals(final Object o) {
             if (this == o) return true;
@@ -175,38 +213,25 @@ public abstract class DCTFactory {
      * Default implementation for a FFT based DCT using
      * the <a href="http://dsp.stackexchange.com/questions/2807/fast-cosine-transform-via-fft#10606">N FFT approach</a>.
      */
-    private static class FFTBasedDCT implements Transform {
+    private static class FFTBasedDCT implements AllocationFreeTransform {
 
-        private static final Map<Integer, float[][]> FACTORS = new HashMap<Integer, float[][]>();
         private final int numberOfSamples;
         private final Transform fft;
         private final float[][] factors;
-        private float[] frequencies;
+        private final float[] frequencies;
+        /**
+         * Reordered input and imaginary part of its FFT.
+         */
+        private final ScratchArrays scratchArrays;
 
         private FFTBasedDCT(final int numberOfSamples) {
             if (!isPowerOfTwo(numberOfSamples)) throw new IllegalArgumentException("N is not a power of 2");
             if (numberOfSamples <=0) throw new IllegalArgumentException("N must be greater than 0");
             this.numberOfSamples = numberOfSamples;
-            this.factors = getFactors(numberOfSamples);
+            this.factors = halfSampleShift(numberOfSamples);
             this.fft = FFTFactory.getInstance().create(numberOfSamples);
-
-            this.frequencies = new float[numberOfSamples];
-            for (int index=0; index<numberOfSamples; index++) {
-                if (index <= numberOfSamples / 2) {
-                    this.frequencies[index] = index / numberOfSamples;
-                } else {
-                    this.frequencies[index] = -((numberOfSamples - index) / (float) numberOfSamples);
-                }
-            }
-        }
-
-        private synchronized static float[][] getFactors(final int numberOfSamples) {
-            float[][] factors = FACTORS.get(numberOfSamples);
-            if (factors == null) {
-                factors = halfSampleShift(numberOfSamples);
-                FACTORS.put(numberOfSamples, factors);
-            }
-            return factors;
+            this.frequencies = createFrequencies(numberOfSamples);
+            this.scratchArrays = new ScratchArrays(2, numberOfSamples);
         }
 
         public float[][] inverseTransform(final float[] real, final float[] imaginary) throws UnsupportedOperationException {
@@ -214,23 +239,50 @@ public abstract class DCTFactory {
         }
 
         public float[][] transform(final float[] real) throws UnsupportedOperationException {
+            // for now we return only a single array of real values, no frequency array
+            final float[][] out = new float[1][real.length];
+            transform(real, out[0], null);
+            return out;
+        }
+
+        public void transform(final float[] real, final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+            if (real.length != numberOfSamples) {
+                throw new IllegalArgumentException("Number of samples must be " + numberOfSamples + " for this instance of FFTBasedDCT");
+            }
+            final float[][] scratch = scratchArrays.get();
             // reorder [a, b, c, d, e, f] to [a, c, e, f, d, b]
-            final float[] reordered = new float[real.length];
+            final float[] reordered = scratch[0];
             for (int i=0; i<real.length/2; i++) {
                 final int a = i * 2;
                 reordered[i] = real[a];
                 reordered[real.length-1-i] = real[a+1];
             }
-            final float[][] fftOut = fft.transform(reordered);
-            // for now we return only a single array of real values, no frequency array
-            final float[][] out = new float[1][real.length];
-
-            final float[] re = fftOut[0];
-            final float[] im = fftOut[1];
+            final float[] re;
+            final float[] im;
+            if (fft instanceof AllocationFreeTransform) {
+                re = realOut;
+                im = scratch[1];
+                ((AllocationFreeTransform) fft).transform(reordered, re, im);
+            } else {
+                final float[][] fftOut = fft.transform(reordered);
+                re = fftOut[0];
+                im = fftOut[1];
+            }
             for (int k=0; k<real.length; k++) {
-                out[0][k] = 2 * multiplyIgnoreImaginary(re[k], im[k], factors[0][k], factors[1][k]);
+                realOut[k] = 2 * multiplyIgnoreImaginary(re[k], im[k], factors[0][k], factors[1][k]);
             }
-            return out;
+        }
+
+        public void transform(final float[] real, final float[] imaginary, final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+            transform(real, realOut, imaginaryOut);
+        }
+
+        public void inverseTransform(final float[] real, final float[] imaginary, final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+            throw new UnsupportedOperationException();
+        }
+
+        public float[] getFrequencies() {
+            return frequencies;
         }
 
         private static float[][] halfSampleShift(final int length) {
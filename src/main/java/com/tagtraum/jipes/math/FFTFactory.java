@@ -6,6 +6,11 @@
  */
 package com.tagtraum.jipes.math;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -18,14 +23,31 @@ import java.util.logging.Logger;
  * I.e.
  * <xmp>-Dcom.tagtraum.jipes.math.FFTFactory=YOUR.CLASSNAME.HERE</xmp>
  * <p>
+ * The default implementation transforms real input (see {@link Transform#transform(float[])})
+ * with a complex FFT of half the size, which is roughly twice as fast as a complex FFT
+ * with a zero imaginary part.
+ * Lengths that are not a power of two are supported as well. If they only have the prime
+ * factors 2, 3 and 5, a mixed radix FFT is used, otherwise Bluestein's algorithm.
+ * </p>
+ * <p>
+ * Many frames of the same length can be transformed at once and concurrently
+ * with {@link #batchTransform(float[][])}.
+ * </p>
  *
  * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see Radix4FFTFactory
  */
 public abstract class FFTFactory {
 
     public static final String FACTORYCLASS_PROPERTY_NAME = FFTFactory.class.getName();
     private static Logger LOG = Logger.getLogger(FFTFactory.class.getName());
     private static FFTFactory instance;
+    /**
+     * Max number of FFT plans cached by the built-in factories.
+     */
+    static final int PLAN_CACHE_CAPACITY = 32;
+    private static final int PROCESSORS = Runtime.getRuntime().availableProcessors();
+    private static ExecutorService sharedExecutorService;
 
     protected FFTFactory() {
     }
@@ -60,34 +82,186 @@ public abstract class FFTFactory {
      *
      * @param numberOfSamples number of samples the FFT instance should be able to process
      * @return FFT instance
+     * @throws IllegalArgumentException if the implementation does not support the given number of samples
      */
     public abstract Transform create(int numberOfSamples);
 
+    /**
+     * Transforms many frames of real samples with one call, for example all frames of a spectrogram.
+     * The frames are split into contiguous blocks, which are transformed concurrently by a shared
+     * pool of daemon threads (sized to the number of available processors) and the calling thread.
+     * All blocks use the same {@link Transform} instance, i.e. the same tables.
+     *
+     * @param frames frames &times; samples, all frames must have the same length
+     * @return real parts and imaginary parts, each frames &times; samples
+     * @throws IllegalArgumentException if the frames don't all have the same length
+     * @see #batchTransform(float[][], float[][], float[][], ExecutorService)
+     */
+    public float[][][] batchTransform(final float[][] frames) throws IllegalArgumentException {
+        final int numberOfSamples = frames.length == 0 ? 0 : frames[0].length;
+        final float[][] real = new float[frames.length][numberOfSamples];
+        final float[][] imaginary = new float[frames.length][numberOfSamples];
+        batchTransform(frames, real, imaginary, getSharedExecutorService());
+        return new float[][][] {real, imaginary};
+    }
+
+    /**
+     * Transforms the rows of the given matrix, each row being one frame of real samples.
+     *
+     * @param frames frames &times; samples
+     * @return real parts and imaginary parts, each a frames &times; samples {@link FullMatrix}
+     * @see #batchTransform(float[][])
+     */
+    public Matrix[] batchTransform(final Matrix frames) {
+        final int rows = frames.getNumberOfRows();
+        final int columns = frames.getNumberOfColumns();
+        final float[][] rowArrays = new float[rows][];
+        for (int row=0; row<rows; row++) {
+            rowArrays[row] = frames.getRow(row);
+        }
+        final float[][][] transformed = batchTransform(rowArrays);
+        final FullMatrix real = new FullMatrix(rows, columns);
+        final FullMatrix imaginary = new FullMatrix(rows, columns);
+        for (int row=0; row<rows; row++) {
+            for (int column=0; column<columns; column++) {
+                real.set(row, column, transformed[0][row][column]);
+                imaginary.set(row, column, transformed[1][row][column]);
+            }
+        }
+        return new Matrix[] {real, imaginary};
+    }
+
+    /**
+     * Transforms many frames of real samples with one call and writes the results into the given arrays.
+     * If the {@link Transform} created for the frame length is an {@link AllocationFreeTransform}, no
+     * per-frame arrays are allocated.
+     *
+     * @param frames frames &times; samples, all frames must have the same length
+     * @param realOut arrays for the real parts, frames &times; samples
+     * @param imaginaryOut arrays for the imaginary parts, frames &times; samples
+     * @param executorService executor for concurrent transforms, <code>null</code> to transform all frames
+     * in the calling thread
+     * @throws IllegalArgumentException if the frames or output arrays don't all have the same length
+     */
+    public void batchTransform(final float[][] frames, final float[][] realOut, final float[][] imaginaryOut,
+                               final ExecutorService executorService) throws IllegalArgumentException {
+        if (frames.length == 0) return;
+        if (realOut.length < frames.length || imaginaryOut.length < frames.length) {
+            throw new IllegalArgumentException("Not enough output arrays for " + frames.length + " frames");
+        }
+        final int numberOfSamples = frames[0].length;
+        for (int i=0; i<frames.length; i++) {
+            if (frames[i].length != numberOfSamples || realOut[i].length != numberOfSamples || imaginaryOut[i].length != numberOfSamples) {
+                throw new IllegalArgumentException("All frames and output arrays must have length " + numberOfSamples + ": frame " + i);
+            }
+        }
+        final Transform transform = create(numberOfSamples);
+        final int blocks = executorService == null ? 1 : Math.min(frames.length, PROCESSORS);
+        final int blockLength = (frames.length + blocks - 1) / blocks;
+        final List<Future<?>> futures = new ArrayList<Future<?>>();
+        try {
+            for (int from = blockLength; from < frames.length; from += blockLength) {
+                final int start = from;
+                final int end = Math.min(from + blockLength, frames.length);
+                futures.add(executorService.submit(new Runnable() {
+                    public void run() {
+                        transformBlock(transform, frames, realOut, imaginaryOut, start, end);
+                    }
+                }));
+            }
+            // the calling thread takes care of the first block
+            transformBlock(transform, frames, realOut, imaginaryOut, 0, Math.min(blockLength, frames.length));
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for frames to be transformed", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        } finally {
+            for (final Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private static void transformBlock(final Transform transform, final float[][] frames,
+                                       final float[][] realOut, final float[][] imaginaryOut,
+                                       final int from, final int to) {
+        if (transform instanceof AllocationFreeTransform) {
+            final AllocationFreeTransform allocationFreeTransform = (AllocationFreeTransform) transform;
+            for (int i=from; i<to; i++) {
+                allocationFreeTransform.transform(frames[i], realOut[i], imaginaryOut[i]);
+            }
+        } else {
+            for (int i=from; i<to; i++) {
+                final float[][] result = transform.transform(frames[i]);
+                System.arraycopy(result[0], 0, realOut[i], 0, realOut[i].length);
+                System.arraycopy(result[1], 0, imaginaryOut[i], 0, imaginaryOut[i].length);
+            }
+        }
+    }
+
+    /**
+     * Pool of daemon threads used by {@link #batchTransform(float[][])}.
+     *
+     * @return shared executor service
+     */
+    protected static synchronized ExecutorService getSharedExecutorService() {
+        if (sharedExecutorService == null) {
+            final AtomicInteger count = new AtomicInteger();
+            sharedExecutorService = Executors.newFixedThreadPool(PROCESSORS, new ThreadFactory() {
+                public Thread newThread(final Runnable r) {
+                    final Thread thread = new Thread(r, "FFTFactory-Worker-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sharedExecutorService;
+    }
+
     /**
      * Default implementation for a Java FFT factory.
+     * Created transforms are immutable and kept in a {@link TransformCache}, so that pipelines
+     * using several FFT sizes don't re-create their tables and threads can share them.
      */
     private static class JavaFFTFactory extends FFTFactory {
 
-        private JavaFFT last;
+        private final TransformCache cache = new TransformCache(PLAN_CACHE_CAPACITY);
 
         @Override
-        public synchronized Transform create(final int numberOfSamples) {
-            if (last != null && last.numberOfSamples == numberOfSamples) return last;
-            last = new JavaFFT(numberOfSamples);
-            return last;
+        public Transform create(final int numberOfSamples) {
+            final Class<?> kind = JavaFFT.isPowerOfTwo(numberOfSamples) ? JavaFFT.class : MixedRadixFFT.class;
+            final Transform cached = cache.get(kind, numberOfSamples);
+            if (cached != null) return cached;
+            final Transform plan = kind == JavaFFT.class
+                    ? new JavaFFT(numberOfSamples, true)
+                    : new MixedRadixFFT(numberOfSamples);
+            return cache.putIfAbsent(kind, numberOfSamples, plan);
         }
     }
 
     /**
      * Default implementation for a Java FFT.
      */
-    private static class JavaFFT implements Transform {
+    private static class JavaFFT implements AllocationFreeTransform {
 
         private static final int MAX_FAST_BITS = 16;
         private static final int[][] FFT_BIT_TABLE = new int[MAX_FAST_BITS][];
         private final int numberOfSamples;
         private final int[] reverseIndices;
-        private float[] frequencies;
+        private final float[] frequencies;
+        /**
+         * Complex FFT of half the size, used to transform real input.
+         */
+        private final JavaFFT half;
+        private final double[] cosines;
+        private final double[] sines;
 
         static {
             int len = 2;
@@ -100,46 +274,85 @@ public abstract class FFTFactory {
             }
         }
 
-        private JavaFFT(final int numberOfSamples) {
+        /**
+         * @param numberOfSamples number of samples, must be a power of 2
+         * @param realSupport if true, real input is transformed with a complex FFT of half the size
+         */
+        private JavaFFT(final int numberOfSamples, final boolean realSupport) {
             if (!isPowerOfTwo(numberOfSamples)) throw new IllegalArgumentException("N is not a power of 2");
             if (numberOfSamples <=0) throw new IllegalArgumentException("N must be greater than 0");
             this.numberOfSamples = numberOfSamples;
             final int numberOfBits = getNumberOfNeededBits(numberOfSamples);
             this.reverseIndices = new int[numberOfSamples];
             for (int i = 0; i < numberOfSamples; i++) {
-                final int j = fastReverseBits(i, numberOfBits);
+                final int j = numberOfBits == 0 ? 0 : fastReverseBits(i, numberOfBits);
                 this.reverseIndices[i] = j;
             }
             this.frequencies = new float[numberOfSamples];
             for (int index=0; index<numberOfSamples; index++) {
                 if (index <= numberOfSamples / 2) {
-                    this.frequencies[index] = index / numberOfSamples;
+                    this.frequencies[index] = index / (float) numberOfSamples;
                 } else {
                     this.frequencies[index] = -((numberOfSamples - index) / (float) numberOfSamples);
                 }
             }
+            if (realSupport && numberOfSamples >= 4) {
+                final int halfNumberOfSamples = numberOfSamples / 2;
+                this.half = new JavaFFT(halfNumberOfSamples, false);
+                this.cosines = new double[halfNumberOfSamples + 1];
+                this.sines = new double[halfNumberOfSamples + 1];
+                for (int k=0; k<=halfNumberOfSamples; k++) {
+                    final double angle = 2.0 * Math.PI * k / numberOfSamples;
+                    this.cosines[k] = Math.cos(angle);
+                    this.sines[k] = Math.sin(angle);
+                }
+            } else {
+                this.half = null;
+                this.cosines = null;
+                this.sines = null;
+            }
         }
 
         public float[][] inverseTransform(final float[] real, final float[] imaginary) throws UnsupportedOperationException {
             final float[][] out = new float[2][real.length];
-            transform(true, real, imaginary, out[0], out[1]);
+            inverseTransform(real, imaginary, out[0], out[1]);
             return out;
         }
 
         public float[][] transform(final float[] real) throws UnsupportedOperationException {
             final float[][] out = new float[3][real.length];
-            transform(false, real, null, out[0], out[1]);
+            transform(real, out[0], out[1]);
             out[2] = frequencies.clone();
             return out;
         }
 
         public float[][] transform(final float[] real, final float[] imaginary) throws UnsupportedOperationException {
             final float[][] out = new float[3][real.length];
-            transform(false, real, imaginary, out[0], out[1]);
+            transform(real, imaginary, out[0], out[1]);
             out[2] = frequencies.clone();
             return out;
         }
 
+        public void transform(final float[] real, final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+            if (half != null) {
+                transformReal(real, realOut, imaginaryOut);
+            } else {
+                transform(false, real, null, realOut, imaginaryOut);
+            }
+        }
+
+        public void transform(final float[] real, final float[] imaginary, final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+            transform(false, real, imaginary, realOut, imaginaryOut);
+        }
+
+        public void inverseTransform(final float[] real, final float[] imaginary, final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+            transform(true, real, imaginary, realOut, imaginaryOut);
+        }
+
+        public float[] getFrequencies() {
+            return frequencies;
+        }
+
         /**
          * Actual fast Fourier transform implementation.
          *
@@ -165,8 +378,80 @@ public abstract class FFTFactory {
                 for (int i = 0; i < numberOfSamples; i++) {
                     imaginaryOut[this.reverseIndices[i]] = imaginaryIn[i];
                 }
+            } else {
+                Arrays.fill(imaginaryOut, 0f);
+            }
+
+            butterflies(inverse, realOut, imaginaryOut);
+
+            // normalize, if inverse transform
+            if (inverse) {
+                for (int i = 0; i < numberOfSamples; i++) {
+                    realOut[i] /= (float) numberOfSamples;
+                    imaginaryOut[i] /= (float) numberOfSamples;
+                }
+            }
+        }
+
+        /**
+         * Transforms real input by packing even samples into the real and odd samples into
+         * the imaginary part of a complex signal of half the length. After transforming it with
+         * a complex FFT of half the size, the spectra of even and odd samples are separated
+         * and combined to the first half of the spectrum. The second half is the complex conjugate
+         * of the first half.
+         * The complex signal of half the length is stored in the first half of the output arrays,
+         * so that no temporary arrays are needed.
+         *
+         * @param realIn       real input
+         * @param realOut      real out
+         * @param imaginaryOut imaginary out
+         */
+        private void transformReal(final float[] realIn, final float[] realOut, final float[] imaginaryOut) {
+            if (realIn.length != numberOfSamples) {
+                throw new IllegalArgumentException("Number of samples must be " + numberOfSamples + " for this instance of JavaFFT");
+            }
+            final int halfNumberOfSamples = half.numberOfSamples;
+            for (int i = 0; i < halfNumberOfSamples; i++) {
+                final int j = half.reverseIndices[i];
+                realOut[j] = realIn[2 * i];
+                imaginaryOut[j] = realIn[2 * i + 1];
             }
+            half.butterflies(false, realOut, imaginaryOut);
+
+            // bins k and N/2-k depend on the same two values of the half size transform,
+            // so we can compute them pairwise in place
+            for (int k = 0; k <= halfNumberOfSamples / 2; k++) {
+                final int l = halfNumberOfSamples - k;
+                final int b = k == 0 ? 0 : l;
+                final double kReal = realOut[k];
+                final double kImaginary = imaginaryOut[k];
+                final double lReal = realOut[b];
+                final double lImaginary = imaginaryOut[b];
+                // spectra of the even and the odd samples for bin k
+                final double evenReal = (kReal + lReal) * 0.5;
+                final double evenImaginary = (kImaginary - lImaginary) * 0.5;
+                final double oddReal = (kImaginary + lImaginary) * 0.5;
+                final double oddImaginary = (lReal - kReal) * 0.5;
+                realOut[k] = (float) (evenReal + cosines[k] * oddReal + sines[k] * oddImaginary);
+                imaginaryOut[k] = (float) (evenImaginary + cosines[k] * oddImaginary - sines[k] * oddReal);
+                // for bin N/2-k, the imaginary parts of both spectra change their sign
+                realOut[l] = (float) (evenReal + cosines[l] * oddReal - sines[l] * oddImaginary);
+                imaginaryOut[l] = (float) (-evenImaginary - cosines[l] * oddImaginary - sines[l] * oddReal);
+            }
+            for (int k = 1; k < halfNumberOfSamples; k++) {
+                realOut[numberOfSamples - k] = realOut[k];
+                imaginaryOut[numberOfSamples - k] = -imaginaryOut[k];
+            }
+        }
 
+        /**
+         * In-place butterflies on bit-reversed input.
+         *
+         * @param inverse   inverse or not
+         * @param realOut   real part, in bit-reversed order
+         * @param imaginaryOut imaginary part, in bit-reversed order
+         */
+        private void butterflies(final boolean inverse, final float[] realOut, final float[] imaginaryOut) {
             int blockEnd = 1;
             final double angleNumerator;
             if (inverse) angleNumerator = -2.0 * Math.PI;
@@ -214,14 +499,6 @@ public abstract class FFTFactory {
 
                 blockEnd = blockSize;
             }
-
-            // normalize, if inverse transform
-            if (inverse) {
-                for (int i = 0; i < numberOfSamples; i++) {
-                    realOut[i] /= (float) numberOfSamples;
-                    imaginaryOut[i] /= (float) numberOfSamples;
-                }
-            }
         }
 
         private static int getNumberOfNeededBits(final int powerOfTwo) {
@@ -42,7 +42,7 @@ public final class Filters {
      * @see <a href="http://en.wikipedia.org/wiki/Finite_impulse_response">Wikipedia on FIR</a>
      * @see IIRFilter
      */
-    public static class FIRFilter implements StatefulMapFunction<float[]> {
+    public static class FIRFilter implements StatefulMapFunction<float[]>, Cloneable {
 
         /**
          * Efficient no-op FIR filter.
@@ -79,6 +79,18 @@ public final class Filters {
             if (coefficients != null) setCoefficients(coefficients);
         }
 
+        /**
+         * Creates a copy with its own, empty delay line.
+         *
+         * @return copy
+         */
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            final FIRFilter clone = (FIRFilter)super.clone();
+            clone.reset();
+            return clone;
+        }
+
         public float[] map(final float[] data) {
             final float[] out = new float[data.length];
             for (int i = 0; i < data.length; i++) {
@@ -179,7 +191,7 @@ public final class Filters {
      * @see FIRFilter
      * @see FourthOrderIIRFilter
      */
-    public static class IIRFilter implements StatefulMapFunction<float[]> {
+    public static class IIRFilter implements StatefulMapFunction<float[]>, Cloneable {
 
         private double[] inputCoefficients;
         private double[] outputCoefficients;
@@ -203,6 +215,19 @@ public final class Filters {
             this.valuePosition = 0;
         }
 
+        /**
+         * Creates a copy without any filter state.
+         *
+         * @return copy
+         */
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            final IIRFilter clone = (IIRFilter)super.clone();
+            clone.out = null;
+            clone.reset();
+            return clone;
+        }
+
         /**
          * @param inputCoefficients a (input) coefficients
          */
@@ -400,6 +425,13 @@ public final class Filters {
             this.primed = false;
         }
 
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            final FourthOrderIIRFilter clone = (FourthOrderIIRFilter)super.clone();
+            clone.out = null;
+            return clone;
+        }
+
         @Override
         public float[] map(final float[] data) {
             final int length = data.length;
@@ -234,30 +234,44 @@ public final class MapFunctions {
      * @return fraction function
      */
     public static StatefulMapFunction<Float> createFractionFunction(final float threshold) {
-        return new StatefulMapFunction<Float>() {
+        return new FractionFunction(threshold);
+    }
 
-            private int count;
-            private int below;
+    private static class FractionFunction implements StatefulMapFunction<Float>, Cloneable {
 
-            public void reset() {
-                count = 0;
-                below = 0;
-            }
+        private final float threshold;
+        private int count;
+        private int below;
 
-            public Float map(final Float x) {
-                count++;
-                if (x < threshold) below++;
-                return below / (float)count;
-            }
+        private FractionFunction(final float threshold) {
+            this.threshold = threshold;
+        }
 
-            @Override
-            public String toString() {
-                return "FRACTION_BELOW_" + threshold;
-            }
-        };
+        public void reset() {
+            count = 0;
+            below = 0;
+        }
+
+        public Float map(final Float x) {
+            count++;
+            if (x < threshold) below++;
+            return below / (float)count;
+        }
+
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            final FractionFunction clone = (FractionFunction)super.clone();
+            clone.reset();
+            return clone;
+        }
+
+        @Override
+        public String toString() {
+            return "FRACTION_BELOW_" + threshold;
+        }
     }
 
-    private abstract static class FloatNormalization implements MapFunction<float[]> {
+    private abstract static class FloatNormalization implements MapFunction<float[]>, Cloneable {
 
         private float[] normalizedData;
 
@@ -285,6 +299,13 @@ public final class MapFunctions {
             }
             return normalizedData;
         }
+
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            final FloatNormalization clone = (FloatNormalization)super.clone();
+            clone.normalizedData = null;
+            return clone;
+        }
     }
 
     private static class VarianceFunction extends ArithmeticMeanFunction {
@@ -310,7 +331,7 @@ public final class MapFunctions {
         }
     }
 
-    private static class ArithmeticMeanFunction implements StatefulMapFunction<Float> {
+    private static class ArithmeticMeanFunction implements StatefulMapFunction<Float>, Cloneable {
 
         protected double average = 0;
         protected int count = 0;
@@ -327,6 +348,13 @@ public final class MapFunctions {
             return (float)average;
         }
 
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            final ArithmeticMeanFunction clone = (ArithmeticMeanFunction)super.clone();
+            clone.reset();
+            return clone;
+        }
+
         @Override
         public String toString() {
             return "ARITHMETIC_MEAN";
@@ -347,7 +375,7 @@ public final class MapFunctions {
         }
     }
 
-    private static class TemporalCentroidFunction implements StatefulMapFunction<Float> {
+    private static class TemporalCentroidFunction implements StatefulMapFunction<Float>, Cloneable {
 
         private double numerator;
         private double denominator;
@@ -367,6 +395,13 @@ public final class MapFunctions {
             return (float)(numerator/denominator);
         }
 
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            final TemporalCentroidFunction clone = (TemporalCentroidFunction)super.clone();
+            clone.reset();
+            return clone;
+        }
+
         @Override
         public String toString() {
             return "TEMPORAL_CENTROID";
@@ -450,7 +485,7 @@ public final class MapFunctions {
         }
     }
 
-    private static class AbsFunction implements MapFunction<float[]> {
+    private static class AbsFunction implements MapFunction<float[]>, Cloneable {
         
         private float[] out;
         
@@ -464,6 +499,13 @@ public final class MapFunctions {
             return out;
         }
 
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            final AbsFunction clone = (AbsFunction)super.clone();
+            clone.out = null;
+            return clone;
+        }
+
         @Override
         public String toString() {
             return "ABS";
@@ -480,7 +522,7 @@ public final class MapFunctions {
         }
     }
 
-    private static class SquareFunction implements MapFunction<float[]> {
+    private static class SquareFunction implements MapFunction<float[]>, Cloneable {
 
         private float[] out;
 
@@ -495,6 +537,13 @@ public final class MapFunctions {
             return out;
         }
 
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            final SquareFunction clone = (SquareFunction)super.clone();
+            clone.out = null;
+            return clone;
+        }
+
         @Override
         public String toString() {
             return "SQUARE";
@@ -511,7 +560,7 @@ public final class MapFunctions {
         }
     }
 
-    private static class ReverseFunction implements MapFunction<float[]> {
+    private static class ReverseFunction implements MapFunction<float[]>, Cloneable {
 
         private float[] out;
 
@@ -525,6 +574,13 @@ public final class MapFunctions {
             return out;
         }
 
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            final ReverseFunction clone = (ReverseFunction)super.clone();
+            clone.out = null;
+            return clone;
+        }
+
         @Override
         public String toString() {
             return "REVERSE";
@@ -0,0 +1,498 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.math;
+
+import java.util.Arrays;
+
+/**
+ * <p>FFT for arbitrary lengths.
+ * </p>
+ * <p>
+ * Lengths that only have the prime factors 2, 3 and 5 are transformed with a recursive, mixed radix
+ * (4, 2, 3, 5) decimation-in-time FFT. All other lengths are transformed with Bluestein's algorithm,
+ * i.e. they are expressed as a convolution, which is computed with a mixed radix FFT of
+ * a power-of-two length of at least <code>2N-1</code>.
+ * Real input of even length is transformed with a complex FFT of half the size.
+ * </p>
+ * <p>
+ * Instances are immutable and may be shared between threads. All tables (factors, twiddle
+ * factors and, if needed, the Bluestein chirp) are computed in the constructor.
+ * Bluestein's algorithm needs working arrays, which are kept per thread.
+ * </p>
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see FFTFactory
+ */
+class MixedRadixFFT implements AllocationFreeTransform {
+
+    private final int numberOfSamples;
+    private final float[] frequencies;
+    /**
+     * Radices, in the order they are applied from the outermost recursion level on.
+     * <code>null</code>, if Bluestein's algorithm is used.
+     */
+    private final int[] factors;
+    /**
+     * cos(2&pi;k/N) and -sin(2&pi;k/N), i.e. the forward twiddle factors.
+     */
+    private final float[] twiddleReal;
+    private final float[] twiddleImaginary;
+    /**
+     * Complex FFT of half the size, used to transform real input of even length.
+     */
+    private final MixedRadixFFT half;
+    // Bluestein
+    private final MixedRadixFFT convolution;
+    private final float[] chirpReal;
+    private final float[] chirpImaginary;
+    private final float[] kernelReal;
+    private final float[] kernelImaginary;
+    private final ScratchArrays scratchArrays;
+
+    /**
+     * Creates an FFT for the given length.
+     *
+     * @param numberOfSamples number of samples
+     * @throws IllegalArgumentException if the number of samples is less than 1
+     */
+    MixedRadixFFT(final int numberOfSamples) throws IllegalArgumentException {
+        this(numberOfSamples, true);
+    }
+
+    private MixedRadixFFT(final int numberOfSamples, final boolean realSupport) {
+        if (numberOfSamples <= 0) throw new IllegalArgumentException("N must be greater than 0");
+        this.numberOfSamples = numberOfSamples;
+        this.frequencies = new float[numberOfSamples];
+        for (int index = 0; index < numberOfSamples; index++) {
+            if (index <= numberOfSamples / 2) {
+                this.frequencies[index] = index / (float) numberOfSamples;
+            } else {
+                this.frequencies[index] = -((numberOfSamples - index) / (float) numberOfSamples);
+            }
+        }
+        this.twiddleReal = new float[numberOfSamples];
+        this.twiddleImaginary = new float[numberOfSamples];
+        for (int k = 0; k < numberOfSamples; k++) {
+            final double angle = 2.0 * Math.PI * k / numberOfSamples;
+            this.twiddleReal[k] = (float) Math.cos(angle);
+            this.twiddleImaginary[k] = (float) -Math.sin(angle);
+        }
+        this.factors = factorize(numberOfSamples);
+        if (factors == null) {
+            int convolutionLength = 1;
+            while (convolutionLength < 2 * numberOfSamples - 1) convolutionLength <<= 1;
+            this.convolution = new MixedRadixFFT(convolutionLength, false);
+            this.chirpReal = new float[numberOfSamples];
+            this.chirpImaginary = new float[numberOfSamples];
+            final float[] bReal = new float[convolutionLength];
+            final float[] bImaginary = new float[convolutionLength];
+            final long twoN = 2L * numberOfSamples;
+            for (int k = 0; k < numberOfSamples; k++) {
+                // exp(-i*pi*k^2/N), with k^2 reduced modulo 2N for accuracy
+                final double angle = Math.PI * ((long) k * k % twoN) / numberOfSamples;
+                chirpReal[k] = (float) Math.cos(angle);
+                chirpImaginary[k] = (float) -Math.sin(angle);
+                bReal[k] = chirpReal[k];
+                bImaginary[k] = -chirpImaginary[k];
+                if (k > 0) {
+                    bReal[convolutionLength - k] = chirpReal[k];
+                    bImaginary[convolutionLength - k] = -chirpImaginary[k];
+                }
+            }
+            this.kernelReal = new float[convolutionLength];
+            this.kernelImaginary = new float[convolutionLength];
+            convolution.forward(bReal, 0, bImaginary, 0, 1, kernelReal, kernelImaginary);
+            this.scratchArrays = new ScratchArrays(4, convolutionLength);
+        } else {
+            this.convolution = null;
+            this.chirpReal = null;
+            this.chirpImaginary = null;
+            this.kernelReal = null;
+            this.kernelImaginary = null;
+            this.scratchArrays = null;
+        }
+        this.half = realSupport && numberOfSamples >= 4 && numberOfSamples % 2 == 0
+                ? new MixedRadixFFT(numberOfSamples / 2, false)
+                : null;
+    }
+
+    /**
+     * Splits the given number into the factors 4, 2, 3 and 5.
+     *
+     * @param n number
+     * @return factors or <code>null</code>, if n has other prime factors
+     */
+    private static int[] factorize(final int n) {
+        final int[] buffer = new int[32];
+        int count = 0;
+        int rest = n;
+        for (final int radix : new int[] {4, 2, 3, 5}) {
+            while (rest % radix == 0) {
+                buffer[count++] = radix;
+                rest /= radix;
+            }
+        }
+        if (rest != 1) return null;
+        final int[] factors = new int[count];
+        System.arraycopy(buffer, 0, factors, 0, count);
+        return factors;
+    }
+
+    public float[][] transform(final float[] real) throws UnsupportedOperationException {
+        final float[][] out = new float[3][];
+        out[0] = new float[numberOfSamples];
+        out[1] = new float[numberOfSamples];
+        transform(real, out[0], out[1]);
+        out[2] = frequencies.clone();
+        return out;
+    }
+
+    public float[][] transform(final float[] real, final float[] imaginary) throws UnsupportedOperationException {
+        final float[][] out = new float[3][];
+        out[0] = new float[numberOfSamples];
+        out[1] = new float[numberOfSamples];
+        transform(real, imaginary, out[0], out[1]);
+        out[2] = frequencies.clone();
+        return out;
+    }
+
+    public float[][] inverseTransform(final float[] real, final float[] imaginary) throws UnsupportedOperationException {
+        final float[][] out = new float[2][numberOfSamples];
+        inverseTransform(real, imaginary, out[0], out[1]);
+        return out;
+    }
+
+    public void transform(final float[] real, final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+        verifyLength(real);
+        if (half != null) {
+            transformReal(real, realOut, imaginaryOut);
+        } else {
+            forward(real, 0, null, 0, 1, realOut, imaginaryOut);
+        }
+    }
+
+    public void transform(final float[] real, final float[] imaginary, final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+        verifyLength(real);
+        forward(real, 0, imaginary, 0, 1, realOut, imaginaryOut);
+    }
+
+    /**
+     * Computes the inverse transform as <code>swap(FFT(swap(x)))/N</code>, where <code>swap</code>
+     * exchanges real and imaginary parts.
+     */
+    public void inverseTransform(final float[] real, final float[] imaginary, final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+        verifyLength(real);
+        forward(imaginary, 0, real, 0, 1, imaginaryOut, realOut);
+        final float scale = 1f / numberOfSamples;
+        for (int i = 0; i < numberOfSamples; i++) {
+            realOut[i] *= scale;
+            imaginaryOut[i] *= scale;
+        }
+    }
+
+    public float[] getFrequencies() {
+        return frequencies;
+    }
+
+    private void verifyLength(final float[] real) {
+        if (real.length != numberOfSamples) {
+            throw new IllegalArgumentException("Number of samples must be " + numberOfSamples + " for this instance of MixedRadixFFT");
+        }
+    }
+
+    /**
+     * Forward transform of the input values <code>in[offset + j*inputStride]</code>.
+     *
+     * @param realIn real input
+     * @param realOffset offset of the first real input value
+     * @param imaginaryIn imaginary input, may be <code>null</code>
+     * @param imaginaryOffset offset of the first imaginary input value
+     * @param inputStride distance between two input values
+     * @param realOut real output
+     * @param imaginaryOut imaginary output
+     */
+    private void forward(final float[] realIn, final int realOffset,
+                         final float[] imaginaryIn, final int imaginaryOffset,
+                         final int inputStride,
+                         final float[] realOut, final float[] imaginaryOut) {
+        if (numberOfSamples == 1) {
+            realOut[0] = realIn[realOffset];
+            imaginaryOut[0] = imaginaryIn == null ? 0f : imaginaryIn[imaginaryOffset];
+        } else if (factors != null) {
+            work(realOut, imaginaryOut, 0, realIn, realOffset, imaginaryIn, imaginaryOffset, inputStride, 1, 0);
+        } else {
+            bluestein(realIn, realOffset, imaginaryIn, imaginaryOffset, inputStride, realOut, imaginaryOut);
+        }
+    }
+
+    /**
+     * Transforms real input by treating even samples as real and odd samples as
+     * imaginary part of a complex signal of half the length. Its transform is stored
+     * in the first half of the output arrays and then separated into the spectra of even and odd samples.
+     */
+    private void transformReal(final float[] realIn, final float[] realOut, final float[] imaginaryOut) {
+        final int halfNumberOfSamples = half.numberOfSamples;
+        half.forward(realIn, 0, realIn, 1, 2, realOut, imaginaryOut);
+
+        // bins k and N/2-k depend on the same two values of the half size transform
+        for (int k = 0; k <= halfNumberOfSamples / 2; k++) {
+            final int l = halfNumberOfSamples - k;
+            final int b = k == 0 ? 0 : l;
+            final float kReal = realOut[k];
+            final float kImaginary = imaginaryOut[k];
+            final float lReal = realOut[b];
+            final float lImaginary = imaginaryOut[b];
+            // spectra of the even and the odd samples
+            final float evenReal = (kReal + lReal) * 0.5f;
+            final float evenImaginary = (kImaginary - lImaginary) * 0.5f;
+            final float oddReal = (kImaginary + lImaginary) * 0.5f;
+            final float oddImaginary = (lReal - kReal) * 0.5f;
+            realOut[k] = evenReal + twiddleReal[k] * oddReal - twiddleImaginary[k] * oddImaginary;
+            imaginaryOut[k] = evenImaginary + twiddleReal[k] * oddImaginary + twiddleImaginary[k] * oddReal;
+            // for bin N/2-k, the imaginary parts of both spectra change their sign
+            realOut[l] = evenReal + twiddleReal[l] * oddReal + twiddleImaginary[l] * oddImaginary;
+            imaginaryOut[l] = -evenImaginary - twiddleReal[l] * oddImaginary + twiddleImaginary[l] * oddReal;
+        }
+        for (int k = 1; k < halfNumberOfSamples; k++) {
+            realOut[numberOfSamples - k] = realOut[k];
+            imaginaryOut[numberOfSamples - k] = -imaginaryOut[k];
+        }
+    }
+
+    /**
+     * Bluestein's algorithm: <code>X[k] = w[k] * sum(x[j] * w[j] * conj(w[k-j]))</code>
+     * with the chirp <code>w[k] = exp(-i&pi;k<sup>2</sup>/N)</code>.
+     */
+    private void bluestein(final float[] realIn, final int realOffset,
+                           final float[] imaginaryIn, final int imaginaryOffset,
+                           final int inputStride,
+                           final float[] realOut, final float[] imaginaryOut) {
+        final int m = convolution.numberOfSamples;
+        final float[][] scratch = scratchArrays.get();
+        final float[] aReal = scratch[0];
+        final float[] aImaginary = scratch[1];
+        final float[] fReal = scratch[2];
+        final float[] fImaginary = scratch[3];
+        for (int k = 0; k < numberOfSamples; k++) {
+            final float xr = realIn[realOffset + k * inputStride];
+            final float xi = imaginaryIn == null ? 0f : imaginaryIn[imaginaryOffset + k * inputStride];
+            aReal[k] = xr * chirpReal[k] - xi * chirpImaginary[k];
+            aImaginary[k] = xr * chirpImaginary[k] + xi * chirpReal[k];
+        }
+        Arrays.fill(aReal, numberOfSamples, m, 0f);
+        Arrays.fill(aImaginary, numberOfSamples, m, 0f);
+        convolution.forward(aReal, 0, aImaginary, 0, 1, fReal, fImaginary);
+        // multiply with the kernel's transform and conjugate, so that the forward
+        // transform computes the inverse transform (up to scaling)
+        for (int k = 0; k < m; k++) {
+            final float r = fReal[k] * kernelReal[k] - fImaginary[k] * kernelImaginary[k];
+            final float i = fReal[k] * kernelImaginary[k] + fImaginary[k] * kernelReal[k];
+            aReal[k] = r;
+            aImaginary[k] = -i;
+        }
+        convolution.forward(aReal, 0, aImaginary, 0, 1, fReal, fImaginary);
+        final float scale = 1f / m;
+        for (int k = 0; k < numberOfSamples; k++) {
+            final float cr = fReal[k] * scale;
+            final float ci = -fImaginary[k] * scale;
+            realOut[k] = cr * chirpReal[k] - ci * chirpImaginary[k];
+            imaginaryOut[k] = cr * chirpImaginary[k] + ci * chirpReal[k];
+        }
+    }
+
+    /**
+     * Recursive decimation-in-time step. Transforms the <code>p*m</code> input values
+     * <code>in[inOffset + j*stride*inputStride]</code> into <code>out[outOffset...outOffset+p*m]</code>,
+     * where <code>p</code> is the radix of the given level.
+     */
+    private void work(final float[] outReal, final float[] outImaginary, final int outOffset,
+                      final float[] inReal, final int realOffset,
+                      final float[] inImaginary, final int imaginaryOffset,
+                      final int inputStride, final int stride, final int level) {
+        final int p = factors[level];
+        final int m = numberOfSamples / stride / p;
+        final int step = stride * inputStride;
+        if (m == 1) {
+            for (int q = 0, re = realOffset, im = imaginaryOffset; q < p; q++, re += step, im += step) {
+                outReal[outOffset + q] = inReal[re];
+                outImaginary[outOffset + q] = inImaginary == null ? 0f : inImaginary[im];
+            }
+        } else {
+            for (int q = 0, re = realOffset, im = imaginaryOffset; q < p; q++, re += step, im += step) {
+                work(outReal, outImaginary, outOffset + q * m, inReal, re, inImaginary, im, inputStride, stride * p, level + 1);
+            }
+        }
+        switch (p) {
+            case 2:
+                butterfly2(outReal, outImaginary, outOffset, stride, m);
+                break;
+            case 3:
+                butterfly3(outReal, outImaginary, outOffset, stride, m);
+                break;
+            case 4:
+                butterfly4(outReal, outImaginary, outOffset, stride, m);
+                break;
+            default:
+                butterfly5(outReal, outImaginary, outOffset, stride, m);
+                break;
+        }
+    }
+
+    private void butterfly2(final float[] re, final float[] im, final int offset, final int stride, final int m) {
+        for (int k = 0; k < m; k++) {
+            final int i0 = offset + k;
+            final int i1 = i0 + m;
+            final int t = k * stride;
+            final float tr = re[i1] * twiddleReal[t] - im[i1] * twiddleImaginary[t];
+            final float ti = re[i1] * twiddleImaginary[t] + im[i1] * twiddleReal[t];
+            re[i1] = re[i0] - tr;
+            im[i1] = im[i0] - ti;
+            re[i0] += tr;
+            im[i0] += ti;
+        }
+    }
+
+    private void butterfly3(final float[] re, final float[] im, final int offset, final int stride, final int m) {
+        // imaginary part of exp(-2*pi*i/3)
+        final float epi3 = twiddleImaginary[stride * m];
+        for (int k = 0; k < m; k++) {
+            final int i0 = offset + k;
+            final int i1 = i0 + m;
+            final int i2 = i1 + m;
+            final int t1 = k * stride;
+            final int t2 = 2 * t1;
+            final float s1r = re[i1] * twiddleReal[t1] - im[i1] * twiddleImaginary[t1];
+            final float s1i = re[i1] * twiddleImaginary[t1] + im[i1] * twiddleReal[t1];
+            final float s2r = re[i2] * twiddleReal[t2] - im[i2] * twiddleImaginary[t2];
+            final float s2i = re[i2] * twiddleImaginary[t2] + im[i2] * twiddleReal[t2];
+            final float s3r = s1r + s2r;
+            final float s3i = s1i + s2i;
+            final float s0r = (s1r - s2r) * epi3;
+            final float s0i = (s1i - s2i) * epi3;
+            final float hr = re[i0] - s3r * 0.5f;
+            final float hi = im[i0] - s3i * 0.5f;
+            re[i0] += s3r;
+            im[i0] += s3i;
+            re[i2] = hr + s0i;
+            im[i2] = hi - s0r;
+            re[i1] = hr - s0i;
+            im[i1] = hi + s0r;
+        }
+    }
+
+    private void butterfly4(final float[] re, final float[] im, final int offset, final int stride, final int m) {
+        for (int k = 0; k < m; k++) {
+            final int i0 = offset + k;
+            final int i1 = i0 + m;
+            final int i2 = i1 + m;
+            final int i3 = i2 + m;
+            final int t1 = k * stride;
+            final int t2 = 2 * t1;
+            final int t3 = 3 * t1;
+            final float s0r = re[i1] * twiddleReal[t1] - im[i1] * twiddleImaginary[t1];
+            final float s0i = re[i1] * twiddleImaginary[t1] + im[i1] * twiddleReal[t1];
+            final float s1r = re[i2] * twiddleReal[t2] - im[i2] * twiddleImaginary[t2];
+            final float s1i = re[i2] * twiddleImaginary[t2] + im[i2] * twiddleReal[t2];
+            final float s2r = re[i3] * twiddleReal[t3] - im[i3] * twiddleImaginary[t3];
+            final float s2i = re[i3] * twiddleImaginary[t3] + im[i3] * twiddleReal[t3];
+            final float s5r = re[i0] - s1r;
+            final float s5i = im[i0] - s1i;
+            final float ar = re[i0] + s1r;
+            final float ai = im[i0] + s1i;
+            final float s3r = s0r + s2r;
+            final float s3i = s0i + s2i;
+            final float s4r = s0r - s2r;
+            final float s4i = s0i - s2i;
+            re[i2] = ar - s3r;
+            im[i2] = ai - s3i;
+            re[i0] = ar + s3r;
+            im[i0] = ai + s3i;
+            re[i1] = s5r + s4i;
+            im[i1] = s5i - s4r;
+            re[i3] = s5r - s4i;
+            im[i3] = s5i + s4r;
+        }
+    }
+
+    private void butterfly5(final float[] re, final float[] im, final int offset, final int stride, final int m) {
+        // exp(-2*pi*i/5) and exp(-4*pi*i/5)
+        final float yar = twiddleReal[stride * m];
+        final float yai = twiddleImaginary[stride * m];
+        final float ybr = twiddleReal[2 * stride * m];
+        final float ybi = twiddleImaginary[2 * stride * m];
+        for (int u = 0; u < m; u++) {
+            final int i0 = offset + u;
+            final int i1 = i0 + m;
+            final int i2 = i1 + m;
+            final int i3 = i2 + m;
+            final int i4 = i3 + m;
+            final int t1 = u * stride;
+            final int t2 = 2 * t1;
+            final int t3 = 3 * t1;
+            final int t4 = 4 * t1;
+            final float s0r = re[i0];
+            final float s0i = im[i0];
+            final float s1r = re[i1] * twiddleReal[t1] - im[i1] * twiddleImaginary[t1];
+            final float s1i = re[i1] * twiddleImaginary[t1] + im[i1] * twiddleReal[t1];
+            final float s2r = re[i2] * twiddleReal[t2] - im[i2] * twiddleImaginary[t2];
+            final float s2i = re[i2] * twiddleImaginary[t2] + im[i2] * twiddleReal[t2];
+            final float s3r = re[i3] * twiddleReal[t3] - im[i3] * twiddleImaginary[t3];
+            final float s3i = re[i3] * twiddleImaginary[t3] + im[i3] * twiddleReal[t3];
+            final float s4r = re[i4] * twiddleReal[t4] - im[i4] * twiddleImaginary[t4];
+            final float s4i = re[i4] * twiddleImaginary[t4] + im[i4] * twiddleReal[t4];
+            final float s7r = s1r + s4r;
+            final float s7i = s1i + s4i;
+            final float s10r = s1r - s4r;
+            final float s10i = s1i - s4i;
+            final float s8r = s2r + s3r;
+            final float s8i = s2i + s3i;
+            final float s9r = s2r - s3r;
+            final float s9i = s2i - s3i;
+
+            re[i0] = s0r + s7r + s8r;
+            im[i0] = s0i + s7i + s8i;
+
+            final float s5r = s0r + s7r * yar + s8r * ybr;
+            final float s5i = s0i + s7i * yar + s8i * ybr;
+            final float s6r = s10i * yai + s9i * ybi;
+            final float s6i = -s10r * yai - s9r * ybi;
+            re[i1] = s5r - s6r;
+            im[i1] = s5i - s6i;
+            re[i4] = s5r + s6r;
+            im[i4] = s5i + s6i;
+
+            final float s11r = s0r + s7r * ybr + s8r * yar;
+            final float s11i = s0i + s7i * ybr + s8i * yar;
+            final float s12r = -s10i * ybi + s9i * yai;
+            final float s12i = s10r * ybi - s9r * yai;
+            re[i2] = s11r + s12r;
+            im[i2] = s11i + s12i;
+            re[i3] = s11r - s12r;
+            im[i3] = s11i - s12i;
+        }
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final MixedRadixFFT that = (MixedRadixFFT) o;
+        return numberOfSamples == that.numberOfSamples;
+    }
+
+    @Override
+    public int hashCode() {
+        return numberOfSamples;
+    }
+
+    @Override
+    public String toString() {
+        return "MixedRadixFFT{" +
+                "N=" + numberOfSamples +
+                '}';
+    }
+}
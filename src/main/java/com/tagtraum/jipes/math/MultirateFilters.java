@@ -38,6 +38,13 @@ public final class MultirateFilters {
             pos = 0;
         }
 
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            final Decimator clone = (Decimator)super.clone();
+            clone.out = null;
+            return clone;
+        }
+
         /**
          * Creates a decimator using a simple fir1 16th order low pass filter.
          *
@@ -130,7 +137,7 @@ public final class MultirateFilters {
      * Interpolator based on coefficients of a given {@link com.tagtraum.jipes.math.Filters.FIRFilter}.
      * This class combines upsampling (i.e. zero stuffing) <em>and</em> filtering (to avoid aliasing).
      */
-    public static class Interpolator implements StatefulMapFunction<float[]> {
+    public static class Interpolator implements StatefulMapFunction<float[]>, Cloneable {
 
         private int factor;
         private Filters.FIRFilter[] filters;
@@ -199,6 +206,19 @@ public final class MultirateFilters {
             setCoefficients(originalCoefficients);
         }
 
+        /**
+         * Creates a copy with its own, empty filters.
+         *
+         * @return copy
+         */
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            final Interpolator clone = (Interpolator)super.clone();
+            clone.out = null;
+            clone.reset();
+            return clone;
+        }
+
         /**
          * Get upsample factor.
          *
@@ -258,7 +278,7 @@ public final class MultirateFilters {
      * the given factors. The implementation aims for efficiency by not computing samples
      * that are later dropped anyway.
      */
-    public static class Resampler implements StatefulMapFunction<float[]> {
+    public static class Resampler implements StatefulMapFunction<float[]>, Cloneable {
 
         private int upFactor;
         private int downFactor;
@@ -364,6 +384,18 @@ public final class MultirateFilters {
             setCoefficients(originalCoefficients);
         }
 
+        /**
+         * Creates a copy with its own, empty filters.
+         *
+         * @return copy
+         */
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            final Resampler clone = (Resampler)super.clone();
+            clone.reset();
+            return clone;
+        }
+
         /**
          * Up-sampling factor.
          *
@@ -0,0 +1,332 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.math;
+
+import java.util.Arrays;
+
+/**
+ * <p>{@link FFTFactory} for table-driven radix-4 FFTs.
+ * </p>
+ * <p>
+ * Each {@link Transform} pre-computes its bit-reversal permutation and a table with all
+ * twiddle factors it needs. Two radix-2 stages are combined into one radix-4 stage, which
+ * needs only three complex multiplications per four values and halves the number of passes over
+ * the data. If the number of samples is an odd power of two, one radix-2 stage is done first.
+ * All arithmetic is done in <code>float</code> on separate arrays for the real and the imaginary
+ * part (structure of arrays), which is the layout of the {@link Transform} API.
+ * Just like the default implementation, real input is transformed with a complex FFT of half the size.
+ * </p>
+ * <p>
+ * To use this factory, set the system property {@link FFTFactory#FACTORYCLASS_PROPERTY_NAME}:
+ * </p>
+ * <xmp>-Dcom.tagtraum.jipes.math.FFTFactory=com.tagtraum.jipes.math.Radix4FFTFactory</xmp>
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see FFTFactory
+ */
+public class Radix4FFTFactory extends FFTFactory {
+
+    private final TransformCache cache = new TransformCache(PLAN_CACHE_CAPACITY);
+
+    public Radix4FFTFactory() {
+    }
+
+    /**
+     * Creates a radix-4 FFT. Lengths that are not a power of two are transformed
+     * with a mixed radix FFT (or Bluestein's algorithm), just like with the default factory.
+     *
+     * @param numberOfSamples number of samples
+     * @return FFT instance
+     * @throws IllegalArgumentException if the number of samples is less than 1
+     */
+    @Override
+    public Transform create(final int numberOfSamples) {
+        final Class<?> kind = numberOfSamples > 0 && (numberOfSamples & (numberOfSamples - 1)) == 0
+                ? Radix4FFT.class
+                : MixedRadixFFT.class;
+        final Transform cached = cache.get(kind, numberOfSamples);
+        if (cached != null) return cached;
+        final Transform plan = kind == Radix4FFT.class
+                ? new Radix4FFT(numberOfSamples, true)
+                : new MixedRadixFFT(numberOfSamples);
+        return cache.putIfAbsent(kind, numberOfSamples, plan);
+    }
+
+    /**
+     * Radix-4 FFT with pre-computed tables.
+     */
+    private static class Radix4FFT implements AllocationFreeTransform {
+
+        private final int numberOfSamples;
+        private final int[] reverseIndices;
+        private final float[] frequencies;
+        /**
+         * cos(2&pi;k/N) and sin(2&pi;k/N) for all k needed by the radix-4 stages.
+         */
+        private final float[] cosines;
+        private final float[] sines;
+        /**
+         * Complex FFT of half the size, used to transform real input.
+         */
+        private final Radix4FFT half;
+        private final float[] realCosines;
+        private final float[] realSines;
+
+        /**
+         * @param numberOfSamples number of samples, must be a power of 2
+         * @param realSupport if true, real input is transformed with a complex FFT of half the size
+         */
+        private Radix4FFT(final int numberOfSamples, final boolean realSupport) {
+            if (numberOfSamples <= 0) throw new IllegalArgumentException("N must be greater than 0");
+            if ((numberOfSamples & (numberOfSamples - 1)) != 0) throw new IllegalArgumentException("N is not a power of 2");
+            this.numberOfSamples = numberOfSamples;
+            final int numberOfBits = Integer.numberOfTrailingZeros(numberOfSamples);
+            this.reverseIndices = new int[numberOfSamples];
+            for (int i = 0; i < numberOfSamples; i++) {
+                this.reverseIndices[i] = numberOfBits == 0 ? 0 : Integer.reverse(i) >>> (32 - numberOfBits);
+            }
+            this.frequencies = new float[numberOfSamples];
+            for (int index = 0; index < numberOfSamples; index++) {
+                if (index <= numberOfSamples / 2) {
+                    this.frequencies[index] = index / (float) numberOfSamples;
+                } else {
+                    this.frequencies[index] = -((numberOfSamples - index) / (float) numberOfSamples);
+                }
+            }
+            // the radix-4 stages use w^k, w^2k and w^3k with k < N/4
+            final int tableLength = numberOfSamples * 3 / 4 + 1;
+            this.cosines = new float[tableLength];
+            this.sines = new float[tableLength];
+            for (int k = 0; k < tableLength; k++) {
+                final double angle = 2.0 * Math.PI * k / numberOfSamples;
+                this.cosines[k] = (float) Math.cos(angle);
+                this.sines[k] = (float) Math.sin(angle);
+            }
+            if (realSupport && numberOfSamples >= 4) {
+                final int halfNumberOfSamples = numberOfSamples / 2;
+                this.half = new Radix4FFT(halfNumberOfSamples, false);
+                this.realCosines = new float[halfNumberOfSamples + 1];
+                this.realSines = new float[halfNumberOfSamples + 1];
+                for (int k = 0; k <= halfNumberOfSamples; k++) {
+                    final double angle = 2.0 * Math.PI * k / numberOfSamples;
+                    this.realCosines[k] = (float) Math.cos(angle);
+                    this.realSines[k] = (float) Math.sin(angle);
+                }
+            } else {
+                this.half = null;
+                this.realCosines = null;
+                this.realSines = null;
+            }
+        }
+
+        public float[][] transform(final float[] real) throws UnsupportedOperationException {
+            final float[][] out = new float[3][numberOfSamples];
+            transform(real, out[0], out[1]);
+            out[2] = frequencies.clone();
+            return out;
+        }
+
+        public float[][] transform(final float[] real, final float[] imaginary) throws UnsupportedOperationException {
+            final float[][] out = new float[3][numberOfSamples];
+            transform(real, imaginary, out[0], out[1]);
+            out[2] = frequencies.clone();
+            return out;
+        }
+
+        public float[][] inverseTransform(final float[] real, final float[] imaginary) throws UnsupportedOperationException {
+            final float[][] out = new float[2][numberOfSamples];
+            inverseTransform(real, imaginary, out[0], out[1]);
+            return out;
+        }
+
+        public void transform(final float[] real, final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+            verifyLength(real);
+            if (half != null) {
+                transformReal(real, realOut, imaginaryOut);
+            } else {
+                permute(real, null, realOut, imaginaryOut);
+                butterflies(false, realOut, imaginaryOut);
+            }
+        }
+
+        public void transform(final float[] real, final float[] imaginary, final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+            verifyLength(real);
+            permute(real, imaginary, realOut, imaginaryOut);
+            butterflies(false, realOut, imaginaryOut);
+        }
+
+        public void inverseTransform(final float[] real, final float[] imaginary, final float[] realOut, final float[] imaginaryOut) throws UnsupportedOperationException {
+            verifyLength(real);
+            permute(real, imaginary, realOut, imaginaryOut);
+            butterflies(true, realOut, imaginaryOut);
+            final float scale = 1f / numberOfSamples;
+            for (int i = 0; i < numberOfSamples; i++) {
+                realOut[i] *= scale;
+                imaginaryOut[i] *= scale;
+            }
+        }
+
+        public float[] getFrequencies() {
+            return frequencies;
+        }
+
+        private void verifyLength(final float[] real) {
+            if (real.length != numberOfSamples) {
+                throw new IllegalArgumentException("Number of samples must be " + numberOfSamples + " for this instance of Radix4FFT");
+            }
+        }
+
+        private void permute(final float[] realIn, final float[] imaginaryIn, final float[] realOut, final float[] imaginaryOut) {
+            for (int i = 0; i < numberOfSamples; i++) {
+                realOut[reverseIndices[i]] = realIn[i];
+            }
+            if (imaginaryIn != null) {
+                for (int i = 0; i < numberOfSamples; i++) {
+                    imaginaryOut[reverseIndices[i]] = imaginaryIn[i];
+                }
+            } else {
+                Arrays.fill(imaginaryOut, 0f);
+            }
+        }
+
+        /**
+         * Transforms real input by packing even samples into the real and odd samples into
+         * the imaginary part of a complex signal of half the length, which is stored in
+         * the first half of the output arrays.
+         *
+         * @param realIn       real input
+         * @param realOut      real out
+         * @param imaginaryOut imaginary out
+         */
+        private void transformReal(final float[] realIn, final float[] realOut, final float[] imaginaryOut) {
+            final int halfNumberOfSamples = half.numberOfSamples;
+            final int[] halfReverseIndices = half.reverseIndices;
+            for (int i = 0; i < halfNumberOfSamples; i++) {
+                final int j = halfReverseIndices[i];
+                realOut[j] = realIn[2 * i];
+                imaginaryOut[j] = realIn[2 * i + 1];
+            }
+            half.butterflies(false, realOut, imaginaryOut);
+
+            // bins k and N/2-k depend on the same two values of the half size transform
+            for (int k = 0; k <= halfNumberOfSamples / 2; k++) {
+                final int l = halfNumberOfSamples - k;
+                final int b = k == 0 ? 0 : l;
+                final float kReal = realOut[k];
+                final float kImaginary = imaginaryOut[k];
+                final float lReal = realOut[b];
+                final float lImaginary = imaginaryOut[b];
+                // spectra of the even and the odd samples
+                final float evenReal = (kReal + lReal) * 0.5f;
+                final float evenImaginary = (kImaginary - lImaginary) * 0.5f;
+                final float oddReal = (kImaginary + lImaginary) * 0.5f;
+                final float oddImaginary = (lReal - kReal) * 0.5f;
+                realOut[k] = evenReal + realCosines[k] * oddReal + realSines[k] * oddImaginary;
+                imaginaryOut[k] = evenImaginary + realCosines[k] * oddImaginary - realSines[k] * oddReal;
+                // for bin N/2-k, the imaginary parts of both spectra change their sign
+                realOut[l] = evenReal + realCosines[l] * oddReal - realSines[l] * oddImaginary;
+                imaginaryOut[l] = -evenImaginary - realCosines[l] * oddImaginary - realSines[l] * oddReal;
+            }
+            for (int k = 1; k < halfNumberOfSamples; k++) {
+                realOut[numberOfSamples - k] = realOut[k];
+                imaginaryOut[numberOfSamples - k] = -imaginaryOut[k];
+            }
+        }
+
+        /**
+         * In-place butterflies on bit-reversed input.
+         * Forward transforms use the twiddle factors w<sup>k</sup> = e<sup>-2&pi;ik/N</sup>,
+         * inverse transforms their complex conjugates. No normalization takes place.
+         *
+         * @param inverse inverse or not
+         * @param re real part, in bit-reversed order
+         * @param im imaginary part, in bit-reversed order
+         */
+        private void butterflies(final boolean inverse, final float[] re, final float[] im) {
+            final int n = numberOfSamples;
+            final float sign = inverse ? 1f : -1f;
+            int quarter = 1;
+            if (Integer.numberOfTrailingZeros(n) % 2 == 1) {
+                // odd power of two: start with a radix-2 stage, its only twiddle factor is 1
+                for (int i = 0; i < n; i += 2) {
+                    final float r = re[i + 1];
+                    final float m = im[i + 1];
+                    re[i + 1] = re[i] - r;
+                    im[i + 1] = im[i] - m;
+                    re[i] += r;
+                    im[i] += m;
+                }
+                quarter = 2;
+            }
+            // each radix-4 stage combines four transforms of length quarter
+            for (; quarter < n; quarter *= 4) {
+                final int blockSize = quarter * 4;
+                final int stride = n / blockSize;
+                for (int block = 0; block < n; block += blockSize) {
+                    for (int j = 0, t = 0; j < quarter; j++, t += stride) {
+                        final int i0 = block + j;
+                        final int i1 = i0 + quarter;
+                        final int i2 = i1 + quarter;
+                        final int i3 = i2 + quarter;
+                        // w^(2t) * x1, w^t * x2, w^(3t) * x3
+                        final float c1 = cosines[2 * t];
+                        final float s1 = sign * sines[2 * t];
+                        final float c2 = cosines[t];
+                        final float s2 = sign * sines[t];
+                        final float c3 = cosines[3 * t];
+                        final float s3 = sign * sines[3 * t];
+                        final float br = re[i1] * c1 - im[i1] * s1;
+                        final float bi = re[i1] * s1 + im[i1] * c1;
+                        final float cr = re[i2] * c2 - im[i2] * s2;
+                        final float ci = re[i2] * s2 + im[i2] * c2;
+                        final float dr = re[i3] * c3 - im[i3] * s3;
+                        final float di = re[i3] * s3 + im[i3] * c3;
+
+                        final float sumABr = re[i0] + br;
+                        final float sumABi = im[i0] + bi;
+                        final float diffABr = re[i0] - br;
+                        final float diffABi = im[i0] - bi;
+                        final float sumCDr = cr + dr;
+                        final float sumCDi = ci + di;
+                        // rotate (c - d) by -i (forward) or +i (inverse)
+                        final float rotCDr = -sign * (ci - di);
+                        final float rotCDi = sign * (cr - dr);
+
+                        re[i0] = sumABr + sumCDr;
+                        im[i0] = sumABi + sumCDi;
+                        re[i2] = sumABr - sumCDr;
+                        im[i2] = sumABi - sumCDi;
+                        re[i1] = diffABr + rotCDr;
+                        im[i1] = diffABi + rotCDi;
+                        re[i3] = diffABr - rotCDr;
+                        im[i3] = diffABi - rotCDi;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Radix4FFT that = (Radix4FFT) o;
+            return numberOfSamples == that.numberOfSamples;
+        }
+
+        @Override
+        public int hashCode() {
+            return numberOfSamples;
+        }
+
+        @Override
+        public String toString() {
+            return "Radix4FFT{" +
+                    "N=" + numberOfSamples +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.math;
+
+/**
+ * Per-thread working arrays for {@link AllocationFreeTransform}s that need
+ * temporary storage. Because every thread gets its own arrays, transforms using them
+ * stay thread-safe, but only allocate when a thread uses them for the first time.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+final class ScratchArrays {
+
+    private final int count;
+    private final int length;
+    private final ThreadLocal<float[][]> arrays = new ThreadLocal<float[][]>();
+
+    /**
+     * @param count number of arrays
+     * @param length length of each array
+     */
+    ScratchArrays(final int count, final int length) {
+        this.count = count;
+        this.length = length;
+    }
+
+    /**
+     * Arrays for the current thread. Their content is whatever the previous call left behind.
+     *
+     * @return arrays, owned by the current thread
+     */
+    float[][] get() {
+        float[][] floats = arrays.get();
+        if (floats == null) {
+            floats = new float[count][length];
+            arrays.set(floats);
+        }
+        return floats;
+    }
+}
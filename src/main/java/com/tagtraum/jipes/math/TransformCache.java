@@ -0,0 +1,121 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.math;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>Bounded, thread-safe cache for {@link Transform} plans, keyed by transform kind and
+ * number of samples.
+ * </p>
+ * <p>
+ * Lookups don't lock, so many threads can share the cached plans without contention.
+ * This requires the cached {@link Transform}s to be immutable.
+ * Once the cache holds more than its capacity, the oldest plans are evicted first.
+ * If two threads create the same plan at the same time, both receive the plan that
+ * made it into the cache first.
+ * </p>
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ * @see FFTFactory
+ * @see DCTFactory
+ */
+final class TransformCache {
+
+    private final int capacity;
+    private final ConcurrentMap<Key, Transform> plans = new ConcurrentHashMap<Key, Transform>();
+    private final Queue<Key> insertionOrder = new ConcurrentLinkedQueue<Key>();
+
+    /**
+     * @param capacity max number of cached plans
+     */
+    TransformCache(final int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be greater than 0: " + capacity);
+        this.capacity = capacity;
+    }
+
+    /**
+     * Looks up a cached plan.
+     *
+     * @param kind kind of transform, typically the implementing class
+     * @param numberOfSamples number of samples
+     * @return cached plan or <code>null</code>, if there is none
+     */
+    Transform get(final Class<?> kind, final int numberOfSamples) {
+        return plans.get(new Key(kind, numberOfSamples));
+    }
+
+    /**
+     * Adds a plan to the cache, unless another thread has already done so.
+     *
+     * @param kind kind of transform, typically the implementing class
+     * @param numberOfSamples number of samples
+     * @param plan plan
+     * @return the cached plan, which may be a different instance than the given plan
+     */
+    Transform putIfAbsent(final Class<?> kind, final int numberOfSamples, final Transform plan) {
+        final Key key = new Key(kind, numberOfSamples);
+        final Transform cached = plans.putIfAbsent(key, plan);
+        if (cached != null) return cached;
+        insertionOrder.add(key);
+        while (plans.size() > capacity) {
+            final Key eldest = insertionOrder.poll();
+            if (eldest == null) break;
+            plans.remove(eldest);
+        }
+        return plan;
+    }
+
+    /**
+     * @return number of cached plans
+     */
+    int size() {
+        return plans.size();
+    }
+
+    /**
+     * @return max number of cached plans
+     */
+    int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public String toString() {
+        return "TransformCache{" +
+                "capacity=" + capacity +
+                ", size=" + plans.size() +
+                '}';
+    }
+
+    private static final class Key {
+
+        private final Class<?> kind;
+        private final int numberOfSamples;
+
+        private Key(final Class<?> kind, final int numberOfSamples) {
+            this.kind = kind;
+            this.numberOfSamples = numberOfSamples;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Key key = (Key) o;
+            return numberOfSamples == key.numberOfSamples && kind.equals(key.kind);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * kind.hashCode() + numberOfSamples;
+        }
+    }
+}
@@ -18,7 +18,7 @@ import static java.lang.Math.cos;
  * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
  * @see <a href="http://en.wikipedia.org/wiki/Window_function">Window functions on Wikipedia</a>
  */
-public abstract class WindowFunction implements MapFunction<float[]> {
+public abstract class WindowFunction implements MapFunction<float[]>, Cloneable {
 
     private static final double DOUBLE_PI = 2.0 * PI;
     private float[] coefficients;
@@ -47,6 +47,18 @@ public abstract class WindowFunction implements MapFunction<float[]> {
         return out;
     }
 
+    /**
+     * Creates a copy with its own output buffer. The (immutable) coefficients are shared.
+     *
+     * @return copy
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        final WindowFunction clone = (WindowFunction)super.clone();
+        clone.out = new float[length];
+        return clone;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) return true;
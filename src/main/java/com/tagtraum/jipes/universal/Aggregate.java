@@ -7,6 +7,8 @@
 package com.tagtraum.jipes.universal;
 
 import com.tagtraum.jipes.AbstractSignalProcessor;
+import com.tagtraum.jipes.Copies;
+import com.tagtraum.jipes.FrameIndependent;
 import com.tagtraum.jipes.audio.AudioBuffer;
 import com.tagtraum.jipes.math.AggregateFunction;
 
@@ -29,7 +31,7 @@ import java.io.IOException;
  * @see com.tagtraum.jipes.math.AggregateFunctions#ROOT_MEAN_SQUARE
  * @see com.tagtraum.jipes.audio.AudioBufferFunctions#createAggregateFunction(com.tagtraum.jipes.math.AggregateFunction)
  */
-public class Aggregate<C, E> extends AbstractSignalProcessor<C, E> {
+public class Aggregate<C, E> extends AbstractSignalProcessor<C, E> implements Cloneable, FrameIndependent {
 
     private AggregateFunction<C,E> aggregateFunction = new AggregateFunction<C,E>() {
         public E aggregate(final C collection) {
@@ -58,6 +60,23 @@ public class Aggregate<C, E> extends AbstractSignalProcessor<C, E> {
         this.aggregateFunction = aggregateFunction;
     }
 
+    /**
+     * {@inheritDoc}
+     * The aggregate function is copied as well, if it is {@link Cloneable}.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object clone() throws CloneNotSupportedException {
+        final Aggregate<C, E> clone = (Aggregate<C, E>)super.clone();
+        clone.aggregateFunction = Copies.copyIfCloneable(aggregateFunction);
+        return clone;
+    }
+
+    @Override
+    public boolean isFrameIndependent() {
+        return true;
+    }
+
     protected E processNext(final C buffer) throws IOException {
         if (buffer instanceof AudioBuffer) {
             final AudioBuffer b = (AudioBuffer)buffer;
@@ -6,6 +6,7 @@
  */
 package com.tagtraum.jipes.universal;
 
+import com.tagtraum.jipes.Copies;
 import com.tagtraum.jipes.SignalProcessor;
 import com.tagtraum.jipes.SignalProcessorSupport;
 import com.tagtraum.jipes.math.AggregateFunction;
@@ -25,7 +26,7 @@ import java.util.List;
  * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
  * @see com.tagtraum.jipes.SignalSplit
  */
-public class Join<I, O> implements SignalProcessor<I, O> {
+public class Join<I, O> implements SignalProcessor<I, O>, Cloneable {
 
     private SignalProcessorSupport<O> signalProcessorSupport = new SignalProcessorSupport<O>();
     private AggregateFunction<List<I>, O> aggregateFunction;
@@ -70,6 +71,24 @@ public class Join<I, O> implements SignalProcessor<I, O> {
         }
     }
 
+    /**
+     * Creates a copy that is not connected to any child processors and has not collected any parts yet.
+     * The aggregate function is copied as well, if it is {@link Cloneable}.
+     *
+     * @return copy
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object clone() throws CloneNotSupportedException {
+        final Join<I, O> clone = (Join<I, O>)super.clone();
+        clone.signalProcessorSupport = new SignalProcessorSupport<O>();
+        clone.aggregateFunction = Copies.copyIfCloneable(aggregateFunction);
+        clone.parts = new ArrayList<I>();
+        clone.lastOut = null;
+        clone.flushed = false;
+        return clone;
+    }
+
     /**
      * Only flush, if we just aggregated some signal, but not, if we are still waiting for missing parts.
      * Also, flush at most once.
@@ -7,6 +7,9 @@
 package com.tagtraum.jipes.universal;
 
 import com.tagtraum.jipes.AbstractSignalProcessor;
+import com.tagtraum.jipes.Copies;
+import com.tagtraum.jipes.FrameIndependent;
+import com.tagtraum.jipes.StatefulSignalProcessor;
 import com.tagtraum.jipes.math.MapFunction;
 import com.tagtraum.jipes.math.StatefulMapFunction;
 import com.tagtraum.jipes.math.WindowFunction;
@@ -26,7 +29,7 @@ import java.io.IOException;
  * @see com.tagtraum.jipes.math.Floats
  * @see com.tagtraum.jipes.audio.AudioBufferFunctions#createMapFunction(com.tagtraum.jipes.math.MapFunction)
  */
-public class Mapping<T> extends AbstractSignalProcessor<T, T> {
+public class Mapping<T> extends AbstractSignalProcessor<T, T> implements Cloneable, FrameIndependent, StatefulSignalProcessor {
 
     private MapFunction<T> mapFunction;
 
@@ -57,6 +60,28 @@ public class Mapping<T> extends AbstractSignalProcessor<T, T> {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * The map function is copied as well, if it is {@link Cloneable}.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object clone() throws CloneNotSupportedException {
+        final Mapping<T> clone = (Mapping<T>)super.clone();
+        clone.mapFunction = Copies.copyIfCloneable(mapFunction);
+        return clone;
+    }
+
+    /**
+     * Frame independent, unless the map function is a {@link StatefulMapFunction}.
+     *
+     * @return true, if the map function is not stateful
+     */
+    @Override
+    public boolean isFrameIndependent() {
+        return !(mapFunction instanceof StatefulMapFunction);
+    }
+
     protected T processNext(final T buffer) throws IOException {
         if (mapFunction == null) return buffer;
         else return mapFunction.map(buffer);
@@ -0,0 +1,261 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes;
+
+import com.tagtraum.jipes.audio.AudioBuffer;
+import com.tagtraum.jipes.audio.RealAudioBuffer;
+import org.junit.Test;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * TestAsyncSignalProcessor.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestAsyncSignalProcessor {
+
+    @Test
+    public void testProcessAndFlush() throws IOException {
+        final AsyncSignalProcessor<float[]> async = new AsyncSignalProcessor<float[]>(2);
+        final Recorder recorder = new Recorder();
+        async.connectTo(recorder);
+        // buffer is re-used, just like sources do
+        final float[] buffer = new float[3];
+        for (int i=0; i<100; i++) {
+            buffer[0] = i;
+            buffer[1] = i+1;
+            buffer[2] = i+2;
+            async.process(buffer);
+        }
+        async.flush();
+        assertTrue(recorder.flushed);
+        assertEquals(100, recorder.values.size());
+        for (int i=0; i<100; i++) {
+            assertEquals(i, recorder.values.get(i), 0.00001f);
+        }
+        assertEquals(99, async.getOutput()[0], 0.00001f);
+        assertNotSame(buffer, async.getOutput());
+
+        // second signal
+        recorder.values.clear();
+        recorder.flushed = false;
+        async.process(new float[] {5, 6, 7});
+        async.flush();
+        assertTrue(recorder.flushed);
+        assertEquals(1, recorder.values.size());
+        assertEquals(5, recorder.values.get(0), 0.00001f);
+    }
+
+    @Test
+    public void testAudioBuffers() throws IOException {
+        final AsyncSignalProcessor<AudioBuffer> async = new AsyncSignalProcessor<AudioBuffer>();
+        final List<Integer> frameNumbers = new ArrayList<Integer>();
+        final List<Float> sums = new ArrayList<Float>();
+        async.connectTo(new AbstractSignalProcessor<AudioBuffer, Float>() {
+            @Override
+            protected Float processNext(final AudioBuffer input) throws IOException {
+                float sum = 0;
+                for (final float f : input.getData()) sum += f;
+                frameNumbers.add(input.getFrameNumber());
+                sums.add(sum);
+                return sum;
+            }
+        });
+        final AudioFormat audioFormat = new AudioFormat(10000, 16, 1, true, true);
+        final float[] data = new float[10];
+        final RealAudioBuffer buffer = new RealAudioBuffer(0, data, audioFormat);
+        for (int i=0; i<50; i++) {
+            for (int j=0; j<data.length; j++) data[j] = i;
+            buffer.reuse(i * data.length, data, audioFormat);
+            async.process(buffer);
+        }
+        async.flush();
+        assertEquals(50, sums.size());
+        for (int i=0; i<50; i++) {
+            assertEquals(i * data.length, (int)frameNumbers.get(i));
+            assertEquals(i * data.length, sums.get(i), 0.00001f);
+        }
+    }
+
+    @Test
+    public void testFailure() throws IOException {
+        final AsyncSignalProcessor<float[]> async = new AsyncSignalProcessor<float[]>(4);
+        async.connectTo(new AbstractSignalProcessor<float[], float[]>() {
+            @Override
+            protected float[] processNext(final float[] input) throws IOException {
+                if (input[0] == 3) throw new IOException("Failure");
+                return input;
+            }
+        });
+        try {
+            for (int i=0; i<100; i++) {
+                async.process(new float[] {i});
+            }
+            async.flush();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals("Failure", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testFailureIsKeptUntilFlush() throws IOException, InterruptedException {
+        final AsyncSignalProcessor<float[]> async = new AsyncSignalProcessor<float[]>(4);
+        final List<Thread> consumers = new ArrayList<Thread>();
+        final Recorder recorder = new Recorder() {
+            @Override
+            protected float[] processNext(final float[] input) throws IOException {
+                consumers.add(Thread.currentThread());
+                if (input[0] == 3) throw new IOException("Failure");
+                return super.processNext(input);
+            }
+        };
+        async.connectTo(recorder);
+        int failures = 0;
+        for (int i=0; i<100; i++) {
+            try {
+                async.process(new float[] {i});
+            } catch (IOException e) {
+                assertEquals("Failure", e.getMessage());
+                failures++;
+            }
+        }
+        // once surfaced, the failure is re-thrown by every call to process()
+        assertTrue(failures > 80);
+        // the consumer stopped itself
+        consumers.get(0).join(5000);
+        assertFalse(consumers.get(0).isAlive());
+        try {
+            async.flush();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals("Failure", e.getMessage());
+        }
+        // children are not flushed after a failure
+        assertFalse(recorder.flushed);
+
+        // the failure is cleared by flush()
+        async.process(new float[] {5});
+        async.flush();
+        assertTrue(recorder.flushed);
+    }
+
+    @Test
+    public void testCancelledPumpStopsConsumer() throws IOException, InterruptedException {
+        final SignalPump<float[]> pump = new SignalPump<float[]>(new SignalSource<float[]>() {
+            private final float[] buffer = new float[1];
+            private int count;
+
+            public void reset() {
+                count = 0;
+            }
+
+            public float[] read() throws IOException {
+                if (count >= 100000) return null;
+                buffer[0] = count++;
+                return buffer;
+            }
+        });
+        final AsyncSignalProcessor<float[]> async = new AsyncSignalProcessor<float[]>(4);
+        final List<Thread> consumers = new ArrayList<Thread>();
+        final Recorder recorder = new Recorder() {
+            @Override
+            protected float[] processNext(final float[] input) throws IOException {
+                if (consumers.isEmpty()) consumers.add(Thread.currentThread());
+                if (input[0] == 10) pump.cancel();
+                return super.processNext(input);
+            }
+        };
+        async.connectTo(recorder);
+        pump.add(async);
+        assertNull(pump.pump());
+        assertFalse(recorder.flushed);
+        assertEquals(1, consumers.size());
+        consumers.get(0).join(5000);
+        assertFalse(consumers.get(0).isAlive());
+    }
+
+    @Test
+    public void testOutputIsNotRecycled() throws IOException {
+        final List<float[]> recycledOutputs = new ArrayList<float[]>();
+        final AsyncSignalProcessor<float[]> async = new AsyncSignalProcessor<float[]>(1) {
+            @Override
+            protected float[] copy(final float[] buffer, final float[] recycled) {
+                try {
+                    if (recycled != null && recycled == getOutput()) recycledOutputs.add(recycled);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                return super.copy(buffer, recycled);
+            }
+        };
+        final Recorder recorder = new Recorder();
+        async.connectTo(recorder);
+        final float[] buffer = new float[1];
+        for (int i=0; i<=18; i++) {
+            buffer[0] = i;
+            async.process(buffer);
+            if (i % 2 == 0) {
+                async.flush();
+                assertEquals(i, async.getOutput()[0], 0.00001f);
+            }
+        }
+        final float[] output = async.getOutput();
+        buffer[0] = 100;
+        async.process(buffer);
+        // the output must still hold the last processed frame, while new input is copied
+        assertEquals(18, output[0], 0.00001f);
+        async.flush();
+        assertEquals(100, async.getOutput()[0], 0.00001f);
+        assertTrue(recycledOutputs.isEmpty());
+        assertEquals(20, recorder.values.size());
+    }
+
+    @Test
+    public void testCopy() throws IOException, CloneNotSupportedException {
+        final AsyncSignalProcessor<float[]> async = new AsyncSignalProcessor<float[]>(8, "async");
+        async.connectTo(new Recorder());
+        final AsyncSignalProcessor<float[]> clone = (AsyncSignalProcessor<float[]>) async.clone();
+        assertEquals("async", clone.getId());
+        assertEquals(8, clone.getRingSize());
+        assertEquals(0, clone.getConnectedProcessors().length);
+        final Recorder recorder = new Recorder();
+        clone.connectTo(recorder);
+        clone.process(new float[] {1});
+        clone.flush();
+        assertEquals(1, recorder.values.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalRingSize() {
+        new AsyncSignalProcessor<float[]>(0);
+    }
+
+    private static class Recorder extends AbstractSignalProcessor<float[], float[]> {
+
+        private final List<Float> values = new ArrayList<Float>();
+        private boolean flushed;
+
+        @Override
+        protected float[] processNext(final float[] input) throws IOException {
+            values.add(input[0]);
+            return input;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            flushed = true;
+            super.flush();
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * TestBatchSignalPump.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestBatchSignalPump {
+
+    @Test
+    public void testPump() throws InterruptedException {
+        final BatchSignalPump<Integer, float[]> batch = new BatchSignalPump<Integer, float[]>(new CountingSourceFactory(), new SumFactory(), 4);
+        final List<Integer> items = new ArrayList<Integer>();
+        for (int i=1; i<=50; i++) {
+            items.add(i);
+        }
+        final Map<Integer, Object> results = Collections.synchronizedMap(new HashMap<Integer, Object>());
+        batch.pump(items, new BatchSignalPump.ResultHandler<Integer>() {
+            public void handle(final Integer item, final Map<Object, Object> result) {
+                results.put(item, result.get("sum"));
+            }
+
+            public void handleFailure(final Integer item, final Exception e) {
+                fail("Unexpected failure: " + e);
+            }
+        });
+        assertEquals(50, results.size());
+        assertEquals(50, batch.getProcessedItems());
+        assertTrue(batch.getItemsPerSecond() > 0);
+        for (int i=1; i<=50; i++) {
+            // sum of 0..i-1
+            assertEquals((float)(i * (i - 1) / 2), (Float) results.get(i), 0.0001f);
+        }
+    }
+
+    @Test
+    public void testFailureAndCancel() throws InterruptedException {
+        final BatchSignalPump<Integer, float[]> batch = new BatchSignalPump<Integer, float[]>(new CountingSourceFactory(), new SumFactory(), 2);
+        final List<Integer> failed = Collections.synchronizedList(new ArrayList<Integer>());
+        final List<Integer> cancelled = Collections.synchronizedList(new ArrayList<Integer>());
+        batch.cancel(4);
+        batch.pump(Arrays.asList(1, 2, -1, 4), new BatchSignalPump.ResultHandler<Integer>() {
+            public void handle(final Integer item, final Map<Object, Object> result) {
+                if (result == null) cancelled.add(item);
+            }
+
+            public void handleFailure(final Integer item, final Exception e) {
+                failed.add(item);
+            }
+        });
+        assertEquals(Arrays.asList(-1), failed);
+        assertEquals(Arrays.asList(4), cancelled);
+        assertEquals(4, batch.getProcessedItems());
+    }
+
+    @Test
+    public void testCancelAll() throws InterruptedException {
+        final BatchSignalPump<Integer, float[]> batch = new BatchSignalPump<Integer, float[]>(new CountingSourceFactory(), new SumFactory(), 1);
+        final List<Integer> results = Collections.synchronizedList(new ArrayList<Integer>());
+        batch.pump(Arrays.asList(1, 2, 3, 4), new BatchSignalPump.ResultHandler<Integer>() {
+            public void handle(final Integer item, final Map<Object, Object> result) {
+                results.add(item);
+                batch.cancel();
+            }
+
+            public void handleFailure(final Integer item, final Exception e) {
+                fail("Unexpected failure: " + e);
+            }
+        });
+        assertTrue(batch.isCancelled());
+        assertEquals(Arrays.asList(1), results);
+    }
+
+    @Test
+    public void testFailingHandler() throws InterruptedException {
+        final BatchSignalPump<Integer, float[]> batch = new BatchSignalPump<Integer, float[]>(new CountingSourceFactory(), new SumFactory(), 1);
+        final List<Integer> failed = Collections.synchronizedList(new ArrayList<Integer>());
+        try {
+            batch.pump(Arrays.asList(1), new BatchSignalPump.ResultHandler<Integer>() {
+                public void handle(final Integer item, final Map<Object, Object> result) {
+                    throw new IllegalStateException("Handler failed for " + item);
+                }
+
+                public void handleFailure(final Integer item, final Exception e) {
+                    failed.add(item);
+                }
+            });
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertEquals("Handler failed for 1", e.getMessage());
+        }
+        // a succeeded item must not be reported as failed as well
+        assertTrue(failed.isEmpty());
+        assertEquals(1, batch.getProcessedItems());
+    }
+
+    @Test
+    public void testCancelFinishedItem() throws InterruptedException {
+        final BatchSignalPump<Integer, float[]> batch = new BatchSignalPump<Integer, float[]>(new CountingSourceFactory(), new SumFactory(), 1);
+        final List<Integer> cancelled = Collections.synchronizedList(new ArrayList<Integer>());
+        final BatchSignalPump.ResultHandler<Integer> handler = new BatchSignalPump.ResultHandler<Integer>() {
+            public void handle(final Integer item, final Map<Object, Object> result) {
+                if (result == null) cancelled.add(item);
+                // item 1 is already done, cancelling it must not affect later batches
+                if (item == 2) batch.cancel(1);
+            }
+
+            public void handleFailure(final Integer item, final Exception e) {
+                fail("Unexpected failure: " + e);
+            }
+        };
+        batch.pump(Arrays.asList(1, 2, 3), handler);
+        assertTrue(cancelled.isEmpty());
+        batch.pump(Arrays.asList(1, 3), handler);
+        assertTrue(cancelled.isEmpty());
+    }
+
+    @Test
+    public void testCancelDuplicateItem() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch handled = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger sources = new AtomicInteger();
+        final BatchSignalPump<Integer, float[]> batch = new BatchSignalPump<Integer, float[]>(new BatchSignalPump.SourceFactory<Integer, float[]>() {
+            public SignalSource<float[]> create(final Integer item) throws Exception {
+                // only the second occurrence blocks
+                final boolean block = sources.incrementAndGet() == 2;
+                return new SignalSource<float[]>() {
+                    private boolean done;
+
+                    public void reset() {
+                        done = false;
+                    }
+
+                    public float[] read() throws IOException {
+                        if (done) return null;
+                        done = true;
+                        if (block) {
+                            started.countDown();
+                            try {
+                                release.await(10, TimeUnit.SECONDS);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+                        return new float[] {item};
+                    }
+                };
+            }
+        }, new SumFactory(), 2);
+        final List<Map<Object, Object>> results = Collections.synchronizedList(new ArrayList<Map<Object, Object>>());
+        final Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    batch.pump(Arrays.asList(5, 5), new BatchSignalPump.ResultHandler<Integer>() {
+                        public void handle(final Integer item, final Map<Object, Object> result) {
+                            results.add(result);
+                            handled.countDown();
+                        }
+
+                        public void handleFailure(final Integer item, final Exception e) {
+                            fail("Unexpected failure: " + e);
+                        }
+                    });
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+        };
+        thread.start();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertTrue(handled.await(10, TimeUnit.SECONDS));
+        // the first occurrence is done, the second one is still running and must be cancelled
+        batch.cancel(5);
+        release.countDown();
+        thread.join(10000);
+        assertEquals(2, results.size());
+        assertNotNull(results.get(0));
+        assertNull(results.get(1));
+        assertEquals(2, batch.getProcessedItems());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalThreads() {
+        new BatchSignalPump<Integer, float[]>(new CountingSourceFactory(), new SumFactory(), 0);
+    }
+
+    /**
+     * Creates sources that deliver 0..item-1, negative items cause an exception.
+     */
+    private static class CountingSourceFactory implements BatchSignalPump.SourceFactory<Integer, float[]> {
+        public SignalSource<float[]> create(final Integer item) throws Exception {
+            if (item < 0) throw new IOException("Negative item: " + item);
+            return new SignalSource<float[]>() {
+                private int count;
+
+                public void reset() {
+                    count = 0;
+                }
+
+                public float[] read() throws IOException {
+                    if (count >= item) return null;
+                    return new float[] {count++};
+                }
+            };
+        }
+    }
+
+    private static class SumFactory implements SignalProcessorFactory<float[]> {
+        public SignalProcessor<float[], ?> create() {
+            return new AbstractSignalProcessor<float[], Float>("sum") {
+                private float sum;
+
+                @Override
+                protected Float processNext(final float[] input) throws IOException {
+                    sum += input[0];
+                    return sum;
+                }
+            };
+        }
+    }
+}
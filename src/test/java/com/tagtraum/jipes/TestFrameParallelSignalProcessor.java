@@ -0,0 +1,187 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes;
+
+import com.tagtraum.jipes.audio.*;
+import com.tagtraum.jipes.math.Filters;
+import com.tagtraum.jipes.universal.Mapping;
+import org.junit.Test;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * TestFrameParallelSignalProcessor.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestFrameParallelSignalProcessor {
+
+    @Test
+    public void testMFCC() throws IOException {
+        final Recorder<LinearFrequencySpectrum> expected = new Recorder<LinearFrequencySpectrum>();
+        final SlidingWindow sequential = new SlidingWindow(512, 256);
+        sequential.connectTo(createMFCC()).connectTo((SignalProcessor<LinearFrequencySpectrum, LinearFrequencySpectrum>) expected);
+        pump(sequential);
+
+        final Recorder<LinearFrequencySpectrum> actual = new Recorder<LinearFrequencySpectrum>();
+        final SlidingWindow parallel = new SlidingWindow(512, 256);
+        parallel.connectTo(new FrameParallelSignalProcessor<AudioBuffer, LinearFrequencySpectrum>(createMFCC(), 4))
+                .connectTo((SignalProcessor<LinearFrequencySpectrum, LinearFrequencySpectrum>) actual);
+        pump(parallel);
+
+        assertTrue(expected.frameNumbers.size() > 10);
+        assertEquals(expected.frameNumbers, actual.frameNumbers);
+        for (int i=0; i<expected.data.size(); i++) {
+            assertArrayEquals(expected.data.get(i), actual.data.get(i), 0.0001f);
+        }
+    }
+
+    @Test
+    public void testOrder() throws IOException {
+        final ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            final FrameParallelSignalProcessor<AudioBuffer, AudioBuffer> parallel
+                    = new FrameParallelSignalProcessor<AudioBuffer, AudioBuffer>(new RandomDelay(), executorService, 4);
+            final Recorder<AudioBuffer> recorder = new Recorder<AudioBuffer>();
+            parallel.connectTo((SignalProcessor<AudioBuffer, AudioBuffer>) recorder);
+            final AudioFormat audioFormat = new AudioFormat(10000, 16, 1, true, true);
+            final RealAudioBuffer buffer = new RealAudioBuffer(0, new float[1], audioFormat);
+            for (int i=0; i<100; i++) {
+                buffer.reuse(i, new float[] {i}, audioFormat);
+                parallel.process(buffer);
+            }
+            parallel.flush();
+            assertEquals(100, recorder.frameNumbers.size());
+            for (int i=0; i<100; i++) {
+                assertEquals(i, (int)recorder.frameNumbers.get(i));
+                assertEquals(i, recorder.data.get(i)[0], 0.00001f);
+            }
+            assertEquals(99, parallel.getOutput().getFrameNumber());
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailure() throws IOException {
+        final FrameParallelSignalProcessor<AudioBuffer, AudioBuffer> parallel
+                = new FrameParallelSignalProcessor<AudioBuffer, AudioBuffer>(new RandomDelay(), 2);
+        final AudioFormat audioFormat = new AudioFormat(10000, 16, 1, true, true);
+        try {
+            for (int i=0; i<10; i++) {
+                // RandomDelay fails for negative values
+                parallel.process(new RealAudioBuffer(i, new float[] {i == 5 ? -1 : i}, audioFormat));
+            }
+            parallel.flush();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals("Negative", e.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStatefulMapping() {
+        new FrameParallelSignalProcessor<AudioBuffer, AudioBuffer>(
+                new Mapping<AudioBuffer>(AudioBufferFunctions.createMapFunction(new Filters.FIRFilter(new double[]{0.5, 0.5}))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotFrameIndependent() {
+        new FrameParallelSignalProcessor<AudioBuffer, AudioBuffer>(new SignalPipeline<AudioBuffer, AudioBuffer>(
+                new Mapping<AudioBuffer>(),
+                new SlidingWindow()
+        ));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalParallelism() {
+        new FrameParallelSignalProcessor<AudioBuffer, AudioBuffer>(new Mapping<AudioBuffer>(), 0);
+    }
+
+    private static SignalPipeline<AudioBuffer, LinearFrequencySpectrum> createMFCC() {
+        return new SignalPipeline<AudioBuffer, LinearFrequencySpectrum>(
+                new FFT(),
+                new Mel<LinearFrequencySpectrum>(100, 4000, 10, true),
+                new DCT()
+        );
+    }
+
+    private static void pump(final SignalProcessor<AudioBuffer, ?> processor) throws IOException {
+        final SignalPump<AudioBuffer> pump = new SignalPump<AudioBuffer>(new SineSignalSource());
+        pump.add(processor);
+        pump.pump();
+    }
+
+    private static class Recorder<T extends AudioBuffer> extends AbstractSignalProcessor<T, T> {
+
+        private final List<Integer> frameNumbers = new ArrayList<Integer>();
+        private final List<float[]> data = new ArrayList<float[]>();
+
+        @Override
+        protected T processNext(final T input) throws IOException {
+            frameNumbers.add(input.getFrameNumber());
+            data.add(input.getData().clone());
+            return input;
+        }
+    }
+
+    /**
+     * Passes frames through after a random delay and fails for negative values.
+     */
+    private static class RandomDelay extends AbstractSignalProcessor<AudioBuffer, AudioBuffer> implements FrameIndependent, Cloneable {
+
+        private final Random random = new Random();
+
+        public boolean isFrameIndependent() {
+            return true;
+        }
+
+        @Override
+        protected AudioBuffer processNext(final AudioBuffer input) throws IOException {
+            if (input.getData()[0] < 0) throw new IOException("Negative");
+            try {
+                Thread.sleep(random.nextInt(3));
+            } catch (InterruptedException e) {
+                throw new IOException(e.toString());
+            }
+            return input;
+        }
+    }
+
+    /**
+     * Delivers a 440Hz sine in chunks of 100 samples, re-using its buffer like real sources do.
+     */
+    private static class SineSignalSource implements SignalSource<AudioBuffer> {
+
+        private final AudioFormat audioFormat = new AudioFormat(10000, 16, 1, true, true);
+        private final float[] data = new float[100];
+        private final RealAudioBuffer buffer = new RealAudioBuffer(0, data, audioFormat);
+        private int frameNumber;
+
+        public void reset() {
+            frameNumber = 0;
+        }
+
+        public AudioBuffer read() throws IOException {
+            if (frameNumber >= 5000) return null;
+            for (int i=0; i<data.length; i++) {
+                data[i] = (float) Math.sin(2 * Math.PI * 440 * (frameNumber + i) / audioFormat.getSampleRate());
+            }
+            buffer.reuse(frameNumber, data, audioFormat);
+            frameNumber += data.length;
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes;
+
+import com.tagtraum.jipes.audio.*;
+import com.tagtraum.jipes.math.MapFunctions;
+import com.tagtraum.jipes.math.WindowFunction;
+import com.tagtraum.jipes.universal.Mapping;
+import org.junit.Test;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * TestPipelineTemplate.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestPipelineTemplate {
+
+    @Test
+    public void testCreate() throws IOException {
+        final PipelineTemplate<AudioBuffer> template = new PipelineTemplate<AudioBuffer>(createGraph());
+        final SignalProcessor<AudioBuffer, ?> copy0 = template.create();
+        final SignalProcessor<AudioBuffer, ?> copy1 = template.create();
+        assertNotSame(copy0, copy1);
+        assertNotSame(template.getPrototype(), copy0);
+
+        final Map<Object, Object> expected = pump(createGraph());
+        final Map<Object, Object> result0 = pump(copy0);
+        final Map<Object, Object> result1 = pump(copy1);
+        assertResultEquals(expected, result0);
+        assertResultEquals(expected, result1);
+
+        // the prototype itself has not been touched
+        assertNull(getMel(template.getPrototype()).getOutput());
+        assertNull(getMel(template.getPrototype()).getFilterBank());
+        // the filterbank is created only once and shared by all copies
+        assertNotNull(getMel(copy0).getFilterBank());
+        assertSame(getMel(copy0).getFilterBank(), getMel(copy1).getFilterBank());
+    }
+
+    @Test
+    public void testCreateConcurrently() throws InterruptedException, IOException {
+        final Map<Object, Object> expected = pump(createGraph());
+        final BatchSignalPump<Integer, AudioBuffer> batch = new BatchSignalPump<Integer, AudioBuffer>(
+                new BatchSignalPump.SourceFactory<Integer, AudioBuffer>() {
+                    public SignalSource<AudioBuffer> create(final Integer item) throws Exception {
+                        return new SineSignalSource();
+                    }
+                }, new PipelineTemplate<AudioBuffer>(createGraph()), 4);
+        final List<Map<Object, Object>> results = Collections.synchronizedList(new ArrayList<Map<Object, Object>>());
+        batch.pump(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7), new BatchSignalPump.ResultHandler<Integer>() {
+            public void handle(final Integer item, final Map<Object, Object> result) {
+                results.add(result);
+            }
+
+            public void handleFailure(final Integer item, final Exception e) {
+                fail("Unexpected failure: " + e);
+            }
+        });
+        assertEquals(8, results.size());
+        for (final Map<Object, Object> result : results) {
+            assertResultEquals(expected, result);
+        }
+    }
+
+    @Test
+    public void testSplitAndJoin() throws IOException {
+        final InterleavedChannelSplit split = new InterleavedChannelSplit();
+        final InterleavedChannelJoin join = new InterleavedChannelJoin(2, "join");
+        split.connectTo(0, new Mapping<AudioBuffer>(AudioBufferFunctions.createMapFunction(MapFunctions.createAbsFunction()))).connectTo(join);
+        split.connectTo(1, new Mapping<AudioBuffer>(AudioBufferFunctions.createMapFunction(MapFunctions.createSquareFunction()))).connectTo(join);
+
+        final PipelineTemplate<AudioBuffer> template = new PipelineTemplate<AudioBuffer>(split);
+        final SignalSplit<AudioBuffer, AudioBuffer> copy = (SignalSplit<AudioBuffer, AudioBuffer>) template.create();
+        assertEquals(2, copy.getChannelCount());
+        final SignalProcessor<?, ?> join0 = copy.getConnectedProcessors(0)[0].getConnectedProcessors()[0];
+        final SignalProcessor<?, ?> join1 = copy.getConnectedProcessors(1)[0].getConnectedProcessors()[0];
+        assertSame(join0, join1);
+        assertNotSame(join, join0);
+
+        final AudioFormat stereo = new AudioFormat(10000, 16, 2, true, true);
+        copy.process(new RealAudioBuffer(0, new float[]{-1, 2, -3, 4}, stereo));
+        copy.flush();
+        assertArrayEquals(new float[]{1, 4, 3, 16}, ((AudioBuffer) join0.getOutput()).getData(), 0.0001f);
+        assertNull(join.getOutput());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotCloneable() {
+        final NoopSignalProcessor<float[]> root = new NoopSignalProcessor<float[]>();
+        root.connectTo((SignalProcessor<float[], float[]>) new AbstractSignalProcessor<float[], float[]>() {
+            @Override
+            protected float[] processNext(final float[] input) throws IOException {
+                return input;
+            }
+        });
+        new PipelineTemplate<float[]>(root);
+    }
+
+    private static SignalProcessor<AudioBuffer, ?> createGraph() {
+        final NoopSignalProcessor<AudioBuffer> root = new NoopSignalProcessor<AudioBuffer>();
+        final Mel<LinearFrequencySpectrum> mel = new Mel<LinearFrequencySpectrum>(100, 4000, 10, true);
+        mel.setId("mel");
+        root.connectTo(new SignalPipeline<AudioBuffer, MelSpectrum>(
+                new SlidingWindow(512, 256),
+                new Mapping<AudioBuffer>(AudioBufferFunctions.createMapFunction(new WindowFunction.Hamming(512))),
+                new FFT(),
+                mel
+        ));
+        root.connectTo((SignalProcessor<AudioBuffer, AudioBuffer>) new Mapping<AudioBuffer>(AudioBufferFunctions.createMapFunction(MapFunctions.createAbsFunction()), "abs"));
+        return root;
+    }
+
+    private static Mel getMel(final SignalProcessor<AudioBuffer, ?> graph) {
+        final SignalPipeline<?, ?> pipeline = (SignalPipeline<?, ?>) graph.getConnectedProcessors()[0];
+        return pipeline.getProcessorWithClass(Mel.class);
+    }
+
+    private static Map<Object, Object> pump(final SignalProcessor<AudioBuffer, ?> graph) throws IOException {
+        final SignalPump<AudioBuffer> pump = new SignalPump<AudioBuffer>(new SineSignalSource());
+        pump.add(graph);
+        return pump.pump();
+    }
+
+    private static void assertResultEquals(final Map<Object, Object> expected, final Map<Object, Object> actual) {
+        assertEquals(expected.keySet(), actual.keySet());
+        for (final Object id : expected.keySet()) {
+            assertArrayEquals(((AudioBuffer) expected.get(id)).getData(), ((AudioBuffer) actual.get(id)).getData(), 0.0001f);
+        }
+    }
+
+    /**
+     * Delivers a 440Hz sine in chunks of 100 samples, re-using its buffer like real sources do.
+     */
+    private static class SineSignalSource implements SignalSource<AudioBuffer> {
+
+        private final AudioFormat audioFormat = new AudioFormat(10000, 16, 1, true, true);
+        private final float[] data = new float[100];
+        private final RealAudioBuffer buffer = new RealAudioBuffer(0, data, audioFormat);
+        private int frameNumber;
+
+        public void reset() {
+            frameNumber = 0;
+        }
+
+        public AudioBuffer read() throws IOException {
+            if (frameNumber >= 5000) return null;
+            for (int i=0; i<data.length; i++) {
+                data[i] = (float) Math.sin(2 * Math.PI * 440 * (frameNumber + i) / audioFormat.getSampleRate());
+            }
+            buffer.reuse(frameNumber, data, audioFormat);
+            frameNumber += data.length;
+            return buffer;
+        }
+    }
+}
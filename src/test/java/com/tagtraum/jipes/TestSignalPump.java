@@ -14,10 +14,15 @@ import com.tagtraum.jipes.universal.Mapping;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -108,4 +113,202 @@ public class TestSignalPump {
         verify(signalProcessor).process(buffer);
         verify(signalProcessor).flush();
     }
+
+    @Test
+    public void testParallelPump() throws IOException {
+        final Map<Object, Object> sequentialResult = createCountingPump(false).pump();
+        final Map<Object, Object> parallelResult = createCountingPump(true).pump();
+        assertEquals(3, parallelResult.size());
+        assertEquals(sequentialResult, parallelResult);
+        assertEquals(new ArrayList<Object>(sequentialResult.keySet()), new ArrayList<Object>(parallelResult.keySet()));
+    }
+
+    @Test(expected = IOException.class)
+    public void testParallelPumpFailure() throws IOException {
+        final SignalPump<float[]> signalPump = createCountingPump(true);
+        signalPump.add(new AbstractSignalProcessor<float[], float[]>() {
+            @Override
+            protected float[] processNext(final float[] input) throws IOException {
+                throw new IOException("Expected failure");
+            }
+        });
+        signalPump.pump();
+    }
+
+    @Test
+    public void testParallelPumpStopsReadingAfterFailure() throws IOException {
+        final int[] reads = new int[1];
+        final SignalPump<float[]> signalPump = new SignalPump<float[]>(new SignalSource<float[]>() {
+            private final float[] buffer = new float[1];
+
+            public void reset() {
+                reads[0] = 0;
+            }
+
+            public float[] read() throws IOException {
+                if (reads[0] >= 100000) return null;
+                buffer[0] = reads[0]++;
+                return buffer;
+            }
+        });
+        signalPump.setParallel(true);
+        signalPump.setQueueSize(4);
+        signalPump.add(new Sum("sum"));
+        signalPump.add(new AbstractSignalProcessor<float[], float[]>() {
+            @Override
+            protected float[] processNext(final float[] input) throws IOException {
+                throw new IOException("Expected failure");
+            }
+        });
+        try {
+            signalPump.pump();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals("Expected failure", e.getMessage());
+        }
+        // the failing root stops the pump early, instead of after the whole source has been read
+        assertTrue("Too many reads: " + reads[0], reads[0] < 1000);
+    }
+
+    @Test
+    public void testParallelPumpSharedProcessor() throws IOException {
+        final SignalPump<float[]> signalPump = createCountingPump(true);
+        final Set<Thread> threads = new java.util.HashSet<Thread>();
+        final AbstractSignalProcessor<List<Float>, Set<Thread>> shared = new AbstractSignalProcessor<List<Float>, Set<Thread>>("shared") {
+            @Override
+            protected Set<Thread> processNext(final List<Float> input) throws IOException {
+                threads.add(Thread.currentThread());
+                return threads;
+            }
+        };
+        final Sum sum3 = new Sum("sum3");
+        final Sum sum4 = new Sum("sum4");
+        sum3.connectTo((SignalProcessor<List<Float>, Set<Thread>>) shared);
+        sum4.connectTo((SignalProcessor<List<Float>, Set<Thread>>) shared);
+        signalPump.add(sum3);
+        signalPump.add(sum4);
+        signalPump.pump();
+        // roots sharing a processor must not call it concurrently, so the pump falls back to sequential processing
+        assertEquals(1, threads.size());
+        assertTrue(threads.contains(Thread.currentThread()));
+    }
+
+    @Test
+    public void testDiscontinuity() throws IOException {
+        assertDiscontinuity(false);
+    }
+
+    @Test
+    public void testParallelDiscontinuity() throws IOException {
+        assertDiscontinuity(true);
+    }
+
+    private static void assertDiscontinuity(final boolean parallel) throws IOException {
+        final SignalPump<float[]> signalPump = new SignalPump<float[]>(new DiscontinuousSignalSource<float[]>() {
+            private final float[] buffer = new float[1];
+            private int count;
+
+            public boolean isDiscontinuity() {
+                return count == 11 || count == 21;
+            }
+
+            public void reset() {
+                count = 0;
+            }
+
+            public float[] read() throws IOException {
+                if (count >= 30) return null;
+                buffer[0] = count++;
+                return buffer;
+            }
+        });
+        signalPump.setParallel(parallel);
+        final ResetCounter<float[]> counter0 = new ResetCounter<float[]>("counter0");
+        final ResetCounter<List<Float>> counter1 = new ResetCounter<List<Float>>("counter1");
+        final Mapping<float[]> mapping = new Mapping<float[]>();
+        mapping.connectTo((SignalProcessor<float[], Integer>) counter0);
+        final Sum sum = new Sum("sum");
+        sum.connectTo((SignalProcessor<List<Float>, Integer>) counter1);
+        signalPump.add(mapping);
+        signalPump.add(sum);
+        final Map<Object, Object> result = signalPump.pump();
+        assertEquals(2, counter0.resets);
+        assertEquals(2, counter1.resets);
+        // frames 20 to 29 since the last reset
+        assertEquals(10, result.get("counter0"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalQueueSize() {
+        new SignalPump<float[]>().setQueueSize(0);
+    }
+
+    private static SignalPump<float[]> createCountingPump(final boolean parallel) {
+        final SignalPump<float[]> signalPump = new SignalPump<float[]>(new SignalSource<float[]>() {
+            // re-used buffer, just like real sources do it
+            private final float[] buffer = new float[16];
+            private int count;
+
+            public void reset() {
+                count = 0;
+            }
+
+            public float[] read() throws IOException {
+                if (count >= 1000) return null;
+                for (int i=0; i<buffer.length; i++) {
+                    buffer[i] = count;
+                }
+                count++;
+                return buffer;
+            }
+        });
+        signalPump.setParallel(parallel);
+        signalPump.setQueueSize(4);
+        assertTrue(parallel == signalPump.isParallel());
+        signalPump.add(new Sum("sum0"));
+        signalPump.add(new Sum("sum1"));
+        signalPump.add(new Sum("sum2"));
+        return signalPump;
+    }
+
+    private static class ResetCounter<T> extends AbstractSignalProcessor<T, Integer> implements StatefulSignalProcessor {
+
+        private int resets;
+        private int count;
+
+        public ResetCounter(final Object id) {
+            super(id);
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            resets++;
+            count = 0;
+        }
+
+        @Override
+        protected Integer processNext(final T input) throws IOException {
+            return ++count;
+        }
+    }
+
+    private static class Sum extends AbstractSignalProcessor<float[], List<Float>> {
+
+        private final List<Float> sums = new ArrayList<Float>();
+
+        public Sum(final Object id) {
+            super(id);
+        }
+
+        @Override
+        protected List<Float> processNext(final float[] input) throws IOException {
+            float sum = 0;
+            for (final float f : input) {
+                sum += f;
+            }
+            sums.add(sum);
+            return sums;
+        }
+    }
 }
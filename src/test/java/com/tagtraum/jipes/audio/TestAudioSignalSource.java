@@ -13,6 +13,8 @@ import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.UnsupportedAudioFileException;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.regex.Pattern;
 
 import static org.junit.Assert.*;
@@ -69,6 +71,188 @@ public class TestAudioSignalSource {
         }
     }
 
+    @Test
+    public void testPlanar() throws IOException, UnsupportedAudioFileException {
+        final File file = extractFile("audio_10_s16le.wav", ".wav");
+        try {
+            final AudioSignalSource interleavedSource = new AudioSignalSource(file);
+            final AudioSignalSource planarSource = new AudioSignalSource(file);
+            assertFalse(planarSource.isPlanar());
+            planarSource.setPlanar(true);
+            assertTrue(planarSource.isPlanar());
+            AudioBuffer interleaved;
+            int buffers = 0;
+            while ((interleaved = interleavedSource.read()) != null) {
+                final AudioBuffer buffer = planarSource.read();
+                assertTrue(buffer instanceof PlanarAudioBuffer);
+                final PlanarAudioBuffer planar = (PlanarAudioBuffer) buffer;
+                assertEquals(2, planar.getChannelCount());
+                assertEquals(interleaved.getFrameNumber(), planar.getFrameNumber());
+                assertEquals(interleaved.getAudioFormat().toString(), planar.getAudioFormat().toString());
+                final float[] data = interleaved.getData();
+                for (int frame=0; frame<data.length/2; frame++) {
+                    assertEquals(data[frame * 2], planar.getChannelData(0)[frame], 0.000001f);
+                    assertEquals(data[frame * 2 + 1], planar.getChannelData(1)[frame], 0.000001f);
+                }
+                assertArrayEquals(data, planar.getData(), 0.000001f);
+                buffers++;
+            }
+            assertTrue(buffers > 1);
+            assertNull(planarSource.read());
+            interleavedSource.close();
+            planarSource.close();
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testSeek() throws IOException, UnsupportedAudioFileException {
+        final File file = extractFile("mono_10_s16le.wav", ".wav");
+        try {
+            final AudioSignalSource reference = new AudioSignalSource(file);
+            final AudioBuffer first = reference.read();
+            final float[] expected = new float[10];
+            System.arraycopy(first.getData(), 100, expected, 0, expected.length);
+            reference.close();
+
+            final AudioSignalSource signalSource = new AudioSignalSource(file);
+            signalSource.seek(2000);
+            assertEquals(2000, signalSource.getFramePosition());
+            assertEquals(2000, signalSource.read().getFrameNumber());
+            // backwards
+            signalSource.seek(100);
+            assertEquals(100, signalSource.getFramePosition());
+            final AudioBuffer buffer = signalSource.read();
+            assertEquals(100, buffer.getFrameNumber());
+            final float[] actual = new float[10];
+            System.arraycopy(buffer.getData(), 0, actual, 0, actual.length);
+            assertArrayEquals(expected, actual, 0.000001f);
+            // after close
+            signalSource.close();
+            signalSource.seek(100);
+            assertEquals(100, signalSource.read().getFrameNumber());
+            signalSource.close();
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testSeekBackwardsInStream() throws IOException, UnsupportedAudioFileException {
+        final AudioSignalSource signalSource = new AudioSignalSource(AudioSystem.getAudioInputStream(extractFile("mono_10_s16le.wav", ".wav")));
+        try {
+            signalSource.seek(1000);
+            assertEquals(1000, signalSource.read().getFrameNumber());
+            signalSource.seek(0);
+        } finally {
+            signalSource.close();
+        }
+    }
+
+    @Test
+    public void testSkip() throws IOException, UnsupportedAudioFileException {
+        final File file = extractFile("mono_10_s16le.wav", ".wav");
+        try {
+            final AudioSignalSource reference = new AudioSignalSource(file);
+            final long frameLength = reference.getFrameLength();
+            assertTrue(frameLength > 1000);
+            AudioBuffer buffer;
+            float[] expected = null;
+            while ((buffer = reference.read()) != null) {
+                if (buffer.getFrameNumber() + buffer.getNumberOfSamples() > 1000) {
+                    expected = new float[10];
+                    System.arraycopy(buffer.getData(), 1000 - buffer.getFrameNumber(), expected, 0, expected.length);
+                    break;
+                }
+            }
+            reference.close();
+
+            final AudioSignalSource signalSource = new AudioSignalSource(file);
+            assertEquals(1000, signalSource.skip(1000));
+            buffer = signalSource.read();
+            assertEquals(1000, buffer.getFrameNumber());
+            final float[] actual = new float[10];
+            System.arraycopy(buffer.getData(), 0, actual, 0, actual.length);
+            assertArrayEquals(expected, actual, 0.000001f);
+            signalSource.close();
+            assertEquals(0, signalSource.skip(1000));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testDecodeSigned8Bit() throws IOException {
+        assertDecoded(new float[]{-1f, -0.5f, 0f, 0.5f}, new byte[]{-128, -64, 0, 64},
+                new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, 8000, 8, 1, 1, 8000, false));
+    }
+
+    @Test
+    public void testDecodeUnsigned8Bit() throws IOException {
+        assertDecoded(new float[]{0f, 1f/255f, 128f/255f, 1f}, new byte[]{0, 1, (byte) 128, (byte) 255},
+                new AudioFormat(AudioFormat.Encoding.PCM_UNSIGNED, 8000, 8, 1, 1, 8000, false));
+    }
+
+    @Test
+    public void testDecodeUnsigned16Bit() throws IOException {
+        assertDecoded(new float[]{0f, 1f, 256f/65535f}, new byte[]{0, 0, (byte) 255, (byte) 255, 0, 1},
+                new AudioFormat(AudioFormat.Encoding.PCM_UNSIGNED, 8000, 16, 1, 2, 8000, false));
+        assertDecoded(new float[]{0f, 1f, 1f/65535f}, new byte[]{0, 0, (byte) 255, (byte) 255, 0, 1},
+                new AudioFormat(AudioFormat.Encoding.PCM_UNSIGNED, 8000, 16, 1, 2, 8000, true));
+    }
+
+    @Test
+    public void testDecodeSigned24Bit() throws IOException {
+        final float[] expected = {-1f, 0.5f, 1f/(1<<23)};
+        assertDecoded(expected, new byte[]{0, 0, (byte) 0x80, 0, 0, 0x40, 1, 0, 0},
+                new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, 8000, 24, 1, 3, 8000, false));
+        assertDecoded(expected, new byte[]{(byte) 0x80, 0, 0, 0x40, 0, 0, 0, 0, 1},
+                new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, 8000, 24, 1, 3, 8000, true));
+    }
+
+    @Test
+    public void testDecodeSigned32Bit() throws IOException {
+        final float[] expected = {-1f, 0.5f, -0.5f};
+        assertDecoded(expected, new byte[]{0, 0, 0, (byte) 0x80, 0, 0, 0, 0x40, 0, 0, 0, (byte) 0xC0},
+                new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, 8000, 32, 1, 4, 8000, false));
+        assertDecoded(expected, new byte[]{(byte) 0x80, 0, 0, 0, 0x40, 0, 0, 0, (byte) 0xC0, 0, 0, 0},
+                new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, 8000, 32, 1, 4, 8000, true));
+    }
+
+    @Test
+    public void testDecodeFloat32Bit() throws IOException {
+        final float[] expected = {-1f, 0.25f, 0.75f};
+        final AudioFormat.Encoding pcmFloat = new AudioFormat.Encoding("PCM_FLOAT");
+        for (final ByteOrder byteOrder : new ByteOrder[]{ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN}) {
+            final ByteBuffer bytes = ByteBuffer.allocate(expected.length * 4).order(byteOrder);
+            for (final float f : expected) bytes.putFloat(f);
+            assertDecoded(expected, bytes.array(),
+                    new AudioFormat(pcmFloat, 8000, 32, 1, 4, 8000, byteOrder == ByteOrder.BIG_ENDIAN));
+        }
+    }
+
+    @Test
+    public void testDecodeFloat64Bit() throws IOException {
+        final float[] expected = {-1f, 0.25f, 0.75f};
+        final AudioFormat.Encoding pcmFloat = new AudioFormat.Encoding("PCM_FLOAT");
+        for (final ByteOrder byteOrder : new ByteOrder[]{ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN}) {
+            final ByteBuffer bytes = ByteBuffer.allocate(expected.length * 8).order(byteOrder);
+            for (final float f : expected) bytes.putDouble(f);
+            assertDecoded(expected, bytes.array(),
+                    new AudioFormat(pcmFloat, 8000, 64, 1, 8, 8000, byteOrder == ByteOrder.BIG_ENDIAN));
+        }
+    }
+
+    private static void assertDecoded(final float[] expected, final byte[] bytes, final AudioFormat audioFormat) throws IOException {
+        final AudioInputStream stream = new AudioInputStream(new ByteArrayInputStream(bytes), audioFormat,
+                bytes.length / audioFormat.getFrameSize());
+        final AudioSignalSource signalSource = new AudioSignalSource(stream);
+        final AudioBuffer buffer = signalSource.read();
+        assertArrayEquals(expected, buffer.getData(), 0.0000001f);
+        assertNull(signalSource.read());
+    }
+
     @Test
     public void testMonoSigned16BitSignal() throws IOException, UnsupportedAudioFileException {
         final AudioSignalSource signalSource = new AudioSignalSource(extractFile("mono_10_s16le.wav", ".wav"));
@@ -12,8 +12,10 @@ import org.junit.Test;
 import javax.sound.sampled.AudioFormat;
 import java.io.IOException;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
 
 /**
  * TestConstantQTransform.
@@ -34,6 +36,23 @@ public class TestConstantQTransform {
         transform.reset();
     }
 
+    @Test
+    public void testReusesSpectrum() throws IOException {
+        final ConstantQTransform transform = new ConstantQTransform(300, 5000, 12);
+        final AudioFormat format = new AudioFormat(44100, 16, 1, true, true);
+        final LogFrequencySpectrum spectrum0 = transform.processNext(new RealAudioBuffer(0, new float[] {1,2,3,4,5,6,7,8}, format));
+        final float[] realData0 = spectrum0.getRealData().clone();
+        final float[] frequencies = spectrum0.getFrequencies().clone();
+        final LogFrequencySpectrum spectrum1 = transform.processNext(new RealAudioBuffer(1, new float[] {8,7,6,5,4,3,2,1}, format));
+        assertSame(spectrum0, spectrum1);
+        assertEquals(1, spectrum1.getFrameNumber());
+        assertArrayEquals(frequencies, spectrum1.getFrequencies(), 0f);
+        assertEquals(300f, spectrum1.getFrequencies()[0], 0.001f);
+        // the same input must still yield the same result
+        final LogFrequencySpectrum spectrum2 = transform.processNext(new RealAudioBuffer(2, new float[] {1,2,3,4,5,6,7,8}, format));
+        assertArrayEquals(realData0, spectrum2.getRealData(), 0f);
+    }
+
     @Test(expected = IOException.class)
     public void testMono() throws IOException {
         final ConstantQTransform transform = new ConstantQTransform(300, 5000, 12, 0.0001f);
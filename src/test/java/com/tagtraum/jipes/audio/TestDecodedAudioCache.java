@@ -0,0 +1,171 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.audio;
+
+import com.tagtraum.jipes.SignalSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * TestDecodedAudioCache.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestDecodedAudioCache {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("TestDecodedAudioCache", "");
+        directory.delete();
+        directory.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testMissAndHit() throws IOException, UnsupportedAudioFileException {
+        final File file = extractFile("audio_10_s16le.wav", ".wav");
+        try {
+            final DecodedAudioCache cache = new DecodedAudioCache(new File(directory, "sub"), 100 * 1024 * 1024);
+            final File cacheFile = cache.getCacheFile(file);
+            assertFalse(cacheFile.exists());
+
+            final SeekableSignalSource<AudioBuffer> miss = cache.open(file);
+            assertTrue(cacheFile.exists());
+            assertTrue(miss instanceof MappedAudioSignalSource);
+            final AudioSignalSource reference = new AudioSignalSource(file);
+            assertArrayEquals(readAll(reference), readAll(miss), 0f);
+            assertEquals(reference.getProcessedAudioFormat().toString(), miss.getProcessedAudioFormat().toString());
+            reference.close();
+            ((Closeable) miss).close();
+
+            cacheFile.setLastModified(0);
+            final SeekableSignalSource<AudioBuffer> hit = cache.open(file);
+            // hits are used
+            assertTrue(cacheFile.lastModified() > 0);
+            assertEquals(cacheFile, ((MappedAudioSignalSource) hit).getFile());
+            assertEquals(miss.getFrameLength(), hit.getFrameLength());
+            ((Closeable) hit).close();
+
+            cache.clear();
+            assertFalse(cacheFile.exists());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testKey() throws IOException {
+        final File file = extractFile("mono_10_s16le.wav", ".wav");
+        try {
+            final DecodedAudioCache cache = new DecodedAudioCache(directory, 1024);
+            final File cacheFile = cache.getCacheFile(file);
+            assertEquals(cacheFile, cache.getCacheFile(file));
+            final DecodedAudioCache otherFormatCache = new DecodedAudioCache(directory, 1024, new AudioFormat(44100, 8, 1, true, false));
+            assertFalse(cacheFile.equals(otherFormatCache.getCacheFile(file)));
+            file.setLastModified(file.lastModified() - 10000);
+            assertFalse(cacheFile.equals(cache.getCacheFile(file)));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testTargetFormat() throws IOException, UnsupportedAudioFileException {
+        final File file = extractFile("mono_10_s16le.wav", ".wav");
+        try {
+            final AudioFormat targetFormat = new AudioFormat(44100, 8, 1, true, false);
+            final DecodedAudioCache cache = new DecodedAudioCache(directory, 100 * 1024 * 1024, targetFormat);
+            assertSame(targetFormat, cache.getTargetFormat());
+            final SeekableSignalSource<AudioBuffer> source = cache.open(file);
+            final float[] samples = readAll(source);
+            ((Closeable) source).close();
+            final float[] reference = readAll(new AudioSignalSource(file));
+            assertEquals(reference.length, samples.length);
+            for (int i=0; i<samples.length; i++) {
+                // 8 bit resolution
+                assertEquals(reference[i], samples[i], 1f/64f);
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testEviction() throws IOException, UnsupportedAudioFileException {
+        final File file0 = extractFile("mono_10_s16le.wav", ".wav");
+        final File file1 = extractFile("audio_10_s16le.wav", ".wav");
+        try {
+            // room for only one file
+            final DecodedAudioCache cache = new DecodedAudioCache(directory, 1024);
+            ((Closeable) cache.open(file0)).close();
+            assertTrue(cache.getCacheFile(file0).exists());
+            ((Closeable) cache.open(file1)).close();
+            assertTrue(cache.getCacheFile(file1).exists());
+            assertFalse(cache.getCacheFile(file0).exists());
+        } finally {
+            file0.delete();
+            file1.delete();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalMaxSize() {
+        new DecodedAudioCache(directory, 0);
+    }
+
+    private static float[] readAll(final SignalSource<AudioBuffer> source) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        AudioBuffer buffer;
+        while ((buffer = source.read()) != null) {
+            for (final float f : buffer.getData()) {
+                out.writeFloat(f);
+            }
+        }
+        out.close();
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        final float[] samples = new float[bytes.size() / 4];
+        for (int i=0; i<samples.length; i++) {
+            samples[i] = in.readFloat();
+        }
+        return samples;
+    }
+
+    private static File extractFile(final String name, final String extension) throws IOException {
+        final File audioFile = File.createTempFile("TestDecodedAudioCache", extension);
+        audioFile.deleteOnExit();
+        final InputStream in = TestDecodedAudioCache.class.getResourceAsStream(name);
+        final OutputStream out = new FileOutputStream(audioFile);
+        final byte[] buf = new byte[1024*64];
+        int justRead;
+        while ((justRead = in.read(buf)) != -1) {
+            out.write(buf, 0, justRead);
+        }
+        in.close();
+        out.close();
+        return audioFile;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.audio;
+
+import com.tagtraum.jipes.AbstractSignalProcessor;
+import com.tagtraum.jipes.SignalProcessor;
+import com.tagtraum.jipes.SignalPump;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * TestExcerptSignalSource.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestExcerptSignalSource {
+
+    @Test
+    public void testExcerpts() throws IOException {
+        final File file = extractFile("mono_10_s16le.wav", ".wav");
+        try {
+            final MappedAudioSignalSource mappedSource = new MappedAudioSignalSource(file, 1000);
+            final long frameLength = mappedSource.getFrameLength();
+            final int excerptFrames = (int) mappedSource.getProcessedAudioFormat().getSampleRate();
+            final ExcerptSignalSource<AudioBuffer> source = new ExcerptSignalSource<AudioBuffer>(mappedSource, 3, 1, TimeUnit.SECONDS);
+            assertEquals(3, source.getExcerpts());
+            assertEquals(1000, source.getExcerptLength(TimeUnit.MILLISECONDS));
+            for (int pass=0; pass<2; pass++) {
+                source.reset();
+                final List<Integer> firstFrames = new ArrayList<Integer>();
+                int lastExcerpt = -1;
+                int frames = 0;
+                AudioBuffer buffer;
+                while ((buffer = source.read()) != null) {
+                    if (source.getExcerpt() != lastExcerpt) {
+                        assertEquals(lastExcerpt != -1, source.isDiscontinuity());
+                        firstFrames.add(buffer.getFrameNumber());
+                        lastExcerpt = source.getExcerpt();
+                    } else {
+                        assertFalse(source.isDiscontinuity());
+                        assertTrue(buffer.getFrameNumber() < firstFrames.get(lastExcerpt) + excerptFrames);
+                    }
+                    frames += buffer.getNumberOfSamples();
+                }
+                assertEquals(3, firstFrames.size());
+                for (int i=0; i<3; i++) {
+                    assertEquals((2 * i + 1) * frameLength / 6 - excerptFrames / 2, (long) firstFrames.get(i));
+                }
+                // buffers may extend beyond an excerpt's end
+                assertTrue(frames >= 3 * excerptFrames);
+                assertTrue(frames < 3 * excerptFrames + 3 * 1000);
+                assertEquals(3, source.getExcerpt());
+            }
+            source.close();
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testShortRecording() throws IOException {
+        final File file = extractFile("mono_10_s16le.wav", ".wav");
+        try {
+            final MappedAudioSignalSource mappedSource = new MappedAudioSignalSource(file);
+            final ExcerptSignalSource<AudioBuffer> source = new ExcerptSignalSource<AudioBuffer>(mappedSource, 6, 10, TimeUnit.SECONDS);
+            int frames = 0;
+            AudioBuffer buffer;
+            while ((buffer = source.read()) != null) {
+                assertEquals(frames, buffer.getFrameNumber());
+                assertFalse(source.isDiscontinuity());
+                frames += buffer.getNumberOfSamples();
+            }
+            assertEquals(mappedSource.getFrameLength(), frames);
+            source.close();
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testSlidingWindowIsReset() throws IOException {
+        final File file = extractFile("mono_10_s16le.wav", ".wav");
+        try {
+            final MappedAudioSignalSource mappedSource = new MappedAudioSignalSource(file, 1000);
+            final ExcerptSignalSource<AudioBuffer> source = new ExcerptSignalSource<AudioBuffer>(mappedSource, 2, 1, TimeUnit.SECONDS);
+            final long frameLength = mappedSource.getFrameLength();
+            final int excerptFrames = (int) mappedSource.getProcessedAudioFormat().getSampleRate();
+            final List<Integer> frameNumbers = new ArrayList<Integer>();
+            final SlidingWindow slidingWindow = new SlidingWindow(1024, 512);
+            slidingWindow.connectTo((SignalProcessor<AudioBuffer, AudioBuffer>) new AbstractSignalProcessor<AudioBuffer, AudioBuffer>() {
+                @Override
+                protected AudioBuffer processNext(final AudioBuffer input) throws IOException {
+                    frameNumbers.add(input.getFrameNumber());
+                    return input;
+                }
+            });
+            final SignalPump<AudioBuffer> pump = new SignalPump<AudioBuffer>(source);
+            pump.add(slidingWindow);
+            pump.pump();
+            final long secondStart = 3 * frameLength / 4 - excerptFrames / 2;
+            assertEquals(frameLength / 4 - excerptFrames / 2, (long) frameNumbers.get(0));
+            assertTrue(frameNumbers.contains((int) secondStart));
+            // windows within each excerpt are exactly one hop apart
+            for (int i=1; i<frameNumbers.size(); i++) {
+                if (frameNumbers.get(i) != secondStart) {
+                    assertEquals(512, frameNumbers.get(i) - frameNumbers.get(i - 1));
+                }
+            }
+            source.close();
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalExcerpts() throws IOException {
+        final File file = extractFile("mono_10_s16le.wav", ".wav");
+        final MappedAudioSignalSource mappedSource = new MappedAudioSignalSource(file);
+        try {
+            new ExcerptSignalSource<AudioBuffer>(mappedSource, 0, 1, TimeUnit.SECONDS);
+        } finally {
+            mappedSource.close();
+            file.delete();
+        }
+    }
+
+    private static File extractFile(final String name, final String extension) throws IOException {
+        final File audioFile = File.createTempFile("TestExcerptSignalSource", extension);
+        audioFile.deleteOnExit();
+        final InputStream in = TestExcerptSignalSource.class.getResourceAsStream(name);
+        final OutputStream out = new FileOutputStream(audioFile);
+        final byte[] buf = new byte[1024*64];
+        int justRead;
+        while ((justRead = in.read(buf)) != -1) {
+            out.write(buf, 0, justRead);
+        }
+        in.close();
+        out.close();
+        return audioFile;
+    }
+}
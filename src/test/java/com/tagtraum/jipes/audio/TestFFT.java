@@ -14,7 +14,10 @@ import java.io.IOException;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 /**
  * TestFFT
@@ -103,10 +106,47 @@ public class TestFFT {
         assertNotEquals(fft6, fft3);
     }
 
+    @Test
+    public void testNoPowerOfTwoPadding() throws IOException {
+        final FFT fft = new FFT();
+        assertTrue(fft.isZeroPadToPowerOfTwo());
+        fft.setZeroPadToPowerOfTwo(false);
+        final float[] samples = new float[12];
+        for (int i=0; i<samples.length; i++) {
+            samples[i] = (float) Math.cos(2 * Math.PI * 3 * i / samples.length);
+        }
+        final LinearFrequencySpectrum spectrum = fft.processNext(new RealAudioBuffer(0, samples, new AudioFormat(12, 32, 1, true, true)));
+        assertEquals(12, spectrum.getRealData().length);
+        assertEquals(6f, spectrum.getRealData()[3], 0.0001f);
+        assertEquals(6f, spectrum.getRealData()[9], 0.0001f);
+        assertEquals(0f, spectrum.getRealData()[4], 0.0001f);
+        assertNotEquals(new FFT(), fft);
+    }
+
     @Test
     public void testTargetResolution() throws IOException {
         final FFT fft = new FFT(40f);
         fft.processNext(new RealAudioBuffer(0, new float[1024], new AudioFormat(10000, 8, 1, true, true)));
         fft.processNext(new RealAudioBuffer(1, new float[1024], new AudioFormat(10000, 8, 1, true, true)));
     }
+
+    @Test
+    public void testReusesArrays() throws IOException, CloneNotSupportedException {
+        final FFT fft = new FFT();
+        final AudioFormat format = new AudioFormat(10000, 32, 1, true, true);
+        final LinearFrequencySpectrum spectrum0 = fft.processNext(new RealAudioBuffer(0, new float[]{1, 2, 1, 2, 1, 2, 1, 2}, format));
+        final float[] realData = spectrum0.getRealData();
+        final float[] imaginaryData = spectrum0.getImaginaryData();
+        assertEquals(12f, realData[0], 0.0001f);
+        final LinearFrequencySpectrum spectrum1 = fft.processNext(new RealAudioBuffer(1, new float[]{1, 1, 1, 1, 1, 1, 1, 1}, format));
+        assertSame(spectrum0, spectrum1);
+        assertSame(realData, spectrum1.getRealData());
+        assertSame(imaginaryData, spectrum1.getImaginaryData());
+        assertEquals(8f, spectrum1.getRealData()[0], 0.0001f);
+        assertEquals(0f, spectrum1.getRealData()[4], 0.0001f);
+
+        final FFT clone = (FFT) fft.clone();
+        final LinearFrequencySpectrum spectrum2 = clone.processNext(new RealAudioBuffer(2, new float[]{1, 1, 1, 1, 1, 1, 1, 1}, format));
+        assertNotSame(realData, spectrum2.getRealData());
+    }
 }
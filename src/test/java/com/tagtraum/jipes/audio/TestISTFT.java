@@ -0,0 +1,215 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.audio;
+
+import com.tagtraum.jipes.AbstractSignalProcessor;
+import com.tagtraum.jipes.SignalProcessor;
+import com.tagtraum.jipes.SignalSource;
+import com.tagtraum.jipes.math.WindowFunction;
+import org.junit.Test;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * TestISTFT.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestISTFT {
+
+    private static final AudioFormat MONO = new AudioFormat(10000, 32, 1, true, true);
+
+    @Test
+    public void testRoundtrip() throws IOException {
+        assertRoundtrip(1024, 256, true);
+        assertRoundtrip(1024, 512, true);
+        assertRoundtrip(1000, 300, true);
+        assertRoundtrip(1000, 300, false);
+        assertRoundtrip(256, 64, true);
+    }
+
+    private static void assertRoundtrip(final int sliceLength, final int hopSize, final boolean zeroPad) throws IOException {
+        final float[] signal = createSignal(10000);
+        final STFT stft = new STFT(sliceLength, hopSize, new WindowFunction.Hann(sliceLength));
+        stft.setZeroPadToPowerOfTwo(zeroPad);
+        final ISTFT istft = new ISTFT(sliceLength, hopSize);
+        final BlockCollector collector = new BlockCollector();
+        stft.connectTo((SignalProcessor<LinearFrequencySpectrum, AudioBuffer>) istft)
+                .connectTo((SignalProcessor<AudioBuffer, float[]>) collector);
+        for (int offset=0; offset<signal.length; offset+=500) {
+            final float[] samples = new float[500];
+            System.arraycopy(signal, offset, samples, 0, samples.length);
+            stft.process(new RealAudioBuffer(offset, samples, MONO));
+        }
+        stft.flush();
+
+        final float[] output = collector.getOutput();
+        final String message = "slice=" + sliceLength + ", hop=" + hopSize;
+        assertTrue(message, output.length >= signal.length);
+        assertEquals(message, 0, output.length % hopSize);
+        assertEquals(message, 0, collector.frameNumbers.get(0).intValue());
+        for (int i=1; i<collector.frameNumbers.size(); i++) {
+            assertEquals(message, i * hopSize, collector.frameNumbers.get(i).intValue());
+        }
+        // the edges of the signal are attenuated to (almost) zero by the window and cannot be reconstructed
+        for (int i=sliceLength; i<signal.length-sliceLength; i++) {
+            assertEquals(message + ", i=" + i, signal[i], output[i], 0.001f);
+        }
+        for (int i=signal.length + sliceLength; i<output.length; i++) {
+            assertEquals(message + ", i=" + i, 0f, output[i], 0.001f);
+        }
+    }
+
+    @Test
+    public void testReusesBlock() throws IOException {
+        final STFT stft = new STFT(32, 8);
+        final ISTFT istft = new ISTFT(32, 8);
+        final List<AudioBuffer> blocks = new ArrayList<AudioBuffer>();
+        final List<float[]> data = new ArrayList<float[]>();
+        stft.connectTo((SignalProcessor<LinearFrequencySpectrum, AudioBuffer>) istft).connectTo(new AbstractSignalProcessor<AudioBuffer, Void>() {
+            @Override
+            protected Void processNext(final AudioBuffer buffer) throws IOException {
+                blocks.add(buffer);
+                data.add(buffer.getData());
+                return null;
+            }
+        });
+        stft.process(new RealAudioBuffer(0, createSignal(128), MONO));
+        assertTrue(blocks.size() > 1);
+        for (int i=1; i<blocks.size(); i++) {
+            assertSame(blocks.get(0), blocks.get(i));
+            assertSame(data.get(0), data.get(i));
+            assertEquals(8, data.get(i).length);
+        }
+    }
+
+    @Test
+    public void testRead() throws IOException {
+        final float[] signal = createSignal(2000);
+        final List<AudioBuffer> buffers = new ArrayList<AudioBuffer>();
+        for (int offset=0; offset<signal.length; offset+=100) {
+            final float[] samples = new float[100];
+            System.arraycopy(signal, offset, samples, 0, samples.length);
+            buffers.add(new RealAudioBuffer(offset, samples, MONO));
+        }
+        final STFT stft = new STFT(128, 32);
+        stft.connectTo(new SignalSource<AudioBuffer>() {
+            private int index;
+
+            public AudioBuffer read() throws IOException {
+                return index < buffers.size() ? buffers.get(index++) : null;
+            }
+
+            public void reset() {
+                index = 0;
+            }
+        });
+        final ISTFT istft = new ISTFT(128, 32);
+        istft.connectTo((SignalSource<LinearFrequencySpectrum>) stft);
+
+        final List<Float> output = new ArrayList<Float>();
+        AudioBuffer block;
+        while ((block = istft.read()) != null) {
+            assertEquals(output.size(), block.getFrameNumber());
+            for (final float f : block.getData()) {
+                output.add(f);
+            }
+        }
+        assertTrue(output.size() >= signal.length);
+        for (int i=128; i<signal.length-128; i++) {
+            assertEquals("i=" + i, signal[i], output.get(i), 0.001f);
+        }
+    }
+
+    @Test
+    public void testCloneAndReset() throws IOException, CloneNotSupportedException {
+        final ISTFT istft = new ISTFT(16, 4);
+        final BlockCollector collector = new BlockCollector();
+        istft.connectTo((SignalProcessor<AudioBuffer, float[]>) collector);
+        final LinearFrequencySpectrum spectrum = new LinearFrequencySpectrum(0, new float[16], new float[16], MONO);
+        istft.process(spectrum);
+        final ISTFT clone = (ISTFT) istft.clone();
+        assertEquals(istft, clone);
+        assertEquals(istft.hashCode(), clone.hashCode());
+        assertEquals(0, clone.getConnectedProcessors().length);
+        assertNull(clone.getOutput());
+        istft.reset();
+        istft.flush();
+        assertEquals(1, collector.frameNumbers.size());
+    }
+
+    @Test(expected = IOException.class)
+    public void testShortSpectrum() throws IOException {
+        new ISTFT(16, 4).process(new LinearFrequencySpectrum(0, new float[8], new float[8], MONO));
+    }
+
+    @Test(expected = IOException.class)
+    public void testMono() throws IOException {
+        new ISTFT(16, 4).process(new LinearFrequencySpectrum(0, new float[16], new float[16], new AudioFormat(10000, 8, 2, true, true)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWindowLength() {
+        new ISTFT(1024, 512, new WindowFunction.Hann(1024), new WindowFunction.Hann(512));
+    }
+
+    @Test
+    public void testEqualsHashCodeToString() {
+        final ISTFT istft0 = new ISTFT(1024, 512);
+        final ISTFT istft1 = new ISTFT(1024, 512, new WindowFunction.Hann(1024), new WindowFunction.Hann(1024));
+        final ISTFT istft2 = new ISTFT(1024, 512, new WindowFunction.Hann(1024), new WindowFunction.Hamming(1024));
+        final ISTFT istft3 = new ISTFT(1024, 256);
+        assertEquals(istft0, istft1);
+        assertEquals(istft0.hashCode(), istft1.hashCode());
+        assertNotEquals(istft0, istft2);
+        assertNotEquals(istft0, istft3);
+        assertEquals("ISTFT{window=1024, hop=512, analysisWindowFunction=Hann{length=1024}, synthesisWindowFunction=Hann{length=1024}}", istft0.toString());
+    }
+
+    private static float[] createSignal(final int length) {
+        final float[] signal = new float[length];
+        for (int i=0; i<length; i++) {
+            signal[i] = (float) (0.8 * Math.sin(2 * Math.PI * 440 * i / 10000.0) + 0.2 * Math.cos(i * 0.731));
+        }
+        return signal;
+    }
+
+    /**
+     * Concatenates all blocks.
+     */
+    private static class BlockCollector extends AbstractSignalProcessor<AudioBuffer, float[]> {
+        private final List<Float> samples = new ArrayList<Float>();
+        private final List<Integer> frameNumbers = new ArrayList<Integer>();
+
+        @Override
+        protected float[] processNext(final AudioBuffer buffer) throws IOException {
+            return null;
+        }
+
+        @Override
+        public void process(final AudioBuffer in) throws IOException {
+            frameNumbers.add(in.getFrameNumber());
+            for (final float f : in.getData()) {
+                samples.add(f);
+            }
+        }
+
+        @Override
+        public float[] getOutput() throws IOException {
+            final float[] output = new float[samples.size()];
+            for (int i=0; i<output.length; i++) {
+                output[i] = samples.get(i);
+            }
+            return output;
+        }
+    }
+}
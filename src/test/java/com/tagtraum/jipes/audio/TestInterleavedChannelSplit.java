@@ -15,6 +15,7 @@ import java.io.IOException;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
@@ -53,6 +54,33 @@ public class TestInterleavedChannelSplit {
         assertEquals(((AudioBuffer)channel1.getOutput()).getData()[2], 6f, 0.0001f);
     }
 
+    @Test
+    public void testPlanarSplitting() throws IOException {
+        final InterleavedChannelSplit processor = new InterleavedChannelSplit();
+        final MockChildProcessor channel0 = new MockChildProcessor();
+        final MockChildProcessor channel1 = new MockChildProcessor();
+        processor.connectTo(0, channel0);
+        processor.connectTo(1, channel1);
+        final float[] left = {1, 3, 5, 7};
+        final float[] right = {2, 4, 6, 8};
+        final AudioFormat audioFormat = new AudioFormat(44100, 32, 2, true, true);
+        processor.process(new PlanarAudioBuffer(5, new float[][]{left, right}, audioFormat));
+
+        final AudioBuffer out0 = (AudioBuffer) channel0.getOutput();
+        final AudioBuffer out1 = (AudioBuffer) channel1.getOutput();
+        // no copies
+        assertSame(left, out0.getData());
+        assertSame(right, out1.getData());
+        assertEquals(5, out0.getFrameNumber());
+        assertEquals(1, out0.getAudioFormat().getChannels());
+
+        // same result as for interleaved data
+        processor.process(new RealAudioBuffer(5, new float[]{1, 2, 3, 4, 5, 6, 7, 8}, audioFormat));
+        assertArrayEquals(left, ((AudioBuffer) channel0.getOutput()).getData(), 0.0001f);
+        assertArrayEquals(right, ((AudioBuffer) channel1.getOutput()).getData(), 0.0001f);
+        assertEquals(out0.getAudioFormat().toString(), ((AudioBuffer) channel0.getOutput()).getAudioFormat().toString());
+    }
+
     @Test
     public void testFlush() throws IOException {
         final InterleavedChannelSplit processor = new InterleavedChannelSplit();
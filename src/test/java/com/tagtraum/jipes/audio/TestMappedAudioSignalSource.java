@@ -0,0 +1,238 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.audio;
+
+import org.junit.Test;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+/**
+ * TestMappedAudioSignalSource.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestMappedAudioSignalSource {
+
+    @Test
+    public void testMonoSigned16Bit() throws IOException, UnsupportedAudioFileException {
+        assertSameAsAudioSignalSource(extractFile("mono_10_s16le.wav", ".wav"));
+    }
+
+    @Test
+    public void testStereoSigned16Bit() throws IOException, UnsupportedAudioFileException {
+        assertSameAsAudioSignalSource(extractFile("audio_10_s16le.wav", ".wav"));
+    }
+
+    @Test
+    public void testStereoUnsigned8Bit() throws IOException, UnsupportedAudioFileException {
+        assertSameAsAudioSignalSource(extractFile("audio_10_u8.wav", ".wav"));
+    }
+
+    @Test
+    public void testStereoSigned24Bit() throws IOException {
+        assertSameAsRawAudioSignalSource(extractFile("audio_10_s24le.wav", ".wav"), 24);
+    }
+
+    @Test
+    public void testStereoSigned32Bit() throws IOException {
+        assertSameAsRawAudioSignalSource(extractFile("audio_10_s32le.wav", ".wav"), 32);
+    }
+
+    @Test
+    public void testAiff() throws IOException, UnsupportedAudioFileException {
+        final File wav = extractFile("audio_10_s16le.wav", ".wav");
+        final File aiff = File.createTempFile("TestMappedAudioSignalSource", ".aiff");
+        aiff.deleteOnExit();
+        try {
+            AudioSystem.write(AudioSystem.getAudioInputStream(wav), AudioFileFormat.Type.AIFF, aiff);
+            final MappedAudioSignalSource source = new MappedAudioSignalSource(aiff);
+            assertEquals(44100f, source.getProcessedAudioFormat().getSampleRate(), 0.0001f);
+            assertEquals(2, source.getProcessedAudioFormat().getChannels());
+            assertSameData(new AudioSignalSource(wav), source);
+        } finally {
+            wav.delete();
+            aiff.delete();
+        }
+    }
+
+    @Test
+    public void testFloatWave() throws IOException {
+        final float[] samples = {0f, 0.5f, -0.5f, 1f, -1f, 0.25f};
+        final ByteBuffer data = ByteBuffer.allocate(samples.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (final float sample : samples) data.putFloat(sample);
+        final ByteBuffer header = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN);
+        header.put("RIFF".getBytes("ASCII")).putInt(36 + data.capacity()).put("WAVE".getBytes("ASCII"));
+        header.put("fmt ".getBytes("ASCII")).putInt(16)
+                .putShort((short) 3).putShort((short) 2).putInt(8000).putInt(8000 * 8).putShort((short) 8).putShort((short) 32);
+        header.put("data".getBytes("ASCII")).putInt(data.capacity());
+        final File file = writeFile(".wav", header.array(), data.array());
+        try {
+            final MappedAudioSignalSource source = new MappedAudioSignalSource(file);
+            assertEquals(3, source.getFrameLength());
+            final AudioBuffer buffer = source.read();
+            assertEquals(0, buffer.getFrameNumber());
+            assertEquals(2, buffer.getAudioFormat().getChannels());
+            assertArrayEquals(samples, buffer.getData(), 0.000001f);
+            assertNull(source.read());
+            source.close();
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testRawPCMSkipAndReset() throws IOException {
+        final ByteBuffer data = ByteBuffer.allocate(20).order(ByteOrder.BIG_ENDIAN);
+        for (int i=0; i<10; i++) data.putShort((short) (i * 1000));
+        final File file = writeFile(".raw", new byte[]{1, 2, 3}, data.array());
+        try {
+            final MappedAudioSignalSource source = new MappedAudioSignalSource(file,
+                    new AudioFormat(8000, 16, 1, true, true), 3, 8);
+            source.setNormalize(false);
+            assertEquals(10, source.getFrameLength());
+            assertEquals(6, source.skip(6));
+            AudioBuffer buffer = source.read();
+            assertEquals(6, buffer.getFrameNumber());
+            assertArrayEquals(new float[]{6000, 7000, 8000, 9000}, buffer.getData(), 0.000001f);
+            assertNull(source.read());
+            source.reset();
+            buffer = source.read();
+            assertEquals(0, buffer.getFrameNumber());
+            assertArrayEquals(new float[]{0, 1000, 2000, 3000}, buffer.getData(), 0.000001f);
+            source.close();
+            assertNull(source.read());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testRawPCMSeek() throws IOException {
+        final ByteBuffer data = ByteBuffer.allocate(20).order(ByteOrder.BIG_ENDIAN);
+        for (int i=0; i<10; i++) data.putShort((short) (i * 1000));
+        final File file = writeFile(".raw", new byte[0], data.array());
+        try {
+            final MappedAudioSignalSource source = new MappedAudioSignalSource(file,
+                    new AudioFormat(8000, 16, 1, true, true), 0, 4);
+            source.setNormalize(false);
+            source.seek(7);
+            assertEquals(7, source.getFramePosition());
+            AudioBuffer buffer = source.read();
+            assertEquals(7, buffer.getFrameNumber());
+            assertArrayEquals(new float[]{7000, 8000}, buffer.getData(), 0.000001f);
+            source.seek(3);
+            buffer = source.read();
+            assertEquals(3, buffer.getFrameNumber());
+            assertArrayEquals(new float[]{3000, 4000}, buffer.getData(), 0.000001f);
+            source.seek(100);
+            assertEquals(10, source.getFramePosition());
+            assertNull(source.read());
+            source.close();
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotAudio() throws IOException {
+        final File file = writeFile(".txt", "Hello World, this is not audio.".getBytes("ASCII"), new byte[0]);
+        try {
+            new MappedAudioSignalSource(file);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedFormat() throws IOException {
+        final File file = writeFile(".raw", new byte[0], new byte[16]);
+        try {
+            new MappedAudioSignalSource(file, new AudioFormat(8000, 16, 1, false, true));
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static void assertSameAsAudioSignalSource(final File file) throws IOException, UnsupportedAudioFileException {
+        try {
+            assertSameData(new AudioSignalSource(file), new MappedAudioSignalSource(file));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Not all platforms can open WAVE_FORMAT_EXTENSIBLE files via AudioSystem, therefore
+     * we feed the data chunk directly to an AudioSignalSource.
+     */
+    private static void assertSameAsRawAudioSignalSource(final File file, final int sampleSizeInBits) throws IOException {
+        try {
+            final byte[] bytes = new byte[(int) file.length()];
+            final DataInputStream in = new DataInputStream(new FileInputStream(file));
+            in.readFully(bytes);
+            in.close();
+            final int dataOffset = new String(bytes, "ISO-8859-1").indexOf("data") + 8;
+            final AudioFormat audioFormat = new AudioFormat(44100, sampleSizeInBits, 2, true, false);
+            final AudioInputStream stream = new AudioInputStream(new ByteArrayInputStream(bytes, dataOffset, bytes.length - dataOffset),
+                    audioFormat, (bytes.length - dataOffset) / audioFormat.getFrameSize());
+            assertSameData(new AudioSignalSource(stream), new MappedAudioSignalSource(file));
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static void assertSameData(final AudioSignalSource expectedSource, final MappedAudioSignalSource actualSource) throws IOException {
+        assertEquals(expectedSource.getFrameLength(), actualSource.getFrameLength());
+        AudioBuffer expected;
+        int buffers = 0;
+        while ((expected = expectedSource.read()) != null) {
+            final AudioBuffer actual = actualSource.read();
+            assertNotNull(actual);
+            assertEquals(expected.getFrameNumber(), actual.getFrameNumber());
+            assertEquals(expected.getAudioFormat().getChannels(), actual.getAudioFormat().getChannels());
+            assertArrayEquals(expected.getData(), actual.getData(), 0.000001f);
+            buffers++;
+        }
+        assertTrue(buffers > 1);
+        assertNull(actualSource.read());
+        actualSource.close();
+    }
+
+    private static File writeFile(final String extension, final byte[] header, final byte[] data) throws IOException {
+        final File file = File.createTempFile("TestMappedAudioSignalSource", extension);
+        file.deleteOnExit();
+        final OutputStream out = new FileOutputStream(file);
+        out.write(header);
+        out.write(data);
+        out.close();
+        return file;
+    }
+
+    private static File extractFile(final String name, final String extension) throws IOException {
+        final File audioFile = File.createTempFile("TestMappedAudioSignalSource", extension);
+        audioFile.deleteOnExit();
+        final InputStream in = TestMappedAudioSignalSource.class.getResourceAsStream(name);
+        final OutputStream out = new FileOutputStream(audioFile);
+        final byte[] buf = new byte[1024*64];
+        int justRead;
+        while ((justRead = in.read(buf)) != -1) {
+            out.write(buf, 0, justRead);
+        }
+        in.close();
+        out.close();
+        return audioFile;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.audio;
+
+import com.tagtraum.jipes.AbstractSignalProcessor;
+import com.tagtraum.jipes.SignalProcessor;
+import org.junit.Test;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * TestMultiResolutionSlidingWindow.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestMultiResolutionSlidingWindow {
+
+    private static final int[] LENGTHS = {16, 64, 256};
+    private static final int[] HOPS = {8, 8, 32};
+
+    @Test
+    public void testSameAsSlidingWindows() throws IOException {
+        final AudioFormat mono = new AudioFormat(10000, 32, 1, true, true);
+        final MultiResolutionSlidingWindow multi = new MultiResolutionSlidingWindow(LENGTHS, HOPS);
+        final List<Recorder> multiRecorders = new ArrayList<Recorder>();
+        final List<SlidingWindow> singles = new ArrayList<SlidingWindow>();
+        final List<Recorder> singleRecorders = new ArrayList<Recorder>();
+        for (int i=0; i<LENGTHS.length; i++) {
+            final Recorder multiRecorder = new Recorder();
+            multi.connectTo(i, multiRecorder);
+            multiRecorders.add(multiRecorder);
+            final SlidingWindow single = new SlidingWindow(LENGTHS[i], HOPS[i]);
+            final Recorder singleRecorder = new Recorder();
+            single.connectTo((SignalProcessor<AudioBuffer, AudioBuffer>) singleRecorder);
+            singles.add(single);
+            singleRecorders.add(singleRecorder);
+        }
+        // odd chunk size, so that chunks don't line up with windows
+        for (int frame=0; frame<1000; frame+=37) {
+            final float[] data = new float[Math.min(37, 1000-frame)];
+            for (int j=0; j<data.length; j++) data[j] = frame + j;
+            final RealAudioBuffer buffer = new RealAudioBuffer(frame + 50, data, mono);
+            multi.process(buffer);
+            for (final SlidingWindow single : singles) single.process(buffer);
+        }
+        multi.flush();
+        for (final SlidingWindow single : singles) single.flush();
+
+        for (int i=0; i<LENGTHS.length; i++) {
+            final Recorder expected = singleRecorders.get(i);
+            final Recorder actual = multiRecorders.get(i);
+            assertFalse(expected.frameNumbers.isEmpty());
+            assertEquals(50, (int)actual.frameNumbers.get(0));
+            assertEquals(expected.frameNumbers, actual.frameNumbers);
+            for (int j=0; j<expected.data.size(); j++) {
+                assertArrayEquals(expected.data.get(j), actual.data.get(j), 0.00001f);
+            }
+        }
+    }
+
+    @Test
+    public void testStereo() throws IOException {
+        final AudioFormat stereo = new AudioFormat(10000, 32, 2, true, true);
+        final MultiResolutionSlidingWindow multi = new MultiResolutionSlidingWindow(new int[] {2, 4}, new int[] {2, 2});
+        final List<float[][]> windows = new ArrayList<float[][]>();
+        multi.connectTo(1, new AbstractSignalProcessor<AudioBuffer, AudioBuffer>() {
+            @Override
+            protected AudioBuffer processNext(final AudioBuffer input) throws IOException {
+                final PlanarAudioBuffer planar = (PlanarAudioBuffer) input;
+                windows.add(new float[][]{planar.getChannelData(0).clone(), planar.getChannelData(1).clone()});
+                return input;
+            }
+        });
+        multi.process(new RealAudioBuffer(0, new float[]{0, 10, 1, 11, 2, 12, 3, 13, 4, 14}, stereo));
+        multi.flush();
+        assertEquals(3, windows.size());
+        assertArrayEquals(new float[]{0, 1, 2, 3}, windows.get(0)[0], 0.00001f);
+        assertArrayEquals(new float[]{10, 11, 12, 13}, windows.get(0)[1], 0.00001f);
+        assertArrayEquals(new float[]{2, 3, 4, 0}, windows.get(1)[0], 0.00001f);
+        assertArrayEquals(new float[]{4, 0, 0, 0}, windows.get(2)[0], 0.00001f);
+        assertArrayEquals(new float[]{14, 0, 0, 0}, windows.get(2)[1], 0.00001f);
+    }
+
+    @Test
+    public void testReset() throws IOException {
+        final AudioFormat mono = new AudioFormat(10000, 32, 1, true, true);
+        final MultiResolutionSlidingWindow multi = new MultiResolutionSlidingWindow(new int[] {4}, new int[] {4});
+        final Recorder recorder = new Recorder();
+        multi.connectTo(0, recorder);
+        multi.process(new RealAudioBuffer(0, new float[]{0, 1, 2}, mono));
+        multi.reset();
+        multi.process(new RealAudioBuffer(100, new float[]{100, 101, 102, 103}, mono));
+        assertEquals(1, recorder.frameNumbers.size());
+        assertEquals(100, (int)recorder.frameNumbers.get(0));
+        assertArrayEquals(new float[]{100, 101, 102, 103}, recorder.data.get(0), 0.00001f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHopGreaterThanLength() {
+        new MultiResolutionSlidingWindow(new int[] {4, 8}, new int[] {2, 9});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMismatchedArrays() {
+        new MultiResolutionSlidingWindow(new int[] {4, 8}, new int[] {2});
+    }
+
+    @Test
+    public void testEqualsHashCode() {
+        final MultiResolutionSlidingWindow window0 = new MultiResolutionSlidingWindow(LENGTHS, HOPS);
+        final MultiResolutionSlidingWindow window1 = new MultiResolutionSlidingWindow(LENGTHS, HOPS);
+        final MultiResolutionSlidingWindow window2 = new MultiResolutionSlidingWindow(new int[] {16, 64}, new int[] {8, 8});
+
+        assertEquals(window0.hashCode(), window1.hashCode());
+        assertEquals(window0, window1);
+        assertNotEquals(window0, window2);
+    }
+
+    private static class Recorder extends AbstractSignalProcessor<AudioBuffer, AudioBuffer> {
+
+        private final List<Integer> frameNumbers = new ArrayList<Integer>();
+        private final List<float[]> data = new ArrayList<float[]>();
+
+        @Override
+        protected AudioBuffer processNext(final AudioBuffer input) throws IOException {
+            frameNumbers.add(input.getFrameNumber());
+            data.add(input.getData().clone());
+            return input;
+        }
+    }
+}
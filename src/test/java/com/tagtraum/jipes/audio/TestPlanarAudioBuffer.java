@@ -0,0 +1,85 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.audio;
+
+import org.junit.Test;
+
+import javax.sound.sampled.AudioFormat;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * TestPlanarAudioBuffer.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestPlanarAudioBuffer {
+
+    private static final AudioFormat STEREO = new AudioFormat(10, 32, 2, true, true);
+
+    @Test
+    public void testBasics() {
+        final float[][] channels = {{1, -3, 5}, {2, 4, -6}};
+        final PlanarAudioBuffer buffer = new PlanarAudioBuffer(20, channels, STEREO);
+        assertEquals(20, buffer.getFrameNumber());
+        assertEquals(2000, buffer.getTimestamp());
+        assertEquals(2, buffer.getTimestamp(TimeUnit.SECONDS));
+        assertEquals(STEREO, buffer.getAudioFormat());
+        assertEquals(2, buffer.getChannelCount());
+        assertEquals(6, buffer.getNumberOfSamples());
+        assertSame(channels[1], buffer.getChannelData(1));
+        assertArrayEquals(new float[]{1, 2, -3, 4, 5, -6}, buffer.getData(), 0.000001f);
+        assertArrayEquals(new float[]{1, 2, -3, 4, 5, -6}, buffer.getRealData(), 0.000001f);
+        assertArrayEquals(new float[6], buffer.getImaginaryData(), 0.000001f);
+        assertArrayEquals(new float[]{1, 4, 9, 16, 25, 36}, buffer.getPowers(), 0.000001f);
+        assertArrayEquals(new float[]{1, 2, 3, 4, 5, 6}, buffer.getMagnitudes(), 0.000001f);
+    }
+
+    @Test
+    public void testChannel() {
+        final float[][] channels = {{1, 3}, {2, 4}};
+        final PlanarAudioBuffer buffer = new PlanarAudioBuffer(20, channels, STEREO);
+        final RealAudioBuffer channel = buffer.getChannel(1);
+        assertSame(channels[1], channel.getData());
+        assertEquals(20, channel.getFrameNumber());
+        assertEquals(1, channel.getAudioFormat().getChannels());
+        assertEquals(STEREO.getSampleRate(), channel.getAudioFormat().getSampleRate(), 0.0001f);
+
+        // reuse
+        final float[][] nextChannels = {{5, 7}, {6, 8}};
+        buffer.reuse(22, nextChannels, STEREO);
+        assertSame(channel, buffer.getChannel(1));
+        assertSame(nextChannels[1], channel.getData());
+        assertEquals(22, channel.getFrameNumber());
+        assertArrayEquals(new float[]{5, 6, 7, 8}, buffer.getData(), 0.000001f);
+    }
+
+    @Test
+    public void testCloneAndEquals() throws CloneNotSupportedException {
+        final PlanarAudioBuffer buffer = new PlanarAudioBuffer(20, new float[][]{{1, 3}, {2, 4}}, STEREO);
+        final PlanarAudioBuffer clone = (PlanarAudioBuffer) buffer.clone();
+        assertEquals(buffer, clone);
+        assertEquals(buffer.hashCode(), clone.hashCode());
+        assertNotSame(buffer.getChannelData(0), clone.getChannelData(0));
+        clone.getChannelData(0)[0] = 10;
+        assertFalse(buffer.equals(clone));
+    }
+
+    @Test
+    public void testDerive() {
+        final PlanarAudioBuffer buffer = new PlanarAudioBuffer(20, new float[][]{{1, 3}, {2, 4}}, STEREO);
+        final RealAudioBuffer derived = buffer.derive(new float[]{1, 1, 1, 1}, null);
+        assertEquals(20, derived.getFrameNumber());
+        assertEquals(STEREO, derived.getAudioFormat());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoChannels() {
+        new PlanarAudioBuffer(0, new float[0][], STEREO);
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.audio;
+
+import com.tagtraum.jipes.SignalSource;
+import org.junit.Test;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * TestReadAheadSignalSource.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestReadAheadSignalSource {
+
+    @Test
+    public void testRead() throws IOException {
+        final CountingSignalSource countingSource = new CountingSignalSource(100);
+        final ReadAheadSignalSource source = new ReadAheadSignalSource(countingSource, 2);
+        assertSame(countingSource, source.getSignalSource());
+        assertEquals(2, source.getBlocks());
+        for (int i=0; i<100; i++) {
+            final AudioBuffer buffer = source.read();
+            assertEquals(i * 10, buffer.getFrameNumber());
+            assertEquals(i, buffer.getData()[0], 0.00001f);
+            assertEquals(i, buffer.getData()[9], 0.00001f);
+        }
+        assertNull(source.read());
+        assertNull(source.read());
+        source.close();
+        assertTrue(countingSource.closed);
+    }
+
+    @Test
+    public void testBuffersAreRecycled() throws IOException {
+        final ReadAheadSignalSource source = new ReadAheadSignalSource(new CountingSignalSource(100), 2);
+        final java.util.Set<float[]> arrays = java.util.Collections.newSetFromMap(new java.util.IdentityHashMap<float[], Boolean>());
+        AudioBuffer buffer;
+        while ((buffer = source.read()) != null) {
+            arrays.add(buffer.getData());
+        }
+        // blocks + 1 for the reader + 1 for the consumer
+        assertTrue("Too many arrays: " + arrays.size(), arrays.size() <= 4);
+    }
+
+    @Test
+    public void testReset() throws IOException {
+        final CountingSignalSource countingSource = new CountingSignalSource(100);
+        final ReadAheadSignalSource source = new ReadAheadSignalSource(countingSource, 4);
+        assertEquals(0, source.read().getFrameNumber());
+        assertEquals(10, source.read().getFrameNumber());
+        source.reset();
+        assertEquals(0, source.read().getFrameNumber());
+        while (source.read() != null) {
+            // read everything
+        }
+        source.reset();
+        assertEquals(0, source.read().getFrameNumber());
+    }
+
+    @Test
+    public void testFailure() throws IOException {
+        final ReadAheadSignalSource source = new ReadAheadSignalSource(new CountingSignalSource(5) {
+            @Override
+            public AudioBuffer read() throws IOException {
+                final AudioBuffer buffer = super.read();
+                if (buffer == null) throw new IOException("Failure");
+                return buffer;
+            }
+        });
+        for (int i=0; i<5; i++) {
+            assertNotNull(source.read());
+        }
+        try {
+            source.read();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals("Failure", e.getMessage());
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testCloseBlockedReader() throws IOException, InterruptedException {
+        final CountingSignalSource countingSource = new CountingSignalSource(1000);
+        final ReadAheadSignalSource source = new ReadAheadSignalSource(countingSource, 2);
+        assertEquals(0, source.read().getFrameNumber());
+        // give the reader time to fill the queue, it must then block rather than read on
+        Thread.sleep(200);
+        // 1 consumed + 2 blocks + 1 held by the blocked reader
+        assertTrue("Read too far ahead: " + countingSource.index, countingSource.index <= 4);
+        source.close();
+        assertTrue(countingSource.closed);
+        final int index = countingSource.index;
+        Thread.sleep(50);
+        assertEquals(index, countingSource.index);
+        assertNull(source.read());
+    }
+
+    @Test(timeout = 5000)
+    public void testInterruptedReset() throws IOException {
+        final AtomicBoolean reading = new AtomicBoolean();
+        final AtomicBoolean overlap = new AtomicBoolean();
+        final ReadAheadSignalSource source = new ReadAheadSignalSource(new CountingSignalSource(100) {
+            @Override
+            public void reset() {
+                if (reading.get()) overlap.set(true);
+                super.reset();
+            }
+
+            @Override
+            public AudioBuffer read() throws IOException {
+                reading.set(true);
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                final AudioBuffer buffer = super.read();
+                reading.set(false);
+                return buffer;
+            }
+        }, 2);
+        assertEquals(0, source.read().getFrameNumber());
+        // the reader is now busy reading the next buffer
+        Thread.currentThread().interrupt();
+        source.reset();
+        // the interrupt flag must be restored
+        assertTrue(Thread.interrupted());
+        // the wrapped source must not be reset while the reader still uses it
+        assertFalse(overlap.get());
+        assertEquals(0, source.read().getFrameNumber());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalBlocks() {
+        new ReadAheadSignalSource(new CountingSignalSource(1), 0);
+    }
+
+    /**
+     * Delivers buffers filled with their index, re-using its buffer.
+     */
+    private static class CountingSignalSource implements SignalSource<AudioBuffer>, Closeable {
+
+        private final AudioFormat audioFormat = new AudioFormat(10000, 16, 1, true, true);
+        private final float[] data = new float[10];
+        private final RealAudioBuffer buffer = new RealAudioBuffer(0, data, audioFormat);
+        private final int count;
+        private int index;
+        private boolean closed;
+
+        private CountingSignalSource(final int count) {
+            this.count = count;
+        }
+
+        public void reset() {
+            index = 0;
+        }
+
+        public AudioBuffer read() throws IOException {
+            if (index >= count) return null;
+            java.util.Arrays.fill(data, index);
+            buffer.reuse(index * data.length, data, audioFormat);
+            index++;
+            return buffer;
+        }
+
+        public void close() throws IOException {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.audio;
+
+import com.tagtraum.jipes.AbstractSignalProcessor;
+import com.tagtraum.jipes.SignalProcessor;
+import com.tagtraum.jipes.SignalSource;
+import com.tagtraum.jipes.math.WindowFunction;
+import com.tagtraum.jipes.universal.Mapping;
+import org.junit.Test;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * TestSTFT.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestSTFT {
+
+    private static final AudioFormat MONO = new AudioFormat(10000, 32, 1, true, true);
+
+    @Test
+    public void testMatchesComposedChain() throws IOException {
+        assertMatchesComposedChain(1024, 256, true, 700);
+        assertMatchesComposedChain(1024, 1024, true, 333);
+        assertMatchesComposedChain(1000, 300, true, 512);
+        assertMatchesComposedChain(1000, 300, false, 512);
+        assertMatchesComposedChain(12, 5, false, 7);
+    }
+
+    private static void assertMatchesComposedChain(final int sliceLength, final int hopSize, final boolean zeroPad,
+                                                   final int bufferLength) throws IOException {
+        final SlidingWindow slidingWindow = new SlidingWindow(sliceLength, hopSize);
+        final FFT fft = new FFT();
+        fft.setZeroPadToPowerOfTwo(zeroPad);
+        final SpectrumCollector expected = new SpectrumCollector();
+        slidingWindow.connectTo((SignalProcessor<AudioBuffer, AudioBuffer>) new Mapping<AudioBuffer>(AudioBufferFunctions.<AudioBuffer>createMapFunction(new WindowFunction.Hann(sliceLength))))
+                .connectTo((SignalProcessor<AudioBuffer, LinearFrequencySpectrum>) fft)
+                .connectTo((SignalProcessor<LinearFrequencySpectrum, List<LinearFrequencySpectrum>>) expected);
+
+        final STFT stft = new STFT(sliceLength, hopSize);
+        stft.setZeroPadToPowerOfTwo(zeroPad);
+        final SpectrumCollector actual = new SpectrumCollector();
+        stft.connectTo((SignalProcessor<LinearFrequencySpectrum, List<LinearFrequencySpectrum>>) actual);
+
+        for (final AudioBuffer buffer : createBuffers(20, bufferLength)) {
+            slidingWindow.process(buffer);
+            stft.process(buffer);
+        }
+        slidingWindow.flush();
+        stft.flush();
+
+        final String message = "slice=" + sliceLength + ", hop=" + hopSize;
+        assertEquals(message, expected.getOutput().size(), actual.getOutput().size());
+        for (int i=0; i<expected.getOutput().size(); i++) {
+            final LinearFrequencySpectrum e = expected.getOutput().get(i);
+            final LinearFrequencySpectrum a = actual.getOutput().get(i);
+            assertEquals(message, e.getFrameNumber(), a.getFrameNumber());
+            assertArrayEquals(message, e.getRealData(), a.getRealData(), 0f);
+            assertArrayEquals(message, e.getImaginaryData(), a.getImaginaryData(), 0f);
+            assertArrayEquals(message, e.getPowers(), a.getPowers(), 0f);
+            assertArrayEquals(message, e.getMagnitudes(), a.getMagnitudes(), 0f);
+            assertArrayEquals(message, e.getFrequencies(), a.getFrequencies(), 0f);
+        }
+    }
+
+    @Test
+    public void testReusesSpectrum() throws IOException {
+        final STFT stft = new STFT(16, 8);
+        final List<AudioBuffer> buffers = createBuffers(1, 64);
+        final SpectrumIdentityCollector collector = new SpectrumIdentityCollector();
+        stft.connectTo((SignalProcessor<LinearFrequencySpectrum, Void>) collector);
+        stft.process(buffers.get(0));
+        assertTrue(collector.spectra.size() > 1);
+        for (int i=1; i<collector.spectra.size(); i++) {
+            assertSame(collector.spectra.get(0), collector.spectra.get(i));
+            assertSame(collector.powers.get(0), collector.powers.get(i));
+            assertSame(collector.magnitudes.get(0), collector.magnitudes.get(i));
+        }
+    }
+
+    @Test
+    public void testRead() throws IOException {
+        final List<AudioBuffer> buffers = createBuffers(5, 100);
+        final SlidingWindow slidingWindow = new SlidingWindow(64, 16);
+        slidingWindow.connectTo(new ListSource(buffers));
+        final Mapping<AudioBuffer> mapping = new Mapping<AudioBuffer>(AudioBufferFunctions.<AudioBuffer>createMapFunction(new WindowFunction.Hann(64)));
+        mapping.connectTo((SignalSource<AudioBuffer>) slidingWindow);
+        final FFT fft = new FFT();
+        fft.connectTo((SignalSource<AudioBuffer>) mapping);
+
+        final STFT stft = new STFT(64, 16);
+        stft.connectTo(new ListSource(buffers));
+
+        LinearFrequencySpectrum expected;
+        int count = 0;
+        while ((expected = fft.read()) != null) {
+            final LinearFrequencySpectrum actual = stft.read();
+            assertNotNull(actual);
+            assertEquals(expected.getFrameNumber(), actual.getFrameNumber());
+            assertArrayEquals(expected.getRealData(), actual.getRealData(), 0f);
+            assertArrayEquals(expected.getImaginaryData(), actual.getImaginaryData(), 0f);
+            count++;
+        }
+        assertNull(stft.read());
+        assertEquals(500 / 16 + 1, count);
+    }
+
+    @Test
+    public void testCloneAndReset() throws IOException, CloneNotSupportedException {
+        final STFT stft = new STFT(16, 4);
+        final SpectrumCollector collector = new SpectrumCollector();
+        stft.connectTo((SignalProcessor<LinearFrequencySpectrum, List<LinearFrequencySpectrum>>) collector);
+        final List<AudioBuffer> buffers = createBuffers(2, 10);
+        stft.process(buffers.get(0));
+        final STFT clone = (STFT) stft.clone();
+        assertEquals(stft, clone);
+        assertEquals(stft.hashCode(), clone.hashCode());
+        assertEquals(0, clone.getConnectedProcessors().length);
+        assertNull(clone.getOutput());
+
+        stft.reset();
+        stft.process(buffers.get(0));
+        stft.process(buffers.get(1));
+        final SpectrumCollector cloneCollector = new SpectrumCollector();
+        clone.connectTo((SignalProcessor<LinearFrequencySpectrum, List<LinearFrequencySpectrum>>) cloneCollector);
+        clone.process(buffers.get(0));
+        clone.process(buffers.get(1));
+        assertEquals(2, collector.getOutput().size());
+        assertEquals(2, cloneCollector.getOutput().size());
+        assertArrayEquals(cloneCollector.getOutput().get(1).getRealData(), stft.getOutput().getRealData(), 0f);
+        assertNotSame(cloneCollector.getOutput().get(1).getRealData(), stft.getOutput().getRealData());
+    }
+
+    @Test(expected = IOException.class)
+    public void testMono() throws IOException {
+        final STFT stft = new STFT();
+        stft.process(new RealAudioBuffer(0, new float[1024], new AudioFormat(10000, 8, 2, true, true)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWindowLength() {
+        new STFT(1024, 512, new WindowFunction.Hann(512));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHopSize() {
+        new STFT(1024, 2048);
+    }
+
+    @Test
+    public void testEqualsHashCodeToString() {
+        final STFT stft0 = new STFT(1024, 512);
+        final STFT stft1 = new STFT(1024, 512, new WindowFunction.Hann(1024));
+        final STFT stft2 = new STFT(1024, 512, new WindowFunction.Hamming(1024));
+        final STFT stft3 = new STFT(1024, 256);
+        assertEquals(stft0, stft1);
+        assertEquals(stft0.hashCode(), stft1.hashCode());
+        assertNotEquals(stft0, stft2);
+        assertNotEquals(stft0, stft3);
+        assertEquals("STFT{window=1024, hop=512, windowFunction=Hann{length=1024}}", stft0.toString());
+    }
+
+    private static List<AudioBuffer> createBuffers(final int count, final int length) {
+        final List<AudioBuffer> buffers = new ArrayList<AudioBuffer>();
+        for (int b=0; b<count; b++) {
+            final float[] samples = new float[length];
+            for (int i=0; i<length; i++) {
+                final int t = b * length + i;
+                samples[i] = (float) (Math.sin(2 * Math.PI * 440 * t / 10000.0) + 0.3 * Math.cos(t * 0.731));
+            }
+            buffers.add(new RealAudioBuffer(b * length, samples, MONO));
+        }
+        return buffers;
+    }
+
+    private static class ListSource implements SignalSource<AudioBuffer> {
+        private final List<AudioBuffer> buffers;
+        private int index;
+
+        private ListSource(final List<AudioBuffer> buffers) {
+            this.buffers = buffers;
+        }
+
+        public AudioBuffer read() throws IOException {
+            return index < buffers.size() ? buffers.get(index++) : null;
+        }
+
+        public void reset() {
+            index = 0;
+        }
+    }
+
+    /**
+     * Keeps copies of the (re-used) spectra.
+     */
+    private static class SpectrumCollector extends AbstractSignalProcessor<LinearFrequencySpectrum, List<LinearFrequencySpectrum>> {
+        private final List<LinearFrequencySpectrum> results = new ArrayList<LinearFrequencySpectrum>();
+
+        @Override
+        protected List<LinearFrequencySpectrum> processNext(final LinearFrequencySpectrum spectrum) throws IOException {
+            return null;
+        }
+
+        @Override
+        public void process(final LinearFrequencySpectrum in) throws IOException {
+            // powers first, so that magnitudes are derived from them, like in the fused implementation
+            in.getPowers();
+            in.getMagnitudes();
+            results.add(new LinearFrequencySpectrum(in));
+        }
+
+        @Override
+        public List<LinearFrequencySpectrum> getOutput() throws IOException {
+            return results;
+        }
+    }
+
+    private static class SpectrumIdentityCollector extends AbstractSignalProcessor<LinearFrequencySpectrum, Void> {
+        private final List<LinearFrequencySpectrum> spectra = new ArrayList<LinearFrequencySpectrum>();
+        private final List<float[]> powers = new ArrayList<float[]>();
+        private final List<float[]> magnitudes = new ArrayList<float[]>();
+
+        @Override
+        protected Void processNext(final LinearFrequencySpectrum spectrum) throws IOException {
+            spectra.add(spectrum);
+            powers.add(spectrum.getPowers());
+            magnitudes.add(spectrum.getMagnitudes());
+            return null;
+        }
+    }
+}
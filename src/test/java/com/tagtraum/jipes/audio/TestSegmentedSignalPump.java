@@ -0,0 +1,128 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.audio;
+
+import com.tagtraum.jipes.*;
+import com.tagtraum.jipes.math.Filters;
+import com.tagtraum.jipes.universal.Mapping;
+import org.junit.Test;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * TestSegmentedSignalPump.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestSegmentedSignalPump {
+
+    @Test
+    public void testSameAsSequential() throws IOException, UnsupportedAudioFileException {
+        final File file = extractFile("mono_10_s16le.wav", ".wav");
+        try {
+            final Recorder<MelSpectrum> expected = new Recorder<MelSpectrum>();
+            final SignalPipeline<AudioBuffer, MelSpectrum> pipeline = createPipeline();
+            pipeline.connectTo((SignalProcessor<MelSpectrum, MelSpectrum>) expected);
+            final SignalPump<AudioBuffer> signalPump = new SignalPump<AudioBuffer>(new AudioSignalSource(file));
+            signalPump.add(pipeline);
+            signalPump.pump();
+
+            final Recorder<MelSpectrum> actual = new Recorder<MelSpectrum>();
+            final SegmentedSignalPump<MelSpectrum> segmentedSignalPump = new SegmentedSignalPump<MelSpectrum>(
+                    new SegmentedSignalPump.SourceFactory() {
+                        public AudioSignalSource create() throws Exception {
+                            return new AudioSignalSource(file);
+                        }
+                    }, new PipelineTemplate<AudioBuffer>(createPipeline()), 4, 1024);
+            segmentedSignalPump.pump(actual);
+
+            assertTrue(actual.flushed);
+            assertTrue(expected.frameNumbers.size() > 10);
+            assertEquals(expected.frameNumbers, actual.frameNumbers);
+            for (int i=0; i<expected.data.size(); i++) {
+                assertArrayEquals(expected.data.get(i), actual.data.get(i), 0.00001f);
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testFailure() throws IOException {
+        final SegmentedSignalPump<AudioBuffer> segmentedSignalPump = new SegmentedSignalPump<AudioBuffer>(
+                new SegmentedSignalPump.SourceFactory() {
+                    public AudioSignalSource create() throws Exception {
+                        throw new FileNotFoundException("Missing");
+                    }
+                }, new PipelineTemplate<AudioBuffer>(new Mapping<AudioBuffer>()), 2, 0);
+        try {
+            segmentedSignalPump.pump(new Recorder<AudioBuffer>());
+            fail("Expected FileNotFoundException");
+        } catch (FileNotFoundException e) {
+            assertEquals("Missing", e.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalSegments() {
+        new SegmentedSignalPump<AudioBuffer>(null, null, 0, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalOverlap() {
+        new SegmentedSignalPump<AudioBuffer>(null, null, 2, -1);
+    }
+
+    private static SignalPipeline<AudioBuffer, MelSpectrum> createPipeline() {
+        return new SignalPipeline<AudioBuffer, MelSpectrum>(
+                new Mapping<AudioBuffer>(AudioBufferFunctions.createMapFunction(new Filters.FIRFilter(new double[]{0.25, 0.5, 0.25}))),
+                new SlidingWindow(1024, 512),
+                new FFT(),
+                new Mel<LinearFrequencySpectrum>(100, 4000, 10, true)
+        );
+    }
+
+    private static class Recorder<T extends AudioBuffer> extends AbstractSignalProcessor<T, T> {
+
+        private final List<Integer> frameNumbers = new ArrayList<Integer>();
+        private final List<float[]> data = new ArrayList<float[]>();
+        private boolean flushed;
+
+        @Override
+        protected T processNext(final T input) throws IOException {
+            frameNumbers.add(input.getFrameNumber());
+            data.add(input.getData().clone());
+            return input;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            flushed = true;
+            super.flush();
+        }
+    }
+
+    private static File extractFile(final String name, final String extension) throws IOException {
+        final File audioFile = File.createTempFile("TestSegmentedSignalPump", extension);
+        audioFile.deleteOnExit();
+        final InputStream in = TestSegmentedSignalPump.class.getResourceAsStream(name);
+        final OutputStream out = new FileOutputStream(audioFile);
+        final byte[] buf = new byte[1024*64];
+        int justRead;
+        while ((justRead = in.read(buf)) != -1) {
+            out.write(buf, 0, justRead);
+        }
+        in.close();
+        out.close();
+        return audioFile;
+    }
+}
@@ -7,6 +7,7 @@
 package com.tagtraum.jipes.audio;
 
 import com.tagtraum.jipes.AbstractSignalProcessor;
+import com.tagtraum.jipes.SignalProcessor;
 import com.tagtraum.jipes.SignalSource;
 import org.junit.Before;
 import org.junit.Test;
@@ -14,7 +15,10 @@ import org.junit.Test;
 import javax.sound.sampled.AudioFormat;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -173,6 +177,153 @@ public class TestSlidingWindow {
     }
 
 
+    @Test
+    public void testFrameNumbersPushAndPull() throws IOException {
+        final SlidingWindow push = new SlidingWindow(7, 3);
+        final FrameNumberCollector collector = new FrameNumberCollector();
+        push.connectTo((SignalProcessor<AudioBuffer, AudioBuffer>) collector);
+        final AudioFormat audioFormat = new AudioFormat(10000, 32, 1, true, true);
+        // 20 frames starting at frame 100, delivered in chunks of 3
+        for (int i=0; i<20; i+=3) {
+            final float[] data = new float[Math.min(3, 20-i)];
+            for (int j=0; j<data.length; j++) data[j] = 100 + i + j;
+            push.process(new RealAudioBuffer(100 + i, data, audioFormat));
+        }
+        push.flush();
+
+        final SlidingWindow pull = new SlidingWindow(7, 3);
+        pull.connectTo(new SignalSource<AudioBuffer>() {
+            private int position;
+            public void reset() {
+                position = 0;
+            }
+            public AudioBuffer read() throws IOException {
+                if (position >= 20) return null;
+                final float[] data = new float[Math.min(5, 20-position)];
+                for (int j=0; j<data.length; j++) data[j] = 100 + position + j;
+                final AudioBuffer buffer = new RealAudioBuffer(100 + position, data, audioFormat);
+                position += data.length;
+                return buffer;
+            }
+        });
+        final List<Integer> pullFrameNumbers = new ArrayList<Integer>();
+        AudioBuffer buffer;
+        while ((buffer = pull.read()) != null) {
+            pullFrameNumbers.add(buffer.getFrameNumber());
+            // the first sample's value is its frame number
+            assertEquals(buffer.getFrameNumber(), buffer.getData()[0], 0.00001f);
+        }
+
+        // windows start at all multiples of the hop size before the end of the signal
+        final List<Integer> expected = new ArrayList<Integer>();
+        for (int i=0; i<20; i+=3) expected.add(100 + i);
+        assertEquals(expected, collector.frameNumbers);
+        assertEquals(expected, pullFrameNumbers);
+        for (int i=0; i<collector.data.size(); i++) {
+            final float[] window = collector.data.get(i);
+            final int frameNumber = collector.frameNumbers.get(i);
+            for (int j=0; j<window.length; j++) {
+                assertEquals(frameNumber + j < 120 ? frameNumber + j : 0f, window[j], 0.00001f);
+            }
+        }
+    }
+
+    @Test
+    public void testNoReallocation() throws IOException {
+        final SlidingWindow processor = new SlidingWindow(8, 3);
+        final FrameNumberCollector collector = new FrameNumberCollector();
+        processor.connectTo((SignalProcessor<AudioBuffer, AudioBuffer>) collector);
+        final AudioFormat audioFormat = new AudioFormat(10000, 32, 1, true, true);
+        for (int i=0; i<100; i+=5) {
+            processor.process(new RealAudioBuffer(i, new float[]{i, i+1, i+2, i+3, i+4}, audioFormat));
+        }
+        processor.flush();
+        assertEquals(34, collector.frameNumbers.size());
+        assertEquals(1, collector.arrays.size());
+        assertEquals(1, collector.buffers.size());
+    }
+
+    @Test
+    public void testNoOverlap() throws IOException {
+        final SlidingWindow processor = new SlidingWindow(4, 4);
+        final FrameNumberCollector collector = new FrameNumberCollector();
+        processor.connectTo((SignalProcessor<AudioBuffer, AudioBuffer>) collector);
+        final AudioFormat audioFormat = new AudioFormat(10000, 32, 1, true, true);
+        processor.process(new RealAudioBuffer(0, new float[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, audioFormat));
+        processor.flush();
+        assertEquals(Arrays.asList(0, 4, 8), collector.frameNumbers);
+        assertArrayEquals(new float[]{0, 1, 2, 3}, collector.data.get(0), 0.00001f);
+        assertArrayEquals(new float[]{4, 5, 6, 7}, collector.data.get(1), 0.00001f);
+        assertArrayEquals(new float[]{8, 9, 0, 0}, collector.data.get(2), 0.00001f);
+        assertEquals(1, collector.arrays.size());
+    }
+
+    @Test
+    public void testStereoPush() throws IOException {
+        final AudioFormat stereo = new AudioFormat(10000, 32, 2, true, true);
+        final SlidingWindow processor = new SlidingWindow(6, 4);
+        final InterleavedChannelSplit channelSplit = new InterleavedChannelSplit();
+        final FrameNumberCollector left = new FrameNumberCollector();
+        final FrameNumberCollector right = new FrameNumberCollector();
+        processor.connectTo((SignalProcessor<AudioBuffer, AudioBuffer>) channelSplit);
+        channelSplit.connectTo(0, left);
+        channelSplit.connectTo(1, right);
+        // 25 frames, left channel counts up, right channel counts down
+        for (int i=0; i<25; i+=5) {
+            final float[] data = new float[10];
+            for (int j=0; j<5; j++) {
+                data[j*2] = i + j;
+                data[j*2+1] = -(i + j);
+            }
+            processor.process(new RealAudioBuffer(i, data, stereo));
+        }
+        processor.flush();
+
+        assertEquals(Arrays.asList(0, 4, 8, 12, 16, 20, 24), left.frameNumbers);
+        assertEquals(left.frameNumbers, right.frameNumbers);
+        for (int i=0; i<left.data.size(); i++) {
+            final int frameNumber = left.frameNumbers.get(i);
+            for (int j=0; j<6; j++) {
+                final float expected = frameNumber + j < 25 ? frameNumber + j : 0f;
+                assertEquals(expected, left.data.get(i)[j], 0.00001f);
+                assertEquals(-expected, right.data.get(i)[j], 0.00001f);
+            }
+        }
+    }
+
+    @Test
+    public void testStereoPull() throws IOException {
+        final AudioFormat stereo = new AudioFormat(10000, 32, 2, true, true);
+        final SlidingWindow processor = new SlidingWindow(4, 2);
+        processor.connectTo(new SignalSource<AudioBuffer>() {
+            private boolean done;
+            public void reset() {
+                done = false;
+            }
+            public AudioBuffer read() throws IOException {
+                if (done) return null;
+                done = true;
+                // planar input is consumed without interleaving
+                return new PlanarAudioBuffer(0, new float[][]{{0, 1, 2, 3, 4}, {10, 11, 12, 13, 14}}, stereo);
+            }
+        });
+        final List<float[][]> windows = new ArrayList<float[][]>();
+        AudioBuffer buffer;
+        while ((buffer = processor.read()) != null) {
+            assertTrue(buffer instanceof PlanarAudioBuffer);
+            final PlanarAudioBuffer planar = (PlanarAudioBuffer) buffer;
+            assertEquals(windows.size() * 2, planar.getFrameNumber());
+            windows.add(new float[][]{planar.getChannelData(0).clone(), planar.getChannelData(1).clone()});
+        }
+        assertEquals(3, windows.size());
+        assertArrayEquals(new float[]{0, 1, 2, 3}, windows.get(0)[0], 0.00001f);
+        assertArrayEquals(new float[]{10, 11, 12, 13}, windows.get(0)[1], 0.00001f);
+        assertArrayEquals(new float[]{2, 3, 4, 0}, windows.get(1)[0], 0.00001f);
+        assertArrayEquals(new float[]{12, 13, 14, 0}, windows.get(1)[1], 0.00001f);
+        assertArrayEquals(new float[]{4, 0, 0, 0}, windows.get(2)[0], 0.00001f);
+        assertArrayEquals(new float[]{14, 0, 0, 0}, windows.get(2)[1], 0.00001f);
+    }
+
     @Test
     public void testNullGenerator() throws IOException {
         final SlidingWindow processor = new SlidingWindow();
@@ -211,4 +362,20 @@ public class TestSlidingWindow {
             return results;
         }
     }
+
+    private static class FrameNumberCollector extends AbstractSignalProcessor<AudioBuffer, AudioBuffer> {
+        private final List<Integer> frameNumbers = new ArrayList<Integer>();
+        private final List<float[]> data = new ArrayList<float[]>();
+        private final Map<float[], Boolean> arrays = new IdentityHashMap<float[], Boolean>();
+        private final Map<AudioBuffer, Boolean> buffers = new IdentityHashMap<AudioBuffer, Boolean>();
+
+        @Override
+        protected AudioBuffer processNext(final AudioBuffer buffer) throws IOException {
+            frameNumbers.add(buffer.getFrameNumber());
+            data.add(buffer.getData().clone());
+            arrays.put(buffer.getData(), Boolean.TRUE);
+            buffers.put(buffer, Boolean.TRUE);
+            return buffer;
+        }
+    }
 }
@@ -0,0 +1,238 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.audio;
+
+import com.tagtraum.jipes.AbstractSignalProcessor;
+import com.tagtraum.jipes.SignalPump;
+import org.junit.Test;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * TestSpectrogram.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestSpectrogram {
+
+    private static final AudioFormat MONO = new AudioFormat(10000, 32, 1, true, true);
+
+    @Test
+    public void testMatchesFFT() throws IOException {
+        final Spectrogram spectrogram = new Spectrogram();
+        final SpectrumCollector collector = new SpectrumCollector();
+        spectrogram.connectTo(collector);
+        final FFT fft = new FFT();
+        final List<AudioBuffer> buffers = createBuffers(37, 1000);
+        for (final AudioBuffer buffer : buffers) {
+            spectrogram.process(buffer);
+        }
+        assertEquals(37, spectrogram.getNumberOfFrames());
+        assertTrue(collector.getOutput().isEmpty());
+        spectrogram.flush();
+        assertEquals(0, spectrogram.getNumberOfFrames());
+        assertEquals(1024, spectrogram.getLength());
+
+        final List<LinearFrequencySpectrum> spectra = collector.getOutput();
+        assertEquals(buffers.size(), spectra.size());
+        for (int i=0; i<buffers.size(); i++) {
+            final LinearFrequencySpectrum expected = fft.processNext(buffers.get(i));
+            final LinearFrequencySpectrum actual = spectra.get(i);
+            assertEquals(expected.getFrameNumber(), actual.getFrameNumber());
+            assertArrayEquals(expected.getRealData(), actual.getRealData(), 0.0001f);
+            assertArrayEquals(expected.getImaginaryData(), actual.getImaginaryData(), 0.0001f);
+            assertArrayEquals(expected.getFrequencies(), actual.getFrequencies(), 0.0001f);
+        }
+        assertSame(spectra.get(spectra.size() - 1), spectrogram.getOutput());
+        assertTrue(collector.isFlushed());
+    }
+
+    @Test
+    public void testExecutorService() throws IOException {
+        final ExecutorService executorService = Executors.newFixedThreadPool(3);
+        try {
+            final Spectrogram spectrogram = new Spectrogram();
+            spectrogram.setExecutorService(executorService);
+            assertSame(executorService, spectrogram.getExecutorService());
+            spectrogram.setZeroPadToPowerOfTwo(false);
+            final SpectrumCollector collector = new SpectrumCollector();
+            spectrogram.connectTo(collector);
+            final FFT fft = new FFT();
+            fft.setZeroPadToPowerOfTwo(false);
+            final List<AudioBuffer> buffers = createBuffers(10, 12);
+            for (final AudioBuffer buffer : buffers) {
+                spectrogram.process(buffer);
+            }
+            spectrogram.flush();
+            final List<LinearFrequencySpectrum> spectra = collector.getOutput();
+            assertEquals(buffers.size(), spectra.size());
+            for (int i=0; i<buffers.size(); i++) {
+                final LinearFrequencySpectrum expected = fft.processNext(buffers.get(i));
+                assertEquals(12, spectra.get(i).getRealData().length);
+                assertArrayEquals(expected.getRealData(), spectra.get(i).getRealData(), 0.0001f);
+                assertArrayEquals(expected.getImaginaryData(), spectra.get(i).getImaginaryData(), 0.0001f);
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        final Spectrogram spectrogram = new Spectrogram();
+        final SpectrumCollector collector = new SpectrumCollector();
+        spectrogram.connectTo(collector);
+        spectrogram.flush();
+        assertTrue(collector.getOutput().isEmpty());
+        assertTrue(collector.isFlushed());
+        assertNull(spectrogram.getOutput());
+    }
+
+    @Test
+    public void testResetAndClone() throws IOException, CloneNotSupportedException {
+        final Spectrogram spectrogram = new Spectrogram(16);
+        spectrogram.connectTo(new SpectrumCollector());
+        for (final AudioBuffer buffer : createBuffers(3, 8)) {
+            spectrogram.process(buffer);
+        }
+        final Spectrogram clone = (Spectrogram) spectrogram.clone();
+        assertEquals(0, clone.getNumberOfFrames());
+        assertEquals(0, clone.getConnectedProcessors().length);
+        assertEquals(spectrogram, clone);
+        assertEquals(3, spectrogram.getNumberOfFrames());
+        spectrogram.reset();
+        assertEquals(0, spectrogram.getNumberOfFrames());
+    }
+
+    @Test(expected = IOException.class)
+    public void testMono() throws IOException {
+        final Spectrogram spectrogram = new Spectrogram();
+        spectrogram.process(new RealAudioBuffer(0, new float[1024], new AudioFormat(10000, 8, 2, true, true)));
+    }
+
+    @Test(expected = IOException.class)
+    public void testLongerFrame() throws IOException {
+        final Spectrogram spectrogram = new Spectrogram();
+        spectrogram.process(new RealAudioBuffer(0, new float[8], MONO));
+        spectrogram.process(new RealAudioBuffer(1, new float[16], MONO));
+    }
+
+    @Test
+    public void testKeepsAllExcerpts() throws IOException {
+        final File file = extractFile("mono_10_s16le.wav", ".wav");
+        try {
+            final MappedAudioSignalSource mappedSource = new MappedAudioSignalSource(file, 1000);
+            final ExcerptSignalSource<AudioBuffer> source = new ExcerptSignalSource<AudioBuffer>(mappedSource, 3, 1, TimeUnit.SECONDS);
+            final List<Integer> bufferFrameNumbers = new ArrayList<Integer>();
+            final Spectrogram spectrogram = new Spectrogram();
+            final SpectrumCollector collector = new SpectrumCollector();
+            spectrogram.connectTo(collector);
+            final SignalPump<AudioBuffer> pump = new SignalPump<AudioBuffer>(source);
+            pump.add(spectrogram);
+            pump.add(new AbstractSignalProcessor<AudioBuffer, AudioBuffer>() {
+                @Override
+                protected AudioBuffer processNext(final AudioBuffer buffer) throws IOException {
+                    bufferFrameNumbers.add(buffer.getFrameNumber());
+                    return buffer;
+                }
+            });
+            pump.pump();
+            source.close();
+
+            // spectra of all three excerpts, not just the last one
+            final List<LinearFrequencySpectrum> spectra = collector.getOutput();
+            assertTrue(bufferFrameNumbers.size() > 3);
+            assertEquals(bufferFrameNumbers.size(), spectra.size());
+            for (int i=0; i<spectra.size(); i++) {
+                assertEquals(bufferFrameNumbers.get(i).intValue(), spectra.get(i).getFrameNumber());
+            }
+            assertTrue(collector.isFlushed());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testEqualsHashCodeToString() {
+        final Spectrogram spectrogram0 = new Spectrogram(1024);
+        final Spectrogram spectrogram1 = new Spectrogram(1024);
+        final Spectrogram spectrogram2 = new Spectrogram();
+        assertEquals(spectrogram0, spectrogram1);
+        assertEquals(spectrogram0.hashCode(), spectrogram1.hashCode());
+        assertNotEquals(spectrogram0, spectrogram2);
+        assertEquals("Spectrogram{length=1024}", spectrogram0.toString());
+        assertEquals("Spectrogram{length=equal to first input}", spectrogram2.toString());
+    }
+
+    private static List<AudioBuffer> createBuffers(final int frames, final int length) {
+        final List<AudioBuffer> buffers = new ArrayList<AudioBuffer>();
+        for (int frame=0; frame<frames; frame++) {
+            final float[] samples = new float[length];
+            for (int i=0; i<length; i++) {
+                samples[i] = (float) (Math.sin(2 * Math.PI * (frame + 1) * i / length) + 0.1 * Math.cos(i * 0.37 + frame));
+            }
+            buffers.add(new RealAudioBuffer(frame * length, samples, MONO));
+        }
+        return buffers;
+    }
+
+    private static File extractFile(final String name, final String extension) throws IOException {
+        final File audioFile = File.createTempFile("TestSpectrogram", extension);
+        audioFile.deleteOnExit();
+        final InputStream in = TestSpectrogram.class.getResourceAsStream(name);
+        final OutputStream out = new FileOutputStream(audioFile);
+        final byte[] buf = new byte[1024*64];
+        int justRead;
+        while ((justRead = in.read(buf)) != -1) {
+            out.write(buf, 0, justRead);
+        }
+        in.close();
+        out.close();
+        return audioFile;
+    }
+
+    private static class SpectrumCollector extends AbstractSignalProcessor<LinearFrequencySpectrum, List<LinearFrequencySpectrum>> {
+        private final List<LinearFrequencySpectrum> results = new ArrayList<LinearFrequencySpectrum>();
+        private boolean flushed;
+
+        @Override
+        protected List<LinearFrequencySpectrum> processNext(final LinearFrequencySpectrum spectrum) throws IOException {
+            return null;
+        }
+
+        @Override
+        public void process(final LinearFrequencySpectrum in) throws IOException {
+            results.add(in);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            flushed = true;
+        }
+
+        public boolean isFlushed() {
+            return flushed;
+        }
+
+        @Override
+        public List<LinearFrequencySpectrum> getOutput() throws IOException {
+            return results;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.audio;
+
+import org.junit.Test;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * TestTimeRangeSignalSource.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestTimeRangeSignalSource {
+
+    @Test
+    public void testMappedAudioSignalSource() throws IOException {
+        final File file = extractFile("mono_10_s16le.wav", ".wav");
+        try {
+            final MappedAudioSignalSource reference = new MappedAudioSignalSource(file);
+            final TimeRangeSignalSource<AudioBuffer> source = new TimeRangeSignalSource<AudioBuffer>(
+                    new MappedAudioSignalSource(file, 1024), 2000, 5000);
+            assertRange(reference, source);
+            reference.close();
+            source.close();
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testAudioSignalSource() throws IOException, UnsupportedAudioFileException {
+        final File file = extractFile("mono_10_s16le.wav", ".wav");
+        try {
+            final MappedAudioSignalSource reference = new MappedAudioSignalSource(file);
+            final TimeRangeSignalSource<AudioBuffer> source = new TimeRangeSignalSource<AudioBuffer>(
+                    new AudioSignalSource(file), 2, 5, TimeUnit.SECONDS);
+            assertRange(reference, source);
+            reference.close();
+            source.close();
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testOpenEnd() throws IOException {
+        final File file = extractFile("mono_10_s16le.wav", ".wav");
+        try {
+            final MappedAudioSignalSource mappedSource = new MappedAudioSignalSource(file);
+            final TimeRangeSignalSource<AudioBuffer> source = new TimeRangeSignalSource<AudioBuffer>(
+                    mappedSource, 9000, Long.MAX_VALUE);
+            assertEquals(Long.MAX_VALUE, source.getEnd(TimeUnit.SECONDS));
+            assertEquals(9, source.getStart(TimeUnit.SECONDS));
+            AudioBuffer buffer;
+            AudioBuffer last = null;
+            while ((buffer = source.read()) != null) {
+                last = buffer;
+            }
+            assertNotNull(last);
+            assertEquals(mappedSource.getFrameLength(), last.getFrameNumber() + last.getNumberOfSamples());
+            source.close();
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalRange() throws IOException {
+        final File file = extractFile("mono_10_s16le.wav", ".wav");
+        final MappedAudioSignalSource mappedSource = new MappedAudioSignalSource(file);
+        try {
+            new TimeRangeSignalSource<AudioBuffer>(mappedSource, 2000, 1000);
+        } finally {
+            mappedSource.close();
+            file.delete();
+        }
+    }
+
+    /**
+     * Reads the range twice (to test {@link TimeRangeSignalSource#reset()}) and compares it
+     * with a full read of the reference source.
+     */
+    private static void assertRange(final MappedAudioSignalSource reference, final TimeRangeSignalSource<AudioBuffer> source) throws IOException {
+        final float sampleRate = reference.getProcessedAudioFormat().getSampleRate();
+        final int startFrame = (int) (2 * sampleRate);
+        final float[] all = new float[(int) reference.getFrameLength()];
+        AudioBuffer buffer;
+        while ((buffer = reference.read()) != null) {
+            System.arraycopy(buffer.getData(), 0, all, buffer.getFrameNumber(), buffer.getNumberOfSamples());
+        }
+        for (int pass=0; pass<2; pass++) {
+            source.reset();
+            int expectedFrameNumber = startFrame;
+            AudioBuffer last = null;
+            while ((buffer = source.read()) != null) {
+                assertEquals(expectedFrameNumber, buffer.getFrameNumber());
+                assertTrue(buffer.getTimestamp(TimeUnit.MILLISECONDS) >= 2000);
+                assertTrue(buffer.getTimestamp(TimeUnit.MILLISECONDS) < 5000);
+                for (int i=0; i<buffer.getNumberOfSamples(); i++) {
+                    assertEquals(all[buffer.getFrameNumber() + i], buffer.getData()[i], 0.000001f);
+                }
+                expectedFrameNumber += buffer.getNumberOfSamples();
+                last = buffer;
+            }
+            assertNotNull(last);
+            assertTrue(expectedFrameNumber >= 5 * sampleRate);
+        }
+    }
+
+    private static File extractFile(final String name, final String extension) throws IOException {
+        final File audioFile = File.createTempFile("TestTimeRangeSignalSource", extension);
+        audioFile.deleteOnExit();
+        final InputStream in = TestTimeRangeSignalSource.class.getResourceAsStream(name);
+        final OutputStream out = new FileOutputStream(audioFile);
+        final byte[] buf = new byte[1024*64];
+        int justRead;
+        while ((justRead = in.read(buf)) != -1) {
+            out.write(buf, 0, justRead);
+        }
+        in.close();
+        out.close();
+        return audioFile;
+    }
+}
@@ -10,6 +10,7 @@ import org.junit.Test;
 
 import java.util.Random;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 
@@ -99,4 +100,19 @@ public class TestConstantQTransformFactory {
         assertNotEquals(constantQTransform0.hashCode(), constantQTransform1.hashCode());
     }
 
+    @Test
+    public void testAllocationFreeTransform() {
+        final float[] real = new float[5000];
+        for (int i=0; i<real.length; i++) {
+            real[i] = (float)Math.sin(Math.PI * 2 * i * 0.3);
+        }
+        final AllocationFreeTransform constantQTransform = (AllocationFreeTransform) ConstantQTransformFactory.getInstance().create(440, 880, 6, 2000, 0.0054f);
+        final float[][] expected = constantQTransform.transform(real);
+        final float[] realOut = new float[constantQTransform.getFrequencies().length];
+        final float[] imaginaryOut = new float[constantQTransform.getFrequencies().length];
+        constantQTransform.transform(real, realOut, imaginaryOut);
+        assertArrayEquals(expected[0], realOut, 0f);
+        assertArrayEquals(expected[1], imaginaryOut, 0f);
+        assertArrayEquals(expected[2], constantQTransform.getFrequencies(), 0f);
+    }
 }
@@ -8,8 +8,10 @@ package com.tagtraum.jipes.math;
 
 import org.junit.Test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
 
 /**
  * TestDCTFactory.
@@ -104,4 +106,26 @@ public class TestDCTFactory {
         assertEquals(floats.length, transform[0].length);
     }
 
+    @Test
+    public void testCachesMultipleSizes() {
+        final DCTFactory factory = DCTFactory.getInstance();
+        final Transform dct1024 = factory.create(1024);
+        final Transform dct13 = factory.create(13);
+        assertSame(dct1024, factory.create(1024));
+        assertSame(dct13, factory.create(13));
+    }
+
+    @Test
+    public void testAllocationFreeTransform() {
+        for (final int n : new int[]{8, 9, 1024}) {
+            final float[] in = new float[n];
+            for (int i=0; i<n; i++) in[i] = (float)Math.sin(i * 0.3);
+            final AllocationFreeTransform dct = (AllocationFreeTransform) DCTFactory.getInstance().create(n);
+            final float[] out = new float[n];
+            dct.transform(in, out, null);
+            assertArrayEquals(dct.transform(in)[0], out, 0f);
+            assertEquals(n, dct.getFrequencies().length);
+            assertEquals(0.25f, dct.getFrequencies()[n/2], 0.5f/n);
+        }
+    }
 }
@@ -8,6 +8,10 @@ package com.tagtraum.jipes.math;
 
 import org.junit.Test;
 
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import static org.junit.Assert.*;
 
 /**
@@ -105,6 +109,25 @@ public class TestFFTFactory {
         }
     }
 
+    @Test
+    public void testRealFFTMatchesComplexFFT() {
+        final Random random = new Random(0);
+        for (int n = 2; n <= 4096; n *= 2) {
+            final float[] realIn = new float[n];
+            for (int i=0; i<n; i++) {
+                realIn[i] = random.nextFloat() * 2 - 1;
+            }
+            final Transform fft = FFTFactory.getInstance().create(n);
+            final float[][] real = fft.transform(realIn);
+            final float[][] complex = fft.transform(realIn, new float[n]);
+            assertEquals(n, real[0].length);
+            assertEquals(n, real[1].length);
+            assertArrayEquals("N=" + n, complex[0], real[0], 0.001f);
+            assertArrayEquals("N=" + n, complex[1], real[1], 0.001f);
+            assertArrayEquals("N=" + n, complex[2], real[2], 0.0f);
+        }
+    }
+
     @Test
     public void testZeroFFT() {
         final float[] floats = new float[8 * 1024];
@@ -132,4 +155,141 @@ public class TestFFTFactory {
         assertNotEquals(fft0.hashCode(), fft2.hashCode());
     }
 
+    @Test
+    public void testCachesMultipleSizes() {
+        final FFTFactory factory = FFTFactory.getInstance();
+        final Transform fft1024 = factory.create(1024);
+        final Transform fft4096 = factory.create(4096);
+        final Transform fft12 = factory.create(12);
+        assertSame(fft1024, factory.create(1024));
+        assertSame(fft4096, factory.create(4096));
+        assertSame(fft12, factory.create(12));
+        assertSame(fft1024, factory.create(1024));
+    }
+
+    @Test
+    public void testAllocationFreeTransform() {
+        final Random random = new Random(1);
+        for (int n = 1; n <= 4096; n *= 2) {
+            final float[] real = new float[n];
+            final float[] imaginary = new float[n];
+            final float[] realOut = new float[n];
+            final float[] imaginaryOut = new float[n];
+            for (int i = 0; i < n; i++) {
+                real[i] = random.nextFloat() * 2 - 1;
+                imaginary[i] = random.nextFloat() * 2 - 1;
+                // garbage in the output arrays must not influence the result
+                realOut[i] = random.nextFloat();
+                imaginaryOut[i] = random.nextFloat();
+            }
+            final AllocationFreeTransform fft = (AllocationFreeTransform) FFTFactory.getInstance().create(n);
+
+            fft.transform(real, realOut, imaginaryOut);
+            float[][] expected = fft.transform(real);
+            assertArrayEquals("N=" + n, expected[0], realOut, 0f);
+            assertArrayEquals("N=" + n, expected[1], imaginaryOut, 0f);
+
+            fft.transform(real, imaginary, realOut, imaginaryOut);
+            expected = fft.transform(real, imaginary);
+            assertArrayEquals("N=" + n, expected[0], realOut, 0f);
+            assertArrayEquals("N=" + n, expected[1], imaginaryOut, 0f);
+
+            fft.inverseTransform(real, imaginary, realOut, imaginaryOut);
+            expected = fft.inverseTransform(real, imaginary);
+            assertArrayEquals("N=" + n, expected[0], realOut, 0f);
+            assertArrayEquals("N=" + n, expected[1], imaginaryOut, 0f);
+        }
+    }
+
+    @Test
+    public void testFrequencies() {
+        final AllocationFreeTransform fft = (AllocationFreeTransform) FFTFactory.getInstance().create(8);
+        assertArrayEquals(new float[]{0f, 0.125f, 0.25f, 0.375f, 0.5f, -0.375f, -0.25f, -0.125f}, fft.getFrequencies(), 0.00001f);
+        assertSame(fft.getFrequencies(), fft.getFrequencies());
+        assertArrayEquals(fft.getFrequencies(), fft.transform(new float[8])[2], 0f);
+        assertNotSame(fft.getFrequencies(), fft.transform(new float[8])[2]);
+    }
+
+    @Test
+    public void testBatchTransform() {
+        final Random random = new Random(5);
+        for (final int n : new int[]{1, 8, 1024, 1000, 17}) {
+            final float[][] frames = new float[23][n];
+            for (final float[] frame : frames) {
+                for (int i=0; i<n; i++) {
+                    frame[i] = random.nextFloat() * 2 - 1;
+                }
+            }
+            final Transform fft = FFTFactory.getInstance().create(n);
+            final float[][][] batch = FFTFactory.getInstance().batchTransform(frames);
+            assertEquals(frames.length, batch[0].length);
+            assertEquals(frames.length, batch[1].length);
+            for (int f=0; f<frames.length; f++) {
+                final float[][] expected = fft.transform(frames[f]);
+                assertArrayEquals("N=" + n, expected[0], batch[0][f], 0f);
+                assertArrayEquals("N=" + n, expected[1], batch[1][f], 0f);
+            }
+            final float[][] real = new float[frames.length][n];
+            final float[][] imaginary = new float[frames.length][n];
+            FFTFactory.getInstance().batchTransform(frames, real, imaginary, null);
+            for (int f=0; f<frames.length; f++) {
+                assertArrayEquals("N=" + n, batch[0][f], real[f], 0f);
+                assertArrayEquals("N=" + n, batch[1][f], imaginary[f], 0f);
+            }
+        }
+    }
+
+    @Test
+    public void testBatchTransformWithExecutor() {
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            final float[][] frames = new float[5][64];
+            for (int f=0; f<frames.length; f++) {
+                frames[f][f] = 1f;
+            }
+            final float[][] real = new float[5][64];
+            final float[][] imaginary = new float[5][64];
+            FFTFactory.getInstance().batchTransform(frames, real, imaginary, executorService);
+            final Transform fft = FFTFactory.getInstance().create(64);
+            for (int f=0; f<frames.length; f++) {
+                final float[][] expected = fft.transform(frames[f]);
+                assertArrayEquals(expected[0], real[f], 0f);
+                assertArrayEquals(expected[1], imaginary[f], 0f);
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void testBatchTransformMatrix() {
+        final FullMatrix frames = new FullMatrix(3, 8);
+        for (int row=0; row<3; row++) {
+            for (int column=0; column<8; column++) {
+                frames.set(row, column, row + column % 2);
+            }
+        }
+        final Matrix[] transformed = FFTFactory.getInstance().batchTransform(frames);
+        assertEquals(3, transformed[0].getNumberOfRows());
+        assertEquals(8, transformed[0].getNumberOfColumns());
+        final Transform fft = FFTFactory.getInstance().create(8);
+        for (int row=0; row<3; row++) {
+            final float[][] expected = fft.transform(frames.getRow(row));
+            assertArrayEquals(expected[0], transformed[0].getRow(row), 0f);
+            assertArrayEquals(expected[1], transformed[1].getRow(row), 0f);
+        }
+    }
+
+    @Test
+    public void testBatchTransformEmpty() {
+        final float[][][] batch = FFTFactory.getInstance().batchTransform(new float[0][]);
+        assertEquals(0, batch[0].length);
+        assertEquals(0, batch[1].length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBatchTransformDifferentLengths() {
+        FFTFactory.getInstance().batchTransform(new float[][]{new float[8], new float[16]});
+    }
+
 }
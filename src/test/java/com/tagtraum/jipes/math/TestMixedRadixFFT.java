@@ -0,0 +1,150 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.math;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * TestMixedRadixFFT.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestMixedRadixFFT {
+
+    // mixed radix sizes and sizes with other prime factors (Bluestein)
+    private static final int[] SIZES = {1, 2, 3, 4, 5, 6, 7, 9, 12, 13, 15, 25, 60, 97, 100, 210, 960, 1000, 1764, 2003};
+
+    @Test
+    public void testComplexFFTMatchesDFT() {
+        final Random random = new Random(0);
+        for (final int n : SIZES) {
+            final float[] real = randomFloats(random, n);
+            final float[] imaginary = randomFloats(random, n);
+            final float[][] expected = dft(real, imaginary);
+            final float[][] actual = new MixedRadixFFT(n).transform(real, imaginary);
+            assertArrayEquals("N=" + n, expected[0], actual[0], 0.0001f * n);
+            assertArrayEquals("N=" + n, expected[1], actual[1], 0.0001f * n);
+        }
+    }
+
+    @Test
+    public void testRealFFTMatchesDFT() {
+        final Random random = new Random(1);
+        for (final int n : SIZES) {
+            final float[] real = randomFloats(random, n);
+            final float[][] expected = dft(real, new float[n]);
+            final float[][] actual = new MixedRadixFFT(n).transform(real);
+            assertArrayEquals("N=" + n, expected[0], actual[0], 0.0001f * n);
+            assertArrayEquals("N=" + n, expected[1], actual[1], 0.0001f * n);
+            assertEquals(n, actual[2].length);
+        }
+    }
+
+    @Test
+    public void testRoundtripFFT() {
+        final Random random = new Random(2);
+        for (final int n : SIZES) {
+            final float[] realIn = randomFloats(random, n);
+            final Transform fft = new MixedRadixFFT(n);
+            final float[][] result = fft.transform(realIn);
+            final float[][] inverse = fft.inverseTransform(result[0], result[1]);
+            assertArrayEquals("N=" + n, realIn, inverse[0], 0.0001f);
+            assertArrayEquals("N=" + n, new float[n], inverse[1], 0.0001f);
+        }
+    }
+
+    @Test
+    public void testFactory() {
+        final Transform fft = FFTFactory.getInstance().create(1764);
+        assertEquals(1764, fft.transform(new float[1764])[0].length);
+        assertSame(fft, FFTFactory.getInstance().create(1764));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroLength() {
+        new MixedRadixFFT(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongLength() {
+        new MixedRadixFFT(12).transform(new float[8]);
+    }
+
+    @Test
+    public void testToStringEquals() {
+        final MixedRadixFFT fft0 = new MixedRadixFFT(960);
+        final MixedRadixFFT fft1 = new MixedRadixFFT(960);
+        final MixedRadixFFT fft2 = new MixedRadixFFT(1764);
+        assertEquals("MixedRadixFFT{N=960}", fft0.toString());
+        assertEquals(fft0, fft1);
+        assertEquals(fft0.hashCode(), fft1.hashCode());
+        assertNotEquals(fft0, fft2);
+    }
+
+    @Test
+    public void testAllocationFreeTransform() {
+        final Random random = new Random(4);
+        for (final int n : SIZES) {
+            final float[] real = randomFloats(random, n);
+            final float[] imaginary = randomFloats(random, n);
+            final AllocationFreeTransform fft = new MixedRadixFFT(n);
+            final float[] realOut = randomFloats(random, n);
+            final float[] imaginaryOut = randomFloats(random, n);
+
+            fft.transform(real, realOut, imaginaryOut);
+            float[][] expected = fft.transform(real);
+            assertArrayEquals("N=" + n, expected[0], realOut, 0f);
+            assertArrayEquals("N=" + n, expected[1], imaginaryOut, 0f);
+            assertArrayEquals("N=" + n, expected[2], fft.getFrequencies(), 0f);
+
+            fft.transform(real, imaginary, realOut, imaginaryOut);
+            expected = fft.transform(real, imaginary);
+            assertArrayEquals("N=" + n, expected[0], realOut, 0f);
+            assertArrayEquals("N=" + n, expected[1], imaginaryOut, 0f);
+
+            fft.inverseTransform(real, imaginary, realOut, imaginaryOut);
+            expected = fft.inverseTransform(real, imaginary);
+            assertArrayEquals("N=" + n, expected[0], realOut, 0f);
+            assertArrayEquals("N=" + n, expected[1], imaginaryOut, 0f);
+        }
+    }
+
+    private static float[] randomFloats(final Random random, final int n) {
+        final float[] floats = new float[n];
+        for (int i = 0; i < n; i++) {
+            floats[i] = random.nextFloat() * 2 - 1;
+        }
+        return floats;
+    }
+
+    private static float[][] dft(final float[] real, final float[] imaginary) {
+        final int n = real.length;
+        final float[][] out = new float[2][n];
+        final double[] cos = new double[n];
+        final double[] sin = new double[n];
+        for (int i = 0; i < n; i++) {
+            cos[i] = Math.cos(-2 * Math.PI * i / n);
+            sin[i] = Math.sin(-2 * Math.PI * i / n);
+        }
+        for (int k = 0; k < n; k++) {
+            double sumReal = 0;
+            double sumImaginary = 0;
+            for (int t = 0; t < n; t++) {
+                final int i = (int) ((long) t * k % n);
+                sumReal += real[t] * cos[i] - imaginary[t] * sin[i];
+                sumImaginary += real[t] * sin[i] + imaginary[t] * cos[i];
+            }
+            out[0][k] = (float) sumReal;
+            out[1][k] = (float) sumImaginary;
+        }
+        return out;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.math;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * TestRadix4FFTFactory.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestRadix4FFTFactory {
+
+    @Test
+    public void testComplexFFTMatchesDFT() {
+        final Random random = new Random(0);
+        final Radix4FFTFactory factory = new Radix4FFTFactory();
+        for (int n = 1; n <= 2048; n *= 2) {
+            final float[] real = randomFloats(random, n);
+            final float[] imaginary = randomFloats(random, n);
+            final float[][] expected = dft(real, imaginary);
+            final float[][] actual = factory.create(n).transform(real, imaginary);
+            assertArrayEquals("N=" + n, expected[0], actual[0], 0.0001f * n);
+            assertArrayEquals("N=" + n, expected[1], actual[1], 0.0001f * n);
+        }
+    }
+
+    @Test
+    public void testRealFFTMatchesDFT() {
+        final Random random = new Random(1);
+        final Radix4FFTFactory factory = new Radix4FFTFactory();
+        for (int n = 1; n <= 2048; n *= 2) {
+            final float[] real = randomFloats(random, n);
+            final float[][] expected = dft(real, new float[n]);
+            final float[][] actual = factory.create(n).transform(real);
+            assertArrayEquals("N=" + n, expected[0], actual[0], 0.0001f * n);
+            assertArrayEquals("N=" + n, expected[1], actual[1], 0.0001f * n);
+        }
+    }
+
+    @Test
+    public void testSameAsDefaultFactory() {
+        final float[] realIn = new float[]{1, 2, 1, 0, -1, 0, -1, 3};
+        final float[][] expected = FFTFactory.getInstance().create(realIn.length).transform(realIn);
+        final float[][] actual = new Radix4FFTFactory().create(realIn.length).transform(realIn);
+        assertArrayEquals(expected[0], actual[0], 0.0001f);
+        assertArrayEquals(expected[1], actual[1], 0.0001f);
+    }
+
+    @Test
+    public void testRoundtripFFT() {
+        final Random random = new Random(2);
+        final Radix4FFTFactory factory = new Radix4FFTFactory();
+        for (int n = 1; n <= 8192; n *= 2) {
+            final float[] realIn = randomFloats(random, n);
+            final Transform fft = factory.create(n);
+            final float[][] result = fft.transform(realIn);
+            final float[][] inverse = fft.inverseTransform(result[0], result[1]);
+            assertArrayEquals("N=" + n, realIn, inverse[0], 0.0001f);
+            assertArrayEquals("N=" + n, new float[n], inverse[1], 0.0001f);
+        }
+    }
+
+    @Test
+    public void testNotPowerOfTwo() {
+        final Random random = new Random(3);
+        final float[] real = randomFloats(random, 12);
+        final float[][] expected = dft(real, new float[12]);
+        final float[][] actual = new Radix4FFTFactory().create(12).transform(real);
+        assertArrayEquals(expected[0], actual[0], 0.0001f);
+        assertArrayEquals(expected[1], actual[1], 0.0001f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroLength() {
+        new Radix4FFTFactory().create(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongLength() {
+        new Radix4FFTFactory().create(16).transform(new float[8]);
+    }
+
+    @Test
+    public void testToStringEquals() {
+        final Radix4FFTFactory factory = new Radix4FFTFactory();
+        final Transform fft0 = factory.create(256);
+        final Transform fft1 = new Radix4FFTFactory().create(256);
+        final Transform fft2 = factory.create(512);
+        assertEquals("Radix4FFT{N=256}", fft0.toString());
+        assertEquals(fft0, fft1);
+        assertEquals(fft0.hashCode(), fft1.hashCode());
+        assertNotEquals(fft0, fft2);
+    }
+
+    @Test
+    public void testAllocationFreeTransform() {
+        final Random random = new Random(4);
+        final Radix4FFTFactory factory = new Radix4FFTFactory();
+        for (int n = 1; n <= 2048; n *= 2) {
+            final float[] real = randomFloats(random, n);
+            final float[] imaginary = randomFloats(random, n);
+            final AllocationFreeTransform fft = (AllocationFreeTransform) factory.create(n);
+            // garbage in the output arrays must not influence the result
+            final float[] realOut = randomFloats(random, n);
+            final float[] imaginaryOut = randomFloats(random, n);
+
+            fft.transform(real, realOut, imaginaryOut);
+            float[][] expected = fft.transform(real);
+            assertArrayEquals("N=" + n, expected[0], realOut, 0f);
+            assertArrayEquals("N=" + n, expected[1], imaginaryOut, 0f);
+            assertArrayEquals("N=" + n, expected[2], fft.getFrequencies(), 0f);
+
+            fft.transform(real, imaginary, realOut, imaginaryOut);
+            expected = fft.transform(real, imaginary);
+            assertArrayEquals("N=" + n, expected[0], realOut, 0f);
+            assertArrayEquals("N=" + n, expected[1], imaginaryOut, 0f);
+
+            fft.inverseTransform(real, imaginary, realOut, imaginaryOut);
+            expected = fft.inverseTransform(real, imaginary);
+            assertArrayEquals("N=" + n, expected[0], realOut, 0f);
+            assertArrayEquals("N=" + n, expected[1], imaginaryOut, 0f);
+        }
+    }
+
+    private static float[] randomFloats(final Random random, final int n) {
+        final float[] floats = new float[n];
+        for (int i = 0; i < n; i++) {
+            floats[i] = random.nextFloat() * 2 - 1;
+        }
+        return floats;
+    }
+
+    private static float[][] dft(final float[] real, final float[] imaginary) {
+        final int n = real.length;
+        final float[][] out = new float[2][n];
+        final double[] cos = new double[n];
+        final double[] sin = new double[n];
+        for (int i = 0; i < n; i++) {
+            cos[i] = Math.cos(-2 * Math.PI * i / n);
+            sin[i] = Math.sin(-2 * Math.PI * i / n);
+        }
+        for (int k = 0; k < n; k++) {
+            double sumReal = 0;
+            double sumImaginary = 0;
+            for (int t = 0; t < n; t++) {
+                final int i = (int) ((long) t * k % n);
+                sumReal += real[t] * cos[i] - imaginary[t] * sin[i];
+                sumImaginary += real[t] * sin[i] + imaginary[t] * cos[i];
+            }
+            out[0][k] = (float) sumReal;
+            out[1][k] = (float) sumImaginary;
+        }
+        return out;
+    }
+}
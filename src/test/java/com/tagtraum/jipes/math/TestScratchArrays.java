@@ -0,0 +1,40 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.math;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * TestScratchArrays.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestScratchArrays {
+
+    @Test
+    public void testPerThread() throws InterruptedException {
+        final ScratchArrays scratchArrays = new ScratchArrays(3, 16);
+        final float[][] arrays = scratchArrays.get();
+        assertEquals(3, arrays.length);
+        assertEquals(16, arrays[2].length);
+        assertSame(arrays, scratchArrays.get());
+
+        final float[][][] otherThreadArrays = new float[1][][];
+        final Thread thread = new Thread() {
+            @Override
+            public void run() {
+                otherThreadArrays[0] = scratchArrays.get();
+            }
+        };
+        thread.start();
+        thread.join();
+        assertNotNull(otherThreadArrays[0]);
+        assertNotSame(arrays, otherThreadArrays[0]);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * =================================================
+ * Copyright 2018 tagtraum industries incorporated
+ * All rights reserved.
+ * =================================================
+ */
+package com.tagtraum.jipes.math;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * TestTransformCache.
+ *
+ * @author <a href="mailto:hs@tagtraum.com">Hendrik Schreiber</a>
+ */
+public class TestTransformCache {
+
+    @Test
+    public void testGetPut() {
+        final TransformCache cache = new TransformCache(4);
+        assertNull(cache.get(MixedRadixFFT.class, 12));
+        final Transform fft = new MixedRadixFFT(12);
+        assertSame(fft, cache.putIfAbsent(MixedRadixFFT.class, 12, fft));
+        assertSame(fft, cache.get(MixedRadixFFT.class, 12));
+        assertSame(fft, cache.putIfAbsent(MixedRadixFFT.class, 12, new MixedRadixFFT(12)));
+        assertNull(cache.get(MixedRadixFFT.class, 24));
+        assertNull(cache.get(Transform.class, 12));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testEviction() {
+        final TransformCache cache = new TransformCache(2);
+        final Transform fft3 = cache.putIfAbsent(MixedRadixFFT.class, 3, new MixedRadixFFT(3));
+        final Transform fft5 = cache.putIfAbsent(MixedRadixFFT.class, 5, new MixedRadixFFT(5));
+        final Transform fft6 = cache.putIfAbsent(MixedRadixFFT.class, 6, new MixedRadixFFT(6));
+        assertEquals(2, cache.size());
+        assertNull(cache.get(MixedRadixFFT.class, 3));
+        assertSame(fft5, cache.get(MixedRadixFFT.class, 5));
+        assertSame(fft6, cache.get(MixedRadixFFT.class, 6));
+        assertNotNull(fft3);
+    }
+
+    @Test
+    public void testConcurrentCreate() throws Exception {
+        final FFTFactory factory = FFTFactory.getInstance();
+        final int[] sizes = {256, 1024, 4096, 1000};
+        final ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Transform[]>> futures = new ArrayList<Future<Transform[]>>();
+            for (int t=0; t<8; t++) {
+                futures.add(executorService.submit(new Callable<Transform[]>() {
+                    @Override
+                    public Transform[] call() throws Exception {
+                        final Transform[] transforms = new Transform[sizes.length];
+                        for (int round=0; round<100; round++) {
+                            for (int i=0; i<sizes.length; i++) {
+                                final Transform transform = factory.create(sizes[i]);
+                                if (transforms[i] == null) transforms[i] = transform;
+                                else assertSame(transforms[i], transform);
+                            }
+                        }
+                        return transforms;
+                    }
+                }));
+            }
+            final Transform[] first = futures.get(0).get();
+            for (final Future<Transform[]> future : futures) {
+                assertArrayEquals(first, future.get());
+            }
+            for (int i=0; i<sizes.length; i++) {
+                assertSame(first[i], factory.create(sizes[i]));
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroCapacity() {
+        new TransformCache(0);
+    }
+}
@@ -6,6 +6,7 @@
  */
 package com.tagtraum.jipes.universal;
 
+import com.tagtraum.jipes.SignalProcessor;
 import com.tagtraum.jipes.SignalSource;
 import com.tagtraum.jipes.audio.AudioBuffer;
 import com.tagtraum.jipes.audio.RealAudioBuffer;
@@ -200,6 +201,24 @@ public class TestMapping {
         }
     }
 
+    @Test
+    public void testClone() throws CloneNotSupportedException, IOException {
+        final WindowFunction.Hamming hamming = new WindowFunction.Hamming(4);
+        final Mapping<float[]> processor = new Mapping<float[]>(hamming, "hamming");
+        processor.connectTo((SignalProcessor<float[], float[]>) new Mapping<float[]>());
+        processor.process(new float[]{1, 1, 1, 1});
+        final Mapping<float[]> clone = (Mapping<float[]>) processor.clone();
+        assertEquals(processor, clone);
+        assertEquals("hamming", clone.getId());
+        assertNull(clone.getOutput());
+        assertEquals(0, clone.getConnectedProcessors().length);
+        assertNotSame(hamming, clone.getMapFunction());
+        assertEquals(hamming, clone.getMapFunction());
+        // output buffers must not be shared
+        clone.process(new float[]{2, 2, 2, 2});
+        assertArrayEquals(hamming.getCoefficients(), processor.getOutput(), 0.00001f);
+    }
+
     @Test
     public void testNullGenerator() throws IOException {
         final Mapping<float[]> processor = new Mapping<float[]>();